@@ -0,0 +1,102 @@
+package WordTracker;
+
+import java.util.concurrent.*;
+
+/**
+ * BackgroundSave.java
+ *
+ * Runs the saves of a repository on a background thread, so the thread that
+ * changes the repository only asks for a save and carries on. Saves are
+ * coalesced: a save starts a short delay after it is requested, and further
+ * requests in the meantime are absorbed by it, since it will see every change
+ * made until it starts. A request that comes in while a save is already
+ * running queues one more save, which then picks up all changes made in the
+ * meantime. At most one save runs at a time.
+ *
+ * The save itself is supplied by the owner (see WordTracker.saveInBackground),
+ * which takes a snapshot of the repository under its own lock and writes it.
+ * The thread is a daemon, so the owner must call flush() before the program
+ * exits to be sure that the last changes have been written.
+ */
+final class BackgroundSave {
+    private final Runnable save;
+    private final long delayMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "repository-save");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean queued;                                        // A save has been submitted but not started
+    private Future<?> last = CompletableFuture.completedFuture(null);  // The save submitted last
+    private long requests;
+    private long saves;
+
+    /**
+     * Creates a background saver.
+     *
+     * @param save The save to run; it reports its own errors.
+     * @param delayMillis The time a save waits for further requests before it starts.
+     */
+    BackgroundSave(Runnable save, long delayMillis) {
+        this.save = save;
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Asks for a save. Returns at once.
+     */
+    synchronized void request() {
+        requests++;
+        if (queued) return;  // The waiting save will include this change
+        queued = true;
+        last = executor.schedule(this::run, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one save on the background thread.
+     */
+    private void run() {
+        synchronized (this) {
+            queued = false;  // Changes requested from now on need another save
+            saves++;
+        }
+        save.run();
+    }
+
+    /**
+     * Waits until every save requested so far has been written, including the
+     * delay of a save that has not started yet.
+     */
+    void flush() {
+        Future<?> pending;
+        synchronized (this) {
+            pending = last;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error saving repository: " + e.getCause());
+        }
+    }
+
+    /**
+     * Gets the number of saves requested.
+     *
+     * @return The number of requests.
+     */
+    synchronized long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Gets the number of saves run, which is smaller than the number of
+     * requests when requests were coalesced.
+     *
+     * @return The number of saves.
+     */
+    synchronized long getSaves() {
+        return saves;
+    }
+}
@@ -0,0 +1,481 @@
+package WordTracker;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * BooleanQuery.java
+ *
+ * A parsed boolean query over the word repository, answering questions such as
+ * "which lines contain both X and Y" or "which lines contain X but not Y".
+ *
+ * The query syntax is:
+ * - A word matches the lines it occurs on.
+ * - X AND Y (or simply X Y) matches the lines containing both words.
+ * - X OR Y matches the lines containing either word.
+ * - NOT X excludes the lines containing X; it must be combined with AND and a
+ *   positive term, e.g. X AND NOT Y.
+ * - Parentheses group subexpressions. AND binds tighter than OR.
+ *
+ * The operators must be written in upper case, since "and", "or" and "not" are
+ * ordinary words in the repository.
+ *
+ * Each term stands for a sorted posting list (see {@link PostingList}), which is
+ * only built when it is needed. A conjunction evaluates its smallest operand,
+ * judged by the occurrence counts of the terms, and then narrows that result by
+ * each of the others in turn, removing the negated operands last. A term that
+ * narrows a result checks each remaining posting against its own line sets when
+ * the result is much shorter, since a lookup in a line set costs several times
+ * as much as a step of building a list, and is turned into a list and galloped
+ * through otherwise, so the lists of frequent words are never built for a selective
+ * query. The cost is driven by the size of the smallest operand and the result
+ * rather than by the size of the vocabulary or of the other lists.
+ */
+public class BooleanQuery {
+    private static final int PROBE_RATIO = 8;  // A term is probed when it has this many times more postings than the candidates
+    private final Node root;
+    private final Set<String> terms = new TreeSet<>();
+
+    /**
+     * Parses a query expression.
+     *
+     * @param expression The query expression.
+     * @throws IllegalArgumentException If the expression is not a valid query.
+     */
+    public BooleanQuery(String expression) {
+        List<String> tokens = tokenize(expression);
+        if (tokens.isEmpty()) throw new IllegalArgumentException("Query is empty");
+
+        Parser parser = new Parser(tokens);
+        root = parser.parseOr();
+        if (parser.position < tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + tokens.get(parser.position) + "' in query");
+        }
+        if (root instanceof Not) throw new IllegalArgumentException("NOT must be combined with a positive term");
+    }
+
+    /**
+     * Gets the distinct words the query refers to.
+     *
+     * @return The words in the query, in lower case.
+     */
+    public Set<String> getTerms() {
+        return Collections.unmodifiableSet(terms);
+    }
+
+    /**
+     * Evaluates the query.
+     *
+     * @param lookup A function returning the WordInfo for a word, or null if the word is unknown.
+     * @return The matching line numbers, grouped by file, with files and lines in ascending order.
+     */
+    public Map<String, List<Integer>> evaluate(Function<String, WordInfo> lookup) {
+        // Number the files that any term occurs in, in sorted order, so that the
+        // postings of all terms sort consistently.
+        Map<String, WordInfo> infos = new HashMap<>();
+        SortedSet<String> files = new TreeSet<>();
+        for (String term : terms) {
+            WordInfo info = lookup.apply(term);
+            if (info != null) {
+                infos.put(term, info);
+                files.addAll(info.getFileLocations().keySet());
+            }
+        }
+        List<String> fileNames = new ArrayList<>(files);
+        Map<String, Integer> fileIds = new HashMap<>();
+        for (String file : fileNames) fileIds.put(file, fileIds.size());
+
+        Map<String, TermPostings> postings = new HashMap<>();
+        for (String term : terms) {
+            postings.put(term, new TermPostings(infos.get(term), fileNames, fileIds));
+        }
+
+        Map<String, List<Integer>> result = new LinkedHashMap<>();
+        for (long posting : root.evaluate(postings)) {
+            result.computeIfAbsent(fileNames.get(PostingList.fileId(posting)), k -> new ArrayList<>())
+                .add(PostingList.line(posting));
+        }
+        return result;
+    }
+
+    /**
+     * Splits an expression into words, operators and parentheses.
+     *
+     * @param expression The query expression.
+     * @return The tokens.
+     */
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(expression, " \t()", true);
+        while (tokenizer.hasMoreTokens()) {
+            String token = tokenizer.nextToken();
+            if (!token.trim().isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * A recursive-descent parser for the query syntax.
+     */
+    private class Parser {
+        private final List<String> tokens;
+        private int position;
+
+        /**
+         * Creates a parser over a list of tokens.
+         *
+         * @param tokens The tokens to parse.
+         */
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        /**
+         * Parses a sequence of conjunctions separated by OR.
+         *
+         * @return The parsed node.
+         */
+        Node parseOr() {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while (accept("OR")) operands.add(parseAnd());
+            for (Node operand : operands) {
+                if (operand instanceof Not) throw new IllegalArgumentException("NOT must be combined with a positive term");
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(operands);
+        }
+
+        /**
+         * Parses a sequence of operands joined by AND or juxtaposition.
+         *
+         * @return The parsed node.
+         */
+        Node parseAnd() {
+            List<Node> positives = new ArrayList<>();
+            List<Node> negatives = new ArrayList<>();
+            do {
+                Node operand = parseUnary();
+                if (operand instanceof Not) {
+                    negatives.add(((Not) operand).operand);
+                } else {
+                    positives.add(operand);
+                }
+            } while (accept("AND") || (position < tokens.size() && !peek("OR") && !peek(")")));
+
+            if (positives.isEmpty()) {
+                return negatives.size() == 1 ? new Not(negatives.get(0)) : new Not(new Or(negatives));
+            }
+            if (positives.size() == 1 && negatives.isEmpty()) return positives.get(0);
+            return new And(positives, negatives);
+        }
+
+        /**
+         * Parses an optionally negated operand.
+         *
+         * @return The parsed node.
+         */
+        Node parseUnary() {
+            if (accept("NOT")) {
+                Node operand = parseUnary();
+                if (operand instanceof Not) return ((Not) operand).operand;  // NOT NOT X is X
+                return new Not(operand);
+            }
+            return parsePrimary();
+        }
+
+        /**
+         * Parses a word or a parenthesized expression.
+         *
+         * @return The parsed node.
+         */
+        Node parsePrimary() {
+            if (position >= tokens.size()) throw new IllegalArgumentException("Query ends unexpectedly");
+            if (accept("(")) {
+                Node node = parseOr();
+                if (!accept(")")) throw new IllegalArgumentException("Missing ')' in query");
+                return node;
+            }
+
+            String token = tokens.get(position);
+            if (token.equals(")") || token.equals("AND") || token.equals("OR")) {
+                throw new IllegalArgumentException("Unexpected '" + token + "' in query");
+            }
+            position++;
+            String word = token.toLowerCase();
+            terms.add(word);
+            return new Term(word);
+        }
+
+        /**
+         * Checks whether the next token is the given one.
+         *
+         * @param token The expected token.
+         * @return True if the next token matches.
+         */
+        boolean peek(String token) {
+            return position < tokens.size() && tokens.get(position).equals(token);
+        }
+
+        /**
+         * Consumes the next token if it is the given one.
+         *
+         * @param token The expected token.
+         * @return True if the token was consumed.
+         */
+        boolean accept(String token) {
+            if (!peek(token)) return false;
+            position++;
+            return true;
+        }
+    }
+
+    /**
+     * The postings of a term. The sorted list is built the first time it is
+     * asked for; until then, postings can be checked against the line sets of
+     * the word directly.
+     */
+    private static final class TermPostings {
+        private final WordInfo info;
+        private final List<String> fileNames;
+        private final Map<String, Integer> fileIds;
+        private long[] list;  // Null until built
+
+        /**
+         * Creates the postings of a term.
+         *
+         * @param info The word, or null if it is unknown.
+         * @param fileNames The names of the files, by ID.
+         * @param fileIds The IDs of the files, numbered in sorted order.
+         */
+        TermPostings(WordInfo info, List<String> fileNames, Map<String, Integer> fileIds) {
+            this.info = info;
+            this.fileNames = fileNames;
+            this.fileIds = fileIds;
+        }
+
+        /**
+         * Gets the number of postings without building the list.
+         *
+         * @return The number of postings.
+         */
+        int size() {
+            return info == null ? 0 : info.getOccurrences();
+        }
+
+        /**
+         * Gets the sorted posting list, building it on first use. The files
+         * are visited in the order of their IDs and the lines of each file are
+         * already sorted, so the list needs no sorting.
+         *
+         * @return The postings of the word.
+         */
+        long[] list() {
+            if (list != null) return list;
+            if (info == null) return list = PostingList.EMPTY;
+
+            int[] ids = new int[info.getFileLocations().size()];
+            int files = 0;
+            for (String file : info.getFileLocations().keySet()) {
+                ids[files++] = fileIds.get(file);
+            }
+            Arrays.sort(ids);
+            long[] postings = new long[size()];
+            int count = 0;
+            for (int fileId : ids) {
+                int first = count;
+                Set<Integer> lines = info.getFileLocations().get(fileNames.get(fileId));
+                for (int line : lines) {
+                    postings[count++] = PostingList.posting(fileId, line);
+                }
+                if (!(lines instanceof SortedSet)) Arrays.sort(postings, first, count);
+            }
+            return list = count == postings.length ? postings : Arrays.copyOf(postings, count);
+        }
+
+        /**
+         * Checks whether the word occurs at a posting, without building the list.
+         *
+         * @param posting The posting.
+         * @return True if the word occurs on that line of that file.
+         */
+        boolean contains(long posting) {
+            if (info == null) return false;
+            Set<Integer> lines = info.getFileLocations().get(fileNames.get(PostingList.fileId(posting)));
+            return lines != null && lines.contains(PostingList.line(posting));
+        }
+    }
+
+    /**
+     * A node of the parsed query.
+     */
+    private abstract static class Node {
+        /**
+         * Evaluates the node.
+         *
+         * @param postings The postings of every term in the query.
+         * @return The sorted postings matching the node.
+         */
+        abstract long[] evaluate(Map<String, TermPostings> postings);
+
+        /**
+         * Bounds the number of postings the node matches without evaluating it.
+         *
+         * @param postings The postings of every term in the query.
+         * @return An upper bound on the size of the result.
+         */
+        abstract long estimate(Map<String, TermPostings> postings);
+
+        /**
+         * Narrows a sorted list of postings to those the node matches, or to
+         * those it does not match.
+         *
+         * @param candidates The sorted postings to narrow.
+         * @param postings The postings of every term in the query.
+         * @param matching True to keep the postings the node matches, false to keep the others.
+         * @return The sorted postings kept.
+         */
+        long[] narrow(long[] candidates, Map<String, TermPostings> postings, boolean matching) {
+            long[] list = evaluate(postings);
+            return matching ? PostingList.intersect(candidates, list) : PostingList.difference(candidates, list);
+        }
+    }
+
+    /**
+     * A single word.
+     */
+    private static class Term extends Node {
+        private final String word;
+
+        /**
+         * Creates a term node.
+         *
+         * @param word The word, in lower case.
+         */
+        Term(String word) {
+            this.word = word;
+        }
+
+        @Override
+        long[] evaluate(Map<String, TermPostings> postings) {
+            return postings.get(word).list();
+        }
+
+        @Override
+        long estimate(Map<String, TermPostings> postings) {
+            return postings.get(word).size();
+        }
+
+        @Override
+        long[] narrow(long[] candidates, Map<String, TermPostings> postings, boolean matching) {
+            TermPostings term = postings.get(word);
+            if ((long) candidates.length * PROBE_RATIO >= term.size()) return super.narrow(candidates, postings, matching);
+
+            long[] result = new long[candidates.length];  // Far fewer candidates than postings: look each one up
+            int count = 0;
+            for (long posting : candidates) {
+                if (term.contains(posting) == matching) result[count++] = posting;
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    /**
+     * A conjunction of positive operands, minus the negated operands.
+     */
+    private static class And extends Node {
+        private final List<Node> positives;
+        private final List<Node> negatives;
+
+        /**
+         * Creates a conjunction.
+         *
+         * @param positives The operands that must match.
+         * @param negatives The operands that must not match.
+         */
+        And(List<Node> positives, List<Node> negatives) {
+            this.positives = positives;
+            this.negatives = negatives;
+        }
+
+        @Override
+        long[] evaluate(Map<String, TermPostings> postings) {
+            List<Node> operands = new ArrayList<>(positives);
+            operands.sort(Comparator.comparingLong(operand -> operand.estimate(postings)));  // Smallest first
+
+            long[] result = operands.get(0).evaluate(postings);
+            for (int i = 1; i < operands.size() && result.length > 0; i++) {
+                result = operands.get(i).narrow(result, postings, true);
+            }
+            for (int i = 0; i < negatives.size() && result.length > 0; i++) {
+                result = negatives.get(i).narrow(result, postings, false);
+            }
+            return result;
+        }
+
+        @Override
+        long estimate(Map<String, TermPostings> postings) {
+            long smallest = Long.MAX_VALUE;
+            for (Node operand : positives) smallest = Math.min(smallest, operand.estimate(postings));
+            return smallest;
+        }
+    }
+
+    /**
+     * A disjunction of operands.
+     */
+    private static class Or extends Node {
+        private final List<Node> operands;
+
+        /**
+         * Creates a disjunction.
+         *
+         * @param operands The operands of which at least one must match.
+         */
+        Or(List<Node> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        long[] evaluate(Map<String, TermPostings> postings) {
+            long[] result = PostingList.EMPTY;
+            for (Node operand : operands) {
+                result = PostingList.union(result, operand.evaluate(postings));
+            }
+            return result;
+        }
+
+        @Override
+        long estimate(Map<String, TermPostings> postings) {
+            long total = 0;
+            for (Node operand : operands) total += operand.estimate(postings);
+            return total;
+        }
+    }
+
+    /**
+     * A negated operand. Only valid as part of a conjunction, which is where it is
+     * evaluated; on its own it would match every line that is not indexed.
+     */
+    private static class Not extends Node {
+        private final Node operand;
+
+        /**
+         * Creates a negation.
+         *
+         * @param operand The operand to negate.
+         */
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        long[] evaluate(Map<String, TermPostings> postings) {
+            throw new IllegalStateException("NOT must be combined with a positive term");
+        }
+
+        @Override
+        long estimate(Map<String, TermPostings> postings) {
+            throw new IllegalStateException("NOT must be combined with a positive term");
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package WordTracker;
+
+import implementations.CompactDictionary;
+import implementations.ObjectLayout;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * CompactIndex.java
+ *
+ * The repository in compact dictionary mode (see WordTracker.setCompactDictionary).
+ * Instead of a tree of WordInfo objects, each with a String, a HashMap and a
+ * TreeSet of boxed line numbers, the words are kept in a CompactDictionary,
+ * which stores their bytes in large arenas, and the postings of word id i are
+ * kept in a single int array postings[i]. The array holds one group per file:
+ * the id of the file in the filename table, the number of lines, and the line
+ * numbers in ascending order. A word thus costs its bytes and a handful of
+ * array slots rather than several objects per word, file and line.
+ *
+ * WordInfo objects are only created at the report boundary: lookups and
+ * report walks build a WordInfo for each word they return, which the caller
+ * can drop as soon as it has been printed. Exact positions are not kept.
+ *
+ * The postings of a file are expected to be added in one pass, in the order of
+ * its lines. Words whose postings are all removed stay in the dictionary, so
+ * their ids remain valid, but are skipped by lookups and walks until they are
+ * added again.
+ *
+ * The index also keeps the ids of the words of every file, in the order they
+ * first occur in it, so that a file can be listed or removed by visiting only
+ * its own words. These lists are not saved but rebuilt from the postings when
+ * the index is loaded.
+ */
+final class CompactIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int NONE = -1;
+    private final CompactDictionary words = new CompactDictionary();
+    private int[][] postings = new int[16][];    // Groups of file id, line count and lines per word id
+    private int[] postingLength = new int[16];   // Number of ints used in postings[id]
+    private int[] lastGroup = new int[16];       // Start of the last group in postings[id], or NONE
+    private int[] occurrences = new int[16];     // Number of lines in postings[id]
+    private int liveWords;                       // Words with at least one posting
+    private final List<String> files = new ArrayList<>();
+    private transient Map<String, Integer> fileIds = new HashMap<>();
+    private transient int[][] fileWords = new int[16][];  // Ids of the words of every file id
+    private transient int[] fileWordCounts = new int[16]; // Number of ids used in fileWords[fileId]
+
+    /**
+     * Gets the dictionary of words, for its statistics.
+     *
+     * @return The dictionary.
+     */
+    CompactDictionary getDictionary() {
+        return words;
+    }
+
+    /**
+     * Gets the number of words that have postings.
+     *
+     * @return The number of distinct words.
+     */
+    int size() {
+        return liveWords;
+    }
+
+    /**
+     * Gets the id of a file in the filename table, adding it if it is new.
+     *
+     * @param filename The name of the file.
+     * @return The id of the file.
+     */
+    int fileId(String filename) {
+        return fileIds.computeIfAbsent(filename, name -> {
+            files.add(name);
+            int fileId = files.size() - 1;
+            if (fileId == fileWords.length) {
+                fileWords = Arrays.copyOf(fileWords, fileId * 2);
+                fileWordCounts = Arrays.copyOf(fileWordCounts, fileId * 2);
+            }
+            fileWords[fileId] = new int[16];
+            return fileId;
+        });
+    }
+
+    /**
+     * Gets the id of a word, adding the word to the dictionary if it is new.
+     *
+     * @param word The word.
+     * @return The id of the word.
+     */
+    int wordId(String word) {
+        return prepare(words.add(word));
+    }
+
+    /**
+     * Makes room for the postings of a word id, which may be new.
+     *
+     * @param id The id of the word.
+     * @return The id.
+     */
+    private int prepare(int id) {
+        if (id >= postings.length) {
+            int capacity = Math.max(id + 1, postings.length * 2);
+            postings = Arrays.copyOf(postings, capacity);
+            postingLength = Arrays.copyOf(postingLength, capacity);
+            lastGroup = Arrays.copyOf(lastGroup, capacity);
+            occurrences = Arrays.copyOf(occurrences, capacity);
+        }
+        if (postings[id] == null) {
+            postings[id] = new int[4];
+            lastGroup[id] = NONE;
+        }
+        return id;
+    }
+
+    /**
+     * Adds a location of a word. Lines of one file must be added in ascending
+     * order, and all of them before those of another file.
+     *
+     * @param id The id of the word.
+     * @param fileId The id of the file.
+     * @param line The line number.
+     * @return True if the location was new, false if it was the last one added.
+     */
+    boolean addLocation(int id, int fileId, int line) {
+        int[] list = postings[id];
+        int group = lastGroup[id];
+        int length = postingLength[id];
+        if (group != NONE && list[group] == fileId) {
+            if (list[length - 1] == line) return false;  // Same line as the previous occurrence
+            append(id, line)[group + 1]++;
+        } else {
+            lastGroup[id] = length;
+            append(id, fileId);
+            append(id, 1);
+            append(id, line);
+            addFileWord(fileId, id);
+        }
+        if (occurrences[id]++ == 0) liveWords++;
+        return true;
+    }
+
+    /**
+     * Adds every location of a list of words, as when a repository is converted
+     * or merged runs are added. The words go into the dictionary as one sorted
+     * batch, which keeps its tree balanced (see CompactDictionary.addAll).
+     *
+     * @param sorted The words in ascending order.
+     */
+    void addAll(List<WordInfo> sorted) {
+        List<String> batch = new ArrayList<>(sorted.size());
+        for (WordInfo info : sorted) {
+            batch.add(info.getWord());
+        }
+        int[] ids = words.addAll(batch);
+        for (int i = 0; i < ids.length; i++) {
+            int id = prepare(ids[i]);
+            sorted.get(i).getFileLocations().forEach((file, lines) -> {
+                int fileId = fileId(file);
+                for (int line : lines) {  // Ascending, as the sets are TreeSets
+                    addLocation(id, fileId, line);
+                }
+            });
+        }
+    }
+
+    /**
+     * Looks up a word.
+     *
+     * @param word The word.
+     * @return A new WordInfo holding the locations of the word, or null if it has none.
+     */
+    WordInfo lookup(String word) {
+        int id = words.find(word);
+        return id == CompactDictionary.NOT_FOUND || occurrences[id] == 0 ? null : toWordInfo(id);
+    }
+
+    /**
+     * Performs an action on a new WordInfo for every word with postings, in
+     * ascending order.
+     *
+     * @param action The action to perform.
+     */
+    void forEachWord(Consumer<? super WordInfo> action) {
+        PrimitiveIterator.OfInt ids = words.inorderIterator();
+        while (ids.hasNext()) {
+            int id = ids.nextInt();
+            if (occurrences[id] > 0) action.accept(toWordInfo(id));
+        }
+    }
+
+    /**
+     * Finds the words with postings within the distance of a fuzzy query,
+     * feeding the query the words in ascending order. No WordInfo objects are
+     * created.
+     *
+     * @param query The fuzzy query.
+     * @return The matches, in ascending order of the words.
+     */
+    List<FuzzyQuery.Match> fuzzyLookup(FuzzyQuery query) {
+        List<FuzzyQuery.Match> matches = new ArrayList<>();
+        PrimitiveIterator.OfInt ids = words.inorderIterator();
+        while (ids.hasNext()) {
+            int id = ids.nextInt();
+            if (occurrences[id] == 0) continue;
+            String word = words.get(id);
+            int distance = query.distance(word);
+            if (distance >= 0) matches.add(new FuzzyQuery.Match(word, distance, occurrences[id]));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the K words with the most occurrences, ordered by descending
+     * occurrence count and then alphabetically, as TopWords does. Only the
+     * selected words are turned into WordInfo objects.
+     *
+     * @param k The number of words to return.
+     * @return The most frequent words.
+     * @throws IllegalArgumentException If k is not positive.
+     */
+    List<WordInfo> topWords(int k) throws IllegalArgumentException {
+        if (k <= 0) throw new IllegalArgumentException("K must be positive: " + k);
+        Comparator<Integer> heapOrder = Comparator.<Integer>comparingInt(id -> occurrences[id])
+            .thenComparing((a, b) -> words.compare(b, a));  // On a tie the later word is less frequent
+        PriorityQueue<Integer> heap = new PriorityQueue<>(heapOrder);
+        for (int id = 0; id < words.size(); id++) {
+            if (occurrences[id] == 0) continue;
+            if (heap.size() < k) {
+                heap.add(id);
+            } else if (heapOrder.compare(id, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(id);
+            }
+        }
+        List<Integer> selected = new ArrayList<>(heap);
+        selected.sort(heapOrder.reversed());
+        List<WordInfo> result = new ArrayList<>(selected.size());
+        for (int id : selected) {
+            result.add(toWordInfo(id));
+        }
+        return result;
+    }
+
+    /**
+     * Removes every posting of several files. Only the words of those files
+     * are visited.
+     *
+     * @param filenames The names of the files; unknown files are ignored.
+     */
+    void removeFiles(Set<String> filenames) {
+        for (String filename : filenames) {
+            Integer fileId = fileIds.get(filename);
+            if (fileId == null) continue;
+            for (int i = 0; i < fileWordCounts[fileId]; i++) {
+                removeGroup(fileWords[fileId][i], fileId);
+            }
+            fileWordCounts[fileId] = 0;
+        }
+    }
+
+    /**
+     * Removes the group of a file from the postings of a word, moving the
+     * groups after it down.
+     *
+     * @param id The id of the word.
+     * @param fileId The id of the file.
+     */
+    private void removeGroup(int id, int fileId) {
+        int[] list = postings[id];
+        int last = NONE;
+        for (int group = 0; group < postingLength[id]; group += 2 + list[group + 1]) {
+            if (list[group] != fileId) {
+                last = group;
+                continue;
+            }
+            int groupLength = 2 + list[group + 1];
+            occurrences[id] -= list[group + 1];
+            System.arraycopy(list, group + groupLength, list, group, postingLength[id] - group - groupLength);
+            postingLength[id] -= groupLength;
+            for (int next = group; next < postingLength[id]; next += 2 + list[next + 1]) {
+                last = next;  // A group that moved down
+            }
+            lastGroup[id] = last;
+            if (occurrences[id] == 0) liveWords--;
+            return;
+        }
+    }
+
+    /**
+     * Gets the words of a file with their lines in it, in ascending order of
+     * the words. Only the words of the file are visited.
+     *
+     * @param filename The name of the file.
+     * @return The words mapped to their line numbers, empty if the file is not indexed.
+     */
+    Map<String, List<Integer>> wordsOf(String filename) {
+        Integer fileId = fileIds.get(filename);
+        if (fileId == null) return Collections.emptyMap();
+        Integer[] ids = new Integer[fileWordCounts[fileId]];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = fileWords[fileId][i];
+        }
+        Arrays.sort(ids, words::compare);
+        Map<String, List<Integer>> result = new LinkedHashMap<>();
+        for (int id : ids) {
+            int[] list = postings[id];
+            for (int group = 0; group < postingLength[id]; group += 2 + list[group + 1]) {
+                if (list[group] != fileId) continue;
+                List<Integer> lines = new ArrayList<>(list[group + 1]);
+                for (int i = group + 2; i < group + 2 + list[group + 1]; i++) {
+                    lines.add(list[i]);
+                }
+                result.put(words.get(id), lines);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the postings of the repository, in total and per file.
+     *
+     * @param filePostings Receives the number of postings of every file.
+     * @return The total number of postings.
+     */
+    long countPostings(Map<String, Long> filePostings) {
+        long total = 0;
+        for (int id = 0; id < words.size(); id++) {
+            int[] list = postings[id];
+            for (int group = 0; group < postingLength[id]; group += 2 + list[group + 1]) {
+                filePostings.merge(files.get(list[group]), (long) list[group + 1], Long::sum);
+                total += list[group + 1];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the heap retained by the index. There are no WordInfo objects;
+     * the dictionary arrays count as tree nodes, the arenas as words, the
+     * filename table and the words of every file as filename maps, and the
+     * posting arrays as posting sets.
+     * The filenames are not counted, as they are shared with the per-file
+     * posting counts of the tracker.
+     *
+     * @return The estimate.
+     */
+    HeapFootprint estimateFootprint() {
+        long postingBytes = ObjectLayout.objectBytes(7, 4)             // Fields of the index; liveWords
+            + ObjectLayout.referenceArrayBytes(postings.length)
+            + 3 * ObjectLayout.arrayBytes(postings.length, 4);
+        for (int id = 0; id < words.size(); id++) {
+            postingBytes += ObjectLayout.arrayBytes(postings[id].length, 4);
+        }
+        long fileBytes = ObjectLayout.objectBytes(1, 2 * 4)            // The ArrayList; size, modCount
+            + ObjectLayout.referenceArrayBytes(files.size())
+            + HeapFootprint.hashMapBytes(files.size())
+            + Math.max(0, files.size() - 128) * HeapFootprint.INTEGER  // Ids above the Integer cache
+            + ObjectLayout.referenceArrayBytes(fileWords.length) + ObjectLayout.arrayBytes(fileWordCounts.length, 4);
+        for (int fileId = 0; fileId < files.size(); fileId++) {
+            fileBytes += ObjectLayout.arrayBytes(fileWords[fileId].length, 4);
+        }
+        return new HeapFootprint(words.estimateNodeBytes(), 0, words.estimateArenaBytes(), fileBytes, postingBytes, 0);
+    }
+
+    /**
+     * Creates a WordInfo holding the word and locations of a word id. The
+     * filenames are the Strings of the filename table, so they are shared.
+     *
+     * @param id The id of the word.
+     * @return The new WordInfo.
+     */
+    private WordInfo toWordInfo(int id) {
+        WordInfo info = new WordInfo(words.get(id));
+        int[] list = postings[id];
+        for (int group = 0; group < postingLength[id]; group += 2 + list[group + 1]) {
+            String filename = files.get(list[group]);
+            for (int i = group + 2; i < group + 2 + list[group + 1]; i++) {
+                info.addLocation(filename, list[i]);
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Records that a word occurs in a file.
+     *
+     * @param fileId The id of the file.
+     * @param id The id of the word.
+     */
+    private void addFileWord(int fileId, int id) {
+        int[] ids = fileWords[fileId];
+        if (fileWordCounts[fileId] == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            fileWords[fileId] = ids;
+        }
+        ids[fileWordCounts[fileId]++] = id;
+    }
+
+    /**
+     * Appends an int to the postings of a word, growing its array if needed.
+     *
+     * @param id The id of the word.
+     * @param value The value to append.
+     * @return The postings array of the word, which may have been replaced.
+     */
+    private int[] append(int id, int value) {
+        int[] list = postings[id];
+        if (postingLength[id] == list.length) {
+            list = Arrays.copyOf(list, list.length + (list.length >> 1) + 1);
+            postings[id] = list;
+        }
+        list[postingLength[id]++] = value;
+        return list;
+    }
+
+    /**
+     * Restores the index from a serialized stream and rebuilds the lookup table
+     * of filenames and the words of every file, which are not stored.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If the stream cannot be read.
+     * @throws ClassNotFoundException If a serialized class cannot be found.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        fileIds = new HashMap<>();
+        fileWords = new int[Math.max(16, files.size())][];
+        fileWordCounts = new int[fileWords.length];
+        for (int i = 0; i < files.size(); i++) {
+            fileIds.put(files.get(i), i);
+            fileWords[i] = new int[16];
+        }
+        for (int id = 0; id < words.size(); id++) {
+            int[] list = postings[id];
+            for (int group = 0; group < postingLength[id]; group += 2 + list[group + 1]) {
+                addFileWord(list[group], id);
+            }
+        }
+    }
+}
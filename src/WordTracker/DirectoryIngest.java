@@ -0,0 +1,347 @@
+package WordTracker;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * DirectoryIngest.java
+ *
+ * Processes every regular file below a directory into a WordTracker using a
+ * pipeline of three stages connected by bounded queues:
+ * - A reader thread walks the directory, skips unchanged files and reads the
+ *   content of the others.
+ * - One or more tokenizer threads decode and split the content into words.
+ * - The calling thread adds the words to the word tree, which is not thread-safe
+ *   and therefore has a single writer.
+ *
+ * Reading and tokenizing overlap with indexing, and the queues together with a
+ * budget on the bytes of file content in flight keep the memory used by the
+ * pipeline bounded regardless of the number of files.
+ */
+public class DirectoryIngest {
+    private static final int QUEUE_CAPACITY = 64;             // Files waiting between two stages
+    private static final int CONTENT_BUDGET_KB = 64 * 1024;   // File content in flight, in kilobytes
+    private final WordTracker tracker;
+    private final int tokenizerThreads;
+    private final int contentBudgetKb;
+    private Predicate<String> filter = filename -> true;
+    private final BlockingQueue<FileContent> readQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<FileContent> tokenQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Semaphore contentBudget;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Constructs a pipeline that uses one tokenizer thread per spare processor.
+     *
+     * @param tracker The tracker to index into.
+     */
+    public DirectoryIngest(WordTracker tracker) {
+        this(tracker, Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+    }
+
+    /**
+     * Constructs a pipeline with the given number of tokenizer threads.
+     *
+     * @param tracker The tracker to index into.
+     * @param tokenizerThreads The number of tokenizer threads.
+     */
+    public DirectoryIngest(WordTracker tracker, int tokenizerThreads) {
+        this(tracker, tokenizerThreads, CONTENT_BUDGET_KB);
+    }
+
+    /**
+     * Constructs a pipeline with the given number of tokenizer threads and a
+     * lower limit on the file content in flight. Tokenized content takes up to
+     * about 16 times the size of the file, so a memory-bounded ingest lowers the
+     * limit.
+     *
+     * @param tracker The tracker to index into.
+     * @param tokenizerThreads The number of tokenizer threads.
+     * @param contentBudgetKb The kilobytes of file content read but not yet indexed, at most 64 MB.
+     */
+    public DirectoryIngest(WordTracker tracker, int tokenizerThreads, long contentBudgetKb) {
+        this.tracker = tracker;
+        this.tokenizerThreads = tokenizerThreads;
+        this.contentBudgetKb = (int) Math.max(1, Math.min(CONTENT_BUDGET_KB, contentBudgetKb));
+        this.contentBudget = new Semaphore(this.contentBudgetKb);
+    }
+
+    /**
+     * Restricts the pipeline to the files whose names pass a filter, such as the
+     * files of one partition (see PartitionedIngest). Other files are neither
+     * counted nor read.
+     *
+     * @param filter The filter on filenames.
+     */
+    void setFilter(Predicate<String> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Runs the pipeline over a directory and waits for it to finish. The
+     * repository and manifest are updated in memory but not saved.
+     *
+     * @param root The directory to process.
+     * @return The throughput figures of the run.
+     * @throws IOException If the directory cannot be walked.
+     */
+    public Result run(Path root) throws IOException {
+        if (!Files.isDirectory(root)) throw new NotDirectoryException(root.toString());
+
+        Result result = new Result();
+        long start = System.nanoTime();
+        Thread reader = new Thread(() -> read(root, result), "word-tracker-reader");
+        Thread[] tokenizers = new Thread[tokenizerThreads];
+        for (int i = 0; i < tokenizers.length; i++) {
+            tokenizers[i] = new Thread(this::tokenize, "word-tracker-tokenizer-" + i);
+        }
+
+        reader.setDaemon(true);
+        reader.start();
+        for (Thread tokenizer : tokenizers) {
+            tokenizer.setDaemon(true);
+            tokenizer.start();
+        }
+
+        try {
+            index(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+
+        if (failure.get() != null) {
+            reader.interrupt();
+            for (Thread tokenizer : tokenizers) tokenizer.interrupt();
+            Throwable cause = failure.get();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Directory ingest failed: " + cause, cause);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * The reader stage: walks the directory and queues the content of every
+     * file that may have changed, followed by one end marker per tokenizer
+     * unless the run has failed.
+     *
+     * @param root The directory to walk.
+     * @param result The figures to update.
+     */
+    private void read(Path root, Result result) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> iterator = paths.iterator();
+            while (iterator.hasNext() && failure.get() == null) {
+                Path path = iterator.next();
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) continue;
+
+                String filename = path.toString();
+                if (!filter.test(filename)) continue;
+                result.filesFound++;
+                if (tracker.isUnchanged(filename, attributes)) continue;
+
+                int permits = (int) Math.min(contentBudgetKb, (attributes.size() >> 10) + 1);
+                contentBudget.acquire(permits);
+                byte[] content;
+                long start = System.nanoTime();
+                try {
+                    content = Files.readAllBytes(path);
+                } catch (IOException e) {
+                    contentBudget.release(permits);
+                    System.err.println("Error processing file: " + e.getMessage());
+                    continue;
+                }
+                tracker.getMetrics().record(Metrics.Phase.READ, start);
+                tracker.getMetrics().addBytesRead(content.length);
+                result.bytesRead += content.length;
+                FileManifest.Entry entry = new FileManifest.Entry(
+                    content.length, attributes.lastModifiedTime().toMillis(), FileManifest.hash(content));
+                readQueue.put(new FileContent(filename, entry, content, permits));
+            }
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            fail(e);
+        } finally {
+            try {
+                for (int i = 0; i < tokenizerThreads && failure.get() == null; i++) {
+                    readQueue.put(FileContent.END);  // Waits for room while the tokenizers drain the queue
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * The tokenizer stage: splits the content of each file into words. Files
+     * whose content hash is unchanged are passed on without tokenizing. If the
+     * run fails, the reader sends no end markers, so the stage stops on its own
+     * once it sees the failure.
+     */
+    private void tokenize() {
+        try {
+            while (true) {
+                FileContent file = readQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (failure.get() != null) return;
+                if (file == null) continue;
+                if (file == FileContent.END) break;
+
+                if (!tracker.isSameContent(file.filename, file.entry)) {
+                    try {
+                        file.tokens = tracker.tokenize(file.content);
+                    } catch (IOException e) {
+                        System.err.println("Error processing file: " + file.filename + ": " + e.getMessage());
+                        file.failed = true;
+                    }
+                }
+                file.content = null;  // Only the tokens are needed from here on
+                tokenQueue.put(file);
+            }
+            tokenQueue.put(FileContent.END);
+        } catch (InterruptedException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(e);
+            tokenQueue.offer(FileContent.END);
+        }
+    }
+
+    /**
+     * The index stage: adds the words of each file to the tracker until every
+     * tokenizer has finished.
+     *
+     * @param result The figures to update.
+     * @throws InterruptedException If the calling thread is interrupted.
+     * @throws IOException If a memory-bounded ingest cannot write a run.
+     */
+    private void index(Result result) throws InterruptedException, IOException {
+        int running = tokenizerThreads;
+        while (running > 0) {
+            FileContent file = tokenQueue.poll(100, TimeUnit.MILLISECONDS);
+            if (failure.get() != null) return;
+            if (file == null) continue;
+            if (file == FileContent.END) {
+                running--;
+                continue;
+            }
+
+            contentBudget.release(file.permits);
+            if (file.failed) continue;
+            if (tracker.applyFile(file.filename, file.entry, file.tokens)) {
+                result.filesIndexed++;
+                result.tokens += file.tokens.size();
+            }
+        }
+    }
+
+    /**
+     * Records the first failure of any stage.
+     *
+     * @param cause The failure.
+     */
+    private void fail(Throwable cause) {
+        failure.compareAndSet(null, cause);
+    }
+
+    /**
+     * A file travelling through the pipeline.
+     */
+    private static class FileContent {
+        static final FileContent END = new FileContent(null, null, null, 0);  // Marks the end of a queue
+        final String filename;
+        final FileManifest.Entry entry;
+        final int permits;
+        byte[] content;
+        TokenList tokens;
+        boolean failed;
+
+        /**
+         * Creates a file read from disk.
+         *
+         * @param filename The name of the file.
+         * @param entry The current state of the file.
+         * @param content The content of the file.
+         * @param permits The content budget held by the file, in kilobytes.
+         */
+        FileContent(String filename, FileManifest.Entry entry, byte[] content, int permits) {
+            this.filename = filename;
+            this.entry = entry;
+            this.content = content;
+            this.permits = permits;
+        }
+    }
+
+    /**
+     * Throughput figures of a pipeline run.
+     */
+    public static class Result {
+        private long filesFound;    // Updated by the reader; published to the index stage through the queues
+        private long bytesRead;
+        private long filesIndexed;
+        private long tokens;
+        private long elapsedNanos;
+
+        /**
+         * Gets the number of regular files found below the directory.
+         *
+         * @return The number of files found.
+         */
+        public long getFilesFound() {
+            return filesFound;
+        }
+
+        /**
+         * Gets the number of files whose words were indexed.
+         *
+         * @return The number of files indexed.
+         */
+        public long getFilesIndexed() {
+            return filesIndexed;
+        }
+
+        /**
+         * Gets the number of bytes read from files that may have changed.
+         *
+         * @return The number of bytes read.
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * Gets the number of words indexed.
+         *
+         * @return The number of words.
+         */
+        public long getTokens() {
+            return tokens;
+        }
+
+        /**
+         * Gets the wall-clock duration of the run.
+         *
+         * @return The duration in seconds.
+         */
+        public double getSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(getSeconds(), 1e-9);
+            return String.format("Processed %d of %d files (%.1f MB, %d words) in %.2f s: "
+                    + "%.1f files/s, %.2f MB/s, %.0f words/s",
+                filesIndexed, filesFound, bytesRead / 1e6, tokens, getSeconds(),
+                filesFound / seconds, bytesRead / 1e6 / seconds, tokens / seconds);
+        }
+    }
+}
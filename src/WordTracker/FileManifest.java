@@ -0,0 +1,248 @@
+package WordTracker;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FileManifest.java
+ *
+ * A record of the files that have been processed into a repository, with the
+ * size, modification time and content hash each file had when it was indexed.
+ * WordTracker uses it to skip files that have not changed since they were last
+ * processed, and to detect files whose postings must be replaced.
+ *
+ * A file whose size and modification time match its entry is considered
+ * unchanged without reading it. Otherwise its content hash is compared, so a
+ * file that was only touched is not indexed again either.
+ *
+ * The manifest is Serializable and is stored next to the repository file. It may
+ * be read and updated from different threads. Since the two files are separate,
+ * each entry also records the number of postings its file had in the repository
+ * the manifest was saved with, so that a manifest whose repository has been
+ * deleted or replaced can be detected after loading (see retainBackedBy).
+ */
+public class FileManifest implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();  // Filenames mapped to their last indexed state
+
+    /**
+     * Loads a manifest from a file. If the file does not exist or cannot be read,
+     * an empty manifest is returned.
+     *
+     * @param manifestFile The path of the manifest file.
+     * @return The loaded manifest.
+     */
+    public static FileManifest load(String manifestFile) {
+        if (Files.exists(Paths.get(manifestFile))) {
+            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(manifestFile))) {
+                return (FileManifest) ois.readObject();
+            } catch (Exception e) {
+                System.err.println("Error loading manifest: " + e.getMessage());
+            }
+        }
+        return new FileManifest();
+    }
+
+    /**
+     * Saves the manifest to a file. The file is replaced atomically, so a crash
+     * while saving leaves the previous manifest.
+     *
+     * @param manifestFile The path of the manifest file.
+     */
+    public void save(String manifestFile) {
+        try {
+            RepositoryIO.write(this, Paths.get(manifestFile));
+        } catch (IOException e) {
+            System.err.println("Error saving manifest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the recorded state of a file.
+     *
+     * @param filename The name of the file.
+     * @return The entry for the file, or null if the file has not been processed.
+     */
+    public Entry get(String filename) {
+        return entries.get(filename);
+    }
+
+    /**
+     * Records the state of a file after it has been processed.
+     *
+     * @param filename The name of the file.
+     * @param entry The state of the file.
+     */
+    public void put(String filename, Entry entry) {
+        entries.put(filename, entry);
+    }
+
+    /**
+     * Gets the recorded state of every file.
+     *
+     * @return An unmodifiable view of the entries by filename.
+     */
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * Forgets a file.
+     *
+     * @param filename The name of the file.
+     * @return The removed entry, or null if the file was not recorded.
+     */
+    public Entry remove(String filename) {
+        return entries.remove(filename);
+    }
+
+    /**
+     * Records the number of postings every file has in the repository, before
+     * the manifest is saved together with it.
+     *
+     * @param filePostings The number of postings per file in the repository.
+     */
+    public void recordPostings(Map<String, Long> filePostings) {
+        entries.replaceAll((filename, entry) -> entry.withPostings(filePostings.getOrDefault(filename, 0L)));
+    }
+
+    /**
+     * Forgets the files that the loaded repository does not hold as recorded:
+     * files whose posting count differs from the one recorded when the manifest
+     * was saved, or, for entries saved without a count, files without postings.
+     * If the repository is missing or has been replaced, those files are then
+     * processed again instead of being skipped as unchanged.
+     *
+     * @param filePostings The number of postings per file in the loaded repository.
+     * @return The number of files forgotten.
+     */
+    public int retainBackedBy(Map<String, Long> filePostings) {
+        int before = entries.size();
+        entries.entrySet().removeIf(e -> {
+            Long recorded = e.getValue().postings;
+            Long loaded = filePostings.get(e.getKey());
+            return recorded == null ? loaded == null : recorded != (loaded == null ? 0L : loaded);
+        });
+        return before - entries.size();
+    }
+
+    /**
+     * Checks whether a file is unchanged by comparing its size and modification
+     * time with the recorded entry. The file content is not read.
+     *
+     * @param filename The name of the file.
+     * @param attributes The current attributes of the file.
+     * @return True if the file has a matching entry.
+     */
+    public boolean isUnchanged(String filename, BasicFileAttributes attributes) {
+        Entry entry = entries.get(filename);
+        return entry != null
+            && entry.size == attributes.size()
+            && entry.modified == attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Computes a fast, non-cryptographic 64-bit hash of a file's content. The
+     * content is consumed eight bytes at a time, each word mixed in with a
+     * multiply and xor-shift.
+     *
+     * @param content The content to hash.
+     * @return The hash.
+     */
+    public static long hash(byte[] content) {
+        final long multiplier = 0x9E3779B97F4A7C15L;
+        ByteBuffer buffer = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        long hash = content.length * multiplier;
+        while (buffer.remaining() >= Long.BYTES) {
+            hash = (hash ^ buffer.getLong()) * multiplier;
+            hash ^= hash >>> 29;
+        }
+        while (buffer.hasRemaining()) {
+            hash = (hash ^ (buffer.get() & 0xFF)) * multiplier;
+        }
+        hash ^= hash >>> 32;
+        hash *= multiplier;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * The state of a file at the time it was processed.
+     */
+    public static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final long size;      // Size of the file in bytes
+        private final long modified;  // Last modification time in milliseconds
+        private final long hash;      // Hash of the file content
+        private final Long postings;  // Postings of the file in the saved repository, null until saved
+
+        /**
+         * Constructs an entry.
+         *
+         * @param size The size of the file in bytes.
+         * @param modified The last modification time in milliseconds since the epoch.
+         * @param hash The hash of the file content.
+         */
+        public Entry(long size, long modified, long hash) {
+            this(size, modified, hash, null);
+        }
+
+        /**
+         * Constructs an entry with a posting count.
+         *
+         * @param size The size of the file in bytes.
+         * @param modified The last modification time in milliseconds since the epoch.
+         * @param hash The hash of the file content.
+         * @param postings The number of postings of the file in the repository, or null if unknown.
+         */
+        private Entry(long size, long modified, long hash, Long postings) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.postings = postings;
+        }
+
+        /**
+         * Copies the entry with a posting count, or returns it if the count is
+         * already recorded.
+         *
+         * @param count The number of postings of the file in the repository.
+         * @return The entry with the count.
+         */
+        Entry withPostings(long count) {
+            return postings != null && postings == count ? this : new Entry(size, modified, hash, count);
+        }
+
+        /**
+         * Gets the size of the file.
+         *
+         * @return The size in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the modification time of the file.
+         *
+         * @return The modification time in milliseconds since the epoch.
+         */
+        public long getModified() {
+            return modified;
+        }
+
+        /**
+         * Gets the hash of the file content.
+         *
+         * @return The content hash.
+         */
+        public long getHash() {
+            return hash;
+        }
+    }
+}
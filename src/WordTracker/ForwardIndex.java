@@ -0,0 +1,94 @@
+package WordTracker;
+
+import implementations.ObjectLayout;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * ForwardIndex.java
+ *
+ * The words of every file, the reverse of the word tree, which maps words to
+ * files. For each file it holds the WordInfo objects of the words of the file,
+ * each once, in the order they first occur in it. With it, listing the words of
+ * a file or removing a file only visits the words of that file, instead of
+ * every word of the repository to find those that occur in it, and needs no
+ * tree searches since the WordInfo objects are at hand.
+ *
+ * The index refers to the WordInfo objects of the repository, so it is only
+ * valid as long as those are; a merge that rebuilds the repository from new
+ * objects must drop it. It is not saved: WordTracker builds it with one walk
+ * over the repository the first time it is needed and keeps it up to date from
+ * then on (see WordTracker.forwardIndex). A sharded repository has one index
+ * per shard, built from that shard alone, and records with its shard index
+ * which shards hold words of each file (see ShardedRepository), so removing a
+ * file loads only those shards. A compact dictionary keeps its own lists of
+ * word ids per file instead (see CompactIndex).
+ */
+final class ForwardIndex {
+    private static final WordInfo[] NO_WORDS = new WordInfo[0];
+    private final Map<String, WordInfo[]> words = new HashMap<>();  // Filenames mapped to their words
+
+    /**
+     * Builds the index from the words of a repository.
+     *
+     * @param walk Performs an action on every word of the repository.
+     * @return The index.
+     */
+    static ForwardIndex build(Consumer<Consumer<? super WordInfo>> walk) {
+        Map<String, List<WordInfo>> lists = new HashMap<>();
+        walk.accept(info -> {
+            for (String filename : info.getFileLocations().keySet()) {
+                lists.computeIfAbsent(filename, k -> new ArrayList<>()).add(info);
+            }
+        });
+        ForwardIndex index = new ForwardIndex();
+        lists.forEach((filename, list) -> index.words.put(filename, list.toArray(NO_WORDS)));
+        return index;
+    }
+
+    /**
+     * Records the words of a file, replacing any recorded before.
+     *
+     * @param filename The name of the file.
+     * @param fileWords The words of the file, each once.
+     */
+    void put(String filename, List<WordInfo> fileWords) {
+        words.put(filename, fileWords.toArray(NO_WORDS));
+    }
+
+    /**
+     * Gets the words of a file.
+     *
+     * @param filename The name of the file.
+     * @return The words of the file, empty if the file is not indexed.
+     */
+    WordInfo[] get(String filename) {
+        return words.getOrDefault(filename, NO_WORDS);
+    }
+
+    /**
+     * Removes a file from the index.
+     *
+     * @param filename The name of the file.
+     * @return The words the file had, empty if the file was not indexed.
+     */
+    WordInfo[] remove(String filename) {
+        WordInfo[] removed = words.remove(filename);
+        return removed == null ? NO_WORDS : removed;
+    }
+
+    /**
+     * Estimates the heap retained by the index. The words and filenames belong
+     * to the repository, so only the map and the arrays count.
+     *
+     * @return The estimated size in bytes.
+     */
+    long estimateBytes() {
+        long bytes = ObjectLayout.objectBytes(1, 0) + HeapFootprint.hashMapBytes(words.size());
+        for (WordInfo[] fileWords : words.values()) {
+            bytes += ObjectLayout.referenceArrayBytes(fileWords.length);
+        }
+        return bytes;
+    }
+}
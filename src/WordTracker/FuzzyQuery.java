@@ -0,0 +1,188 @@
+package WordTracker;
+
+import java.util.*;
+
+/**
+ * FuzzyQuery.java
+ *
+ * A "did you mean" lookup: finds the words of the repository within a given
+ * edit distance of a query word, counting the insertions, deletions and
+ * substitutions of single characters that turn one word into the other
+ * (Levenshtein distance).
+ *
+ * Computing the distance to every word from scratch costs the product of the
+ * two lengths per word. Instead the query acts as a Levenshtein automaton that
+ * is fed the words in ascending order, as the repository walks them: the
+ * dynamic programming table has one row per character of the candidate, so the
+ * rows of the prefix a word shares with the previous word are kept and only the
+ * rows of the rest are computed. Once every entry of a row exceeds the maximum
+ * distance, no word with that prefix can match, and the words that follow with
+ * the same prefix are rejected after comparing the prefix alone. The words must
+ * be given in ascending order for this to pay off, but any order gives the
+ * right distances.
+ */
+public class FuzzyQuery {
+    private final String word;
+    private final int maxDistance;
+    private char[] prefix = new char[16];   // The characters of the candidate whose rows are computed
+    private int[][] rows;                   // rows[i][j]: distance from the first i characters of prefix to the first j of word
+    private int computed;                   // Number of characters of prefix with a computed row
+    private int dead = Integer.MAX_VALUE;   // Length of a prefix no match can start with, if any
+
+    /**
+     * Creates a query.
+     *
+     * @param word The word to match, in lower case.
+     * @param maxDistance The largest edit distance a match may have.
+     * @throws IllegalArgumentException If the word is empty or the distance is negative.
+     */
+    public FuzzyQuery(String word, int maxDistance) throws IllegalArgumentException {
+        if (word.isEmpty()) throw new IllegalArgumentException("Word is empty");
+        if (maxDistance < 0) throw new IllegalArgumentException("Distance must not be negative: " + maxDistance);
+        this.word = word;
+        this.maxDistance = maxDistance;
+        rows = new int[prefix.length + 1][];
+        rows[0] = new int[word.length() + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            rows[0][j] = j;  // Inserting the first j characters of the word
+        }
+    }
+
+    /**
+     * Gets the word the query matches.
+     *
+     * @return The word.
+     */
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * Gets the largest edit distance a match may have.
+     *
+     * @return The maximum distance.
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Computes the edit distance from a candidate to the query word, if it is
+     * within the maximum distance. Reuses the rows of the prefix the candidate
+     * shares with the previous one.
+     *
+     * @param candidate The candidate word.
+     * @return The edit distance, or -1 if it exceeds the maximum distance.
+     */
+    public int distance(CharSequence candidate) {
+        int length = candidate.length();
+        if (length < word.length() - maxDistance) return -1;  // Too short; the rows are left for the next word
+
+        int shared = 0;
+        int limit = Math.min(computed, length);
+        while (shared < limit && prefix[shared] == candidate.charAt(shared)) {
+            shared++;
+        }
+        if (shared >= dead) return -1;  // Starts with a prefix that cannot match
+
+        computed = shared;
+        dead = Integer.MAX_VALUE;
+        for (int i = shared + 1; i <= length; i++) {
+            char c = candidate.charAt(i - 1);
+            if (i >= rows.length) grow(i);
+            prefix[i - 1] = c;
+            int[] previous = rows[i - 1];
+            int[] row = rows[i] != null ? rows[i] : (rows[i] = new int[word.length() + 1]);
+            row[0] = i;  // Deleting the first i characters of the candidate
+            int best = i;
+            for (int j = 1; j <= word.length(); j++) {
+                int cost = previous[j - 1] + (word.charAt(j - 1) == c ? 0 : 1);
+                cost = Math.min(cost, Math.min(previous[j], row[j - 1]) + 1);
+                row[j] = cost;
+                best = Math.min(best, cost);
+            }
+            computed = i;
+            if (best > maxDistance) {
+                dead = i;
+                return -1;
+            }
+        }
+        int distance = rows[length][word.length()];
+        return distance <= maxDistance ? distance : -1;
+    }
+
+    /**
+     * Makes room for the rows of a longer candidate.
+     *
+     * @param length The length needed.
+     */
+    private void grow(int length) {
+        int capacity = Math.max(length, prefix.length * 2);
+        prefix = Arrays.copyOf(prefix, capacity);
+        rows = Arrays.copyOf(rows, capacity + 1);
+    }
+
+    /**
+     * A word found by a fuzzy query, with its distance from the query word.
+     * Matches order by distance, then by descending occurrence count, so the
+     * likeliest correction comes first, and then alphabetically.
+     */
+    public static final class Match implements Comparable<Match> {
+        private final String word;
+        private final int distance;
+        private final int occurrences;
+
+        /**
+         * Creates a match.
+         *
+         * @param word The word found.
+         * @param distance Its edit distance from the query word.
+         * @param occurrences The number of times it occurs in the repository.
+         */
+        Match(String word, int distance, int occurrences) {
+            this.word = word;
+            this.distance = distance;
+            this.occurrences = occurrences;
+        }
+
+        /**
+         * Gets the word found.
+         *
+         * @return The word.
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * Gets the edit distance of the word from the query word.
+         *
+         * @return The distance.
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        /**
+         * Gets the number of times the word occurs in the repository.
+         *
+         * @return The occurrence count.
+         */
+        public int getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * Compares two matches by distance, occurrence count and word.
+         *
+         * @param other The match to compare with.
+         * @return A negative integer, zero, or a positive integer as this match comes before, with, or after the other.
+         */
+        @Override
+        public int compareTo(Match other) {
+            if (distance != other.distance) return Integer.compare(distance, other.distance);
+            if (occurrences != other.occurrences) return Integer.compare(other.occurrences, occurrences);
+            return word.compareTo(other.word);
+        }
+    }
+}
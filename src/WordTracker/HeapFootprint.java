@@ -0,0 +1,205 @@
+package WordTracker;
+
+import implementations.BSTree;
+import implementations.ObjectLayout;
+
+import java.util.*;
+
+/**
+ * HeapFootprint.java
+ *
+ * An estimate of the heap retained by the word index, broken down by the kind
+ * of object that holds it:
+ * - tree nodes: the BSTree nodes (or the arrays of the compact dictionary) and
+ *   the Bloom filters,
+ * - WordInfo objects,
+ * - words: the Strings of the words (or the arenas of the compact dictionary),
+ * - filename maps: the map from filenames to posting sets in every WordInfo,
+ *   the filenames themselves, which all words of a file share, the per-file
+ *   posting counts and the forward index of the words of every file,
+ * - posting sets: the TreeSets of line numbers, with their entries and the boxed
+ *   line numbers (or the posting arrays of the compact dictionary),
+ * - positions: the position lists recorded with --positions.
+ *
+ * The sizes come from the object layout of the running JVM (see ObjectLayout)
+ * rather than from a heap dump, so the estimate walks the words once without
+ * allocating and can be taken while the index is in use. Maps are sized as if
+ * they had been filled by insertion, and every line number is counted as an
+ * Integer of its own, although those up to 127 share the cached ones, so the
+ * estimate errs slightly on the high side. Objects outside the index, such as
+ * the manifest, are not included.
+ */
+public final class HeapFootprint {
+    static final long HASH_MAP = ObjectLayout.objectBytes(4, 4 * 4);      // table, entrySet, keySet, values; size, modCount, threshold, loadFactor
+    static final long HASH_MAP_NODE = ObjectLayout.objectBytes(3, 4);     // key, value, next; hash
+    static final long TREE_SET = ObjectLayout.objectBytes(1, 0);          // The backing TreeMap
+    static final long TREE_MAP = ObjectLayout.objectBytes(7, 2 * 4);      // comparator, root, views; size, modCount
+    static final long TREE_MAP_ENTRY = ObjectLayout.objectBytes(5, 1);    // key, value, left, right, parent; color
+    static final long INTEGER = ObjectLayout.objectBytes(0, 4);
+    static final long LONG = ObjectLayout.objectBytes(0, 8);
+    static final long WORD_INFO = ObjectLayout.objectBytes(3, 4 + 8);     // word, fileLocations, positions; occurrences, prefix
+    private final long treeNodes;
+    private final long wordInfos;
+    private final long words;
+    private final long filenameMaps;
+    private final long postingSets;
+    private final long positions;
+
+    /**
+     * Creates an estimate from its parts.
+     *
+     * @param treeNodes The bytes of the tree nodes and Bloom filters.
+     * @param wordInfos The bytes of the WordInfo objects.
+     * @param words The bytes of the words.
+     * @param filenameMaps The bytes of the filename maps and filenames.
+     * @param postingSets The bytes of the posting sets.
+     * @param positions The bytes of the position lists.
+     */
+    HeapFootprint(long treeNodes, long wordInfos, long words, long filenameMaps, long postingSets, long positions) {
+        this.treeNodes = treeNodes;
+        this.wordInfos = wordInfos;
+        this.words = words;
+        this.filenameMaps = filenameMaps;
+        this.postingSets = postingSets;
+        this.positions = positions;
+    }
+
+    /**
+     * Estimates the heap retained by trees of WordInfo objects, such as the
+     * repository, its loaded shards, or the tree of a memory-bounded ingest.
+     *
+     * @param trees The trees.
+     * @param filePostings The per-file posting counts, whose keys are the filenames the words share.
+     * @return The estimate.
+     */
+    static HeapFootprint of(Collection<BSTree<WordInfo>> trees, Map<String, Long> filePostings) {
+        long[] bytes = new long[6];
+        for (BSTree<WordInfo> tree : trees) {
+            bytes[0] += tree.estimateNodeBytes();
+            tree.forEachInorder(info -> {
+                bytes[1] += WORD_INFO;
+                bytes[2] += ObjectLayout.stringBytes(info.getWord());
+                bytes[3] += hashMapBytes(info.getFileLocations().size());
+                for (Set<Integer> lines : info.getFileLocations().values()) {
+                    bytes[4] += TREE_SET + TREE_MAP + lines.size() * TREE_MAP_ENTRY + lines.size() * INTEGER;
+                }
+                Map<String, PositionList> filePositions = info.getFilePositions();
+                if (!filePositions.isEmpty()) {
+                    bytes[5] += hashMapBytes(filePositions.size());
+                    for (PositionList list : filePositions.values()) {
+                        bytes[5] += list.estimateBytes();
+                    }
+                }
+            });
+        }
+        bytes[3] += hashMapBytes(filePostings.size()) + filePostings.size() * LONG;
+        for (String filename : filePostings.keySet()) {
+            bytes[3] += ObjectLayout.stringBytes(filename);
+        }
+        return new HeapFootprint(bytes[0], bytes[1], bytes[2], bytes[3], bytes[4], bytes[5]);
+    }
+
+    /**
+     * Estimates the size of a HashMap and its entries, but not its keys and
+     * values. The table has the capacity insertion gives it: 16, doubled
+     * whenever the map holds more than three quarters of it.
+     *
+     * @param size The number of entries.
+     * @return The estimated size in bytes.
+     */
+    static long hashMapBytes(int size) {
+        long capacity = 16;
+        while (size > capacity * 3 / 4) {
+            capacity <<= 1;
+        }
+        return HASH_MAP + ObjectLayout.referenceArrayBytes(capacity) + size * HASH_MAP_NODE;
+    }
+
+    /**
+     * Adds another estimate to this one, as for several parts of an index.
+     *
+     * @param other The estimate to add.
+     * @return The combined estimate.
+     */
+    HeapFootprint plus(HeapFootprint other) {
+        return new HeapFootprint(treeNodes + other.treeNodes, wordInfos + other.wordInfos, words + other.words,
+            filenameMaps + other.filenameMaps, postingSets + other.postingSets, positions + other.positions);
+    }
+
+    /**
+     * Gets the bytes of the tree nodes, or the compact dictionary arrays, and
+     * of the Bloom filters.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getTreeNodeBytes() {
+        return treeNodes;
+    }
+
+    /**
+     * Gets the bytes of the WordInfo objects.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getWordInfoBytes() {
+        return wordInfos;
+    }
+
+    /**
+     * Gets the bytes of the words, as Strings or in arenas.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getWordBytes() {
+        return words;
+    }
+
+    /**
+     * Gets the bytes of the maps from filenames to posting sets and of the
+     * filenames.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getFilenameMapBytes() {
+        return filenameMaps;
+    }
+
+    /**
+     * Gets the bytes of the posting sets and boxed line numbers.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getPostingSetBytes() {
+        return postingSets;
+    }
+
+    /**
+     * Gets the bytes of the position lists.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getPositionBytes() {
+        return positions;
+    }
+
+    /**
+     * Gets the total estimated heap retained by the index.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getTotalBytes() {
+        return treeNodes + wordInfos + words + filenameMaps + postingSets + positions;
+    }
+
+    /**
+     * Returns the total and the parts of the estimate in megabytes.
+     *
+     * @return A one-line summary.
+     */
+    @Override
+    public String toString() {
+        return String.format("%.1f MB (tree nodes %.1f, WordInfo %.1f, words %.1f, filename maps %.1f, posting sets %.1f, positions %.1f)",
+            getTotalBytes() / 1e6, treeNodes / 1e6, wordInfos / 1e6, words / 1e6,
+            filenameMaps / 1e6, postingSets / 1e6, positions / 1e6);
+    }
+}
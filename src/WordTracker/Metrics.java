@@ -0,0 +1,160 @@
+package WordTracker;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics.java
+ *
+ * Counters and phase timers of a WordTracker, used to find out where the time
+ * of a run goes. Counters may be updated from several threads at once, as the
+ * stages of a directory ingest run concurrently; the time of a phase is then the
+ * sum over all threads that ran it.
+ *
+ * The numbers of tree operations and key comparisons are kept by the trees
+ * themselves (see BSTree) and are added to the summary by WordTracker.
+ */
+public final class Metrics {
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder newWords = new LongAdder();
+    private final LongAdder existingWords = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+    private final Map<Phase, LongAdder> phaseCounts = new EnumMap<>(Phase.class);
+
+    /**
+     * The phases of a run that are timed.
+     */
+    public enum Phase {
+        LOAD, READ, TOKENIZE, INDEX, SPILL, MERGE, SAVE, REPORT
+    }
+
+    /**
+     * Constructs metrics with every counter at zero.
+     */
+    public Metrics() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+            phaseCounts.put(phase, new LongAdder());
+        }
+    }
+
+    /**
+     * Records one run of a phase that started at the given time and ends now.
+     *
+     * @param phase The phase.
+     * @param startNanos The start time, from System.nanoTime().
+     */
+    public void record(Phase phase, long startNanos) {
+        phaseNanos.get(phase).add(System.nanoTime() - startNanos);
+        phaseCounts.get(phase).increment();
+    }
+
+    /**
+     * Records the bytes of a file that was read.
+     *
+     * @param bytes The number of bytes read.
+     */
+    void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Records the lines and words of a file that was tokenized.
+     *
+     * @param lineCount The number of lines.
+     * @param tokenCount The number of words.
+     */
+    void addTokenized(long lineCount, long tokenCount) {
+        lines.add(lineCount);
+        tokens.add(tokenCount);
+    }
+
+    /**
+     * Records a word that was indexed.
+     *
+     * @param isNew True if the word was not in the repository yet.
+     */
+    void addWordHit(boolean isNew) {
+        (isNew ? newWords : existingWords).increment();
+    }
+
+    /**
+     * Gets the total time spent in a phase.
+     *
+     * @param phase The phase.
+     * @return The time in nanoseconds, summed over all threads.
+     */
+    public long getNanos(Phase phase) {
+        return phaseNanos.get(phase).sum();
+    }
+
+    /**
+     * Gets the number of lines tokenized.
+     *
+     * @return The number of lines.
+     */
+    public long getLines() {
+        return lines.sum();
+    }
+
+    /**
+     * Gets the number of words tokenized.
+     *
+     * @return The number of words.
+     */
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    /**
+     * Gets the number of indexed words that were new to the repository.
+     *
+     * @return The number of new words.
+     */
+    public long getNewWords() {
+        return newWords.sum();
+    }
+
+    /**
+     * Gets the number of indexed words that were already in the repository.
+     *
+     * @return The number of existing words.
+     */
+    public long getExistingWords() {
+        return existingWords.sum();
+    }
+
+    /**
+     * Gets the number of bytes read from input files.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Formats the counters and phase times as a summary of several lines.
+     *
+     * @param treeOperations The number of searches, additions and removals on the trees.
+     * @param comparisons The number of key comparisons made by those operations.
+     * @return The summary.
+     */
+    public String summary(long treeOperations, long comparisons) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("Input: %d bytes, %d lines, %d words%n", getBytesRead(), getLines(), getTokens()));
+        summary.append(String.format("Words indexed: %d new, %d existing%n", getNewWords(), getExistingWords()));
+        summary.append(String.format("Tree operations: %d, comparisons: %d (%.1f per operation)%n",
+            treeOperations, comparisons, treeOperations == 0 ? 0.0 : (double) comparisons / treeOperations));
+        for (Phase phase : Phase.values()) {
+            long count = phaseCounts.get(phase).sum();
+            if (count == 0) continue;
+            summary.append(String.format("%-9s %10.1f ms (%d)%n",
+                phase.name().toLowerCase() + ":", getNanos(phase) / 1e6, count));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package WordTracker;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PartitionedIngest.java
+ *
+ * Indexes a directory with several independent JVMs. The files are split into
+ * partitions by a hash of their name, and one child process per partition
+ * indexes its files (see WordTracker.indexPartition) into its own partition
+ * file next to the repository: a SortedRun of its words with a manifest of the
+ * files it has seen. Once every child has finished, the partitions are reduced
+ * into the repository in a single k-way merge (see WordTracker.reduce).
+ *
+ * Each child starts from a copy of the repository's manifest, so files that
+ * have not changed since they were last indexed are skipped as in a normal run.
+ * The children run on the same Java runtime, class path and JVM options as the
+ * parent, and their output goes to the parent's output.
+ */
+public class PartitionedIngest {
+    private final WordTracker tracker;
+    private final int partitions;
+    private final List<String> childOptions;
+
+    /**
+     * Constructs a partitioned ingest into a tracker.
+     *
+     * @param tracker The tracker whose repository receives the partitions.
+     * @param partitions The number of partitions, and of child processes.
+     * @param childOptions Command-line options passed on to every child, such as --positions or --memory.
+     * @throws IllegalArgumentException If the number of partitions is not positive.
+     */
+    public PartitionedIngest(WordTracker tracker, int partitions, List<String> childOptions)
+            throws IllegalArgumentException {
+        if (partitions <= 0) throw new IllegalArgumentException("Number of partitions must be positive");
+        this.tracker = tracker;
+        this.partitions = partitions;
+        this.childOptions = childOptions;
+    }
+
+    /**
+     * Gets the partition a file belongs to. The partition only depends on the
+     * filename, so every process assigns files alike.
+     *
+     * @param filename The name of the file.
+     * @param partitions The number of partitions.
+     * @return The index of the partition, from 0.
+     */
+    static int partitionOf(String filename, int partitions) {
+        return Math.floorMod(filename.hashCode(), partitions);
+    }
+
+    /**
+     * Runs one child process per partition of a directory, waits for all of
+     * them, and reduces their partitions into the repository, which is saved.
+     * The partition files are deleted afterwards.
+     *
+     * @param directory The directory to process.
+     * @throws IOException If a child fails or the partitions cannot be reduced.
+     */
+    public void run(String directory) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> jvmOptions = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        List<Path> parts = new ArrayList<>();
+        List<Process> children = new ArrayList<>();
+        try {
+            for (int i = 0; i < partitions; i++) {
+                Path part = Paths.get(tracker.getRepositoryFile() + ".part" + i);
+                parts.add(part);
+                Files.deleteIfExists(part);
+                tracker.copyManifest(Paths.get(part + ".manifest"));
+
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(jvmOptions);
+                command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), WordTracker.class.getName(),
+                    "--partition", i + "/" + partitions, directory, part.toString()));
+                command.addAll(childOptions);
+                children.add(new ProcessBuilder(command).inheritIO().start());
+            }
+
+            for (int i = 0; i < children.size(); i++) {
+                int exitCode = children.get(i).waitFor();
+                if (exitCode != 0) throw new IOException("Partition " + i + " failed with exit code " + exitCode);
+            }
+            tracker.reduce(parts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for partitions");
+        } finally {
+            for (Process child : children) {
+                child.destroy();  // Only has an effect if the run failed
+            }
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+                Files.deleteIfExists(Paths.get(part + ".manifest"));
+            }
+        }
+    }
+
+    /**
+     * The entry point of a child process: indexes one partition into a
+     * partition file. The arguments are the partition as "index/count", the
+     * directory, the partition file, and optionally --positions and
+     * --memory &lt;MB&gt;.
+     *
+     * @param args The arguments following --partition.
+     * @return The exit code: 0 on success, 1 on failure, 2 for invalid arguments.
+     */
+    static int runPartition(String[] args) {
+        int partition;
+        int count;
+        long memoryBudget = 0;
+        boolean positional = false;
+        try {
+            String[] range = args[0].split("/");
+            partition = Integer.parseInt(range[0]);
+            count = Integer.parseInt(range[1]);
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].equals("--positions")) {
+                    positional = true;
+                } else if (args[i].equals("--memory")) {
+                    memoryBudget = Long.parseLong(args[++i]) << 20;  // Megabytes
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return 2;
+        }
+        if (args.length < 3 || count <= 0 || partition < 0 || partition >= count) return 2;
+
+        try {
+            Files.deleteIfExists(Paths.get(args[2]));  // A partition file is not a repository the tracker can load
+            WordTracker tracker = new WordTracker(args[2], false, false);
+            tracker.setPositional(positional);
+            tracker.setMemoryBudget(memoryBudget);
+            DirectoryIngest.Result result = tracker.indexPartition(args[1], partition, count);
+            System.err.println("Partition " + partition + "/" + count + ": " + result);
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error indexing partition: " + e.getMessage());
+            return 1;
+        }
+    }
+}
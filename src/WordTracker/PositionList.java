@@ -0,0 +1,171 @@
+package WordTracker;
+
+import implementations.ObjectLayout;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * PositionList.java
+ *
+ * The positions at which a word occurs in one file, stored compactly. Every
+ * occurrence is recorded with its ordinal (the index of the word among all words
+ * of the file), its line and its column, so repeated occurrences on the same line
+ * are kept and adjacent words can be recognized by consecutive ordinals.
+ *
+ * Positions must be added in increasing ordinal order. Each one is stored as
+ * three variable-length integers in a byte array: the ordinal and line as deltas
+ * from the previous position, and the column as a delta on the same line or as an
+ * absolute value on a new line. Most positions take three to five bytes.
+ */
+public class PositionList implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private byte[] data = new byte[8];
+    private int length;        // Number of bytes of data in use
+    private int count;         // Number of positions
+    private int lastOrdinal;   // The most recently added position, for delta encoding
+    private int lastLine;
+    private int lastColumn;
+
+    /**
+     * Appends a position.
+     *
+     * @param ordinal The index of the word among the words of the file.
+     * @param line The line the word occurs on.
+     * @param column The column the word starts at.
+     * @throws IllegalArgumentException If the position is not after the last one added.
+     */
+    public void add(int ordinal, int line, int column) {
+        if (count > 0 && (ordinal <= lastOrdinal || line < lastLine)) {
+            throw new IllegalArgumentException("Positions must be added in order");
+        }
+        writeVarInt(ordinal - lastOrdinal);
+        writeVarInt(line - lastLine);
+        writeVarInt(line == lastLine ? column - lastColumn : column);
+        lastOrdinal = ordinal;
+        lastLine = line;
+        lastColumn = column;
+        count++;
+    }
+
+    /**
+     * Gets the number of positions.
+     *
+     * @return The number of positions.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the number of bytes used by the encoded positions.
+     *
+     * @return The encoded size in bytes.
+     */
+    public int encodedBytes() {
+        return length;
+    }
+
+    /**
+     * Estimates the heap retained by the list, its spare capacity included.
+     *
+     * @return The estimated size in bytes.
+     */
+    long estimateBytes() {
+        return ObjectLayout.objectBytes(1, 5 * 4) + ObjectLayout.arrayBytes(data.length, 1);
+    }
+
+    /**
+     * Decodes the ordinals of all positions.
+     *
+     * @return The ordinals, in ascending order.
+     */
+    public int[] ordinals() {
+        int[] ordinals = new int[count];
+        Decoder decoder = new Decoder();
+        for (int i = 0; i < count; i++) {
+            decoder.next();
+            ordinals[i] = decoder.ordinal;
+        }
+        return ordinals;
+    }
+
+    /**
+     * Decodes all positions.
+     *
+     * @return One array of {ordinal, line, column} per position, in order.
+     */
+    public int[][] positions() {
+        int[][] positions = new int[count][];
+        Decoder decoder = new Decoder();
+        for (int i = 0; i < count; i++) {
+            decoder.next();
+            positions[i] = new int[] { decoder.ordinal, decoder.line, decoder.column };
+        }
+        return positions;
+    }
+
+    /**
+     * Appends a non-negative integer using seven bits per byte.
+     *
+     * @param value The value to append.
+     */
+    private void writeVarInt(int value) {
+        if (length + 5 > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Trims the spare capacity before the list is serialized.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if (data.length != length) data = Arrays.copyOf(data, length);
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Reads the encoded positions back in order.
+     */
+    private class Decoder {
+        private int offset;
+        int ordinal;
+        int line;
+        int column;
+
+        /**
+         * Advances to the next position.
+         */
+        void next() {
+            ordinal += readVarInt();
+            int lineDelta = readVarInt();
+            line += lineDelta;
+            column = lineDelta == 0 ? column + readVarInt() : readVarInt();
+        }
+
+        /**
+         * Reads a variable-length integer.
+         *
+         * @return The value read.
+         */
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
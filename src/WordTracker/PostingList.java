@@ -0,0 +1,152 @@
+package WordTracker;
+
+import java.util.Arrays;
+
+/**
+ * PostingList.java
+ *
+ * Set operations on sorted posting lists. A posting is a (file, line) pair packed
+ * into a long as fileId &lt;&lt; 32 | line, so that sorting the longs sorts the
+ * postings by file and then by line.
+ *
+ * Intersection and difference gallop through the longer list (exponential search
+ * followed by binary search), so their cost depends on the length of the shorter
+ * list rather than the longer one.
+ */
+public final class PostingList {
+    public static final long[] EMPTY = new long[0];
+
+    /**
+     * Prevents instantiation; all members are static.
+     */
+    private PostingList() {
+    }
+
+    /**
+     * Packs a file ID and a line number into a posting.
+     *
+     * @param fileId The ID of the file.
+     * @param line The line number.
+     * @return The posting.
+     */
+    public static long posting(int fileId, int line) {
+        return ((long) fileId << 32) | (line & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Extracts the file ID from a posting.
+     *
+     * @param posting The posting.
+     * @return The file ID.
+     */
+    public static int fileId(long posting) {
+        return (int) (posting >>> 32);
+    }
+
+    /**
+     * Extracts the line number from a posting.
+     *
+     * @param posting The posting.
+     * @return The line number.
+     */
+    public static int line(long posting) {
+        return (int) posting;
+    }
+
+    /**
+     * Intersects two sorted posting lists.
+     *
+     * @param a The first list.
+     * @param b The second list.
+     * @return The postings present in both lists.
+     */
+    public static long[] intersect(long[] a, long[] b) {
+        if (a.length > b.length) return intersect(b, a);
+        long[] result = new long[a.length];
+        int count = 0;
+        int from = 0;
+        for (long posting : a) {
+            from = gallop(b, from, posting);
+            if (from == b.length) break;
+            if (b[from] == posting) result[count++] = posting;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Removes the postings of one sorted list from another.
+     *
+     * @param a The list to remove postings from.
+     * @param b The postings to remove.
+     * @return The postings of a that are not in b.
+     */
+    public static long[] difference(long[] a, long[] b) {
+        if (b.length == 0) return a;
+        long[] result = new long[a.length];
+        int count = 0;
+        int from = 0;
+        for (long posting : a) {
+            from = gallop(b, from, posting);
+            if (from == b.length || b[from] != posting) result[count++] = posting;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Merges two sorted posting lists.
+     *
+     * @param a The first list.
+     * @param b The second list.
+     * @return The postings present in either list.
+     */
+    public static long[] union(long[] a, long[] b) {
+        long[] result = new long[a.length + b.length];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) result[count++] = a[i++];
+        while (j < b.length) result[count++] = b[j++];
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Finds the first index at or after from whose posting is not less than the
+     * target, probing 1, 2, 4, ... positions ahead before a binary search.
+     *
+     * @param list The sorted list to search.
+     * @param from The index to start from.
+     * @param target The posting to search for.
+     * @return The index of the first posting not less than the target, or list.length.
+     */
+    public static int gallop(long[] list, int from, long target) {
+        if (from >= list.length || list[from] >= target) return from;
+
+        int low = from;  // list[low] < target
+        int step = 1;
+        int high = from + step;
+        while (high < list.length && list[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        if (high > list.length) high = list.length;
+
+        while (low + 1 < high) {  // list[low] < target <= list[high]
+            int mid = (low + high) >>> 1;
+            if (list[mid] < target) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+}
@@ -0,0 +1,360 @@
+package WordTracker;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * RepositoryIO.java
+ *
+ * Reads and writes the serialized files that make up a repository: the word
+ * tree, or one shard of it, and the bookkeeping stored next to it.
+ *
+ * A file is either plain Java serialization or, optionally, block-compressed.
+ * A compressed file starts with a magic number and a table of block sizes,
+ * followed by the serialized bytes cut into fixed-size blocks that are each
+ * deflated independently, so blocks are compressed and decompressed in
+ * parallel. Reading detects the format from the first bytes of the file.
+ *
+ * Files are never overwritten in place: a file is written to a temporary file
+ * in the same directory, forced to disk, and then renamed over the old file
+ * in one atomic step. A crash during a save thus leaves either the old or the
+ * new file, never a truncated one. A save can also be split into taking a
+ * Snapshot, which only serializes the object, and writing it later on
+ * another thread.
+ */
+public final class RepositoryIO {
+    private static final int MAGIC = 0x57545A31;       // "WTZ1"; serialized streams start with 0xACED instead
+    private static final int BLOCK_SIZE = 256 * 1024;  // Uncompressed bytes per block
+
+    private RepositoryIO() {
+    }
+
+    /**
+     * Reads a serialized object from a file in either format.
+     *
+     * @param file The file to read.
+     * @return The object read.
+     * @throws IOException If the file cannot be read.
+     * @throws ClassNotFoundException If a serialized class cannot be found.
+     */
+    public static Object read(Path file) throws IOException, ClassNotFoundException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            input.mark(Integer.BYTES);
+            DataInputStream data = new DataInputStream(input);
+            InputStream serialized = input;
+            if (data.readInt() == MAGIC) {
+                serialized = new ByteArrayInputStream(inflate(data, Files.size(file) - Integer.BYTES));
+            } else {
+                input.reset();
+            }
+            ObjectInputStream ois = new ObjectInputStream(serialized);
+            return ois.readObject();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes an object to a file as plain serialization, replacing its previous content.
+     *
+     * @param object The object to write.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Object object, Path file) throws IOException {
+        write(object, file, false);
+    }
+
+    /**
+     * Writes an object to a file, replacing its previous content.
+     *
+     * @param object The object to write.
+     * @param file The file to write.
+     * @param compress True to write the block-compressed format.
+     * @return The sizes of the serialized object and of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static SaveStats write(Object object, Path file, boolean compress) throws IOException {
+        if (!compress) {
+            writeAtomically(file, out -> {
+                ObjectOutputStream oos = new ObjectOutputStream(out);
+                oos.writeObject(object);
+                oos.flush();
+            });
+            long size = Files.size(file);
+            return new SaveStats(size, size);
+        }
+        return snapshot(object, file, true).write();
+    }
+
+    /**
+     * Serializes an object into memory, to be written to a file later.
+     *
+     * @param object The object to write.
+     * @param file The file to write it to.
+     * @param compress True to write the block-compressed format.
+     * @return The snapshot of the object.
+     * @throws IOException If the object cannot be serialized.
+     */
+    static Snapshot snapshot(Object object, Path file, boolean compress) throws IOException {
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+            oos.writeObject(object);
+        }
+        return new Snapshot(serialized.toByteArray(), file, compress);
+    }
+
+    /**
+     * Writes serialized bytes to a file, compressing them if requested.
+     *
+     * @param raw The serialized bytes.
+     * @param file The file to write.
+     * @param compress True to write the block-compressed format.
+     * @return The sizes of the serialized bytes and of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static SaveStats write(byte[] raw, Path file, boolean compress) throws IOException {
+        if (!compress) {
+            writeAtomically(file, out -> out.write(raw));
+            return new SaveStats(raw.length, raw.length);
+        }
+
+        int blocks = (raw.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        byte[][] deflated = new byte[blocks][];
+        IntStream.range(0, blocks).parallel().forEach(i -> {
+            int offset = i * BLOCK_SIZE;
+            deflated[i] = deflate(raw, offset, Math.min(BLOCK_SIZE, raw.length - offset));
+        });
+
+        long stored = Integer.BYTES * 3L;
+        for (byte[] block : deflated) {
+            stored += Integer.BYTES + block.length;
+        }
+        writeAtomically(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(raw.length);
+            out.writeInt(blocks);
+            for (byte[] block : deflated) {
+                out.writeInt(block.length);
+            }
+            for (byte[] block : deflated) {
+                out.write(block);
+            }
+            out.flush();
+        });
+        return new SaveStats(raw.length, stored);
+    }
+
+    /**
+     * Replaces a file atomically. The content is written to a temporary file
+     * next to it (its name followed by ".tmp"), which is forced to disk and then
+     * moved over the file. Where the file system cannot move atomically, the file is replaced
+     * by an ordinary move. On failure the temporary file is deleted and the
+     * old file is left as it was.
+     *
+     * @param file The file to replace.
+     * @param content Writes the content to the stream it is given.
+     * @throws IOException If the file cannot be written or moved.
+     */
+    static void writeAtomically(Path file, Content content) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                content.writeTo(out);
+                out.flush();
+                channel.force(true);  // The data must be on disk before the rename makes it visible
+            }
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);  // Only still there if the write or move failed
+        }
+        try (FileChannel directory = FileChannel.open(absolute.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);  // Persists the rename; not supported on every platform
+        } catch (IOException e) {
+            // The rename is still atomic, it may just not survive a power failure yet
+        }
+    }
+
+    /**
+     * Writes the content of a file to a stream.
+     */
+    interface Content {
+        /**
+         * Writes the content.
+         *
+         * @param out The stream to write to; it must not be closed.
+         * @throws IOException If the content cannot be written.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * An object serialized into memory and the file it is to be written to.
+     * Taking a snapshot only needs the object to stay unchanged while it is
+     * being serialized; the snapshot can then be compressed and written on
+     * another thread while the object changes.
+     */
+    static final class Snapshot {
+        private final byte[] serialized;
+        private final Path file;
+        private final boolean compress;
+
+        /**
+         * Creates a snapshot.
+         *
+         * @param serialized The serialized object.
+         * @param file The file to write it to.
+         * @param compress True to write the block-compressed format.
+         */
+        Snapshot(byte[] serialized, Path file, boolean compress) {
+            this.serialized = serialized;
+            this.file = file;
+            this.compress = compress;
+        }
+
+        /**
+         * Writes the snapshot to its file atomically.
+         *
+         * @return The sizes of the serialized object and of the file.
+         * @throws IOException If the file cannot be written.
+         */
+        SaveStats write() throws IOException {
+            return RepositoryIO.write(serialized, file, compress);
+        }
+    }
+
+    /**
+     * Compresses one block.
+     *
+     * @param raw The uncompressed bytes.
+     * @param offset The start of the block.
+     * @param length The length of the block.
+     * @return The compressed block.
+     */
+    private static byte[] deflate(byte[] raw, int offset, int length) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw, offset, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads the block table and blocks that follow the magic number, and
+     * decompresses the blocks in parallel. The sizes in the header and block
+     * table are checked against the size of the file before anything is
+     * allocated, and every block must inflate to exactly its length and pass
+     * its checksum, so a truncated or corrupt file fails instead of giving a
+     * partial repository.
+     *
+     * @param data The stream positioned after the magic number.
+     * @param available The number of bytes in the file after the magic number.
+     * @return The serialized bytes.
+     * @throws IOException If the file is truncated or corrupt.
+     */
+    private static byte[] inflate(DataInputStream data, long available) throws IOException {
+        int rawLength = data.readInt();
+        int blocks = data.readInt();
+        available -= Integer.BYTES * 2L;
+        if (rawLength < 0 || blocks != (rawLength + BLOCK_SIZE - 1) / BLOCK_SIZE
+                || blocks > available / Integer.BYTES) {
+            throw new StreamCorruptedException("Invalid compressed repository header");
+        }
+        int[] lengths = new int[blocks];
+        long stored = 0;
+        for (int i = 0; i < blocks; i++) {
+            lengths[i] = data.readInt();
+            if (lengths[i] < 0) throw new StreamCorruptedException("Invalid size of block " + i);
+            stored += lengths[i];
+        }
+        if (stored != available - Integer.BYTES * (long) blocks) {
+            throw new StreamCorruptedException("Block sizes do not match the file size");
+        }
+        byte[][] deflated = new byte[blocks][];
+        for (int i = 0; i < blocks; i++) {
+            deflated[i] = new byte[lengths[i]];
+        }
+        for (byte[] block : deflated) {
+            data.readFully(block);
+        }
+
+        byte[] raw = new byte[rawLength];
+        IntStream.range(0, blocks).parallel().forEach(i -> {
+            int offset = i * BLOCK_SIZE;
+            int length = Math.min(BLOCK_SIZE, rawLength - offset);
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(deflated[i]);
+                int inflated = 0;
+                while (inflated < length && !inflater.finished()) {
+                    int count = inflater.inflate(raw, offset + inflated, length - inflated);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    inflated += count;
+                }
+                byte[] rest = new byte[1];  // Reads the checksum at the end of the block, and anything beyond its length
+                while (inflated == length && !inflater.finished()) {
+                    int count = inflater.inflate(rest);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    inflated += count;
+                }
+                if (inflated != length || !inflater.finished()) throw new UncheckedIOException(new StreamCorruptedException("Wrong length of block " + i));
+            } catch (DataFormatException e) {
+                throw new UncheckedIOException(new StreamCorruptedException("Corrupt block " + i + ": " + e.getMessage()));
+            } finally {
+                inflater.end();
+            }
+        });
+        return raw;
+    }
+
+    /**
+     * The sizes involved in saving an object.
+     */
+    public static final class SaveStats {
+        final long serializedBytes;  // Size of the plain serialized object
+        final long storedBytes;      // Size of the file written
+
+        /**
+         * Creates save figures.
+         *
+         * @param serializedBytes The size of the plain serialized object.
+         * @param storedBytes The size of the file written.
+         */
+        SaveStats(long serializedBytes, long storedBytes) {
+            this.serializedBytes = serializedBytes;
+            this.storedBytes = storedBytes;
+        }
+
+        /**
+         * Adds the figures of another save.
+         *
+         * @param other The figures to add.
+         * @return The combined figures.
+         */
+        SaveStats plus(SaveStats other) {
+            return new SaveStats(serializedBytes + other.serializedBytes, storedBytes + other.storedBytes);
+        }
+    }
+}
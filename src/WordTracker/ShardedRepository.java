@@ -0,0 +1,465 @@
+package WordTracker;
+
+import implementations.BSTree;
+import implementations.BloomFilter;
+import implementations.BSTreeNode;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * ShardedRepository.java
+ *
+ * A word repository split into key-range shards by the leading letter of each
+ * word. Every shard is a BSTree of WordInfo objects stored in its own file in the
+ * repository directory, and is only loaded when a word in its range is looked up
+ * or added. Shards are ordered by key range, so visiting them in order visits the
+ * words in ascending order.
+ *
+ * Shards that have been modified are tracked and written back in parallel. An
+ * index file stores the number of words in every shard and the posting totals,
+ * so that repository-wide figures are available without loading any shard,
+ * and for every file the set of shards holding its words, so that removing or
+ * listing a file only loads those shards.
+ */
+public class ShardedRepository {
+    static final int SHARD_COUNT = 27;                      // 'a' to 'z', plus one for any other leading character
+    private static final String INDEX_FILE = "index.ser";
+    private final Path directory;
+    private final BSTree<WordInfo>[] shards;                // Null until loaded
+    private final boolean[] modified;
+    private Index index;
+    private double filterFpp = -1;                            // Bloom filter setting for loaded shards; -1 keeps the stored one
+
+    /**
+     * Opens a sharded repository, creating its directory if necessary. Only the
+     * index is read; shards are loaded on demand.
+     *
+     * @param directory The directory holding the shard files.
+     * @throws IOException If the directory cannot be created.
+     */
+    public ShardedRepository(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        @SuppressWarnings("unchecked")  // An array of a generic type can only be created with a wildcard
+        BSTree<WordInfo>[] empty = (BSTree<WordInfo>[]) new BSTree<?>[SHARD_COUNT];
+        this.shards = empty;
+        this.modified = new boolean[SHARD_COUNT];
+
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            try {
+                index = (Index) RepositoryIO.read(indexFile);
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Error loading shard index: " + e.getMessage());
+            }
+        }
+        if (index == null || index.fileShards == null) rebuildIndex();  // Older indexes have no shard sets
+    }
+
+    /**
+     * Gets the shard a word belongs to.
+     *
+     * @param word The word.
+     * @return The index of the shard.
+     */
+    static int shardOf(String word) {
+        char first = word.isEmpty() ? 0 : word.charAt(0);
+        return first >= 'a' && first <= 'z' ? first - 'a' : SHARD_COUNT - 1;
+    }
+
+    /**
+     * Gets the set of shards a word belongs to, as used by the shard sets of
+     * files.
+     *
+     * @param word The word.
+     * @return A set with only the word's shard, as a bit mask.
+     */
+    static int shardBit(String word) {
+        return 1 << shardOf(word);
+    }
+
+    /**
+     * Records that shards hold words of a file, so they are loaded when the
+     * file is removed or listed.
+     *
+     * @param filename The name of the file.
+     * @param shardSet The shards, as a bit mask with bit i set for shard i.
+     */
+    synchronized void addFileShards(String filename, int shardSet) {
+        if (shardSet != 0) index.fileShards.merge(filename, shardSet, (a, b) -> a | b);
+    }
+
+    /**
+     * Gets the shards that may hold words of a file. The set can include
+     * shards that no longer do, but never misses one that does.
+     *
+     * @param filename The name of the file.
+     * @return The shards, as a bit mask with bit i set for shard i; 0 if the file is not indexed.
+     */
+    synchronized int shardsOf(String filename) {
+        return index.fileShards.getOrDefault(filename, 0);
+    }
+
+    /**
+     * Forgets the shards of a file whose words have all been removed.
+     *
+     * @param filename The name of the file.
+     */
+    synchronized void removeFileShards(String filename) {
+        index.fileShards.remove(filename);
+    }
+
+    /**
+     * Gets the tree holding a word's shard, loading it if necessary.
+     *
+     * @param word The word.
+     * @return The shard tree.
+     */
+    public BSTree<WordInfo> shardFor(String word) {
+        return shard(shardOf(word));
+    }
+
+    /**
+     * Gets a shard tree, loading it from its file if necessary. A shard that has
+     * no file yet, or cannot be read, starts out empty.
+     *
+     * @param shard The index of the shard.
+     * @return The shard tree.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized BSTree<WordInfo> shard(int shard) {
+        if (shards[shard] == null) {
+            Path file = shardFile(shard);
+            if (Files.exists(file)) {
+                try {
+                    shards[shard] = (BSTree<WordInfo>) RepositoryIO.read(file);
+                } catch (IOException | ClassNotFoundException e) {
+                    System.err.println("Error loading shard " + file + ": " + e.getMessage());
+                }
+            }
+            if (shards[shard] == null) shards[shard] = new BSTree<>();
+            applyFilter(shard);
+        }
+        return shards[shard];
+    }
+
+    /**
+     * Enables Bloom filters on every shard, or disables them. Loaded shards are
+     * changed at once and the others when they are loaded. A shard whose filter
+     * changes is written by the next save, so the setting persists.
+     *
+     * @param fpp The false-positive probability of the filters, or 0 to disable them.
+     * @throws IllegalArgumentException If fpp is not 0 and not between 0 and 1.
+     */
+    public synchronized void setFilter(double fpp) throws IllegalArgumentException {
+        if (fpp != 0 && !(fpp > 0 && fpp < 1)) throw new IllegalArgumentException("False-positive probability must be between 0 and 1");
+        filterFpp = fpp;
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            if (shards[i] != null) applyFilter(i);
+        }
+    }
+
+    /**
+     * Gets the number of searches the Bloom filters of the loaded shards
+     * answered without walking the shard.
+     *
+     * @return The number of filtered searches.
+     */
+    public synchronized long filterRejections() {
+        long count = 0;
+        for (BSTree<WordInfo> shard : shards) {
+            if (shard != null) count += shard.getFilterRejections();
+        }
+        return count;
+    }
+
+    /**
+     * Applies the Bloom filter setting to a shard, marking it modified if its
+     * filter changes.
+     *
+     * @param shard The index of a loaded shard.
+     */
+    private void applyFilter(int shard) {
+        BloomFilter<WordInfo> filter = shards[shard].getFilter();
+        if (filterFpp < 0 || (filterFpp == 0 && filter == null)
+            || (filter != null && filter.getFpp() == filterFpp)) {
+            return;
+        }
+        if (filterFpp == 0) {
+            shards[shard].removeFilter();
+        } else {
+            shards[shard].setFilter(filterFpp);
+        }
+        modified[shard] = true;
+    }
+
+    /**
+     * Marks the shard of a word as modified, so it is written by the next save.
+     *
+     * @param word A word whose entry was added, changed or removed.
+     */
+    public synchronized void markModified(String word) {
+        modified[shardOf(word)] = true;
+    }
+
+    /**
+     * Gets the number of shards currently loaded.
+     *
+     * @return The number of loaded shards.
+     */
+    public synchronized int loadedShards() {
+        int loaded = 0;
+        for (BSTree<WordInfo> shard : shards) {
+            if (shard != null) loaded++;
+        }
+        return loaded;
+    }
+
+    /**
+     * Gets the shards currently loaded, without loading any others.
+     *
+     * @return The loaded shard trees.
+     */
+    synchronized List<BSTree<WordInfo>> loaded() {
+        List<BSTree<WordInfo>> loaded = new ArrayList<>();
+        for (BSTree<WordInfo> shard : shards) {
+            if (shard != null) loaded.add(shard);
+        }
+        return loaded;
+    }
+
+    /**
+     * Gets the number of words in the repository, using the stored counts of the
+     * shards that are not loaded.
+     *
+     * @return The number of distinct words.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            size += shards[i] != null ? shards[i].size() : index.wordCounts[i];
+        }
+        return size;
+    }
+
+    /**
+     * Gets the roots of all non-empty shards, loading every shard.
+     *
+     * @return The shard roots in key order.
+     */
+    public List<BSTreeNode<WordInfo>> roots() {
+        List<BSTreeNode<WordInfo>> roots = new ArrayList<>();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            BSTree<WordInfo> shard = shard(i);
+            if (!shard.isEmpty()) roots.add(shard.getRoot());
+        }
+        return roots;
+    }
+
+    /**
+     * Performs an action on every word in ascending order, loading every shard.
+     *
+     * @param action The action to perform.
+     */
+    public void forEachInorder(Consumer<? super WordInfo> action) {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shard(i).forEachInorder(action);
+        }
+    }
+
+    /**
+     * Gets the number of searches, additions and removals made on the loaded shards.
+     *
+     * @return The number of tree operations.
+     */
+    public synchronized long operationCount() {
+        long count = 0;
+        for (BSTree<WordInfo> shard : shards) {
+            if (shard != null) count += shard.getOperationCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of word comparisons made on the loaded shards.
+     *
+     * @return The number of comparisons.
+     */
+    public synchronized long comparisonCount() {
+        long count = 0;
+        for (BSTree<WordInfo> shard : shards) {
+            if (shard != null) count += shard.getComparisonCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the total number of postings stored by the last save.
+     *
+     * @return The stored posting total.
+     */
+    public long getStoredPostings() {
+        return index.totalPostings;
+    }
+
+    /**
+     * Gets the per-file posting counts stored by the last save.
+     *
+     * @return The stored posting counts by filename.
+     */
+    public Map<String, Long> getStoredFilePostings() {
+        return index.filePostings;
+    }
+
+    /**
+     * Writes every modified shard to its file, in parallel, followed by the index.
+     *
+     * @param totalPostings The current total number of postings.
+     * @param filePostings The current posting counts by filename.
+     * @param compress True to write the shards in the block-compressed format.
+     * @return The combined sizes of the files written.
+     * @throws IOException If a shard or the index cannot be written.
+     */
+    synchronized RepositoryIO.SaveStats save(long totalPostings, Map<String, Long> filePostings, boolean compress) throws IOException {
+        RepositoryIO.SaveStats stats;
+        try {
+            stats = IntStream.range(0, SHARD_COUNT).parallel()
+                .filter(i -> modified[i] && shards[i] != null)
+                .mapToObj(i -> {
+                    try {
+                        return RepositoryIO.write(shards[i], shardFile(i), compress);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .reduce(new RepositoryIO.SaveStats(0, 0), RepositoryIO.SaveStats::plus);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        updateIndex(totalPostings, filePostings);
+        stats = stats.plus(RepositoryIO.write(index, directory.resolve(INDEX_FILE), false));
+        Arrays.fill(modified, false);
+        return stats;
+    }
+
+    /**
+     * Serializes every modified shard and the index into memory, to be written
+     * later by the caller in the order returned, possibly on another thread (see
+     * RepositoryIO.Snapshot). The shards count as saved from now on.
+     *
+     * @param totalPostings The current total number of postings.
+     * @param filePostings The current posting counts by filename.
+     * @param compress True to write the shards in the block-compressed format.
+     * @return The snapshots of the modified shards, followed by the index.
+     * @throws IOException If a shard cannot be serialized.
+     */
+    synchronized List<RepositoryIO.Snapshot> snapshot(long totalPostings, Map<String, Long> filePostings, boolean compress)
+            throws IOException {
+        List<RepositoryIO.Snapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            if (modified[i] && shards[i] != null) snapshots.add(RepositoryIO.snapshot(shards[i], shardFile(i), compress));
+        }
+        updateIndex(totalPostings, filePostings);
+        snapshots.add(RepositoryIO.snapshot(index, directory.resolve(INDEX_FILE), false));
+        Arrays.fill(modified, false);
+        return snapshots;
+    }
+
+    /**
+     * Updates the word counts of the loaded shards and the posting totals in
+     * the index before it is written.
+     *
+     * @param totalPostings The current total number of postings.
+     * @param filePostings The current posting counts by filename.
+     */
+    private void updateIndex(long totalPostings, Map<String, Long> filePostings) {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            if (shards[i] != null) index.wordCounts[i] = shards[i].size();
+        }
+        index.totalPostings = totalPostings;
+        index.filePostings = new HashMap<>(filePostings);
+    }
+
+    /**
+     * Replaces the tree of a shard, such as one rebuilt by a merge, and marks
+     * the shard as modified.
+     *
+     * @param shard The index of the shard.
+     * @param tree The new tree.
+     */
+    synchronized void replaceShard(int shard, BSTree<WordInfo> tree) {
+        shards[shard] = tree;
+        modified[shard] = true;
+    }
+
+    /**
+     * Writes a shard to its file if it was modified and drops it from memory,
+     * so that a merge only holds one shard at a time. The shard is loaded again
+     * when it is next used; the index is written by the next save.
+     *
+     * @param shard The index of the shard.
+     * @param compress True to write the shard in the block-compressed format.
+     * @return The sizes of the file written, or zero sizes if nothing was written.
+     * @throws IOException If the shard cannot be written.
+     */
+    synchronized RepositoryIO.SaveStats unloadShard(int shard, boolean compress) throws IOException {
+        RepositoryIO.SaveStats stats = new RepositoryIO.SaveStats(0, 0);
+        if (shards[shard] == null) return stats;
+        if (modified[shard]) {
+            stats = RepositoryIO.write(shards[shard], shardFile(shard), compress);
+            modified[shard] = false;
+        }
+        index.wordCounts[shard] = shards[shard].size();
+        shards[shard] = null;
+        return stats;
+    }
+
+    /**
+     * Recreates the index by loading every shard, for repositories whose index
+     * is missing, unreadable or written before it held the shards of files.
+     */
+    private void rebuildIndex() {
+        index = new Index();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            if (!Files.exists(shardFile(i))) continue;
+            BSTree<WordInfo> shard = shard(i);
+            int shardSet = 1 << i;
+            index.wordCounts[i] = shard.size();
+            shard.forEachInorder(info -> {
+                index.totalPostings += info.getOccurrences();
+                info.getFileLocations().forEach((file, lines) -> {
+                    index.filePostings.merge(file, (long) lines.size(), Long::sum);
+                    index.fileShards.merge(file, shardSet, (a, b) -> a | b);
+                });
+            });
+        }
+    }
+
+    /**
+     * Gets the file a shard is stored in.
+     *
+     * @param shard The index of the shard.
+     * @return The path of the shard file.
+     */
+    private Path shardFile(int shard) {
+        String name = shard < 26 ? String.valueOf((char) ('a' + shard)) : "other";
+        return directory.resolve("shard-" + name + ".ser");
+    }
+
+    /**
+     * The stored summary of the shards.
+     */
+    private static class Index implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int[] wordCounts = new int[SHARD_COUNT];     // Number of words in every shard
+        private long totalPostings;                                // Number of (word, file, line) entries
+        private Map<String, Long> filePostings = new HashMap<>();  // Number of (word, line) entries per file
+        private Map<String, Integer> fileShards = new HashMap<>(); // Shards holding words of each file, one bit per shard
+    }
+}
@@ -0,0 +1,407 @@
+package WordTracker;
+
+import implementations.BSTree;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * SortedRun.java
+ *
+ * A file of WordInfo records in run order, the ascending order of the words,
+ * so that merging runs yields the words in the order BSTree.fromSorted takes
+ * them and, since shards are ranges of first letters (see ShardedRepository),
+ * the words of one shard after another. Runs are written by a bounded-memory
+ * ingest whenever its in-memory tree reaches the memory budget (see
+ * SpillingIndex), and merged back into the repository at the end.
+ *
+ * A run starts with a magic number. Every record holds the word, its line
+ * numbers per file as delta-encoded variable-length integers, and its positions
+ * per file if any were recorded; strings are stored as their length in UTF-8
+ * bytes followed by the bytes. A false marker ends the run. Runs are read back
+ * one record at a time, so a merge only holds one record per run.
+ */
+final class SortedRun {
+    private static final int MAGIC = 0x57545232;  // "WTR2"; WTR1 stored strings with writeUTF
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The order of the records in a run: the natural order of the words. Words
+     * start with a letter from a to z, so it is also the order of their shards.
+     */
+    static final Comparator<WordInfo> ORDER = Comparator.naturalOrder();
+
+    /**
+     * Prevents instantiation.
+     */
+    private SortedRun() {
+    }
+
+    /**
+     * Writes words to a new run file.
+     *
+     * @param file The file to write.
+     * @param words The words, in run order without duplicates.
+     * @return The number of bytes written.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If the words are not in run order.
+     */
+    static long write(Path file, Iterable<WordInfo> words) throws IOException, IllegalArgumentException {
+        try (Writer writer = new Writer(file)) {
+            for (WordInfo info : words) {
+                writer.write(info);
+            }
+        }
+        return Files.size(file);
+    }
+
+    /**
+     * Lists the words of a tree in run order, which is the order of an in-order
+     * walk.
+     *
+     * @param tree The tree.
+     * @return The words in ascending order.
+     */
+    static List<WordInfo> inRunOrder(BSTree<WordInfo> tree) {
+        List<WordInfo> words = new ArrayList<>(tree.size());
+        tree.forEachInorder(words::add);
+        return words;
+    }
+
+    /**
+     * Writes records to a run file, checking that they arrive in run order.
+     */
+    static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private WordInfo previous;
+
+        /**
+         * Creates a run file and writes its header.
+         *
+         * @param file The file to write.
+         * @throws IOException If the file cannot be created.
+         */
+        Writer(Path file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+        }
+
+        /**
+         * Appends a record.
+         *
+         * @param info The word, which must come after the previous one in run order.
+         * @throws IOException If the file cannot be written.
+         * @throws IllegalArgumentException If the word is out of order.
+         */
+        void write(WordInfo info) throws IOException, IllegalArgumentException {
+            if (previous != null && ORDER.compare(previous, info) >= 0) {
+                throw new IllegalArgumentException("Run out of order at " + info.getWord());
+            }
+            previous = info;
+            out.writeBoolean(true);
+            writeString(out, info.getWord());
+            writeVarInt(out, info.getFileLocations().size());
+            for (Map.Entry<String, Set<Integer>> entry : info.getFileLocations().entrySet()) {
+                writeString(out, entry.getKey());
+                writeVarInt(out, entry.getValue().size());
+                int last = 0;
+                for (int line : entry.getValue()) {  // Ascending, as the sets are TreeSets
+                    writeVarInt(out, line - last);
+                    last = line;
+                }
+            }
+            writeVarInt(out, info.getFilePositions().size());
+            for (Map.Entry<String, PositionList> entry : info.getFilePositions().entrySet()) {
+                writeString(out, entry.getKey());
+                int[][] positions = entry.getValue().positions();
+                writeVarInt(out, positions.length);
+                for (int[] position : positions) {
+                    writeVarInt(out, position[0]);
+                    writeVarInt(out, position[1]);
+                    writeVarInt(out, position[2]);
+                }
+            }
+        }
+
+        /**
+         * Writes the end marker and closes the file.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                out.writeBoolean(false);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a run file in order.
+     */
+    static final class Reader implements Iterator<WordInfo>, Closeable {
+        private final DataInputStream in;
+        private final Map<String, String> filenames;
+        private WordInfo next;
+
+        /**
+         * Opens a run file and reads its first record. Filenames are looked up in
+         * a map shared by the readers of one merge, so that every word refers to
+         * the same String for a file, as words indexed directly do; the
+         * serialized repository then stores each filename once.
+         *
+         * @param file The file to read.
+         * @param filenames The canonical filenames, added to as new ones are read.
+         * @throws IOException If the file cannot be read or is not a run.
+         */
+        Reader(Path file, Map<String, String> filenames) throws IOException {
+            this.filenames = filenames;
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            try {
+                if (in.readInt() != MAGIC) throw new IOException("Not a sorted run: " + file);
+                next = readRecord();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Checks if there are more records.
+         *
+         * @return True if there are more records, false otherwise.
+         */
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * Returns the next record.
+         *
+         * @return The next word.
+         * @throws NoSuchElementException If there are no more records.
+         * @throws UncheckedIOException If the file cannot be read.
+         */
+        @Override
+        public WordInfo next() throws NoSuchElementException {
+            if (next == null) throw new NoSuchElementException();
+            WordInfo current = next;
+            try {
+                next = readRecord();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return current;
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @throws IOException If the file cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        /**
+         * Reads one record.
+         *
+         * @return The word, or null at the end of the run.
+         * @throws IOException If the file cannot be read.
+         */
+        private WordInfo readRecord() throws IOException {
+            if (!in.readBoolean()) return null;
+            WordInfo info = new WordInfo(readString(in));
+            int files = readVarInt(in);
+            for (int f = 0; f < files; f++) {
+                String filename = filenames.computeIfAbsent(readString(in), name -> name);
+                int lines = readVarInt(in);
+                int line = 0;
+                for (int i = 0; i < lines; i++) {
+                    line += readVarInt(in);
+                    info.addLocation(filename, line);
+                }
+            }
+            int positionFiles = readVarInt(in);
+            for (int f = 0; f < positionFiles; f++) {
+                String filename = filenames.computeIfAbsent(readString(in), name -> name);
+                int count = readVarInt(in);
+                for (int i = 0; i < count; i++) {
+                    info.addPosition(filename, readVarInt(in), readVarInt(in), readVarInt(in));
+                }
+            }
+            return info;
+        }
+    }
+
+    /**
+     * Merges several sources in run order into one sequence in run order. A word
+     * that appears in more than one source is returned once, with the records of
+     * the later sources merged into the record of the earliest (see
+     * WordInfo.merge).
+     */
+    static final class Merger implements Iterator<WordInfo> {
+        private final PriorityQueue<Head> heads;
+
+        /**
+         * Creates a merger.
+         *
+         * @param sources The sources, each in run order without duplicates.
+         */
+        Merger(List<? extends Iterator<WordInfo>> sources) {
+            heads = new PriorityQueue<>(Math.max(1, sources.size()));
+            for (int i = 0; i < sources.size(); i++) {
+                if (sources.get(i).hasNext()) heads.add(new Head(sources.get(i), i));
+            }
+        }
+
+        /**
+         * Checks if there are more words.
+         *
+         * @return True if there are more words, false otherwise.
+         */
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        /**
+         * Gets the next word without consuming it. Its records in the other
+         * sources are not merged into it yet.
+         *
+         * @return The next word.
+         * @throws NoSuchElementException If there are no more words.
+         */
+        WordInfo peek() throws NoSuchElementException {
+            if (heads.isEmpty()) throw new NoSuchElementException();
+            return heads.peek().current;
+        }
+
+        /**
+         * Returns the next word, merged from every source that holds it.
+         *
+         * @return The next word.
+         * @throws NoSuchElementException If there are no more words.
+         */
+        @Override
+        public WordInfo next() throws NoSuchElementException {
+            if (heads.isEmpty()) throw new NoSuchElementException();
+            Head head = heads.poll();
+            WordInfo merged = head.current;
+            advance(head);
+            while (!heads.isEmpty() && heads.peek().current.getWord().equals(merged.getWord())) {
+                Head same = heads.poll();
+                merged.merge(same.current);
+                advance(same);
+            }
+            return merged;
+        }
+
+        /**
+         * Moves a source to its next word, dropping it once it is exhausted.
+         *
+         * @param head The source.
+         */
+        private void advance(Head head) {
+            if (head.source.hasNext()) {
+                head.current = head.source.next();
+                heads.add(head);
+            }
+        }
+
+        /**
+         * The current word of one source.
+         */
+        private static final class Head implements Comparable<Head> {
+            private final Iterator<WordInfo> source;
+            private final int rank;      // Position of the source, which breaks ties
+            private WordInfo current;
+
+            /**
+             * Creates the head of a non-empty source.
+             *
+             * @param source The source.
+             * @param rank The position of the source.
+             */
+            Head(Iterator<WordInfo> source, int rank) {
+                this.source = source;
+                this.rank = rank;
+                this.current = source.next();
+            }
+
+            @Override
+            public int compareTo(Head other) {
+                int order = ORDER.compare(current, other.current);
+                return order != 0 ? order : Integer.compare(rank, other.rank);
+            }
+        }
+    }
+
+    /**
+     * Writes a non-negative integer using seven bits per byte.
+     *
+     * @param out The stream to write to.
+     * @param value The value.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Writes a string as its length in UTF-8 bytes followed by the bytes.
+     * Unlike DataOutput.writeUTF, this has no limit of 65535 bytes, which a
+     * word (a run of letters) or a path can exceed.
+     *
+     * @param out The stream to write to.
+     * @param value The string.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param in The stream to read from.
+     * @return The string.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0) throw new StreamCorruptedException("Invalid string length in sorted run");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an integer written by writeVarInt.
+     *
+     * @param in The stream to read from.
+     * @return The value.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package WordTracker;
+
+import implementations.BSTree;
+import implementations.ObjectLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * SpillingIndex.java
+ *
+ * The in-memory part of a bounded-memory ingest. Words are indexed into a
+ * fresh BSTree instead of the repository; when the estimated size of that tree
+ * reaches the memory budget, it is written to disk as a SortedRun and replaced
+ * by an empty tree. At the end the runs and the last tree are merged with the
+ * repository (see WordTracker), so only the repository and one tree's worth of
+ * new postings are in memory at a time.
+ *
+ * The size of the tree is estimated from the number of words, postings and
+ * positions added, using the sizes of the objects that hold them on the running
+ * JVM (see HeapFootprint) and a typical word of eight characters. The budget is
+ * checked between files, so a single file larger than the budget still fits
+ * into one run.
+ */
+final class SpillingIndex {
+    static final long WORD_BYTES = ObjectLayout.objectBytes(3, 0) + HeapFootprint.WORD_INFO  // Tree node, WordInfo,
+        + ObjectLayout.stringBytes(8, true) + HeapFootprint.hashMapBytes(0);                // its String and file map
+    static final long FILE_BYTES = HeapFootprint.HASH_MAP_NODE + HeapFootprint.TREE_SET + HeapFootprint.TREE_MAP;  // A word's first line in a file
+    static final long POSTING_BYTES = HeapFootprint.TREE_MAP_ENTRY + HeapFootprint.INTEGER;  // TreeSet entry and boxed line number
+    static final long POSITION_BYTES = 4;    // Encoded position
+    private final long budget;
+    private final Path directory;
+    private final List<Path> runs = new ArrayList<>();
+    private BSTree<WordInfo> tree = new BSTree<>();
+    private long estimatedBytes;
+
+    /**
+     * Creates an empty index. Runs are written to a new temporary directory next
+     * to the repository.
+     *
+     * @param budget The memory budget for the in-memory tree, in bytes.
+     * @param repository The path of the repository file or directory.
+     * @throws IllegalArgumentException If the budget is not positive.
+     */
+    SpillingIndex(long budget, Path repository) throws IllegalArgumentException {
+        if (budget <= 0) throw new IllegalArgumentException("Memory budget must be positive");
+        this.budget = budget;
+        Path parent = repository.toAbsolutePath().getParent();
+        this.directory = parent.resolve(repository.getFileName() + ".runs");
+    }
+
+    /**
+     * Gets the memory budget.
+     *
+     * @return The budget in bytes.
+     */
+    long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the tree that new words are indexed into.
+     *
+     * @return The current in-memory tree.
+     */
+    BSTree<WordInfo> tree() {
+        return tree;
+    }
+
+    /**
+     * Adds to the estimated size of the in-memory tree.
+     *
+     * @param bytes The estimated number of bytes added.
+     */
+    void addEstimate(long bytes) {
+        estimatedBytes += bytes;
+    }
+
+    /**
+     * Gets the estimated size of the in-memory tree.
+     *
+     * @return The estimate in bytes.
+     */
+    long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Writes the in-memory tree to a new run if it has reached the budget.
+     *
+     * @return True if a run was written.
+     * @throws IOException If the run cannot be written.
+     */
+    boolean spillIfFull() throws IOException {
+        if (estimatedBytes < budget) return false;
+        spill();
+        return true;
+    }
+
+    /**
+     * Writes the in-memory tree to a new run and starts an empty tree.
+     *
+     * @throws IOException If the run cannot be written.
+     */
+    void spill() throws IOException {
+        if (tree.isEmpty()) return;
+        Files.createDirectories(directory);
+        Path run = directory.resolve("run-" + runs.size() + ".bin");
+        SortedRun.write(run, SortedRun.inRunOrder(tree));
+        runs.add(run);
+        tree = new BSTree<>();
+        estimatedBytes = 0;
+    }
+
+    /**
+     * Gets the number of runs written.
+     *
+     * @return The number of runs.
+     */
+    int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Checks whether nothing has been indexed since the last merge.
+     *
+     * @return True if there are no runs and the in-memory tree is empty.
+     */
+    boolean isEmpty() {
+        return runs.isEmpty() && tree.isEmpty();
+    }
+
+    /**
+     * Opens a merge of the runs and the in-memory tree. Filenames read from the
+     * runs are shared between the runs.
+     *
+     * @param readers Receives the opened run readers, to be closed by the caller.
+     * @return The merged words in run order.
+     * @throws IOException If a run cannot be opened.
+     */
+    SortedRun.Merger merge(List<SortedRun.Reader> readers) throws IOException {
+        List<Iterator<WordInfo>> sources = new ArrayList<>();
+        Map<String, String> filenames = new HashMap<>();
+        for (Path run : runs) {
+            SortedRun.Reader reader = new SortedRun.Reader(run, filenames);
+            readers.add(reader);
+            sources.add(reader);
+        }
+        sources.add(SortedRun.inRunOrder(tree).iterator());
+        return new SortedRun.Merger(sources);
+    }
+
+    /**
+     * Merges the runs and the in-memory tree into a single run, and then resets
+     * the index.
+     *
+     * @param file The run file to write.
+     * @throws IOException If a run cannot be read or the file cannot be written.
+     */
+    void writeMerged(Path file) throws IOException {
+        List<SortedRun.Reader> readers = new ArrayList<>();
+        try (SortedRun.Writer writer = new SortedRun.Writer(file)) {
+            SortedRun.Merger merged = merge(readers);
+            while (merged.hasNext()) {
+                writer.write(merged.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (SortedRun.Reader reader : readers) {
+                reader.close();
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Deletes the runs and empties the in-memory tree, after a merge.
+     *
+     * @throws IOException If a run cannot be deleted.
+     */
+    void reset() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> remaining = Files.list(directory)) {
+                if (!remaining.findAny().isPresent()) Files.delete(directory);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        tree = new BSTree<>();
+        estimatedBytes = 0;
+    }
+}
@@ -0,0 +1,114 @@
+package WordTracker;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * TokenList.java
+ *
+ * The words extracted from a file, in the order they occur, together with the
+ * line and column (both starting at 1) each word occurs at. A word is a run of
+ * the letters a-z after the line has been converted to lower case; every other
+ * character separates words.
+ *
+ * Tokenizing into a TokenList is independent of the word tree, so it can run on
+ * a different thread than the indexing.
+ */
+final class TokenList {
+    private String[] words = new String[64];
+    private int[] lines = new int[64];
+    private int[] columns = new int[64];
+    private int size;
+
+    /**
+     * Splits lines of text into words.
+     *
+     * @param fileLines The lines of the file, the first being line 1.
+     * @return The words of the file in order.
+     */
+    static TokenList tokenize(List<String> fileLines) {
+        TokenList tokens = new TokenList();
+        for (int lineNum = 0; lineNum < fileLines.size(); lineNum++) {
+            String line = fileLines.get(lineNum).toLowerCase();
+            int start = -1;
+            for (int i = 0; i <= line.length(); i++) {
+                boolean letter = i < line.length() && isLetter(line.charAt(i));
+                if (letter && start < 0) {
+                    start = i;
+                } else if (!letter && start >= 0) {
+                    tokens.add(line.substring(start, i), lineNum + 1, start + 1);
+                    start = -1;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Checks whether a character is part of a word.
+     *
+     * @param c The character to check.
+     * @return True if the character is an ASCII letter.
+     */
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Appends a word.
+     *
+     * @param word The word.
+     * @param line The line the word occurs on.
+     * @param column The column the word starts at.
+     */
+    void add(String word, int line, int column) {
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+            columns = Arrays.copyOf(columns, size * 2);
+        }
+        words[size] = word;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    /**
+     * Gets the number of words.
+     *
+     * @return The number of words.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets a word.
+     *
+     * @param index The position of the word in the file.
+     * @return The word.
+     */
+    String word(int index) {
+        return words[index];
+    }
+
+    /**
+     * Gets the line a word occurs on.
+     *
+     * @param index The position of the word in the file.
+     * @return The line number.
+     */
+    int line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Gets the column a word starts at.
+     *
+     * @param index The position of the word in the file.
+     * @return The column number.
+     */
+    int column(int index) {
+        return columns[index];
+    }
+}
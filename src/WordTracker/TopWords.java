@@ -0,0 +1,148 @@
+package WordTracker;
+
+import implementations.BSTreeNode;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * TopWords.java
+ *
+ * Selects the K most frequent words from a tree of WordInfo objects. The tree is
+ * walked once and the candidates are kept in a min-heap of at most K entries keyed
+ * on {@link WordInfo#getOccurrences()}, so the selection runs in O(n log K) time
+ * and needs O(K) extra memory (plus the walk stack).
+ *
+ * The words may be spread over several trees, in which case all of them are
+ * scanned. The parallel variant splits each tree into its top-level subtrees,
+ * selects the top K of each subtree on the common fork/join pool and merges the
+ * partial heaps.
+ *
+ * Ties on the occurrence count are broken alphabetically, so the result is the
+ * same for the sequential and the parallel selection.
+ */
+public final class TopWords {
+    /** Orders words from least to most frequent; on a tie the later word is considered less frequent. */
+    private static final Comparator<WordInfo> HEAP_ORDER =
+        Comparator.comparingInt((WordInfo info) -> info.getOccurrences())
+            .thenComparing(Comparator.reverseOrder());
+
+    private TopWords() {
+    }
+
+    /**
+     * Returns the K most frequent words in the trees rooted at the given nodes,
+     * ordered by descending occurrence count and then alphabetically.
+     *
+     * @param roots The roots of the trees to scan; empty trees are left out.
+     * @param k The number of words to return.
+     * @param parallel True to scan the subtrees in parallel.
+     * @return The selected words, most frequent first.
+     * @throws IllegalArgumentException If k is not positive.
+     */
+    public static List<WordInfo> select(Collection<BSTreeNode<WordInfo>> roots, int k, boolean parallel) {
+        if (k <= 0) throw new IllegalArgumentException("K must be positive: " + k);
+
+        PriorityQueue<WordInfo> heap = new PriorityQueue<>(HEAP_ORDER);
+        if (parallel) {
+            int splitDepth = 32 - Integer.numberOfLeadingZeros(ForkJoinPool.getCommonPoolParallelism()) + 1;
+            List<SelectTask> tasks = new ArrayList<>();
+            for (BSTreeNode<WordInfo> root : roots) {
+                SelectTask task = new SelectTask(root, k, splitDepth);
+                task.fork();  // Runs in the common pool
+                tasks.add(task);
+            }
+            for (SelectTask task : tasks) {
+                for (WordInfo info : task.join()) offer(heap, k, info);
+            }
+        } else {
+            for (BSTreeNode<WordInfo> root : roots) scan(root, k, heap);
+        }
+
+        List<WordInfo> result = new ArrayList<>(heap);
+        result.sort(HEAP_ORDER.reversed());
+        return result;
+    }
+
+    /**
+     * Offers a word to a bounded heap, evicting the least frequent word once the
+     * heap holds more than k entries.
+     *
+     * @param heap The heap of candidates.
+     * @param k The maximum number of candidates to keep.
+     * @param info The word to offer.
+     */
+    private static void offer(PriorityQueue<WordInfo> heap, int k, WordInfo info) {
+        if (heap.size() < k) {
+            heap.add(info);
+        } else if (HEAP_ORDER.compare(info, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(info);
+        }
+    }
+
+    /**
+     * Iteratively walks the subtree rooted at the given node and offers every word
+     * to the heap.
+     *
+     * @param node The root of the subtree to scan.
+     * @param k The maximum number of candidates to keep.
+     * @param heap The heap of candidates.
+     */
+    private static void scan(BSTreeNode<WordInfo> node, int k, PriorityQueue<WordInfo> heap) {
+        Deque<BSTreeNode<WordInfo>> stack = new ArrayDeque<>();
+        if (node != null) stack.push(node);
+        while (!stack.isEmpty()) {
+            BSTreeNode<WordInfo> current = stack.pop();
+            offer(heap, k, current.getElement());
+            if (current.getLeft() != null) stack.push(current.getLeft());
+            if (current.getRight() != null) stack.push(current.getRight());
+        }
+    }
+
+    /**
+     * A fork/join task that selects the top K words of a subtree, forking on the
+     * children until the split depth is exhausted.
+     */
+    private static class SelectTask extends RecursiveTask<PriorityQueue<WordInfo>> {
+        private static final long serialVersionUID = 1L;
+        private final BSTreeNode<WordInfo> node;
+        private final int k;
+        private final int depth;
+
+        /**
+         * Creates a task for the subtree rooted at the given node.
+         *
+         * @param node The root of the subtree.
+         * @param k The number of words to select.
+         * @param depth The number of levels that may still be forked.
+         */
+        SelectTask(BSTreeNode<WordInfo> node, int k, int depth) {
+            this.node = node;
+            this.k = k;
+            this.depth = depth;
+        }
+
+        @Override
+        protected PriorityQueue<WordInfo> compute() {
+            PriorityQueue<WordInfo> heap = new PriorityQueue<>(HEAP_ORDER);
+            if (depth == 0) {
+                scan(node, k, heap);
+                return heap;
+            }
+
+            SelectTask left = node.getLeft() != null ? new SelectTask(node.getLeft(), k, depth - 1) : null;
+            SelectTask right = node.getRight() != null ? new SelectTask(node.getRight(), k, depth - 1) : null;
+            if (left != null) left.fork();
+            if (right != null) {
+                for (WordInfo info : right.compute()) offer(heap, k, info);
+            }
+            if (left != null) {
+                for (WordInfo info : left.join()) offer(heap, k, info);
+            }
+            offer(heap, k, node.getElement());
+            return heap;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package WordTracker;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -17,18 +19,29 @@ import java.util.*;
  * - A map (fileLocations) to store the filenames as keys, with sets of line
  *   numbers as values, to track where the word appears in different files.
  * 
+ * - Optionally, a map (positions) from filenames to the exact positions of every
+ *   occurrence, used for phrase queries. It is null unless positions are recorded.
+ * 
  * The class provides functionality for:
  * - Adding occurrences of the word in specific files and line numbers.
  * - Retrieving the word and its file locations.
- * - Comparing WordInfo objects by word for sorting.
- * - Counting the total occurrences of the word across all files.
+ * - Comparing WordInfo objects by word for sorting. The first eight characters of
+ *   the word are cached as a packed long (see packPrefix), so most comparisons
+ *   made while descending the word tree are a single long comparison.
+ * - Counting the total occurrences of the word across all files. The count is
+ *   kept as a running total that addLocation updates whenever it inserts a new
+ *   location, so reading it is O(1).
  * 
  * @param <E> The type of elements held in the internal data structures.
  */
 public class WordInfo implements Comparable<WordInfo>, Serializable {
     private static final long serialVersionUID = 1L;
+    private static final long NO_PREFIX = -1L;       // Marks a word whose first characters cannot be packed
     private String word;                             // The word being tracked
     private Map<String, Set<Integer>> fileLocations; // A map of filenames to line numbers where the word appears
+    private transient int occurrences;               // Running total of the line numbers in fileLocations
+    private Map<String, PositionList> positions;     // A map of filenames to word positions, or null if not recorded
+    private transient long prefix;                   // The first eight characters packed by packPrefix, or NO_PREFIX
 
     /**
      * Constructs a new WordInfo object for a given word.
@@ -38,6 +51,29 @@ public class WordInfo implements Comparable<WordInfo>, Serializable {
     public WordInfo(String word) {
         this.word = word;
         this.fileLocations = new HashMap<>();
+        this.prefix = packPrefix(word);
+    }
+
+    /**
+     * Packs the first eight characters of a word into a long, one byte per
+     * character with the first character in the most significant byte, padded
+     * with zero bytes. This only works if those characters are ASCII (1 to 127);
+     * then comparing two packed prefixes gives the same order as comparing the
+     * strings whenever the prefixes differ, because a shorter word is padded with
+     * zero bytes that sort before any character.
+     *
+     * @param word The word.
+     * @return The packed prefix, or NO_PREFIX if a character cannot be packed.
+     */
+    static long packPrefix(String word) {
+        long packed = 0;
+        int length = Math.min(word.length(), Long.BYTES);
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c == 0 || c > 127) return NO_PREFIX;
+            packed |= (long) c << (8 * (Long.BYTES - 1 - i));
+        }
+        return packed;
     }
 
     /**
@@ -45,9 +81,105 @@ public class WordInfo implements Comparable<WordInfo>, Serializable {
      *
      * @param filename The name of the file.
      * @param lineNumber The line number in the file where the word appears.
+     * @return True if the location was new, false if it was already recorded.
+     */
+    public boolean addLocation(String filename, int lineNumber) {
+        boolean added = fileLocations.computeIfAbsent(filename, k -> new TreeSet<>()).add(lineNumber);
+        if (added) occurrences++;
+        return added;
+    }
+
+    /**
+     * Adds the exact position of an occurrence of the word. Positions within a
+     * file must be added in the order the words occur.
+     *
+     * @param filename The name of the file.
+     * @param ordinal The index of the occurrence among all words of the file.
+     * @param lineNumber The line number of the occurrence.
+     * @param column The column the occurrence starts at.
+     */
+    public void addPosition(String filename, int ordinal, int lineNumber, int column) {
+        if (positions == null) positions = new HashMap<>();
+        positions.computeIfAbsent(filename, k -> new PositionList()).add(ordinal, lineNumber, column);
+    }
+
+    /**
+     * Gets the exact positions of the word in a specific file.
+     *
+     * @param filename The name of the file.
+     * @return The positions, or null if none were recorded for the file.
+     */
+    public PositionList getPositions(String filename) {
+        return positions == null ? null : positions.get(filename);
+    }
+
+    /**
+     * Gets the map of file positions of the word.
+     *
+     * @return A map of filenames to positions, empty if no positions are recorded.
+     */
+    public Map<String, PositionList> getFilePositions() {
+        return positions == null ? Collections.emptyMap() : positions;
+    }
+
+    /**
+     * Removes every location of the word in a specific file.
+     *
+     * @param filename The name of the file.
+     * @return The number of locations removed.
      */
-    public void addLocation(String filename, int lineNumber) {
-        fileLocations.computeIfAbsent(filename, k -> new TreeSet<>()).add(lineNumber);
+    public int removeFile(String filename) {
+        if (positions != null && positions.remove(filename) != null && positions.isEmpty()) {
+            positions = null;
+        }
+        Set<Integer> lines = fileLocations.remove(filename);
+        if (lines == null) return 0;
+        occurrences -= lines.size();
+        return lines.size();
+    }
+
+    /**
+     * Moves the locations and positions recorded in another WordInfo for the
+     * same word into this one, as when partial indexes of the same corpus are
+     * merged. The other WordInfo must not be used afterwards. Positions are only
+     * taken for files that have none here yet, since positions of one file are
+     * always recorded in a single pass.
+     *
+     * @param other The WordInfo to merge, for the same word.
+     * @return The number of locations that were new.
+     * @throws IllegalArgumentException If the other WordInfo tracks a different word.
+     */
+    int merge(WordInfo other) throws IllegalArgumentException {
+        if (!word.equals(other.word)) throw new IllegalArgumentException("Cannot merge " + other.word + " into " + word);
+        int added = 0;
+        for (Map.Entry<String, Set<Integer>> entry : other.fileLocations.entrySet()) {
+            Set<Integer> lines = fileLocations.get(entry.getKey());
+            if (lines == null) {
+                fileLocations.put(entry.getKey(), entry.getValue());
+                added += entry.getValue().size();
+            } else {
+                int before = lines.size();
+                lines.addAll(entry.getValue());
+                added += lines.size() - before;
+            }
+        }
+        occurrences += added;
+        if (other.positions != null) {
+            if (positions == null) positions = new HashMap<>();
+            other.positions.forEach(positions::putIfAbsent);
+        }
+        return added;
+    }
+
+    /**
+     * Gets the number of line numbers recorded for the word in a specific file.
+     *
+     * @param filename The name of the file.
+     * @return The number of occurrences in the file, or 0 if the word does not appear in it.
+     */
+    public int getOccurrences(String filename) {
+        Set<Integer> lines = fileLocations.get(filename);
+        return lines == null ? 0 : lines.size();
     }
 
     /**
@@ -77,16 +209,56 @@ public class WordInfo implements Comparable<WordInfo>, Serializable {
      */
     @Override
     public int compareTo(WordInfo other) {
+        if (prefix != other.prefix && prefix != NO_PREFIX && other.prefix != NO_PREFIX) {
+            return Long.compareUnsigned(prefix, other.prefix);  // Decided within the first eight characters
+        }
         return this.word.compareTo(other.word);
     }
 
     /**
-     * Calculates the total number of occurrences of the word across all files.
+     * Checks whether another object is a WordInfo for the same word, consistent
+     * with compareTo.
+     *
+     * @param other The object to compare with.
+     * @return True if the other object tracks the same word.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof WordInfo && word.equals(((WordInfo) other).word);
+    }
+
+    /**
+     * Gets a hash code of the word, so that equal WordInfo objects have equal
+     * hash codes (needed by the Bloom filter of the word tree).
+     *
+     * @return The hash code of the word.
+     */
+    @Override
+    public int hashCode() {
+        return word.hashCode();
+    }
+
+    /**
+     * Gets the total number of occurrences of the word across all files.
      * 
      * @return The total number of occurrences.
      */
     public int getOccurrences() {
-        return fileLocations.values().stream()
+        return occurrences;
+    }
+
+    /**
+     * Restores the word from a serialized stream and recomputes the occurrence
+     * count and the packed prefix, which are not stored.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If the stream cannot be read.
+     * @throws ClassNotFoundException If a serialized class cannot be found.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        prefix = packPrefix(word);
+        occurrences = fileLocations.values().stream()
             .mapToInt(Set::size)  // Count the occurrences in each file
             .sum();  // Sum up the counts for all files
     }
@@ -2,12 +2,17 @@ package WordTracker;
 
 import implementations.BSTree;
 import implementations.BSTreeNode;
-import utilities.Iterator;
+import implementations.CompactDictionary;
+import implementations.TreeShape;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * WordTracker.java
@@ -18,36 +23,147 @@ import java.util.regex.Pattern;
  * the occurrences of words in different files and line numbers.
  * 
  * The class provides functionalities for:
- * - Loading and saving word occurrences to/from a repository file.
- * - Processing files to extract words and their locations.
+ * - Loading and saving word occurrences to/from a repository file. Files are
+ *   replaced atomically, and saves can run on a background thread (see
+ *   setBackgroundSave).
+ * - Processing files to extract words and their locations. Files that have not
+ *   changed since they were last processed are skipped, and files that have
+ *   changed have their previous postings replaced (see FileManifest).
  * - Generating reports on word occurrences, either by file, by line, or by occurrence count.
  * 
  * The class relies on the following data structures:
  * - A Binary Search Tree (BSTree) to store WordInfo objects.
  * - WordInfo objects that encapsulate information about each word's occurrences.
+ * - Optionally, instead of the tree, a CompactIndex that keeps the words as bytes
+ *   in large arenas and creates WordInfo objects only for reports and lookups.
  * 
  * @param <E> The type of elements held in the internal data structures.
  */
 public class WordTracker {
     private static final String REPOSITORY_FILE = "repository.ser"; 
-    private BSTree<WordInfo> wordTree;  
+    private static final long SAVE_DELAY_MILLIS = 100;           // Time a background save waits for more changes
+    static final int DEFAULT_FUZZY_DISTANCE = 2;                 // Edit distance of -pd and FUZZY when none is given
+    private final String repositoryFile;
+    private final String manifestFile;                            // Records the state of every processed file
+    private final FileManifest manifest;
+    private final boolean checkManifest;                          // Whether the manifest is checked against the loaded repository
+    private final ShardedRepository shards;                       // Null unless the repository is sharded
+    private BSTree<WordInfo> wordTree;                            // Null if the repository is sharded or compact
+    private CompactIndex compact;                                 // Null unless the dictionary is compact
+    private final CompletableFuture<Void> loaded;                 // Completes when the repository has been loaded
+    private boolean positional;                                   // Whether exact word positions are recorded
+    private boolean compressed;                                   // Whether saves use the block-compressed format
+    private long loadNanos;                                       // Time taken to load the repository
+    private volatile long saveNanos;                              // Time taken by the last save
+    private volatile RepositoryIO.SaveStats saveStats;            // Sizes written by the last save; null before any save
+    private SpillingIndex spill;                                  // Null unless ingest is memory-bounded
+    private ForwardIndex forward;                                 // Words of every file; null until needed (see forwardIndex)
+    private final ForwardIndex[] shardForward = new ForwardIndex[ShardedRepository.SHARD_COUNT];  // The same per shard, if sharded
+    private final ReentrantLock indexLock = new ReentrantLock();  // Held while the index changes or is snapshotted
+    private BackgroundSave background;                            // Null unless saves run in the background
+    private boolean repositoryDirty;                              // Changed since the last save was taken; guarded by indexLock
+    private RepositoryIO.SaveStats mergedStats = new RepositoryIO.SaveStats(0, 0);  // Shards written by merges since the last save
+    private final Metrics metrics = new Metrics();
+    private long totalPostings;                                   // Number of (word, file, line) entries in the repository
+    private final Map<String, Long> filePostings = new HashMap<>();  // Number of (word, line) entries per file
 
     /**
      * Constructs a WordTracker instance, loading the word occurrences repository
      * if it exists.
      */
     public WordTracker() {
-        loadRepository();
+        this(REPOSITORY_FILE);
+    }
+
+    /**
+     * Constructs a WordTracker instance backed by the given repository file,
+     * loading the word occurrences from it if it exists.
+     *
+     * @param repositoryFile The path of the serialized repository file.
+     */
+    public WordTracker(String repositoryFile) {
+        this(repositoryFile, false);
+    }
+
+    /**
+     * Constructs a WordTracker instance backed by the given repository. A sharded
+     * repository is stored as one file per key-range shard in the directory
+     * repositoryFile + ".shards", and only the shards that are used are loaded
+     * (see ShardedRepository).
+     *
+     * @param repositoryFile The path of the serialized repository file.
+     * @param sharded True to use a sharded repository.
+     */
+    public WordTracker(String repositoryFile, boolean sharded) {
+        this(repositoryFile, sharded, true);
+    }
+
+    /**
+     * Constructs a WordTracker instance backed by the given repository, which
+     * may trust its manifest without checking it against the repository. A
+     * partition child does: its repository file is only the partition it
+     * writes, and its manifest was checked against the parent's repository
+     * (see PartitionedIngest).
+     *
+     * @param repositoryFile The path of the serialized repository file.
+     * @param sharded True to use a sharded repository.
+     * @param checkManifest False to trust the manifest.
+     */
+    WordTracker(String repositoryFile, boolean sharded, boolean checkManifest) {
+        this.repositoryFile = repositoryFile;
+        this.checkManifest = checkManifest;
+        ShardedRepository opened = null;
+        if (sharded) {
+            try {
+                opened = new ShardedRepository(Paths.get(repositoryFile + ".shards"));
+            } catch (IOException e) {
+                System.err.println("Error opening sharded repository: " + e.getMessage());
+            }
+        }
+        this.shards = opened;
+        this.manifestFile = shards != null
+            ? Paths.get(repositoryFile + ".shards", "manifest.ser").toString()
+            : repositoryFile + ".manifest";
+        this.manifest = FileManifest.load(manifestFile);  // Checked against the repository once it is loaded
+        this.loaded = CompletableFuture.runAsync(this::loadRepository);  // Overlaps with reading and tokenizing input
     }
 
     /**
      * Loads the word occurrences from a serialized repository file, if it exists.
-     * If loading fails or the file does not exist, a new BSTree is created.
+     * If loading fails or the file does not exist, a new BSTree is created. A
+     * repository saved in compact dictionary mode is loaded as a CompactIndex. A
+     * sharded repository only loads its stored totals; shards are loaded when
+     * they are used.
+     *
+     * Loading runs on a background thread started by the constructor, so that
+     * input files can be read and tokenized in the meantime. Everything that
+     * uses the word tree or the posting totals first calls awaitRepository().
+     *
+     * The manifest is then checked against the loaded posting totals, and the
+     * files the repository does not hold as recorded are forgotten, so that a
+     * deleted or replaced repository file is rebuilt instead of every file
+     * being skipped as unchanged.
      */
+    @SuppressWarnings("unchecked")
     private void loadRepository() {
-        if (Files.exists(Paths.get(REPOSITORY_FILE))) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(REPOSITORY_FILE))) {
-                wordTree = (BSTree<WordInfo>) ois.readObject();
+        long start = System.nanoTime();
+        if (shards != null) {
+            totalPostings = shards.getStoredPostings();
+            filePostings.putAll(shards.getStoredFilePostings());
+            loadNanos = System.nanoTime() - start;
+            metrics.record(Metrics.Phase.LOAD, start);
+            if (checkManifest) manifest.retainBackedBy(filePostings);
+            return;
+        }
+
+        if (Files.exists(Paths.get(repositoryFile))) {
+            try {
+                Object stored = RepositoryIO.read(Paths.get(repositoryFile));
+                if (stored instanceof CompactIndex) {
+                    compact = (CompactIndex) stored;
+                } else {
+                    wordTree = (BSTree<WordInfo>) stored;
+                }
             } catch (Exception e) {
                 System.err.println("Error loading repository: " + e.getMessage());
                 wordTree = new BSTree<>();
@@ -55,116 +171,1886 @@ public class WordTracker {
         } else {
             wordTree = new BSTree<>();
         }
+        loadNanos = System.nanoTime() - start;
+        metrics.record(Metrics.Phase.LOAD, start);
+        countPostings();
+        if (checkManifest) manifest.retainBackedBy(filePostings);
+    }
+
+    /**
+     * Waits until the repository has been loaded by the background thread.
+     */
+    private void awaitRepository() {
+        loaded.join();
+    }
+
+    /**
+     * Gets the tree that holds, or would hold, a word: the word tree, or the
+     * word's shard if the repository is sharded.
+     *
+     * @param word The word.
+     * @return The tree for the word.
+     */
+    private BSTree<WordInfo> treeFor(String word) {
+        awaitRepository();
+        return shards != null ? shards.shardFor(word) : wordTree;
+    }
+
+    /**
+     * Performs an action on every word in the repository in ascending order.
+     *
+     * @param action The action to perform.
+     */
+    private void forEachWord(Consumer<? super WordInfo> action) {
+        awaitRepository();
+        if (shards != null) {
+            shards.forEachInorder(action);
+        } else if (compact != null) {
+            compact.forEachWord(action);  // Creates the WordInfo objects as it goes
+        } else {
+            wordTree.forEachInorder(action);
+        }
+    }
+
+    /**
+     * Recomputes the repository-wide posting totals from the word tree. This is
+     * only needed after loading; afterwards the totals are kept up to date as
+     * locations are added.
+     */
+    private void countPostings() {
+        totalPostings = 0;
+        filePostings.clear();
+        if (compact != null) {
+            totalPostings = compact.countPostings(filePostings);
+            return;
+        }
+        wordTree.forEachInorder(info -> {
+            totalPostings += info.getOccurrences();
+            info.getFileLocations().forEach((file, lines) -> 
+                filePostings.merge(file, (long) lines.size(), Long::sum));
+        });
+    }
+
+    /**
+     * Records an occurrence of a word, updating the posting totals if the
+     * location was not already known.
+     *
+     * @param wordInfo The word that occurs.
+     * @param filename The name of the file.
+     * @param lineNumber The line number in the file.
+     * @return True if the location was new.
+     */
+    private boolean addOccurrence(WordInfo wordInfo, String filename, int lineNumber) {
+        if (wordInfo.addLocation(filename, lineNumber)) {
+            countPosting(filename);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a new posting of a file to the posting totals.
+     *
+     * @param filename The name of the file.
+     */
+    private void countPosting(String filename) {
+        totalPostings++;
+        filePostings.merge(filename, 1L, Long::sum);
+    }
+
+    /**
+     * Gets the number of distinct words in the repository.
+     *
+     * @return The number of distinct words.
+     */
+    public int getDistinctWords() {
+        awaitRepository();
+        if (compact != null) return compact.size();
+        return shards != null ? shards.size() : wordTree.size();
+    }
+
+    /**
+     * Gets the total number of postings in the repository, where a posting is one
+     * (word, file, line) entry.
+     *
+     * @return The total number of postings.
+     */
+    public long getTotalPostings() {
+        awaitRepository();
+        return totalPostings;
+    }
+
+    /**
+     * Gets the number of postings recorded for a specific file.
+     *
+     * @param filename The name of the file.
+     * @return The number of postings in the file, or 0 if the file is unknown.
+     */
+    public long getFilePostings(String filename) {
+        awaitRepository();
+        return filePostings.getOrDefault(filename, 0L);
+    }
+
+    /**
+     * Gets the number of shards of a sharded repository that are loaded in
+     * memory.
+     *
+     * @return The number of loaded shards, or 0 if the repository is not sharded.
+     */
+    public int getLoadedShards() {
+        awaitRepository();
+        return shards == null ? 0 : shards.loadedShards();
+    }
+
+    /**
+     * Gets the number of distinct files in the repository.
+     *
+     * @return The number of files.
+     */
+    public int getFileCount() {
+        awaitRepository();
+        return filePostings.size();
     }
 
     /**
-     * Saves the current word occurrences to a serialized repository file.
+     * Saves the current word occurrences to a serialized repository file. After
+     * a memory-bounded ingest, the sorted runs are first merged into the
+     * repository. With background saves the save is only requested here, and
+     * runs later on the save thread (see saveInBackground).
      */
     private void saveRepository() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(REPOSITORY_FILE))) {
-            oos.writeObject(wordTree);
+        awaitRepository();
+        indexLock.lock();
+        try {
+            if (spill != null && !spill.isEmpty()) mergedStats = mergedStats.plus(mergeRuns());
+            repositoryDirty = true;
+        } catch (IOException e) {
+            System.err.println("Error saving repository: " + e.getMessage());
+            return;
+        } finally {
+            indexLock.unlock();
+        }
+
+        if (background != null) {
+            background.request();
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            RepositoryIO.SaveStats written;
+            if (shards != null) {
+                written = shards.save(totalPostings, filePostings, compressed);
+            } else {
+                written = RepositoryIO.write(compact != null ? compact : wordTree, Paths.get(repositoryFile), compressed);
+            }
+            saveStats = written.plus(mergedStats);
+            mergedStats = new RepositoryIO.SaveStats(0, 0);
+            repositoryDirty = false;
+            saveNanos = System.nanoTime() - start;
+            metrics.record(Metrics.Phase.SAVE, start);
+        } catch (IOException e) {
+            System.err.println("Error saving repository: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the manifest, or with background saves requests a save, which
+     * writes the manifest after the repository.
+     */
+    private void saveManifest() {
+        if (background != null) {
+            background.request();
+        } else {
+            manifest.recordPostings(filePostings);
+            manifest.save(manifestFile);
+        }
+    }
+
+    /**
+     * Runs one background save on the save thread. The repository, if it has
+     * changed, and the manifest are serialized into memory while indexLock is
+     * held, which only keeps the index from changing during the
+     * serialization; reports and lookups carry on. The snapshots are then
+     * compressed and written without the lock, the repository files first and
+     * the manifest last, so a crash never leaves a manifest that lists files
+     * the repository does not hold. If writing fails, the repository is
+     * written again by the next save.
+     */
+    private void saveInBackground() {
+        long start = System.nanoTime();
+        List<RepositoryIO.Snapshot> repository = Collections.emptyList();
+        RepositoryIO.SaveStats written;
+        RepositoryIO.Snapshot manifestSnapshot;
+        indexLock.lock();
+        try {
+            if (repositoryDirty) {
+                repository = shards != null
+                    ? shards.snapshot(totalPostings, filePostings, compressed)
+                    : Collections.singletonList(RepositoryIO.snapshot(
+                        compact != null ? compact : wordTree, Paths.get(repositoryFile), compressed));
+                repositoryDirty = false;
+            }
+            written = mergedStats;
+            mergedStats = new RepositoryIO.SaveStats(0, 0);
+            manifest.recordPostings(filePostings);
+            manifestSnapshot = RepositoryIO.snapshot(manifest, Paths.get(manifestFile), false);
+        } catch (IOException e) {
+            System.err.println("Error saving repository: " + e.getMessage());
+            return;
+        } finally {
+            indexLock.unlock();
+        }
+
+        try {
+            for (RepositoryIO.Snapshot file : repository) {
+                written = written.plus(file.write());
+            }
+            manifestSnapshot.write();
+            if (!repository.isEmpty()) {
+                saveStats = written;
+                saveNanos = System.nanoTime() - start;
+                metrics.record(Metrics.Phase.SAVE, start);
+            }
         } catch (IOException e) {
             System.err.println("Error saving repository: " + e.getMessage());
+            indexLock.lock();
+            try {
+                repositoryDirty |= !repository.isEmpty();
+            } finally {
+                indexLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Enables or disables background saves. With background saves, processing
+     * a file or directory only requests a save and returns; the repository and
+     * the manifest are then serialized and written on a separate thread, and
+     * requests that come in while a save is waiting are coalesced into it (see
+     * BackgroundSave). Later ingests, reports and lookups run while the save is
+     * being written, and ingests only wait while the index is being serialized.
+     * Call flushSaves() before exiting. Disabling background saves first waits
+     * for the pending saves.
+     *
+     * @param enabled True to save in the background.
+     */
+    public void setBackgroundSave(boolean enabled) {
+        if (enabled == (background != null)) return;
+        if (enabled) {
+            background = new BackgroundSave(this::saveInBackground, SAVE_DELAY_MILLIS);
+        } else {
+            background.flush();
+            background = null;
         }
     }
 
+    /**
+     * Waits until every background save requested so far has been written.
+     * Does nothing if saves are not run in the background.
+     */
+    public void flushSaves() {
+        if (background != null) background.flush();
+    }
+
+    /**
+     * Gets the number of saves requested and the number actually run in the
+     * background; the difference is the number of requests that were coalesced.
+     *
+     * @return The requests and the saves run, or zeros if saves are not run in the background.
+     */
+    public long[] getBackgroundSaves() {
+        return background == null ? new long[2] : new long[] {background.getRequests(), background.getSaves()};
+    }
+
     /**
      * Processes a given file, extracting words and storing their occurrences
-     * (filename and line number) in the wordTree.
+     * (filename and line number) in the wordTree. The file is skipped if it has
+     * not changed since it was last processed; if it has changed, its previous
+     * postings are removed before it is indexed again. The file is read and
+     * tokenized while the repository may still be loading, and the two are only
+     * joined when the words are added.
      *
      * @param filename The name of the file to process.
      */
     public void processFile(String filename) {
         try {
-            List<String> lines = Files.readAllLines(Paths.get(filename));
-            Pattern wordPattern = Pattern.compile("[^a-zA-Z]+");  
-
-            for (int lineNum = 0; lineNum < lines.size(); lineNum++) {
-                String[] words = wordPattern.split(lines.get(lineNum).toLowerCase());
-                for (String word : words) {
-                    if (!word.isEmpty()) {
-                        WordInfo wordInfo = new WordInfo(word);
-                        BSTreeNode<WordInfo> existingNode = wordTree.search(wordInfo);
-                        
-                        if (existingNode == null) {
-                            wordTree.add(wordInfo);  
-                            existingNode = wordTree.search(wordInfo);
-                        }
-                        
-                        existingNode.getElement().addLocation(filename, lineNum + 1);  
-                    }
-                }
+            Path path = Paths.get(filename);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (isUnchanged(filename, attributes)) return;  // Same size and modification time
+
+            long start = System.nanoTime();
+            byte[] content = Files.readAllBytes(path);
+            metrics.record(Metrics.Phase.READ, start);
+            metrics.addBytesRead(content.length);
+            FileManifest.Entry entry = new FileManifest.Entry(
+                content.length, attributes.lastModifiedTime().toMillis(), FileManifest.hash(content));
+            TokenList tokens = isSameContent(filename, entry) ? null : tokenize(content);
+            if (applyFile(filename, entry, tokens)) {
+                saveRepository();  
             }
-            saveRepository();  
+            saveManifest();
         } catch (IOException e) {
             System.err.println("Error processing file: " + e.getMessage());
         }
     }
 
     /**
-     * Generates a report based on the specified report type, and writes it to
-     * an output file or prints it to the console.
+     * Processes every regular file below a directory. Files are read, tokenized
+     * and indexed by a pipeline of concurrent stages (see DirectoryIngest), and the
+     * repository is saved once at the end. Under a memory budget the pipeline
+     * keeps less file content in flight, so it stays within the budget as well.
      *
-     * @param reportType The type of report to generate (-pf, -pl, or -po).
-     * @param outputFile The file to write the report to (or null for console output).
+     * @param directory The directory to process.
+     * @return The throughput figures of the run.
+     * @throws IOException If the directory cannot be walked.
      */
-    public void generateReport(String reportType, String outputFile) {
-        final PrintStream output;
-        try {
-            output = outputFile != null ? new PrintStream(new FileOutputStream(outputFile)) : System.out;
-
-            Iterator<WordInfo> iterator = wordTree.inorderIterator();  // In-order iteration of wordTree
-            while (iterator.hasNext()) {
-                WordInfo info = iterator.next();
-                switch (reportType) {
-                    case "-pf":
-                        output.printf("Word: %s, Files: %s%n", 
-                            info.getWord(), 
-                            String.join(", ", info.getFileLocations().keySet()));
-                        break;
-                    case "-pl":
-                        output.printf("Word: %s%n", info.getWord());
-                        info.getFileLocations().forEach((file, lines) -> 
-                            output.printf("  File: %s, Lines: %s%n", 
-                                file, lines.toString()));
-                        break;
-                    case "-po":
-                        output.printf("Word: %s, Occurrences: %d%n", 
-                            info.getWord(), 
-                            info.getOccurrences());
-                        info.getFileLocations().forEach((file, lines) -> 
-                            output.printf("  File: %s, Lines: %s%n", 
-                                file, lines.toString()));
-                        break;
+    public DirectoryIngest.Result processDirectory(String directory) throws IOException {
+        DirectoryIngest.Result result = newDirectoryIngest().run(Paths.get(directory));
+        if (result.getFilesIndexed() > 0) {
+            saveRepository();
+        }
+        saveManifest();
+        return result;
+    }
+
+    /**
+     * Creates the pipeline for processing a directory. Under a memory budget it
+     * keeps at most a sixteenth of the budget in file content in flight, as
+     * tokenized content takes about 16 times as much.
+     *
+     * @return The pipeline.
+     */
+    private DirectoryIngest newDirectoryIngest() {
+        return spill == null ? new DirectoryIngest(this)
+            : new DirectoryIngest(this, Math.max(1, Runtime.getRuntime().availableProcessors() - 2), spill.getBudget() / 16 >> 10);
+    }
+
+    /**
+     * Indexes the files of one partition of a directory (see PartitionedIngest)
+     * and writes their words as a single SortedRun to this tracker's repository
+     * file, for a later reduce. The tracker must have been created for a
+     * repository file that does not exist. Files that the manifest shows to be
+     * unchanged are skipped as usual, and the manifest is saved.
+     *
+     * @param directory The directory to process.
+     * @param partition The index of the partition, from 0.
+     * @param partitions The number of partitions.
+     * @return The throughput figures of the run.
+     * @throws IOException If the directory cannot be walked or the run cannot be written.
+     * @throws IllegalArgumentException If the partition is out of range.
+     */
+    public DirectoryIngest.Result indexPartition(String directory, int partition, int partitions)
+            throws IOException, IllegalArgumentException {
+        if (partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("Partition " + partition + " out of range for " + partitions + " partitions");
+        }
+        DirectoryIngest ingest = newDirectoryIngest();
+        ingest.setFilter(filename -> PartitionedIngest.partitionOf(filename, partitions) == partition);
+        DirectoryIngest.Result result = ingest.run(Paths.get(directory));
+
+        long start = System.nanoTime();
+        if (spill != null) {
+            spill.writeMerged(Paths.get(repositoryFile));
+        } else {
+            List<WordInfo> words = new ArrayList<>(getDistinctWords());
+            forEachWord(words::add);  // Ascending, which is run order
+            SortedRun.write(Paths.get(repositoryFile), words);
+        }
+        metrics.record(Metrics.Phase.SAVE, start);
+        saveManifest();
+        return result;
+    }
+
+    /**
+     * Merges the partitions written by indexPartition into the repository in
+     * one k-way pass over their sorted runs, and saves it. Files that a
+     * partition indexed replace their previous postings; words that occur in
+     * several partitions have their file locations combined.
+     *
+     * @param parts The partition files; each has its manifest next to it.
+     * @throws IOException If a partition cannot be read or the repository cannot be written.
+     */
+    public void reduce(List<Path> parts) throws IOException {
+        awaitRepository();
+        long start = System.nanoTime();
+        indexLock.lock();
+        try {
+            reduceParts(parts);
+        } finally {
+            indexLock.unlock();
+        }
+        metrics.record(Metrics.Phase.MERGE, start);
+        saveRepository();
+        saveManifest();
+    }
+
+    /**
+     * Merges the partitions into the repository for reduce, without saving it.
+     * A file whose content in a partition's manifest differs from the
+     * repository's manifest was indexed by that partition; if several
+     * partitions indexed it, the last one is taken, as a process indexing the
+     * partitions one after another would have done. Its previous postings are
+     * retracted, and its postings in the runs of every other partition are
+     * left out, as are postings of files whose content the repository already
+     * holds. Comparisons are made against the manifest as it was before the
+     * reduce, so the copy of the repository's manifest that every partition
+     * starts from never overrides what another partition indexed.
+     *
+     * @param parts The partition files.
+     * @throws IOException If a partition cannot be read or a shard cannot be written.
+     */
+    private void reduceParts(List<Path> parts) throws IOException {
+        Map<String, Integer> owners = new HashMap<>();                // The last partition that indexed each file
+        Map<String, FileManifest.Entry> entries = new HashMap<>();  // The new manifest entries
+        for (int p = 0; p < parts.size(); p++) {
+            FileManifest partManifest = FileManifest.load(parts.get(p) + ".manifest");
+            for (Map.Entry<String, FileManifest.Entry> entry : partManifest.getEntries().entrySet()) {
+                String filename = entry.getKey();
+                if (!isSameContent(filename, entry.getValue())) {
+                    owners.put(filename, p);
+                    entries.put(filename, entry.getValue());
+                } else if (!owners.containsKey(filename)) {  // Unchanged, but maybe touched
+                    entries.merge(filename, entry.getValue(),
+                        (current, other) -> other.getModified() > current.getModified() ? other : current);
                 }
             }
-            
-            if (output != System.out) {
-                output.close();  // Close the output file if it was used
+        }
+        entries.forEach(manifest::put);
+        retractFiles(owners.keySet());
+
+        List<SortedRun.Reader> readers = new ArrayList<>();
+        try {
+            Map<String, String> filenames = new HashMap<>();
+            List<Iterator<WordInfo>> sources = new ArrayList<>();
+            for (int p = 0; p < parts.size(); p++) {
+                SortedRun.Reader reader = new SortedRun.Reader(parts.get(p), filenames);
+                readers.add(reader);
+                sources.add(ownedPostings(reader, owners, p));
+            }
+            mergedStats = mergedStats.plus(mergeIntoRepository(new SortedRun.Merger(sources)));
+        } finally {
+            for (SortedRun.Reader reader : readers) {
+                reader.close();
             }
-        } catch (FileNotFoundException e) {
-            System.err.println("Error creating output file: " + e.getMessage());
         }
     }
 
     /**
-     * The main method that processes the command-line arguments and invokes
-     * the corresponding methods to process files and generate reports.
+     * Keeps only the postings of the files a partition owns (see reduceParts)
+     * in the words read from it, skipping words left without postings, and
+     * adds the postings kept to the repository-wide totals as they pass by.
      *
-     * @param args The command-line arguments.
+     * @param source The words of a partition.
+     * @param owners The index of the partition that owns each file indexed by any partition.
+     * @param partition The index of this partition.
+     * @return The words with postings of owned files.
      */
-    public static void main(String[] args) {
-        if (args.length < 2) {
-            System.out.println("Usage: java -jar WordTracker.jar <input.txt> -pf/-pl/-po [-f <output.txt>]");
+    private Iterator<WordInfo> ownedPostings(Iterator<WordInfo> source, Map<String, Integer> owners, int partition) {
+        return new Iterator<WordInfo>() {
+            private WordInfo next = advance();
+
+            /**
+             * Reads words until one has postings of an owned file.
+             *
+             * @return The word, with only those postings, or null at the end of the partition.
+             */
+            private WordInfo advance() {
+                while (source.hasNext()) {
+                    WordInfo info = source.next();
+                    for (String file : new ArrayList<>(info.getFileLocations().keySet())) {
+                        Integer owner = owners.get(file);
+                        if (owner == null || owner != partition) info.removeFile(file);
+                    }
+                    if (!info.getFileLocations().isEmpty()) return info;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public WordInfo next() {
+                if (next == null) throw new NoSuchElementException();
+                WordInfo info = next;
+                next = advance();
+                totalPostings += info.getOccurrences();
+                info.getFileLocations().forEach((file, lines) ->
+                    filePostings.merge(file, (long) lines.size(), Long::sum));
+                return info;
+            }
+        };
+    }
+
+    /**
+     * Gets the path of the repository file, or of the directory of a sharded
+     * repository without its suffix.
+     *
+     * @return The repository file.
+     */
+    String getRepositoryFile() {
+        return repositoryFile;
+    }
+
+    /**
+     * Writes the manifest, as checked against the loaded repository, to another
+     * file, such as the manifest of a partition.
+     *
+     * @param target The path of the copy.
+     */
+    void copyManifest(Path target) {
+        awaitRepository();
+        manifest.save(target.toString());
+    }
+
+    /**
+     * Checks whether a file still has the size and modification time recorded
+     * when it was last processed. Safe to call from any thread. A file the
+     * manifest records waits until the repository has been loaded and the
+     * manifest checked against it.
+     *
+     * @param filename The name of the file.
+     * @param attributes The current attributes of the file.
+     * @return True if the file can be skipped without reading it.
+     */
+    boolean isUnchanged(String filename, BasicFileAttributes attributes) {
+        if (manifest.get(filename) == null) return false;
+        awaitRepository();
+        return manifest.isUnchanged(filename, attributes);
+    }
+
+    /**
+     * Checks whether a file's content hash matches the one recorded when it was
+     * last processed. Safe to call from any thread; like isUnchanged, a file
+     * the manifest records waits for the repository.
+     *
+     * @param filename The name of the file.
+     * @param entry The current state of the file.
+     * @return True if the content has not changed.
+     */
+    boolean isSameContent(String filename, FileManifest.Entry entry) {
+        if (manifest.get(filename) == null) return false;
+        awaitRepository();
+        FileManifest.Entry previous = manifest.get(filename);
+        return previous != null && previous.getHash() == entry.getHash();
+    }
+
+    /**
+     * Brings the repository up to date with the current version of a file. Any
+     * postings of a previous version are replaced by the given tokens, and the
+     * file's state is recorded in the manifest. Neither is saved.
+     *
+     * @param filename The name of the file.
+     * @param entry The current state of the file.
+     * @param tokens The words of the file, or null if its content is unchanged.
+     * @return True if the wordTree was modified.
+     * @throws IOException If a memory-bounded ingest cannot write a run.
+     */
+    boolean applyFile(String filename, FileManifest.Entry entry, TokenList tokens) throws IOException {
+        awaitRepository();
+        indexLock.lock();  // Keeps a background save from serializing the index halfway through
+        try {
+            manifest.put(filename, entry);
+            if (tokens == null) return false;  // Touched but not modified
+
+            long start = System.nanoTime();
+            if (filePostings.containsKey(filename)) {
+                retractFile(filename);  // Replace the postings of the previous version
+            }
+            indexTokens(filename, tokens);
+            metrics.record(Metrics.Phase.INDEX, start);
+            if (spill != null) {
+                start = System.nanoTime();
+                if (spill.spillIfFull()) metrics.record(Metrics.Phase.SPILL, start);
+            }
+            return true;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Decodes file content and splits it into words, recording the work in the
+     * metrics. Safe to call from several threads.
+     *
+     * @param content The file content.
+     * @return The words of the file.
+     * @throws IOException If the content is not valid UTF-8.
+     */
+    TokenList tokenize(byte[] content) throws IOException {
+        long start = System.nanoTime();
+        List<String> lines = readLines(content);
+        TokenList tokens = TokenList.tokenize(lines);
+        metrics.record(Metrics.Phase.TOKENIZE, start);
+        metrics.addTokenized(lines.size(), tokens.size());
+        return tokens;
+    }
+
+    /**
+     * Decodes file content as UTF-8 and splits it into lines, the same way as
+     * {@link Files#readAllLines(Path)}.
+     *
+     * @param content The file content.
+     * @return The lines of the file.
+     * @throws IOException If the content is not valid UTF-8.
+     */
+    static List<String> readLines(byte[] content) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(content), StandardCharsets.UTF_8.newDecoder()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Stores the occurrences (filename and line number) of the words of a file
+     * in the wordTree, or in the in-memory tree of a memory-bounded ingest, whose
+     * estimated size is updated as it grows. If the forward index has been
+     * built, the words of the file are recorded in it; in a sharded repository,
+     * in the forward indexes built for their shards, and the shards receiving
+     * words of the file are recorded with the repository.
+     *
+     * @param filename The name of the file the words belong to.
+     * @param tokens The words of the file.
+     */
+    private void indexTokens(String filename, TokenList tokens) {
+        if (compact != null && spill == null) {
+            indexCompact(filename, tokens);
+            return;
+        }
+        boolean forwardBuilt = forward != null || Arrays.stream(shardForward).anyMatch(Objects::nonNull);
+        List<WordInfo> fileWords = forwardBuilt && spill == null ? new ArrayList<>() : null;  // For the forward index
+        int shardSet = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            WordInfo wordInfo = new WordInfo(tokens.word(i));
+            BSTree<WordInfo> tree = spill != null ? spill.tree() : treeFor(wordInfo.getWord());
+            BSTreeNode<WordInfo> existingNode = tree.search(wordInfo);
+            
+            metrics.addWordHit(existingNode == null);
+            if (existingNode == null) {
+                tree.add(wordInfo);  
+                existingNode = tree.search(wordInfo);
+                if (spill != null) spill.addEstimate(SpillingIndex.WORD_BYTES);
+            }
+            if (shards != null && spill == null) {
+                shards.markModified(wordInfo.getWord());
+                shardSet |= ShardedRepository.shardBit(wordInfo.getWord());
+            }
+
+            boolean firstInFile = (spill != null || fileWords != null) && existingNode.getElement().getOccurrences(filename) == 0;
+            if (addOccurrence(existingNode.getElement(), filename, tokens.line(i)) && spill != null) {
+                spill.addEstimate(firstInFile ? SpillingIndex.FILE_BYTES + SpillingIndex.POSTING_BYTES : SpillingIndex.POSTING_BYTES);
+            }
+            if (firstInFile && fileWords != null) fileWords.add(existingNode.getElement());
+            if (positional) {
+                existingNode.getElement().addPosition(filename, i, tokens.line(i), tokens.column(i));
+                if (spill != null) spill.addEstimate(SpillingIndex.POSITION_BYTES);
+            }
+        }
+        if (shards != null && spill == null) shards.addFileShards(filename, shardSet);
+        if (fileWords == null) return;
+        if (shards == null) {
+            forward.put(filename, fileWords);
             return;
         }
+        Map<Integer, List<WordInfo>> byShard = new HashMap<>();
+        for (WordInfo info : fileWords) {
+            byShard.computeIfAbsent(ShardedRepository.shardOf(info.getWord()), k -> new ArrayList<>()).add(info);
+        }
+        byShard.forEach((shard, shardWords) -> {
+            if (shardForward[shard] != null) shardForward[shard].put(filename, shardWords);  // Others are built when needed
+        });
+    }
 
-        WordTracker tracker = new WordTracker();
-        tracker.processFile(args[0]); 
+    /**
+     * Stores the occurrences of the words of a file in the compact dictionary.
+     * The words are looked up on their bytes, and no WordInfo is created.
+     * Positions are not recorded.
+     *
+     * @param filename The name of the file the words belong to.
+     * @param tokens The words of the file.
+     */
+    private void indexCompact(String filename, TokenList tokens) {
+        int fileId = compact.fileId(filename);
+        for (int i = 0; i < tokens.size(); i++) {
+            int known = compact.getDictionary().size();
+            int id = compact.wordId(tokens.word(i));
+            metrics.addWordHit(compact.getDictionary().size() > known);
+            if (compact.addLocation(id, fileId, tokens.line(i))) {
+                countPosting(filename);
+            }
+        }
+    }
 
-        String reportType = args[1];  
-        String outputFile = args.length > 3 && args[2].equals("-f") ? args[3] : null;  // Get output file if specified
-        
-        tracker.generateReport(reportType, outputFile); 
+    /**
+     * Enables or disables recording the exact position (word ordinal, line and
+     * column) of every occurrence in files processed from now on. Positions are
+     * needed for phrase queries and keep repeated occurrences on one line apart.
+     *
+     * @param positional True to record positions.
+     */
+    public void setPositional(boolean positional) {
+        this.positional = positional;
+    }
+
+    /**
+     * Enables or disables saving the repository in the block-compressed format,
+     * in which independent blocks of the serialized repository are deflated in
+     * parallel. Repositories in either format are read regardless.
+     *
+     * @param compressed True to compress the repository when it is saved.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Bounds the memory used by ingesting files. Instead of adding to the
+     * repository directly, words are collected in a separate tree, which is
+     * written to disk as a sorted run whenever its estimated size reaches the
+     * budget. When the repository is saved, the runs are merged with it in one
+     * pass (see SortedRun) and each tree, or each shard of a sharded
+     * repository, is rebuilt balanced from the merged words, so a corpus whose
+     * postings are many times the budget can be indexed. Words indexed this way
+     * are not visible to lookups until the repository has been saved.
+     *
+     * @param bytes The memory budget in bytes, or 0 to add to the repository directly.
+     * @throws IllegalArgumentException If the budget is negative.
+     * @throws IllegalStateException If words indexed under a budget have not been saved yet.
+     */
+    public void setMemoryBudget(long bytes) throws IllegalArgumentException, IllegalStateException {
+        if (bytes < 0) throw new IllegalArgumentException("Memory budget cannot be negative");
+        if (spill != null && !spill.isEmpty()) throw new IllegalStateException("Unsaved runs are pending");
+        spill = bytes == 0 ? null : new SpillingIndex(bytes, Paths.get(repositoryFile));
+    }
+
+    /**
+     * Gets the number of sorted runs written by a memory-bounded ingest since
+     * the repository was last saved.
+     *
+     * @return The number of runs, or 0 if ingest is not memory-bounded.
+     */
+    public int getRunCount() {
+        return spill == null ? 0 : spill.getRunCount();
+    }
+
+    /**
+     * Merges the sorted runs and the in-memory tree of a memory-bounded ingest
+     * into the repository. The merge visits the words shard by shard; a sharded
+     * repository has each shard that received words rebuilt, written and dropped
+     * from memory before the next one is loaded, while an unsharded repository
+     * is rebuilt as a whole. Rebuilt trees are balanced and keep their Bloom
+     * filter setting. The runs are deleted afterwards.
+     *
+     * @return The sizes of the shard files written, or zero sizes if the repository is not sharded.
+     * @throws IOException If a run cannot be read or a shard cannot be written.
+     */
+    private RepositoryIO.SaveStats mergeRuns() throws IOException {
+        long start = System.nanoTime();
+        RepositoryIO.SaveStats stats;
+        List<SortedRun.Reader> readers = new ArrayList<>();
+        try {
+            stats = mergeIntoRepository(spill.merge(readers));
+        } finally {
+            for (SortedRun.Reader reader : readers) {
+                reader.close();
+            }
+        }
+        spill.reset();
+        metrics.record(Metrics.Phase.MERGE, start);
+        return stats;
+    }
+
+    /**
+     * Merges words in run order into the repository, as described for
+     * mergeRuns. Words already in the repository keep their WordInfo objects,
+     * with the locations of the merged words added, and the shards holding
+     * words of each file are recorded with a sharded repository. The forward
+     * indexes are dropped, as they do not know the merged files.
+     *
+     * @param merged The words to merge, in run order.
+     * @return The sizes of the shard files written, or zero sizes if the repository is not sharded.
+     * @throws IOException If a source cannot be read or a shard cannot be written.
+     */
+    private RepositoryIO.SaveStats mergeIntoRepository(SortedRun.Merger merged) throws IOException {
+        RepositoryIO.SaveStats stats = new RepositoryIO.SaveStats(0, 0);
+        try {
+            if (shards != null) {
+                while (merged.hasNext()) {
+                    int shard = ShardedRepository.shardOf(merged.peek().getWord());
+                    BSTree<WordInfo> existing = shards.shard(shard);
+                    List<WordInfo> words = new ArrayList<>(existing.size());
+                    existing.forEachInorder(words::add);
+                    List<WordInfo> combined = new ArrayList<>(words.size());
+                    new SortedRun.Merger(Arrays.asList(words.iterator(), shardOf(merged, shard)))
+                        .forEachRemaining(combined::add);
+                    Set<String> files = new HashSet<>();
+                    for (WordInfo info : combined) {
+                        files.addAll(info.getFileLocations().keySet());
+                    }
+                    for (String file : files) {
+                        shards.addFileShards(file, 1 << shard);  // Merged files hold words of this shard
+                    }
+                    shards.replaceShard(shard, rebuild(existing, combined));
+                    stats = stats.plus(shards.unloadShard(shard, compressed));
+                }
+            } else if (compact != null) {
+                List<WordInfo> words = new ArrayList<>();
+                merged.forEachRemaining(words::add);
+                compact.addAll(words);
+            } else {
+                List<WordInfo> combined = new ArrayList<>(wordTree.size());
+                new SortedRun.Merger(Arrays.asList(SortedRun.inRunOrder(wordTree).iterator(), merged))
+                    .forEachRemaining(combined::add);
+                wordTree = rebuild(wordTree, combined);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            dropForwardIndexes();  // Rebuilt from the merged repository when next needed
+        }
+        return stats;
+    }
+
+    /**
+     * Limits a merge to the words of one shard.
+     *
+     * @param merged The merge, in run order.
+     * @param shard The index of the shard whose words come next.
+     * @return An iterator that stops at the first word of another shard.
+     */
+    private static Iterator<WordInfo> shardOf(SortedRun.Merger merged, int shard) {
+        return new Iterator<WordInfo>() {
+            @Override
+            public boolean hasNext() {
+                return merged.hasNext() && ShardedRepository.shardOf(merged.peek().getWord()) == shard;
+            }
+
+            @Override
+            public WordInfo next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return merged.next();
+            }
+        };
+    }
+
+    /**
+     * Builds a balanced tree from merged words, with the Bloom filter setting of
+     * the tree it replaces.
+     *
+     * @param previous The tree being replaced.
+     * @param words The words in ascending order.
+     * @return The new tree.
+     */
+    private static BSTree<WordInfo> rebuild(BSTree<WordInfo> previous, List<WordInfo> words) {
+        BSTree<WordInfo> tree = BSTree.fromSorted(words);
+        if (previous.getFilter() != null) tree.setFilter(previous.getFilter().getFpp());
+        return tree;
+    }
+
+    /**
+     * Puts a Bloom filter of the words in front of the word tree, or in front of
+     * every shard, so that looking up a word that is not in the repository
+     * usually returns without walking the tree. This pays off when many words are
+     * missing, as when indexing new files or querying unknown words. The filter
+     * is saved with the repository the next time it changes, and kept up to
+     * date from then on.
+     *
+     * A compact dictionary has no Bloom filter, so there this has no effect.
+     *
+     * @param fpp The false-positive probability, or 0 to remove the filter.
+     * @throws IllegalArgumentException If fpp is not 0 and not between 0 and 1.
+     */
+    public void setBloomFilter(double fpp) throws IllegalArgumentException {
+        awaitRepository();
+        indexLock.lock();
+        try {
+            if (compact != null) {
+                return;
+            } else if (shards != null) {
+                shards.setFilter(fpp);
+            } else if (fpp == 0) {
+                wordTree.removeFilter();
+            } else {
+                wordTree.setFilter(fpp);
+            }
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of word lookups that the Bloom filters answered without
+     * walking a tree.
+     *
+     * @return The number of filtered lookups.
+     */
+    public long getFilterRejections() {
+        awaitRepository();
+        if (compact != null) return 0;
+        return shards != null ? shards.filterRejections() : wordTree.getFilterRejections();
+    }
+
+    /**
+     * Switches the repository to or from compact dictionary mode. In compact
+     * mode the words are not WordInfo objects in a tree but bytes in a few
+     * large arenas, compared on the bytes, with their line numbers in one int
+     * array per word (see CompactIndex and CompactDictionary); WordInfo objects
+     * and word Strings are only created for reports and lookups. This cuts the
+     * memory per word severalfold, but exact positions are not kept, so phrase
+     * queries find nothing, and there is no Bloom filter. The mode is saved with
+     * the repository the next time it changes, and a repository saved in
+     * compact mode is loaded in compact mode.
+     *
+     * @param compactDictionary True to use the compact dictionary, false to use the word tree.
+     * @throws IllegalStateException If the repository is sharded, or words indexed under a memory budget have not been saved yet.
+     */
+    public void setCompactDictionary(boolean compactDictionary) throws IllegalStateException {
+        awaitRepository();
+        if (compactDictionary == (compact != null)) return;
+        if (shards != null) throw new IllegalStateException("A sharded repository cannot use the compact dictionary");
+        if (spill != null && !spill.isEmpty()) throw new IllegalStateException("Unsaved runs are pending");
+        indexLock.lock();
+        try {
+            if (compactDictionary) {
+                List<WordInfo> words = new ArrayList<>(wordTree.size());
+                wordTree.forEachInorder(words::add);
+                wordTree = null;
+                compact = new CompactIndex();
+                compact.addAll(words);
+            } else {
+                List<WordInfo> words = new ArrayList<>(compact.size());
+                compact.forEachWord(words::add);
+                compact = null;
+                wordTree = BSTree.fromSorted(words);
+            }
+            dropForwardIndexes();  // The compact dictionary keeps its own; a converted tree builds a new one when needed
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the repository is in compact dictionary mode.
+     *
+     * @return True if the dictionary is compact.
+     */
+    public boolean isCompactDictionary() {
+        awaitRepository();
+        return compact != null;
+    }
+
+    /**
+     * Gets the time taken to load the repository when this tracker was created.
+     * For a sharded repository this only covers the index.
+     *
+     * @return The load time in milliseconds.
+     */
+    public double getLoadMillis() {
+        awaitRepository();
+        return loadNanos / 1e6;
+    }
+
+    /**
+     * Gets the time taken by the most recent save.
+     *
+     * @return The save time in milliseconds, or 0 if nothing has been saved.
+     */
+    public double getSaveMillis() {
+        return saveNanos / 1e6;
+    }
+
+    /**
+     * Gets the size of the repository written by the most recent save, before
+     * compression.
+     *
+     * @return The serialized size in bytes, or 0 if nothing has been saved.
+     */
+    public long getSerializedBytes() {
+        return saveStats == null ? 0 : saveStats.serializedBytes;
+    }
+
+    /**
+     * Gets the size of the files written by the most recent save.
+     *
+     * @return The stored size in bytes, or 0 if nothing has been saved.
+     */
+    public long getStoredBytes() {
+        return saveStats == null ? 0 : saveStats.storedBytes;
+    }
+
+    /**
+     * Gets the counters and phase timers of this tracker.
+     *
+     * @return The metrics.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the number of searches, additions and removals made on the word
+     * tree, or on the loaded shards, since the repository was loaded.
+     *
+     * @return The number of tree operations.
+     */
+    public long getTreeOperations() {
+        awaitRepository();
+        if (compact != null) return compact.getDictionary().getOperationCount();
+        return shards != null ? shards.operationCount() : wordTree.getOperationCount();
+    }
+
+    /**
+     * Gets the number of word comparisons made by the tree operations.
+     *
+     * @return The number of comparisons.
+     */
+    public long getComparisons() {
+        awaitRepository();
+        if (compact != null) return compact.getDictionary().getComparisonCount();
+        return shards != null ? shards.comparisonCount() : wordTree.getComparisonCount();
+    }
+
+    /**
+     * Computes the shape of the word tree: its depth histogram, the average and
+     * maximum search path length and how far it is from balanced. For a sharded
+     * repository the shapes of all shards are combined, which loads every shard;
+     * for a compact dictionary it is the shape of the dictionary's tree.
+     *
+     * @return The shape of the word tree.
+     */
+    public TreeShape getTreeShape() {
+        awaitRepository();
+        if (compact != null) return compact.getDictionary().getShape();
+        if (shards == null) return wordTree.getShape();
+        List<TreeShape> shapes = new ArrayList<>();
+        for (int i = 0; i < ShardedRepository.SHARD_COUNT; i++) {
+            shapes.add(shards.shard(i).getShape());
+        }
+        return TreeShape.combine(shapes);
+    }
+
+    /**
+     * Estimates the heap retained by the word index, broken down into tree
+     * nodes, WordInfo objects, words, filename maps, posting sets and positions
+     * (see HeapFootprint). Only loaded shards are counted, and the tree of a
+     * memory-bounded ingest is included. The estimate walks the words once
+     * without allocating, so it is cheap enough to be polled while the
+     * tracker is in use.
+     *
+     * @return The estimate.
+     */
+    public HeapFootprint getHeapFootprint() {
+        awaitRepository();
+        HeapFootprint footprint;
+        if (compact != null) {
+            footprint = compact.estimateFootprint().plus(HeapFootprint.of(Collections.emptyList(), filePostings));
+        } else {
+            footprint = HeapFootprint.of(shards != null ? shards.loaded() : Collections.singletonList(wordTree), filePostings);
+        }
+        if (spill != null) {
+            footprint = footprint.plus(HeapFootprint.of(Collections.singletonList(spill.tree()), Collections.emptyMap()));
+        }
+        long forwardBytes = forward != null ? forward.estimateBytes() : 0;
+        for (ForwardIndex index : shardForward) {
+            if (index != null) forwardBytes += index.estimateBytes();
+        }
+        if (forwardBytes > 0) {
+            footprint = footprint.plus(new HeapFootprint(0, 0, 0, forwardBytes, 0, 0));
+        }
+        return footprint;
+    }
+
+    /**
+     * Gets a summary of the metrics of this tracker, including the tree
+     * operations and comparisons.
+     *
+     * @return The summary, one item per line.
+     */
+    public String getStatsSummary() {
+        HeapFootprint footprint = getHeapFootprint();  // Before the tree shape loads every shard
+        String summary = metrics.summary(getTreeOperations(), getComparisons())
+            + String.format("Tree shape: %s%n", getTreeShape())
+            + String.format("Bloom filter: %d lookups answered without a tree walk%n", getFilterRejections())
+            + String.format("Heap footprint: %s%n", footprint);
+        if (background != null) {
+            long[] saves = getBackgroundSaves();
+            summary += String.format("Background saves: %d requested, %d written%n", saves[0], saves[1]);
+        }
+        if (compact != null) {
+            CompactDictionary dictionary = compact.getDictionary();
+            summary += String.format("Compact dictionary: %d words in %d bytes (%d arenas)%n",
+                dictionary.size(), dictionary.getWordBytes(), dictionary.getArenaCount());
+        }
+        return summary;
+    }
+
+    /**
+     * Gets the number of word positions recorded in the repository.
+     *
+     * @return The number of positions.
+     */
+    public long getPositionCount() {
+        long[] count = new long[1];
+        forEachWord(info -> 
+            info.getFilePositions().values().forEach(list -> count[0] += list.size()));
+        return count[0];
+    }
+
+    /**
+     * Gets the number of bytes used by the encoded word positions.
+     *
+     * @return The size of the positional index in bytes.
+     */
+    public long getPositionBytes() {
+        long[] bytes = new long[1];
+        forEachWord(info -> 
+            info.getFilePositions().values().forEach(list -> bytes[0] += list.encodedBytes()));
+        return bytes[0];
+    }
+
+    /**
+     * Removes every posting of a file from the repository. Words that no longer
+     * occur in any file are removed from the wordTree.
+     *
+     * @param filename The name of the file.
+     */
+    private void retractFile(String filename) {
+        retractFiles(Collections.singleton(filename));
+    }
+
+    /**
+     * Removes every posting of several files from the repository in a single
+     * pass over the words.
+     *
+     * @param filenames The names of the files; files not in the repository are ignored.
+     */
+    private void retractFiles(Set<String> filenames) {
+        if (filenames.stream().noneMatch(filePostings::containsKey)) return;
+        if (compact != null) {
+            compact.removeFiles(filenames);
+        } else {
+            retractTreeFiles(filenames);
+        }
+        for (String filename : filenames) {
+            Long postings = filePostings.remove(filename);
+            if (postings != null) totalPostings -= postings;
+        }
+    }
+
+    /**
+     * Removes every posting of several files from the word tree or the shards.
+     * Only the words of those files are visited, as listed by the forward
+     * index, and of a sharded repository only the shards holding words of the
+     * files are loaded. Words that no longer occur in any file are removed from
+     * their tree.
+     *
+     * @param filenames The names of the files.
+     */
+    private void retractTreeFiles(Set<String> filenames) {
+        for (String filename : filenames) {
+            for (ForwardIndex index : forwardIndexes(filename)) {
+                for (WordInfo info : index.remove(filename)) {
+                    info.removeFile(filename);
+                    if (shards != null) shards.markModified(info.getWord());
+                    if (info.getFileLocations().isEmpty()) treeFor(info.getWord()).remove(info);
+                }
+            }
+            if (shards != null) shards.removeFileShards(filename);
+        }
+    }
+
+    /**
+     * Gets the forward indexes that list the words of a file: the one of the
+     * word tree, or those of the shards the repository records for the file.
+     *
+     * @param filename The name of the file.
+     * @return The forward indexes.
+     */
+    private List<ForwardIndex> forwardIndexes(String filename) {
+        if (shards == null) return Collections.singletonList(forwardIndex());
+        int shardSet = shards.shardsOf(filename);
+        List<ForwardIndex> indexes = new ArrayList<>(Integer.bitCount(shardSet));
+        for (int shard = 0; shard < shardForward.length; shard++) {
+            if ((shardSet & 1 << shard) != 0) indexes.add(shardForwardIndex(shard));
+        }
+        return indexes;
+    }
+
+    /**
+     * Gets the forward index of the word tree, building it with one walk over
+     * the tree if it has not been built since the repository was loaded or
+     * last merged. From then on indexTokens and retractTreeFiles keep it up to
+     * date.
+     *
+     * @return The forward index.
+     */
+    private ForwardIndex forwardIndex() {
+        indexLock.lock();  // Concurrent reports may ask for it together
+        try {
+            if (forward == null) {
+                long start = System.nanoTime();
+                forward = ForwardIndex.build(this::forEachWord);
+                metrics.record(Metrics.Phase.INDEX, start);
+            }
+            return forward;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the forward index of one shard, loading the shard and building the
+     * index with one walk over it if necessary, as forwardIndex does for the
+     * word tree.
+     *
+     * @param shard The index of the shard.
+     * @return The forward index of the shard.
+     */
+    private ForwardIndex shardForwardIndex(int shard) {
+        indexLock.lock();
+        try {
+            if (shardForward[shard] == null) {
+                long start = System.nanoTime();
+                shardForward[shard] = ForwardIndex.build(shards.shard(shard)::forEachInorder);
+                metrics.record(Metrics.Phase.INDEX, start);
+            }
+            return shardForward[shard];
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the forward indexes, for when the WordInfo objects they refer to
+     * are replaced. They are built again when next needed.
+     */
+    private void dropForwardIndexes() {
+        forward = null;
+        Arrays.fill(shardForward, null);
+    }
+
+    /**
+     * Gets the words of a file with the lines they occur on in it, in
+     * ascending order of the words. Only the words of the file are visited
+     * (see ForwardIndex), and only the shards holding them are loaded.
+     *
+     * @param filename The name of the file, as it was processed.
+     * @return The words mapped to their line numbers, empty if the file is not in the repository.
+     */
+    public Map<String, List<Integer>> wordsOf(String filename) {
+        awaitRepository();
+        if (compact != null) return compact.wordsOf(filename);
+        List<WordInfo> fileWords = new ArrayList<>();
+        for (ForwardIndex index : forwardIndexes(filename)) {
+            fileWords.addAll(Arrays.asList(index.get(filename)));
+        }
+        Collections.sort(fileWords);
+        Map<String, List<Integer>> result = new LinkedHashMap<>();
+        for (WordInfo info : fileWords) {
+            result.put(info.getWord(), new ArrayList<>(info.getFileLocations().get(filename)));
+        }
+        return result;
+    }
+
+    /**
+     * Removes a file from the repository, as when it has been deleted: its
+     * postings and its manifest entry are removed, and the repository is
+     * saved. Only the words of the file are visited.
+     *
+     * @param filename The name of the file, as it was processed.
+     * @return True if the file was in the repository or the manifest.
+     */
+    public boolean removeFile(String filename) {
+        awaitRepository();
+        indexLock.lock();
+        boolean indexed;
+        try {
+            indexed = filePostings.containsKey(filename);
+            retractFile(filename);
+            if (manifest.remove(filename) == null && !indexed) return false;
+        } finally {
+            indexLock.unlock();
+        }
+        if (indexed) saveRepository();
+        saveManifest();
+        return true;
+    }
+
+    /**
+     * Looks up a single word in the repository.
+     *
+     * @param word The word to look up (case-insensitive).
+     * @return The WordInfo for the word, or null if it does not occur in any file.
+     */
+    public WordInfo lookup(String word) {
+        awaitRepository();
+        if (compact != null) return compact.lookup(word.toLowerCase());
+        WordInfo key = new WordInfo(word.toLowerCase());
+        BSTreeNode<WordInfo> node = treeFor(key.getWord()).search(key);
+        return node == null ? null : node.getElement();
+    }
+
+    /**
+     * Finds the words of the repository within an edit distance of a word, for
+     * suggesting corrections of a word that is not in it. The words are walked
+     * once in ascending order through a Levenshtein automaton (see FuzzyQuery).
+     *
+     * @param word The word to match (case-insensitive).
+     * @param maxDistance The largest edit distance a match may have.
+     * @return The matches, closest and most frequent first.
+     * @throws IllegalArgumentException If the word is empty or the distance is negative.
+     */
+    public List<FuzzyQuery.Match> fuzzyLookup(String word, int maxDistance) throws IllegalArgumentException {
+        FuzzyQuery query = new FuzzyQuery(word.toLowerCase(), maxDistance);
+        awaitRepository();
+        List<FuzzyQuery.Match> matches;
+        if (compact != null) {
+            matches = compact.fuzzyLookup(query);
+        } else {
+            List<FuzzyQuery.Match> found = new ArrayList<>();
+            forEachWord(info -> {
+                int distance = query.distance(info.getWord());
+                if (distance >= 0) found.add(new FuzzyQuery.Match(info.getWord(), distance, info.getOccurrences()));
+            });
+            matches = found;
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Evaluates a boolean query such as "x AND y" or "x AND NOT y" over the
+     * repository. See {@link BooleanQuery} for the syntax.
+     *
+     * @param expression The query expression.
+     * @return The matching line numbers, grouped by file, in ascending order.
+     * @throws IllegalArgumentException If the expression is not a valid query.
+     */
+    public Map<String, List<Integer>> query(String expression) {
+        return new BooleanQuery(expression).evaluate(this::lookup);
+    }
+
+    /**
+     * Finds the occurrences of a phrase, i.e. of its words directly following each
+     * other. Only files processed with positions enabled can match (see
+     * {@link #setPositional(boolean)}).
+     *
+     * @param phrase The phrase, split into words the same way as file content.
+     * @return The line numbers the phrase starts on, grouped by file, in ascending order.
+     */
+    public Map<String, List<Integer>> phraseQuery(String phrase) {
+        TokenList tokens = TokenList.tokenize(Collections.singletonList(phrase));
+        Map<String, List<Integer>> result = new TreeMap<>();
+        if (tokens.size() == 0) return result;
+
+        WordInfo[] infos = new WordInfo[tokens.size()];
+        WordInfo rarest = null;
+        for (int i = 0; i < infos.length; i++) {
+            infos[i] = lookup(tokens.word(i));
+            if (infos[i] == null) return result;  // A word that never occurs
+            if (rarest == null || infos[i].getFilePositions().size() < rarest.getFilePositions().size()) {
+                rarest = infos[i];
+            }
+        }
+
+        for (String file : rarest.getFilePositions().keySet()) {
+            PositionList first = infos[0].getPositions(file);
+            if (first == null) continue;
+            int[][] positions = first.positions();
+            long[] starts = new long[positions.length];  // Candidate start ordinals
+            for (int i = 0; i < positions.length; i++) starts[i] = positions[i][0];
+
+            for (int offset = 1; offset < infos.length && starts.length > 0; offset++) {
+                PositionList next = infos[offset].getPositions(file);
+                if (next == null) {
+                    starts = PostingList.EMPTY;
+                    break;
+                }
+                int[] ordinals = next.ordinals();
+                long[] shifted = new long[ordinals.length];
+                for (int i = 0; i < ordinals.length; i++) shifted[i] = ordinals[i] - offset;
+                starts = PostingList.intersect(starts, shifted);
+            }
+
+            int p = 0;
+            for (long start : starts) {
+                while (positions[p][0] != start) p++;
+                List<Integer> lines = result.computeIfAbsent(file, k -> new ArrayList<>());
+                if (lines.isEmpty() || lines.get(lines.size() - 1) != positions[p][1]) {
+                    lines.add(positions[p][1]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the result of a boolean query to the given stream.
+     *
+     * @param expression The query expression.
+     * @param output The stream to write the result to.
+     * @throws IllegalArgumentException If the expression is not a valid query.
+     */
+    public void writeQueryReport(String expression, PrintStream output) {
+        long start = System.nanoTime();
+        query(expression).forEach((file, lines) -> 
+            output.printf("File: %s, Lines: %s%n", file, lines.toString()));
+        metrics.record(Metrics.Phase.REPORT, start);
+    }
+
+    /**
+     * Checks whether a report type is one of the types handled by
+     * {@link #writeReport(String, PrintStream)}.
+     *
+     * @param reportType The report type to check.
+     * @return True if the report type is -pf, -pl or -po.
+     */
+    public static boolean isReportType(String reportType) {
+        return reportType.equals("-pf") || reportType.equals("-pl") || reportType.equals("-po");
+    }
+
+    /**
+     * Generates a report based on the specified report type, and writes it to
+     * an output file or prints it to the console.
+     *
+     * @param reportType The type of report to generate (-pf, -pl, or -po).
+     * @param outputFile The file to write the report to (or null for console output).
+     */
+    public void generateReport(String reportType, String outputFile) {
+        writeReport(outputFile, output -> writeReport(reportType, output));
+    }
+
+    /**
+     * Writes a report to an output file, or prints it to the console.
+     *
+     * @param outputFile The file to write the report to (or null for console output).
+     * @param report Writes the report to the stream it is given.
+     */
+    private static void writeReport(String outputFile, Consumer<PrintStream> report) {
+        try {
+            PrintStream output = outputFile != null ? new PrintStream(new FileOutputStream(outputFile)) : System.out;
+
+            report.accept(output);
+
+            if (output != System.out) {
+                output.close();  // Close the output file if it was used
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Error creating output file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a report of the specified type to the given stream.
+     *
+     * @param reportType The type of report to generate (-pf, -pl, or -po).
+     * @param output The stream to write the report to.
+     */
+    public void writeReport(String reportType, PrintStream output) {
+        long start = System.nanoTime();
+        forEachWord(info -> {  // In-order iteration of the words
+            switch (reportType) {
+                case "-pf":
+                    output.printf("Word: %s, Files: %s%n", 
+                        info.getWord(), 
+                        String.join(", ", info.getFileLocations().keySet()));
+                    break;
+                case "-pl":
+                    output.printf("Word: %s%n", info.getWord());
+                    info.getFileLocations().forEach((file, lines) -> 
+                        output.printf("  File: %s, Lines: %s%n", 
+                            file, lines.toString()));
+                    break;
+                case "-po":
+                    writeOccurrences(info, output);
+                    break;
+            }
+        });
+        metrics.record(Metrics.Phase.REPORT, start);
+    }
+
+    /**
+     * Writes the occurrence count and file locations of a single word.
+     *
+     * @param info The word to write.
+     * @param output The stream to write to.
+     */
+    static void writeOccurrences(WordInfo info, PrintStream output) {
+        output.printf("Word: %s, Occurrences: %d%n", 
+            info.getWord(), 
+            info.getOccurrences());
+        info.getFileLocations().forEach((file, lines) -> 
+            output.printf("  File: %s, Lines: %s%n", 
+                file, lines.toString()));
+    }
+
+    /**
+     * Returns the K most frequent words in the repository, ordered by descending
+     * occurrence count and then alphabetically.
+     *
+     * @param k The number of words to return.
+     * @param parallel True to scan the subtrees of the word tree in parallel.
+     * @return The most frequent words.
+     * @throws IllegalArgumentException If k is not positive.
+     */
+    public List<WordInfo> topWords(int k, boolean parallel) {
+        awaitRepository();
+        if (compact != null) return compact.topWords(k);
+        List<BSTreeNode<WordInfo>> roots;
+        if (shards != null) {
+            roots = shards.roots();
+        } else {
+            roots = wordTree.isEmpty() ? Collections.emptyList() : Collections.singletonList(wordTree.getRoot());
+        }
+        return TopWords.select(roots, k, parallel);
+    }
+
+    /**
+     * Generates a report of the K most frequent words and writes it to an output
+     * file or prints it to the console.
+     *
+     * @param k The number of words to report.
+     * @param parallel True to compute the ranking in parallel over subtrees.
+     * @param outputFile The file to write the report to (or null for console output).
+     */
+    public void generateTopReport(int k, boolean parallel, String outputFile) {
+        writeReport(outputFile, output -> writeTopReport(k, parallel, output));
+    }
+
+    /**
+     * Generates the result of a boolean query and writes it to an output file or
+     * prints it to the console.
+     *
+     * @param expression The query expression.
+     * @param outputFile The file to write the report to (or null for console output).
+     */
+    public void generateQueryReport(String expression, String outputFile) {
+        writeReport(outputFile, output -> {
+            try {
+                writeQueryReport(expression, output);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid query: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Generates the occurrences of a phrase and writes them to an output file or
+     * prints them to the console.
+     *
+     * @param phrase The phrase to search for.
+     * @param outputFile The file to write the report to (or null for console output).
+     */
+    public void generatePhraseReport(String phrase, String outputFile) {
+        writeReport(outputFile, output -> writePhraseReport(phrase, output));
+    }
+
+    /**
+     * Writes the occurrences of a phrase to the given stream.
+     *
+     * @param phrase The phrase to search for.
+     * @param output The stream to write the result to.
+     */
+    public void writePhraseReport(String phrase, PrintStream output) {
+        long start = System.nanoTime();
+        phraseQuery(phrase).forEach((file, lines) -> 
+            output.printf("File: %s, Lines: %s%n", file, lines.toString()));
+        metrics.record(Metrics.Phase.REPORT, start);
+    }
+
+    /**
+     * Generates the words within an edit distance of a word and writes them to
+     * an output file or prints them to the console.
+     *
+     * @param word The word to match.
+     * @param maxDistance The largest edit distance a match may have.
+     * @param outputFile The file to write the report to (or null for console output).
+     */
+    public void generateFuzzyReport(String word, int maxDistance, String outputFile) {
+        writeReport(outputFile, output -> {
+            try {
+                writeFuzzyReport(word, maxDistance, output);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid fuzzy lookup: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Writes the words within an edit distance of a word, with their distance
+     * and occurrence count, to the given stream.
+     *
+     * @param word The word to match.
+     * @param maxDistance The largest edit distance a match may have.
+     * @param output The stream to write the result to.
+     * @throws IllegalArgumentException If the word is empty or the distance is negative.
+     */
+    public void writeFuzzyReport(String word, int maxDistance, PrintStream output) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        for (FuzzyQuery.Match match : fuzzyLookup(word, maxDistance)) {
+            output.printf("Word: %s, Distance: %d, Occurrences: %d%n",
+                match.getWord(),
+                match.getDistance(),
+                match.getOccurrences());
+        }
+        metrics.record(Metrics.Phase.REPORT, start);
+    }
+
+    /**
+     * Generates the words of a file and writes them to an output file or prints
+     * them to the console.
+     *
+     * @param filename The name of the file, as it was processed.
+     * @param outputFile The file to write the report to (or null for console output).
+     */
+    public void generateFileReport(String filename, String outputFile) {
+        writeReport(outputFile, output -> writeFileReport(filename, output));
+    }
+
+    /**
+     * Writes the words of a file, with their occurrence count and lines in the
+     * file, to the given stream.
+     *
+     * @param filename The name of the file, as it was processed.
+     * @param output The stream to write the result to.
+     */
+    public void writeFileReport(String filename, PrintStream output) {
+        long start = System.nanoTime();
+        wordsOf(filename).forEach((word, lines) ->
+            output.printf("Word: %s, Occurrences: %d, Lines: %s%n", word, lines.size(), lines.toString()));
+        metrics.record(Metrics.Phase.REPORT, start);
+    }
+
+    /**
+     * Writes a report of the K most frequent words to the given stream.
+     *
+     * @param k The number of words to report.
+     * @param parallel True to compute the ranking in parallel over subtrees.
+     * @param output The stream to write the report to.
+     */
+    public void writeTopReport(int k, boolean parallel, PrintStream output) {
+        long start = System.nanoTime();
+        int rank = 1;
+        for (WordInfo info : topWords(k, parallel)) {
+            output.printf("%d. Word: %s, Occurrences: %d%n", 
+                rank++, 
+                info.getWord(), 
+                info.getOccurrences());
+        }
+        metrics.record(Metrics.Phase.REPORT, start);
+    }
+
+    /**
+     * The main method that processes the command-line arguments and invokes
+     * the corresponding methods to process files and generate reports.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main(String[] args) {
+        boolean sharded = Arrays.asList(args).contains("--sharded");
+        if (args.length > 0 && args[0].equals("--server")) {
+            try {
+                int port = args.length > 1 && !args[1].startsWith("--") ? Integer.parseInt(args[1]) : WordTrackerServer.DEFAULT_PORT;
+                WordTracker tracker = new WordTracker(REPOSITORY_FILE, sharded);
+                tracker.setCompressed(Arrays.asList(args).contains("--compress"));
+                if (!sharded && Arrays.asList(args).contains("--compact")) tracker.setCompactDictionary(true);
+                tracker.setBackgroundSave(true);
+                new WordTrackerServer(tracker, port).run();
+                tracker.flushSaves();
+            } catch (NumberFormatException e) {
+                printUsage();
+            } catch (IOException e) {
+                System.err.println("Error running server: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--partition")) {
+            int exitCode = PartitionedIngest.runPartition(Arrays.copyOfRange(args, 1, args.length));
+            if (exitCode == 2) printUsage();
+            if (exitCode != 0) System.exit(exitCode);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--reduce")) {
+            List<Path> parts = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                if (!args[i].startsWith("--")) parts.add(Paths.get(args[i]));
+            }
+            if (parts.isEmpty()) {
+                printUsage();
+                return;
+            }
+            WordTracker tracker = new WordTracker(REPOSITORY_FILE, sharded);
+            tracker.setCompressed(Arrays.asList(args).contains("--compress"));
+            try {
+                tracker.reduce(parts);
+            } catch (IOException e) {
+                System.err.println("Error reducing partitions: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+
+        String reportType = args[1];  
+        int topCount = 0;
+        int maxDistance = DEFAULT_FUZZY_DISTANCE;
+        String reportArgument = null;
+        int next = 2;
+        if (reportType.equals("-pt")) {
+            try {
+                topCount = Integer.parseInt(args[next++]);
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                printUsage();
+                return;
+            }
+            if (topCount <= 0) {
+                printUsage();
+                return;
+            }
+        } else if (reportType.equals("-pd")) {
+            if (args.length <= next) {
+                printUsage();
+                return;
+            }
+            reportArgument = args[next++];
+            if (args.length > next && args[next].matches("\\d{1,9}")) maxDistance = Integer.parseInt(args[next++]);
+        } else if (reportType.equals("-pq") || reportType.equals("-pp") || reportType.equals("-pw")) {
+            if (args.length <= next) {
+                printUsage();
+                return;
+            }
+            reportArgument = args[next++];
+        }
+
+        String outputFile = null;
+        boolean parallel = false;
+        boolean positional = false;
+        boolean compressed = false;
+        boolean stats = false;
+        double bloomFpp = -1;
+        Boolean compactDictionary = null;  // Null keeps the stored mode
+        long memoryBudget = 0;
+        int partitions = 1;
+        for (int i = next; i < args.length; i++) {
+            if (args[i].equals("-f") && i + 1 < args.length) {
+                outputFile = args[++i];  // Get output file if specified
+            } else if (args[i].equals("--parallel")) {
+                parallel = true;
+            } else if (args[i].equals("--positions")) {
+                positional = true;
+            } else if (args[i].equals("--compress")) {
+                compressed = true;
+            } else if (args[i].equals("--stats")) {
+                stats = true;
+            } else if (args[i].equals("--compact")) {
+                compactDictionary = !(i + 1 < args.length && args[i + 1].equals("off"));
+                if (!compactDictionary) i++;
+            } else if (args[i].equals("--memory") && i + 1 < args.length) {
+                try {
+                    memoryBudget = Long.parseLong(args[++i]) << 20;  // Megabytes
+                    if (memoryBudget <= 0) throw new NumberFormatException();
+                } catch (NumberFormatException e) {
+                    printUsage();
+                    return;
+                }
+            } else if (args[i].equals("--partitions") && i + 1 < args.length) {
+                try {
+                    partitions = Integer.parseInt(args[++i]);
+                    if (partitions <= 0) throw new NumberFormatException();
+                } catch (NumberFormatException e) {
+                    printUsage();
+                    return;
+                }
+            } else if (args[i].equals("--bloom") && i + 1 < args.length) {
+                try {
+                    bloomFpp = args[++i].equals("off") ? 0 : Double.parseDouble(args[i]);
+                    if (bloomFpp != 0 && !(bloomFpp > 0 && bloomFpp < 1)) throw new NumberFormatException();
+                } catch (NumberFormatException e) {
+                    printUsage();
+                    return;
+                }
+            }
+        }
+
+        if (Boolean.TRUE.equals(compactDictionary) && (sharded || positional)) {
+            printUsage();
+            return;
+        }
+
+        WordTracker tracker = new WordTracker(REPOSITORY_FILE, sharded);
+        tracker.setPositional(positional);
+        tracker.setCompressed(compressed);
+        if (compactDictionary != null) tracker.setCompactDictionary(compactDictionary);
+        if (bloomFpp >= 0) tracker.setBloomFilter(bloomFpp);
+        tracker.setMemoryBudget(memoryBudget);
+        if (Files.isDirectory(Paths.get(args[0]))) {
+            try {
+                if (partitions > 1) {
+                    List<String> childOptions = new ArrayList<>();
+                    if (positional) childOptions.add("--positions");
+                    if (memoryBudget > 0) childOptions.addAll(Arrays.asList("--memory", String.valueOf(memoryBudget >> 20)));
+                    new PartitionedIngest(tracker, partitions, childOptions).run(args[0]);
+                } else {
+                    System.err.println(tracker.processDirectory(args[0]));
+                }
+            } catch (IOException e) {
+                System.err.println("Error processing directory: " + e.getMessage());
+            }
+        } else {
+            tracker.processFile(args[0]); 
+        }
+        if (positional) {
+            long positions = tracker.getPositionCount();
+            long bytes = tracker.getPositionBytes();
+            System.err.printf("Positional index: %d positions in %d bytes (%.2f bytes per position), %d line postings%n",
+                positions, bytes, positions == 0 ? 0.0 : (double) bytes / positions, tracker.getTotalPostings());
+        }
+        if (reportType.equals("-pt")) {
+            tracker.generateTopReport(topCount, parallel, outputFile);
+        } else if (reportType.equals("-pq")) {
+            tracker.generateQueryReport(reportArgument, outputFile);
+        } else if (reportType.equals("-pp")) {
+            tracker.generatePhraseReport(reportArgument, outputFile);
+        } else if (reportType.equals("-pw")) {
+            tracker.generateFileReport(reportArgument, outputFile);
+        } else if (reportType.equals("-pd")) {
+            tracker.generateFuzzyReport(reportArgument, maxDistance, outputFile);
+        } else {
+            tracker.generateReport(reportType, outputFile); 
+        }
+        if (compressed) {
+            long serialized = tracker.getSerializedBytes();
+            long stored = tracker.getStoredBytes();
+            System.err.printf("Repository loaded in %.1f ms", tracker.getLoadMillis());
+            if (stored > 0) {
+                System.err.printf("; saved %d bytes as %d bytes (ratio %.2f) in %.1f ms",
+                    serialized, stored, (double) serialized / stored, tracker.getSaveMillis());
+            }
+            System.err.println();
+        }
+        if (stats) {
+            System.err.print(tracker.getStatsSummary());
+        }
+    }
+
+    /**
+     * Prints the command-line usage.
+     */
+    private static void printUsage() {
+        System.out.println("Usage: java -jar WordTracker.jar <input.txt|directory> -pf/-pl/-po/-pt <K>/-pq <query>/-pp <phrase>/-pw <file>/-pd <word> [K] [-f <output.txt>] [--parallel] [--positions] [--sharded] [--compress] [--bloom <fpp|off>] [--compact [off]] [--memory <MB>] [--partitions <N>] [--stats]");
+        System.out.println("       java -jar WordTracker.jar --server [port] [--sharded] [--compress] [--compact]");
+        System.out.println("       java -jar WordTracker.jar --partition <i>/<N> <directory> <partition file> [--positions] [--memory <MB>]");
+        System.out.println("       java -jar WordTracker.jar --reduce <partition file>... [--sharded] [--compress]");
     }
 }
@@ -0,0 +1,317 @@
+package WordTracker;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * WordTrackerServer.java
+ *
+ * A long-running server that keeps a WordTracker and its word tree resident in
+ * memory and answers ingest and query commands over a loopback socket, so
+ * clients do not pay JVM startup and repository loading on every request.
+ *
+ * The server speaks a simple line protocol. Each request is one line of the form
+ * COMMAND [ARGUMENTS]; each response is zero or more lines of output followed by a
+ * line reading "OK", or a single line starting with "ERR". The commands are:
+ * - INGEST &lt;file&gt;: processes a file and saves the repository.
+ * - LOOKUP &lt;word&gt;: prints the occurrences of a word.
+ * - FUZZY &lt;word&gt; [K]: prints the words within edit distance K (2 if not
+ *   given) of a word, as with -pd on the command line.
+ * - REPORT -pf|-pl|-po|-pt &lt;K&gt;: prints a report, as on the command line.
+ * - QUERY &lt;expression&gt;: prints the lines matching a boolean query.
+ * - PHRASE &lt;phrase&gt;: prints the lines a phrase starts on.
+ * - WORDS &lt;file&gt;: prints the words of a file with their lines in it.
+ * - REMOVE &lt;file&gt;: removes a file from the repository and saves it.
+ * - STATS: prints the repository totals, the shape of the word tree and the
+ *   estimated heap footprint of the index.
+ * - PING: checks that the server is alive.
+ * - QUIT: closes the connection.
+ * - SHUTDOWN: stops the server.
+ *
+ * Each connection is served on its own thread. Queries share a read lock, so
+ * lookups and reports run concurrently; ingests take the write lock.
+ */
+public class WordTrackerServer {
+    public static final int DEFAULT_PORT = 7341;  // Port used when none is given on the command line
+    private final WordTracker tracker;
+    private final int port;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "word-tracker-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Constructs a server for the given tracker.
+     *
+     * @param tracker The tracker to serve.
+     * @param port The loopback port to listen on, or 0 for any free port.
+     */
+    public WordTrackerServer(WordTracker tracker, int port) {
+        this.tracker = tracker;
+        this.port = port;
+    }
+
+    /**
+     * Binds the server socket to the loopback address. Called by {@link #run()}
+     * if the socket is not bound yet.
+     *
+     * @return The port the server is listening on.
+     * @throws IOException If the socket cannot be bound.
+     */
+    public synchronized int bind() throws IOException {
+        if (serverSocket == null) {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is shut down, handing each one to a
+     * worker thread.
+     *
+     * @throws IOException If the socket cannot be bound.
+     */
+    public void run() throws IOException {
+        System.out.println("WordTracker server listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + bind());
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket client = serverSocket.accept();
+                workers.execute(() -> serve(client));
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) throw e;  // Closed by SHUTDOWN
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops accepting connections.
+     */
+    public void shutdown() {
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads and answers requests from a single client until it disconnects.
+     *
+     * @param client The client socket.
+     */
+    private void serve(Socket client) {
+        try (Socket socket = client;
+             BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream output = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, "UTF-8")) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (!handle(line, output)) break;
+                output.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error serving client: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Executes a single request line.
+     *
+     * @param line The request line.
+     * @param output The stream to write the response to.
+     * @return False if the connection should be closed, true otherwise.
+     */
+    boolean handle(String line, PrintStream output) {
+        String[] parts = line.split("\\s+", 2);
+        String command = parts[0].toUpperCase();
+        String argument = parts.length > 1 ? parts[1] : "";
+
+        switch (command) {
+            case "INGEST":
+                if (argument.isEmpty()) return error(output, "INGEST requires a file name");
+                if (!new File(argument).isFile()) return error(output, "No such file: " + argument);
+                lock.writeLock().lock();
+                try {
+                    tracker.processFile(argument);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return ok(output);
+            case "LOOKUP":
+                if (argument.isEmpty()) return error(output, "LOOKUP requires a word");
+                lock.readLock().lock();
+                try {
+                    WordInfo info = tracker.lookup(argument);
+                    if (info != null) WordTracker.writeOccurrences(info, output);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                return ok(output);
+            case "FUZZY":
+                return fuzzy(argument, output);
+            case "REPORT":
+                return report(argument, output);
+            case "QUERY":
+                if (argument.isEmpty()) return error(output, "QUERY requires an expression");
+                lock.readLock().lock();
+                try {
+                    tracker.writeQueryReport(argument, output);
+                } catch (IllegalArgumentException e) {
+                    return error(output, "Invalid query: " + e.getMessage());
+                } finally {
+                    lock.readLock().unlock();
+                }
+                return ok(output);
+            case "STATS":
+                lock.readLock().lock();
+                try {
+                    output.printf("Words: %d%n", tracker.getDistinctWords());
+                    output.printf("Files: %d%n", tracker.getFileCount());
+                    output.printf("Postings: %d%n", tracker.getTotalPostings());
+                    output.printf("Shape: %s%n", tracker.getTreeShape());
+                    output.printf("Heap: %s%n", tracker.getHeapFootprint());
+                } finally {
+                    lock.readLock().unlock();
+                }
+                return ok(output);
+            case "PHRASE":
+                if (argument.isEmpty()) return error(output, "PHRASE requires a phrase");
+                lock.readLock().lock();
+                try {
+                    tracker.writePhraseReport(argument, output);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                return ok(output);
+            case "WORDS":
+                if (argument.isEmpty()) return error(output, "WORDS requires a file name");
+                lock.readLock().lock();
+                try {
+                    tracker.writeFileReport(argument, output);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                return ok(output);
+            case "REMOVE":
+                if (argument.isEmpty()) return error(output, "REMOVE requires a file name");
+                lock.writeLock().lock();
+                try {
+                    if (!tracker.removeFile(argument)) return error(output, "Not in the repository: " + argument);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return ok(output);
+            case "PING":
+                return ok(output);
+            case "QUIT":
+                ok(output);
+                return false;
+            case "SHUTDOWN":
+                ok(output);
+                shutdown();
+                return false;
+            default:
+                return error(output, "Unknown command: " + parts[0]);
+        }
+    }
+
+    /**
+     * Executes a FUZZY request.
+     *
+     * @param argument The word and optionally the maximum edit distance.
+     * @param output The stream to write the response to.
+     * @return True, as lookups never close the connection.
+     */
+    private boolean fuzzy(String argument, PrintStream output) {
+        String[] parts = argument.split("\\s+");
+        if (parts[0].isEmpty() || parts.length > 2) return error(output, "FUZZY requires a word and optionally a distance");
+        int maxDistance = WordTracker.DEFAULT_FUZZY_DISTANCE;
+        if (parts.length == 2) {
+            try {
+                maxDistance = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return error(output, "FUZZY requires a number as the distance");
+            }
+            if (maxDistance < 0) return error(output, "FUZZY requires a distance of at least 0");
+        }
+
+        lock.readLock().lock();
+        try {
+            tracker.writeFuzzyReport(parts[0], maxDistance, output);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ok(output);
+    }
+
+    /**
+     * Executes a REPORT request.
+     *
+     * @param argument The report type and, for -pt, the number of words.
+     * @param output The stream to write the response to.
+     * @return True, as reports never close the connection.
+     */
+    private boolean report(String argument, PrintStream output) {
+        String[] parts = argument.split("\\s+");
+        String reportType = parts[0];
+        int topCount = 0;
+        if (reportType.equals("-pt")) {
+            try {
+                topCount = Integer.parseInt(parts[1]);
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                return error(output, "REPORT -pt requires a number of words");
+            }
+            if (topCount <= 0) return error(output, "REPORT -pt requires a positive number of words");
+        } else if (!WordTracker.isReportType(reportType)) {
+            return error(output, "Unknown report type: " + reportType);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (topCount > 0) {
+                tracker.writeTopReport(topCount, false, output);
+            } else {
+                tracker.writeReport(reportType, output);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ok(output);
+    }
+
+    /**
+     * Terminates a successful response.
+     *
+     * @param output The stream to write the response to.
+     * @return True, to keep the connection open.
+     */
+    private static boolean ok(PrintStream output) {
+        output.println("OK");
+        return true;
+    }
+
+    /**
+     * Writes an error response.
+     *
+     * @param output The stream to write the response to.
+     * @param message The error message.
+     * @return True, to keep the connection open.
+     */
+    private static boolean error(PrintStream output, String message) {
+        output.println("ERR " + message);
+        return true;
+    }
+}
@@ -1,8 +1,14 @@
 package implementations;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 import utilities.BSTreeADT;
 import utilities.Iterator;
 
@@ -13,12 +19,20 @@ import utilities.Iterator;
  * The elements are stored in a way that ensures the left child of a node is less than the node's element, 
  * and the right child is greater than or equal to the node's element.
  * 
+ * Optionally, a Bloom filter of the elements is kept alongside the tree (see
+ * setFilter), so that most searches for elements that are not in the tree
+ * return without walking it. The filter is serialized with the tree.
+ * 
  * @param <E> The type of element stored in this tree, which must be comparable.
  */
 public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Serializable {
     private static final long serialVersionUID = 1L;  
     private BSTreeNode<E> root; 
     private int size;  
+    private transient long operations;   // Number of searches, additions and removals by key
+    private transient long comparisons;  // Number of compareTo calls made by those operations
+    private BloomFilter<E> filter;       // Null unless a filter is enabled
+    private transient long filterRejections;  // Number of searches answered by the filter alone
 
     /**
      * Constructs an empty BSTree with a null root and size 0.
@@ -28,6 +42,50 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         size = 0;
     }
 
+    /**
+     * Builds a balanced tree from elements in strictly ascending order. The
+     * middle element becomes the root and each half becomes a subtree, so the
+     * height is the smallest possible, ceil(log2(size + 1)), and no comparisons
+     * are needed beyond checking the order.
+     * 
+     * @param <E> The type of elements.
+     * @param sorted The elements in strictly ascending order.
+     * @return The balanced tree.
+     * @throws IllegalArgumentException If the elements are not strictly ascending.
+     * @throws NullPointerException If an element is null.
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> fromSorted(List<E> sorted)
+            throws IllegalArgumentException, NullPointerException {
+        for (int i = 0; i < sorted.size(); i++) {
+            if (sorted.get(i) == null) throw new NullPointerException("Entry cannot be null");
+            if (i > 0 && sorted.get(i - 1).compareTo(sorted.get(i)) >= 0) {
+                throw new IllegalArgumentException("Elements are not in strictly ascending order at index " + i);
+            }
+        }
+        BSTree<E> tree = new BSTree<>();
+        tree.root = buildBalanced(sorted, 0, sorted.size());
+        tree.size = sorted.size();
+        return tree;
+    }
+
+    /**
+     * Builds a balanced subtree from a range of sorted elements.
+     * 
+     * @param <E> The type of elements.
+     * @param sorted The elements in ascending order.
+     * @param from The first index of the range, inclusive.
+     * @param to The last index of the range, exclusive.
+     * @return The root of the subtree, or null if the range is empty.
+     */
+    private static <E extends Comparable<? super E>> BSTreeNode<E> buildBalanced(List<E> sorted, int from, int to) {
+        if (from >= to) return null;
+        int middle = (from + to) >>> 1;
+        BSTreeNode<E> node = new BSTreeNode<>(sorted.get(middle));
+        node.setLeft(buildBalanced(sorted, from, middle));
+        node.setRight(buildBalanced(sorted, middle + 1, to));
+        return node;
+    }
+
     /**
      * Returns the root node of the tree.
      * 
@@ -61,6 +119,44 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         return 1 + Math.max(getHeight(node.getLeft()), getHeight(node.getRight()));
     }
 
+    /**
+     * Computes the shape statistics of the tree (depth histogram, average and
+     * maximum search path length, imbalance) in one iterative level-order pass,
+     * so it also works on degenerate trees that are too deep for recursion.
+     * 
+     * @return The shape of the tree.
+     */
+    public TreeShape getShape() {
+        long[] depthCounts = new long[16];
+        int depth = 0;
+        Deque<BSTreeNode<E>> level = new ArrayDeque<>();
+        if (root != null) level.add(root);
+        while (!level.isEmpty()) {
+            int width = level.size();
+            if (depth == depthCounts.length) depthCounts = Arrays.copyOf(depthCounts, depth * 2);
+            depthCounts[depth++] = width;
+            for (int i = 0; i < width; i++) {
+                BSTreeNode<E> node = level.poll();
+                if (node.getLeft() != null) level.add(node.getLeft());
+                if (node.getRight() != null) level.add(node.getRight());
+            }
+        }
+        return new TreeShape(Arrays.copyOf(depthCounts, depth));
+    }
+
+    /**
+     * Estimates the heap retained by the tree itself: the tree object, one
+     * node per element and the Bloom filter, if any, but not the elements,
+     * which the caller can size as it knows their type (see ObjectLayout).
+     * 
+     * @return The estimated size in bytes.
+     */
+    public long estimateNodeBytes() {
+        long bytes = ObjectLayout.objectBytes(2, 4 + 3 * 8)            // root, filter; size, counters
+            + size * ObjectLayout.objectBytes(3, 0);                    // element, left, right
+        return filter == null ? bytes : bytes + filter.estimateBytes();
+    }
+
     /**
      * Returns the size (number of elements) of the tree.
      * 
@@ -88,6 +184,7 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     public void clear() {
         root = null;
         size = 0;
+        if (filter != null) filter.clear();
     }
 
     /**
@@ -113,6 +210,11 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     @Override
     public BSTreeNode<E> search(E entry) throws NullPointerException {
         if (entry == null) throw new NullPointerException("Entry cannot be null");
+        operations++;
+        if (filter != null && !filter.mightContain(entry)) {
+            filterRejections++;
+            return null;
+        }
         return search(root, entry);
     }
 
@@ -126,12 +228,80 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     private BSTreeNode<E> search(BSTreeNode<E> node, E entry) {
         if (node == null) return null;
         
+        comparisons++;
         int comparison = entry.compareTo(node.getElement());
         if (comparison == 0) return node;  
         if (comparison < 0) return search(node.getLeft(), entry);  
         return search(node.getRight(), entry);  
     }
 
+    /**
+     * Searches for many elements in one walk of the tree. The keys must be in
+     * ascending order, so that at every node they split into those that go
+     * left, those equal to the node and those that go right; each part carries
+     * on into its subtree alone. The top levels of the tree are thus visited
+     * once for the whole batch instead of once per key, and a part of a single
+     * key finishes as an ordinary search. Duplicate keys are allowed.
+     *
+     * The Bloom filter is not consulted, since the keys it would reject mostly
+     * share the walk of their neighbours in the batch.
+     *
+     * @param sorted The elements to search for, in ascending order.
+     * @return The node containing each element, at the same index, or null where an element is not found.
+     * @throws NullPointerException If the list or one of its elements is null.
+     * @throws IllegalArgumentException If the elements are not in ascending order.
+     */
+    public List<BSTreeNode<E>> searchAll(List<? extends E> sorted) throws NullPointerException, IllegalArgumentException {
+        for (int i = 0; i < sorted.size(); i++) {
+            if (sorted.get(i) == null) throw new NullPointerException("Entry cannot be null");
+            if (i > 0 && sorted.get(i - 1).compareTo(sorted.get(i)) > 0) {
+                throw new IllegalArgumentException("Elements are not in ascending order at index " + i);
+            }
+        }
+        operations += sorted.size();
+        List<BSTreeNode<E>> found = new ArrayList<>(Collections.nCopies(sorted.size(), null));
+        searchAll(root, sorted, 0, sorted.size(), found);
+        return found;
+    }
+
+    /**
+     * Recursively searches for a range of sorted elements below a given node.
+     *
+     * @param node The node to start searching from.
+     * @param sorted The elements to search for, in ascending order.
+     * @param from The index of the first element of the range.
+     * @param to The index after the last element of the range.
+     * @param found The nodes found, by the index of their element.
+     */
+    private void searchAll(BSTreeNode<E> node, List<? extends E> sorted, int from, int to, List<BSTreeNode<E>> found) {
+        if (node == null || from >= to) return;
+        if (to - from == 1) {
+            found.set(from, search(node, sorted.get(from)));
+            return;
+        }
+
+        E element = node.getElement();
+        int split = from;  // The first element not less than the node's, by binary search
+        int end = to;
+        while (split < end) {
+            int middle = (split + end) >>> 1;
+            comparisons++;
+            if (sorted.get(middle).compareTo(element) < 0) {
+                split = middle + 1;
+            } else {
+                end = middle;
+            }
+        }
+        int after = split;  // After the elements equal to the node's
+        while (after < to) {
+            comparisons++;
+            if (sorted.get(after).compareTo(element) != 0) break;
+            found.set(after++, node);
+        }
+        searchAll(node.getLeft(), sorted, from, split, found);
+        searchAll(node.getRight(), sorted, after, to, found);
+    }
+
     /**
      * Adds a new element to the tree. Duplicates are not allowed.
      * 
@@ -143,13 +313,24 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     public boolean add(E newEntry) throws NullPointerException {
         if (newEntry == null) throw new NullPointerException("Entry cannot be null");
         
+        operations++;
+        boolean added;
         if (root == null) {
             root = new BSTreeNode<>(newEntry);
             size++;
-            return true;
+            added = true;
+        } else {
+            added = add(root, newEntry);
         }
         
-        return add(root, newEntry);
+        if (added && filter != null) {
+            if (filter.size() >= filter.getCapacity()) {
+                setFilter(filter.getFpp());  // Full: rebuild with room for the tree to double
+            } else {
+                filter.put(newEntry);
+            }
+        }
+        return added;
     }
 
     /**
@@ -160,6 +341,7 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
      * @return True if the element was added, false if it was already present.
      */
     private boolean add(BSTreeNode<E> node, E newEntry) {
+        comparisons++;
         int comparison = newEntry.compareTo(node.getElement());
         
         if (comparison == 0) return false;  
@@ -181,6 +363,129 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         }
     }
 
+    /**
+     * Enables a Bloom filter of the elements, or rebuilds it with a new
+     * false-positive probability. The filter is sized for twice the current
+     * number of elements and rebuilt whenever it fills up. Elements must
+     * implement hashCode consistently with compareTo.
+     * 
+     * Removing elements leaves their bits set, which only makes false positives
+     * more likely; calling this method again rebuilds the filter from the tree.
+     * 
+     * @param fpp The false-positive probability, between 0 and 1.
+     * @throws IllegalArgumentException If fpp is not between 0 and 1.
+     */
+    public void setFilter(double fpp) throws IllegalArgumentException {
+        BloomFilter<E> rebuilt = new BloomFilter<>(Math.max(1024, 2L * size), fpp);
+        forEachInorder(rebuilt::put);
+        filter = rebuilt;
+    }
+
+    /**
+     * Disables the Bloom filter.
+     */
+    public void removeFilter() {
+        filter = null;
+    }
+
+    /**
+     * Returns the Bloom filter in front of searches.
+     * 
+     * @return The filter, or null if none is enabled.
+     */
+    public BloomFilter<E> getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the number of searches that the Bloom filter answered without
+     * walking the tree, since the tree was created or loaded.
+     * 
+     * @return The number of filtered searches.
+     */
+    public long getFilterRejections() {
+        return filterRejections;
+    }
+
+    /**
+     * Removes the given element from the tree. A node with two children is
+     * replaced by its inorder successor.
+     * 
+     * @param entry The element to remove.
+     * @return True if the element was removed, false if it was not present.
+     * @throws NullPointerException If the entry is null.
+     */
+    public boolean remove(E entry) throws NullPointerException {
+        if (entry == null) throw new NullPointerException("Entry cannot be null");
+
+        operations++;
+        BSTreeNode<E> parent = null;
+        BSTreeNode<E> current = root;
+        int comparison;
+        while (current != null && (comparison = entry.compareTo(current.getElement())) != 0) {
+            comparisons++;
+            parent = current;
+            current = comparison < 0 ? current.getLeft() : current.getRight();
+        }
+        if (current == null) return false;
+        comparisons++;  // The comparison that found the entry
+
+        if (current.getLeft() != null && current.getRight() != null) {
+            // Move the successor's element up and unlink the successor instead
+            BSTreeNode<E> successorParent = current;
+            BSTreeNode<E> successor = current.getRight();
+            while (successor.getLeft() != null) {
+                successorParent = successor;
+                successor = successor.getLeft();
+            }
+            current.setElement(successor.getElement());
+            parent = successorParent;
+            current = successor;
+        }
+
+        BSTreeNode<E> child = current.getLeft() != null ? current.getLeft() : current.getRight();
+        if (parent == null) {
+            root = child;
+        } else if (parent.getLeft() == current) {
+            parent.setLeft(child);
+        } else {
+            parent.setRight(child);
+        }
+
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of searches, additions and removals by key performed
+     * since the tree was created, loaded or last reset. Calls to contains count
+     * as searches.
+     * 
+     * @return The number of operations.
+     */
+    public long getOperationCount() {
+        return operations;
+    }
+
+    /**
+     * Returns the number of element comparisons made by the operations counted
+     * by {@link #getOperationCount()}. The counters are not synchronized, so they
+     * are approximate while several threads search the tree.
+     * 
+     * @return The number of comparisons.
+     */
+    public long getComparisonCount() {
+        return comparisons;
+    }
+
+    /**
+     * Resets the operation and comparison counters to zero.
+     */
+    public void resetCounters() {
+        operations = 0;
+        comparisons = 0;
+    }
+
     /**
      * Removes the minimum element (leftmost leaf) from the tree.
      * 
@@ -265,6 +570,30 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         return new TreeIterator(TreeTraversalOrder.POSTORDER);
     }
 
+    /**
+     * Performs the given action on every element in inorder (ascending) order.
+     * Unlike {@link #inorderIterator()}, no copy of the elements is made; the walk
+     * uses an explicit stack, so the extra memory is proportional to the height of the tree.
+     * 
+     * @param action The action to perform on each element.
+     * @throws NullPointerException If the action is null.
+     */
+    public void forEachInorder(Consumer<? super E> action) throws NullPointerException {
+        if (action == null) throw new NullPointerException("Action cannot be null");
+
+        Deque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        BSTreeNode<E> current = root;
+        while (current != null || !stack.isEmpty()) {
+            while (current != null) {
+                stack.push(current);
+                current = current.getLeft();
+            }
+            current = stack.pop();
+            action.accept(current.getElement());
+            current = current.getRight();
+        }
+    }
+
     /**
      * Enum representing the three types of tree traversal orders: PREORDER, INORDER, and POSTORDER.
      */
@@ -0,0 +1,180 @@
+package implementations;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * BloomFilter.java
+ *
+ * A Bloom filter: a compact set of bits that answers whether an element may have
+ * been added. An element that was added is always reported as possibly present,
+ * while an element that was not added is reported as absent except for a small,
+ * configurable false-positive probability. Elements cannot be removed.
+ *
+ * The filter is sized for an expected number of elements and a false-positive
+ * probability. Each element sets a number of bits chosen by double hashing of its
+ * hashCode, so elements that are equal must have equal hash codes. Once more
+ * elements than expected are added, the false-positive probability rises.
+ *
+ * @param <E> The type of element added to the filter.
+ */
+public class BloomFilter<E> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final long MAX_BITS = 1L << 32;  // Bits addressable by a 32-bit combined hash
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;    // Number of elements the filter was sized for
+    private final double fpp;       // False-positive probability at capacity
+    private long count;             // Number of elements added
+
+    /**
+     * Constructs an empty filter.
+     *
+     * @param capacity The expected number of elements.
+     * @param fpp The false-positive probability once capacity elements are added, between 0 and 1.
+     * @throws IllegalArgumentException If the capacity is not positive or fpp is not between 0 and 1.
+     */
+    public BloomFilter(long capacity, double fpp) throws IllegalArgumentException {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        if (!(fpp > 0 && fpp < 1)) throw new IllegalArgumentException("False-positive probability must be between 0 and 1");
+        double ln2 = Math.log(2);
+        long size = (long) Math.ceil(-capacity * Math.log(fpp) / (ln2 * ln2));
+        this.bitCount = Math.min(MAX_BITS, Math.max(64, (size + 63) / 64 * 64));
+        this.bits = new long[(int) (bitCount / 64)];
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+        this.capacity = capacity;
+        this.fpp = fpp;
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param element The element to add.
+     * @throws NullPointerException If the element is null.
+     */
+    public void put(E element) throws NullPointerException {
+        long hash = mix(element.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        count++;
+    }
+
+    /**
+     * Checks whether an element may have been added.
+     *
+     * @param element The element to check.
+     * @return False if the element was certainly not added, true if it may have been.
+     * @throws NullPointerException If the element is null.
+     */
+    public boolean mightContain(E element) throws NullPointerException {
+        long hash = mix(element.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes all elements.
+     */
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        count = 0;
+    }
+
+    /**
+     * Gets the number of elements added.
+     *
+     * @return The number of elements added, counting repeated additions.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Gets the number of elements the filter was sized for.
+     *
+     * @return The capacity.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the false-positive probability the filter was sized for.
+     *
+     * @return The configured false-positive probability.
+     */
+    public double getFpp() {
+        return fpp;
+    }
+
+    /**
+     * Gets the number of bits in the filter.
+     *
+     * @return The number of bits.
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Estimates the heap retained by the filter, its bit array included.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimateBytes() {
+        return ObjectLayout.objectBytes(1, 4 * 8 + 4) + ObjectLayout.arrayBytes(bits.length, 8);
+    }
+
+    /**
+     * Gets the number of bits each element sets.
+     *
+     * @return The number of hash functions.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Estimates the current false-positive probability from the number of
+     * elements added.
+     *
+     * @return The estimated false-positive probability.
+     */
+    public double expectedFpp() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * count / bitCount), hashCount);
+    }
+
+    /**
+     * Spreads a 32-bit hash code over 64 bits (the finalizer of SplitMix64), so
+     * that its two halves can serve as independent hashes.
+     *
+     * @param hashCode The hash code of an element.
+     * @return The mixed hash.
+     */
+    private static long mix(int hashCode) {
+        long z = hashCode * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Maps a combined hash to a bit.
+     *
+     * @param hash The combined hash.
+     * @return The index of the bit.
+     */
+    private long index(int hash) {
+        return (hash & 0xFFFFFFFFL) % bitCount;
+    }
+}
@@ -0,0 +1,448 @@
+package implementations;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * CompactDictionary.java
+ *
+ * An ordered set of words that stores their characters as Latin-1 bytes in a
+ * few large byte arenas instead of one String per word. Every word added gets
+ * an id, the order in which it was added starting from 0, and the word is
+ * stored as the offset and length of its bytes in an arena. The ids are also
+ * the nodes of a Binary Search Tree held in parallel arrays, as in IntBSTree,
+ * so a word costs its bytes plus a few array slots and no objects at all.
+ *
+ * Words are compared directly on the bytes: a lookup walks the tree comparing
+ * the characters of the key with the stored bytes, which gives the same order
+ * as String.compareTo for Latin-1 text. A String is only created when a word is
+ * asked for with {@link #get(int)}, so callers should keep ids and turn them
+ * into Strings at the point where they are printed.
+ *
+ * Words cannot be removed, so ids stay valid for the life of the dictionary. The
+ * tree is not balanced; adding words one at a time in sorted order degenerates
+ * it into a list as it does a BSTree. A sorted batch, such as the words of a
+ * repository being converted, is added with {@link #addAll(List)} instead,
+ * which inserts it median first and so keeps the tree balanced.
+ */
+public class CompactDictionary implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /** The id returned when a word is not in the dictionary. */
+    public static final int NOT_FOUND = -1;
+    static final int ARENA_SIZE = 1 << 20;   // Bytes per arena; a longer word gets an arena of its own
+    private static final int NIL = -1;
+    private byte[][] arenas = new byte[1][];
+    private int arenaCount;
+    private int arenaUsed;       // Bytes used in the last arena
+    private long[] refs;         // Arena index in the high 32 bits, offset in the low 32 bits
+    private int[] lengths;
+    private int[] left;
+    private int[] right;
+    private int root = NIL;
+    private int size;
+    private transient int modCount;
+    private transient long operations;   // Number of lookups and additions
+    private transient long comparisons;  // Number of word comparisons made by them
+
+    /**
+     * Constructs an empty dictionary.
+     */
+    public CompactDictionary() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty dictionary with room for the given number of words
+     * before its arrays grow.
+     *
+     * @param capacity The initial capacity.
+     */
+    public CompactDictionary(int capacity) {
+        refs = new long[Math.max(1, capacity)];
+        lengths = new int[refs.length];
+        left = new int[refs.length];
+        right = new int[refs.length];
+    }
+
+    /**
+     * Returns the number of words in the dictionary.
+     *
+     * @return The size of the dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the dictionary is empty.
+     *
+     * @return True if the dictionary holds no words, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Looks up the id of a word.
+     *
+     * @param word The word to search for.
+     * @return The id of the word, or NOT_FOUND if it is not in the dictionary.
+     */
+    public int find(CharSequence word) {
+        operations++;
+        int node = root;
+        while (node != NIL) {
+            comparisons++;
+            int order = compare(word, node);
+            if (order == 0) return node;
+            node = order < 0 ? left[node] : right[node];
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Adds a word to the dictionary unless it is already there.
+     *
+     * @param word The word to add.
+     * @return The id of the word, whether it was added now or before.
+     * @throws IllegalArgumentException If the word contains a character that is not Latin-1.
+     */
+    public int add(CharSequence word) throws IllegalArgumentException {
+        operations++;
+        int parent = NIL;
+        int order = 0;
+        int node = root;
+        while (node != NIL) {
+            comparisons++;
+            order = compare(word, node);
+            if (order == 0) return node;
+            parent = node;
+            node = order < 0 ? left[node] : right[node];
+        }
+
+        int id = store(word);
+        if (parent == NIL) {
+            root = id;
+        } else if (order < 0) {
+            left[parent] = id;
+        } else {
+            right[parent] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Adds a batch of words in ascending order. The middle word is added first
+     * and then each half in the same way, so the batch does not degenerate the
+     * tree: into an empty dictionary it gives the smallest possible height,
+     * ceil(log2(size + 1)), as BSTree.fromSorted does, and into a balanced one
+     * it adds about as much height as random insertion would. Words already in
+     * the dictionary keep their ids.
+     *
+     * @param sorted The words in ascending order.
+     * @return The ids of the words, in the order of the list.
+     * @throws IllegalArgumentException If a word contains a character that is not Latin-1; the words added before it stay.
+     */
+    public int[] addAll(List<? extends CharSequence> sorted) throws IllegalArgumentException {
+        int[] ids = new int[sorted.size()];
+        addAll(sorted, ids, 0, sorted.size());
+        return ids;
+    }
+
+    /**
+     * Adds the words of a range of a sorted batch, median first.
+     *
+     * @param sorted The words in ascending order.
+     * @param ids Receives the ids of the words.
+     * @param from The first index of the range, inclusive.
+     * @param to The last index of the range, exclusive.
+     * @throws IllegalArgumentException If a word contains a character that is not Latin-1.
+     */
+    private void addAll(List<? extends CharSequence> sorted, int[] ids, int from, int to) throws IllegalArgumentException {
+        if (from >= to) return;
+        int middle = (from + to) >>> 1;
+        ids[middle] = add(sorted.get(middle));
+        addAll(sorted, ids, from, middle);
+        addAll(sorted, ids, middle + 1, to);
+    }
+
+    /**
+     * Creates a String of a word. This is the only place Strings are made, so
+     * it should be called where words leave the dictionary, such as in reports.
+     *
+     * @param id The id of the word.
+     * @return The word.
+     * @throws IndexOutOfBoundsException If there is no word with the id.
+     */
+    public String get(int id) throws IndexOutOfBoundsException {
+        checkId(id);
+        return new String(arenas[(int) (refs[id] >>> 32)], (int) refs[id], lengths[id], StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Gets the length of a word without creating a String.
+     *
+     * @param id The id of the word.
+     * @return The number of characters of the word.
+     * @throws IndexOutOfBoundsException If there is no word with the id.
+     */
+    public int length(int id) throws IndexOutOfBoundsException {
+        checkId(id);
+        return lengths[id];
+    }
+
+    /**
+     * Compares two words of the dictionary on their bytes.
+     *
+     * @param id The id of the first word.
+     * @param other The id of the second word.
+     * @return A negative integer, zero, or a positive integer as the first word
+     *         is less than, equal to, or greater than the second.
+     * @throws IndexOutOfBoundsException If there is no word with one of the ids.
+     */
+    public int compare(int id, int other) throws IndexOutOfBoundsException {
+        checkId(id);
+        checkId(other);
+        byte[] arena = arenas[(int) (refs[id] >>> 32)];
+        byte[] otherArena = arenas[(int) (refs[other] >>> 32)];
+        int offset = (int) refs[id];
+        int otherOffset = (int) refs[other];
+        int length = Math.min(lengths[id], lengths[other]);
+        for (int i = 0; i < length; i++) {
+            int difference = (arena[offset + i] & 0xFF) - (otherArena[otherOffset + i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return lengths[id] - lengths[other];
+    }
+
+    /**
+     * Gets the number of bytes the words take up in the arenas.
+     *
+     * @return The number of bytes used.
+     */
+    public long getWordBytes() {
+        return arenaCount == 0 ? 0 : (long) (arenaCount - 1) * ARENA_SIZE + arenaUsed;
+    }
+
+    /**
+     * Estimates the heap retained by the arenas, counting the unused space at
+     * the end of the last one.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimateArenaBytes() {
+        long bytes = ObjectLayout.referenceArrayBytes(arenas.length);
+        for (int i = 0; i < arenaCount; i++) {
+            bytes += ObjectLayout.arrayBytes(arenas[i].length, 1);
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the heap retained by the tree: the dictionary object and its
+     * arrays of references, lengths and children, at their allocated capacity.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimateNodeBytes() {
+        return ObjectLayout.objectBytes(5, 5 * 4 + 2 * 8)               // arenas and the per-word arrays; ints and counters
+            + ObjectLayout.arrayBytes(refs.length, 8)
+            + 3 * ObjectLayout.arrayBytes(refs.length, 4);
+    }
+
+    /**
+     * Gets the number of arenas allocated.
+     *
+     * @return The number of arenas.
+     */
+    public int getArenaCount() {
+        return arenaCount;
+    }
+
+    /**
+     * Returns the height of the tree, the number of nodes on the longest path
+     * from the root to a leaf.
+     *
+     * @return The height of the tree, or 0 if it is empty.
+     */
+    public int getHeight() {
+        return getShape().getMaxDepth();
+    }
+
+    /**
+     * Computes the shape statistics of the tree in one level-order pass.
+     *
+     * @return The shape of the tree.
+     */
+    public TreeShape getShape() {
+        long[] depthCounts = new long[16];
+        int depth = 0;
+        int[] level = new int[root == NIL ? 0 : 1];
+        if (root != NIL) level[0] = root;
+        while (level.length > 0) {
+            if (depth == depthCounts.length) depthCounts = Arrays.copyOf(depthCounts, depth * 2);
+            depthCounts[depth++] = level.length;
+            int[] next = new int[level.length * 2];
+            int width = 0;
+            for (int node : level) {
+                if (left[node] != NIL) next[width++] = left[node];
+                if (right[node] != NIL) next[width++] = right[node];
+            }
+            level = Arrays.copyOf(next, width);
+        }
+        return new TreeShape(Arrays.copyOf(depthCounts, depth));
+    }
+
+    /**
+     * Returns the number of lookups and additions performed since the dictionary
+     * was created, loaded or last reset.
+     *
+     * @return The number of operations.
+     */
+    public long getOperationCount() {
+        return operations;
+    }
+
+    /**
+     * Returns the number of word comparisons made by the operations counted by
+     * {@link #getOperationCount()}.
+     *
+     * @return The number of comparisons.
+     */
+    public long getComparisonCount() {
+        return comparisons;
+    }
+
+    /**
+     * Resets the operation and comparison counters to zero.
+     */
+    public void resetCounters() {
+        operations = 0;
+        comparisons = 0;
+    }
+
+    /**
+     * Returns an iterator over the ids of the words in ascending order of the
+     * words.
+     *
+     * @return An inorder iterator of ids.
+     */
+    public PrimitiveIterator.OfInt inorderIterator() {
+        return new InorderIterator();
+    }
+
+    /**
+     * Compares a word with a word of the dictionary, character by byte.
+     *
+     * @param word The word.
+     * @param id The id of the word in the dictionary.
+     * @return A negative integer, zero, or a positive integer as the word is less
+     *         than, equal to, or greater than the word with the id.
+     */
+    private int compare(CharSequence word, int id) {
+        byte[] arena = arenas[(int) (refs[id] >>> 32)];
+        int offset = (int) refs[id];
+        int length = Math.min(word.length(), lengths[id]);
+        for (int i = 0; i < length; i++) {
+            int difference = word.charAt(i) - (arena[offset + i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return word.length() - lengths[id];
+    }
+
+    /**
+     * Copies the bytes of a new word into an arena and gives it the next id,
+     * starting a new arena when the last one is full.
+     *
+     * @param word The word.
+     * @return The id of the word, a leaf of the tree.
+     * @throws IllegalArgumentException If the word contains a character that is not Latin-1.
+     */
+    private int store(CharSequence word) throws IllegalArgumentException {
+        int length = word.length();
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) > 0xFF) throw new IllegalArgumentException("Not a Latin-1 word: " + word);
+        }
+        if (arenaCount == 0 || arenaUsed + length > arenas[arenaCount - 1].length) {
+            if (arenaCount == arenas.length) arenas = Arrays.copyOf(arenas, arenaCount * 2);
+            arenas[arenaCount++] = new byte[Math.max(ARENA_SIZE, length)];
+            arenaUsed = 0;
+        }
+        byte[] arena = arenas[arenaCount - 1];
+        for (int i = 0; i < length; i++) {
+            arena[arenaUsed + i] = (byte) word.charAt(i);
+        }
+
+        if (size == refs.length) {
+            int capacity = refs.length * 2;
+            refs = Arrays.copyOf(refs, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+        int id = size++;
+        refs[id] = (long) (arenaCount - 1) << 32 | arenaUsed;
+        lengths[id] = length;
+        left[id] = NIL;
+        right[id] = NIL;
+        arenaUsed += length;
+        modCount++;
+        return id;
+    }
+
+    /**
+     * Checks that an id belongs to a word.
+     *
+     * @param id The id.
+     * @throws IndexOutOfBoundsException If there is no word with the id.
+     */
+    private void checkId(int id) throws IndexOutOfBoundsException {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("No word with id " + id);
+    }
+
+    /**
+     * An inorder iterator that walks the tree with an explicit stack of ids.
+     */
+    private class InorderIterator implements PrimitiveIterator.OfInt {
+        private final int expectedModCount = modCount;
+        private int[] stack = new int[16];
+        private int top;
+        private int current = root;   // Next subtree to descend into
+
+        /**
+         * Checks if there are more words in the iteration.
+         *
+         * @return True if there are more words, false otherwise.
+         */
+        @Override
+        public boolean hasNext() {
+            return top > 0 || current != NIL;
+        }
+
+        /**
+         * Returns the id of the next word in the iteration.
+         *
+         * @return The next id.
+         * @throws NoSuchElementException If there are no more words.
+         * @throws ConcurrentModificationException If a word was added.
+         */
+        @Override
+        public int nextInt() throws NoSuchElementException {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            while (current != NIL) {
+                if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = current;
+                current = left[current];
+            }
+            int node = stack[--top];
+            current = right[node];
+            return node;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package implementations;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * IntBSTree.java
+ *
+ * A Binary Search Tree of int keys, with the operations of BSTree but without
+ * boxing. Nodes are not objects: node i is stored as keys[i], left[i] and
+ * right[i] in parallel arrays, where a child of NIL means there is none, so
+ * adding a key allocates nothing unless the arrays have to grow. Slots of
+ * removed nodes are reused.
+ *
+ * Keys are compared with the primitive comparison of int, and the iterators
+ * return primitives through PrimitiveIterator.OfInt without allocating per key.
+ * The iterators walk the tree directly rather than a copy of it, so the tree must
+ * not be modified while they are used.
+ */
+public class IntBSTree implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int NIL = -1;
+    private int[] keys;
+    private int[] left;          // Also links the free slots together
+    private int[] right;
+    private int root = NIL;
+    private int size;
+    private int used;            // Slots handed out so far; slots at or above this have never been used
+    private int free = NIL;      // First free slot below used
+    private transient int modCount;
+
+    /**
+     * Constructs an empty tree.
+     */
+    public IntBSTree() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty tree with room for the given number of keys.
+     *
+     * @param capacity The initial capacity.
+     */
+    public IntBSTree(int capacity) {
+        keys = new int[Math.max(1, capacity)];
+        left = new int[keys.length];
+        right = new int[keys.length];
+    }
+
+    /**
+     * Returns the height of the tree, the number of nodes on the longest path
+     * from the root to a leaf.
+     *
+     * @return The height of the tree, or 0 if it is empty.
+     */
+    public int getHeight() {
+        if (root == NIL) return 0;
+        int height = 0;
+        int[] nodes = new int[16];
+        int[] depths = new int[16];
+        int top = 0;
+        nodes[top] = root;
+        depths[top++] = 1;
+        while (top > 0) {
+            int node = nodes[--top];
+            int depth = depths[top];
+            height = Math.max(height, depth);
+            if (top + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                depths = Arrays.copyOf(depths, nodes.length);
+            }
+            if (left[node] != NIL) {
+                nodes[top] = left[node];
+                depths[top++] = depth + 1;
+            }
+            if (right[node] != NIL) {
+                nodes[top] = right[node];
+                depths[top++] = depth + 1;
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Returns the number of keys in the tree.
+     *
+     * @return The size of the tree.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the tree is empty.
+     *
+     * @return True if the tree holds no keys, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all keys from the tree, keeping its capacity.
+     */
+    public void clear() {
+        root = NIL;
+        size = 0;
+        used = 0;
+        free = NIL;
+        modCount++;
+    }
+
+    /**
+     * Checks if the tree contains a key.
+     *
+     * @param key The key to search for.
+     * @return True if the key is present, false otherwise.
+     */
+    public boolean contains(int key) {
+        int node = root;
+        while (node != NIL) {
+            int k = keys[node];
+            if (key == k) return true;
+            node = key < k ? left[node] : right[node];
+        }
+        return false;
+    }
+
+    /**
+     * Adds a key to the tree. Duplicates are not allowed.
+     *
+     * @param key The key to add.
+     * @return True if the key was added, false if it was already present.
+     */
+    public boolean add(int key) {
+        int parent = NIL;
+        int node = root;
+        while (node != NIL) {
+            int k = keys[node];
+            if (key == k) return false;
+            parent = node;
+            node = key < k ? left[node] : right[node];
+        }
+
+        int slot = allocate(key);
+        if (parent == NIL) {
+            root = slot;
+        } else if (key < keys[parent]) {
+            left[parent] = slot;
+        } else {
+            right[parent] = slot;
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes a key from the tree. A node with two children is replaced by its
+     * inorder successor.
+     *
+     * @param key The key to remove.
+     * @return True if the key was removed, false if it was not present.
+     */
+    public boolean remove(int key) {
+        int parent = NIL;
+        int node = root;
+        while (node != NIL && keys[node] != key) {
+            parent = node;
+            node = key < keys[node] ? left[node] : right[node];
+        }
+        if (node == NIL) return false;
+
+        if (left[node] != NIL && right[node] != NIL) {
+            // Move the successor's key up and unlink the successor instead
+            int successorParent = node;
+            int successor = right[node];
+            while (left[successor] != NIL) {
+                successorParent = successor;
+                successor = left[successor];
+            }
+            keys[node] = keys[successor];
+            parent = successorParent;
+            node = successor;
+        }
+        unlink(parent, node, left[node] != NIL ? left[node] : right[node]);
+        return true;
+    }
+
+    /**
+     * Removes the smallest key from the tree.
+     *
+     * @return The key removed.
+     * @throws NoSuchElementException If the tree is empty.
+     */
+    public int removeMin() throws NoSuchElementException {
+        if (root == NIL) throw new NoSuchElementException("Tree is empty");
+        int parent = NIL;
+        int node = root;
+        while (left[node] != NIL) {
+            parent = node;
+            node = left[node];
+        }
+        int key = keys[node];
+        unlink(parent, node, right[node]);
+        return key;
+    }
+
+    /**
+     * Removes the largest key from the tree.
+     *
+     * @return The key removed.
+     * @throws NoSuchElementException If the tree is empty.
+     */
+    public int removeMax() throws NoSuchElementException {
+        if (root == NIL) throw new NoSuchElementException("Tree is empty");
+        int parent = NIL;
+        int node = root;
+        while (right[node] != NIL) {
+            parent = node;
+            node = right[node];
+        }
+        int key = keys[node];
+        unlink(parent, node, left[node]);
+        return key;
+    }
+
+    /**
+     * Returns an iterator over the keys in ascending order.
+     *
+     * @return An inorder iterator.
+     */
+    public PrimitiveIterator.OfInt inorderIterator() {
+        return new TreeIterator(Order.INORDER);
+    }
+
+    /**
+     * Returns an iterator over the keys in preorder (node, left, right).
+     *
+     * @return A preorder iterator.
+     */
+    public PrimitiveIterator.OfInt preorderIterator() {
+        return new TreeIterator(Order.PREORDER);
+    }
+
+    /**
+     * Returns an iterator over the keys in postorder (left, right, node).
+     *
+     * @return A postorder iterator.
+     */
+    public PrimitiveIterator.OfInt postorderIterator() {
+        return new TreeIterator(Order.POSTORDER);
+    }
+
+    /**
+     * Takes a slot for a new leaf, reusing a free slot if there is one.
+     *
+     * @param key The key of the new node.
+     * @return The slot of the new node.
+     */
+    private int allocate(int key) {
+        int slot;
+        if (free != NIL) {
+            slot = free;
+            free = left[slot];
+        } else {
+            if (used == keys.length) {
+                int capacity = keys.length * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+            }
+            slot = used++;
+        }
+        keys[slot] = key;
+        left[slot] = NIL;
+        right[slot] = NIL;
+        return slot;
+    }
+
+    /**
+     * Replaces a node that has at most one child by that child, and frees its slot.
+     *
+     * @param parent The parent of the node, or NIL if it is the root.
+     * @param node The node to remove.
+     * @param child The only child of the node, or NIL.
+     */
+    private void unlink(int parent, int node, int child) {
+        if (parent == NIL) {
+            root = child;
+        } else if (left[parent] == node) {
+            left[parent] = child;
+        } else {
+            right[parent] = child;
+        }
+        left[node] = free;
+        free = node;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * The three traversal orders.
+     */
+    private enum Order {
+        PREORDER, INORDER, POSTORDER
+    }
+
+    /**
+     * An iterator that walks the tree with an explicit stack of slots, so memory
+     * use is proportional to the height of the tree and no key is boxed.
+     */
+    private class TreeIterator implements PrimitiveIterator.OfInt {
+        private final Order order;
+        private final int expectedModCount = modCount;
+        private int[] stack = new int[16];
+        private int top;
+        private int current;             // Inorder: next subtree to descend into
+        private int lastVisited = NIL;   // Postorder: the node returned last
+
+        /**
+         * Constructs an iterator positioned before the first key.
+         *
+         * @param order The traversal order.
+         */
+        TreeIterator(Order order) {
+            this.order = order;
+            if (order == Order.INORDER) {
+                current = root;
+            } else if (root != NIL) {
+                push(root);
+            }
+        }
+
+        /**
+         * Checks if there are more keys in the iteration.
+         *
+         * @return True if there are more keys, false otherwise.
+         */
+        @Override
+        public boolean hasNext() {
+            return top > 0 || (order == Order.INORDER && current != NIL);
+        }
+
+        /**
+         * Returns the next key in the iteration.
+         *
+         * @return The next key.
+         * @throws NoSuchElementException If there are no more keys.
+         * @throws ConcurrentModificationException If the tree was modified.
+         */
+        @Override
+        public int nextInt() throws NoSuchElementException {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            int node;
+            switch (order) {
+                case PREORDER:
+                    node = stack[--top];
+                    if (right[node] != NIL) push(right[node]);
+                    if (left[node] != NIL) push(left[node]);
+                    return keys[node];
+                case INORDER:
+                    while (current != NIL) {
+                        push(current);
+                        current = left[current];
+                    }
+                    node = stack[--top];
+                    current = right[node];
+                    return keys[node];
+                default:
+                    while (true) {
+                        node = stack[top - 1];
+                        boolean childrenDone = (left[node] == NIL && right[node] == NIL)
+                            || (lastVisited != NIL && (left[node] == lastVisited || right[node] == lastVisited));
+                        if (childrenDone) break;
+                        if (right[node] != NIL) push(right[node]);
+                        if (left[node] != NIL) push(left[node]);
+                    }
+                    top--;
+                    lastVisited = node;
+                    return keys[node];
+            }
+        }
+
+        /**
+         * Pushes a slot onto the stack.
+         *
+         * @param node The slot.
+         */
+        private void push(int node) {
+            if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+            stack[top++] = node;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package implementations;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * ObjectLayout.java
+ *
+ * Sizes of objects on the running JVM, for estimating how much heap a data
+ * structure retains without taking a heap dump. An object takes a header, its
+ * fields, and padding up to the object alignment; an array takes an array
+ * header and its elements, padded the same way. The header and reference sizes
+ * depend on whether the JVM uses compressed references, which HotSpot does for
+ * heaps below 32 GB, and compressed class pointers, which it keeps from Java 15
+ * even for larger heaps, so they are read from the JVM options when it starts.
+ *
+ * The sizes are those of HotSpot. Field layout is assumed to be packed without
+ * gaps, which is what HotSpot does for the classes of this project, so the
+ * estimates are exact for them and close for other JVMs. Strings are sized as
+ * Latin-1 byte arrays when the JVM has compact strings (Java 9 and later) and
+ * as char arrays otherwise.
+ */
+public final class ObjectLayout {
+    /** Whether references are compressed to 32 bits. */
+    public static final boolean COMPRESSED_REFERENCES = booleanOption("UseCompressedOops", true);
+    /** The size of a reference field or array element. */
+    public static final int REFERENCE_BYTES = COMPRESSED_REFERENCES ? 4 : 8;
+    private static final boolean COMPRESSED_CLASS_POINTERS = booleanOption("UseCompressedClassPointers", COMPRESSED_REFERENCES);
+    /** The size of an object header: the mark word and the class pointer. */
+    public static final int HEADER_BYTES = COMPRESSED_CLASS_POINTERS ? 12 : 16;
+    /** The size of an array header, including its length. */
+    public static final int ARRAY_HEADER_BYTES = COMPRESSED_CLASS_POINTERS ? 16 : 24;
+    /** The alignment every object is padded to. */
+    public static final int ALIGNMENT = intOption("ObjectAlignmentInBytes", 8);
+    private static final boolean COMPACT_STRINGS = booleanOption("CompactStrings", false);  // Absent before Java 9
+    private static final long STRING_BYTES = objectBytes(1, COMPACT_STRINGS ? 6 : 4);       // value; hash, coder and hashIsZero
+
+    /**
+     * Prevents instantiation; all members are static.
+     */
+    private ObjectLayout() {
+    }
+
+    /**
+     * Gets the size of an object with the given fields, including its header
+     * and padding. Fields inherited from superclasses count as fields.
+     *
+     * @param references The number of reference fields.
+     * @param primitiveBytes The total size of the primitive fields.
+     * @return The size of the object in bytes.
+     */
+    public static long objectBytes(int references, int primitiveBytes) {
+        return align(HEADER_BYTES + (long) references * REFERENCE_BYTES + primitiveBytes);
+    }
+
+    /**
+     * Gets the size of an array of primitives, including its header and padding.
+     *
+     * @param length The number of elements.
+     * @param elementBytes The size of an element, such as 4 for an int.
+     * @return The size of the array in bytes.
+     */
+    public static long arrayBytes(long length, int elementBytes) {
+        return align(ARRAY_HEADER_BYTES + length * elementBytes);
+    }
+
+    /**
+     * Gets the size of an array of references, including its header and padding.
+     *
+     * @param length The number of elements.
+     * @return The size of the array in bytes.
+     */
+    public static long referenceArrayBytes(long length) {
+        return arrayBytes(length, REFERENCE_BYTES);
+    }
+
+    /**
+     * Gets the size of a String together with its character array. With compact
+     * strings a String whose characters are all Latin-1 takes one byte per
+     * character, and any other String two.
+     *
+     * @param string The String.
+     * @return The size of the String and its array in bytes.
+     */
+    public static long stringBytes(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xFF) return stringBytes(string.length(), false);
+        }
+        return stringBytes(string.length(), true);
+    }
+
+    /**
+     * Gets the size of a String of a given length together with its character
+     * array.
+     *
+     * @param length The number of characters.
+     * @param latin1 Whether all characters are Latin-1.
+     * @return The size of the String and its array in bytes.
+     */
+    public static long stringBytes(int length, boolean latin1) {
+        return STRING_BYTES + arrayBytes(length, COMPACT_STRINGS && latin1 ? 1 : 2);
+    }
+
+    /**
+     * Rounds a size up to the object alignment.
+     *
+     * @param bytes The size.
+     * @return The padded size.
+     */
+    public static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Reads a boolean option of the JVM.
+     *
+     * @param name The name of the option.
+     * @param absent The value to use if the JVM does not have the option.
+     * @return The value of the option.
+     */
+    private static boolean booleanOption(String name, boolean absent) {
+        String value = option(name);
+        return value == null ? absent : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Reads an integer option of the JVM.
+     *
+     * @param name The name of the option.
+     * @param absent The value to use if the JVM does not have the option.
+     * @return The value of the option.
+     */
+    private static int intOption(String name, int absent) {
+        String value = option(name);
+        try {
+            return value == null ? absent : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return absent;
+        }
+    }
+
+    /**
+     * Reads an option of the JVM through its diagnostic bean.
+     *
+     * @param name The name of the option.
+     * @return The value of the option, or null if the JVM does not have it or is not HotSpot.
+     */
+    private static String option(String name) {
+        try {
+            return ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption(name).getValue();
+        } catch (RuntimeException | LinkageError e) {  // Unknown option, or no HotSpot bean
+            return null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package implementations;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * TreeShape.java
+ *
+ * Shape statistics of a binary search tree, describing how long searches are.
+ * Depths start at 1 for the root, so the depth of a node is the number of nodes
+ * a successful search for its element visits, and the greatest depth equals the
+ * height of the tree.
+ *
+ * The imbalance ratio compares the height with the smallest possible height for
+ * the same number of elements, ceil(log2(size + 1)): 1.0 means the tree is as
+ * balanced as possible, and a ratio near size / log2(size) means it has
+ * degenerated into a list.
+ */
+public final class TreeShape {
+    private final long[] depthCounts;  // depthCounts[d] is the number of nodes at depth d + 1
+
+    /**
+     * Creates shape statistics from a depth histogram.
+     *
+     * @param depthCounts The number of nodes at each depth, starting with depth 1.
+     */
+    TreeShape(long[] depthCounts) {
+        this.depthCounts = depthCounts;
+    }
+
+    /**
+     * Combines the shapes of several trees that are searched independently, such
+     * as the shards of a repository, by adding up their depth histograms.
+     *
+     * @param shapes The shapes to combine.
+     * @return The combined shape.
+     */
+    public static TreeShape combine(Collection<TreeShape> shapes) {
+        long[] counts = new long[0];
+        for (TreeShape shape : shapes) {
+            if (shape.depthCounts.length > counts.length) counts = Arrays.copyOf(counts, shape.depthCounts.length);
+            for (int d = 0; d < shape.depthCounts.length; d++) {
+                counts[d] += shape.depthCounts[d];
+            }
+        }
+        return new TreeShape(counts);
+    }
+
+    /**
+     * Gets the number of nodes at every depth.
+     *
+     * @return A copy of the histogram, where element d holds the number of nodes at depth d + 1.
+     */
+    public long[] getDepthHistogram() {
+        return depthCounts.clone();
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return The number of nodes.
+     */
+    public long getSize() {
+        long size = 0;
+        for (long count : depthCounts) size += count;
+        return size;
+    }
+
+    /**
+     * Gets the length of the longest search path, which is the height of the tree.
+     *
+     * @return The maximum depth, or 0 for an empty tree.
+     */
+    public int getMaxDepth() {
+        return depthCounts.length;
+    }
+
+    /**
+     * Gets the average number of nodes visited by a successful search, assuming
+     * every element is searched equally often.
+     *
+     * @return The average depth, or 0 for an empty tree.
+     */
+    public double getAverageDepth() {
+        long size = 0;
+        long total = 0;
+        for (int d = 0; d < depthCounts.length; d++) {
+            size += depthCounts[d];
+            total += depthCounts[d] * (d + 1);
+        }
+        return size == 0 ? 0 : (double) total / size;
+    }
+
+    /**
+     * Gets the smallest height a binary tree with the same number of nodes can have.
+     *
+     * @return ceil(log2(size + 1)).
+     */
+    public int getOptimalHeight() {
+        return 64 - Long.numberOfLeadingZeros(getSize());
+    }
+
+    /**
+     * Gets the ratio of the height to the smallest possible height.
+     *
+     * @return The imbalance ratio; 1.0 for a balanced or empty tree.
+     */
+    public double getImbalanceRatio() {
+        int optimal = getOptimalHeight();
+        return optimal == 0 ? 1.0 : (double) getMaxDepth() / optimal;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d nodes, height %d (optimal %d, imbalance %.2f), average search path %.2f",
+            getSize(), getMaxDepth(), getOptimalHeight(), getImbalanceRatio(), getAverageDepth());
+    }
+}
@@ -0,0 +1,374 @@
+package benchmarks;
+
+import implementations.BSTree;
+import utilities.Iterator;
+
+import java.util.*;
+
+/**
+ * BSTreeBenchmark.java
+ *
+ * Measures the operations of BSTree against java.util.TreeMap as a baseline, on
+ * trees of 10^3 to 10^7 integer keys inserted in one of three orders:
+ * - random: the keys 0..n-1 shuffled; lookups are uniformly random.
+ * - sorted: the keys 0..n-1 ascending; lookups sweep the keys in order. BSTree
+ *   does not rebalance, so this degenerates into a list and its cost grows
+ *   quadratically; it only runs up to --max-sorted elements.
+ * - zipf: n draws from a Zipf distribution (exponent 1) over n ranks, like the
+ *   words of a text, so the tree holds fewer distinct keys and lookups favour a
+ *   few hot keys. Ranks are scrambled so that hot keys are spread over the tree.
+ *
+ * Results are printed to standard output as CSV (see Harness); progress goes to
+ * standard error. The recursive parts of BSTree run on a thread with a large
+ * stack. Sizes of 10^7 need a heap of a few gigabytes (-Xmx4g).
+ *
+ * Usage: java -cp <classes> benchmarks.BSTreeBenchmark [--sizes 1000,10000,...]
+ *        [--distributions random,sorted,zipf] [--benchmarks add,search,...]
+ *        [--warmup N] [--iterations N] [--max-sorted N] [--seed N]
+ */
+public class BSTreeBenchmark {
+    private static final List<String> BENCHMARKS = Arrays.asList(
+        "add", "search", "contains", "removeMin", "removeMax",
+        "inorderIterator", "preorderIterator", "postorderIterator", "forEachInorder");
+    private static final int MAX_QUERIES = 1_000_000;          // Lookups per iteration
+    private static final long STACK_SIZE = 1L << 30;           // For recursion on degenerate trees
+    private final Harness harness;
+    private final List<String> benchmarks;
+    private final long seed;
+
+    /**
+     * Constructs a benchmark run.
+     *
+     * @param harness The harness to run and print the benchmarks with.
+     * @param benchmarks The names of the operations to measure.
+     * @param seed The seed of the key generator.
+     */
+    public BSTreeBenchmark(Harness harness, List<String> benchmarks, long seed) {
+        this.harness = harness;
+        this.benchmarks = benchmarks;
+        this.seed = seed;
+    }
+
+    /**
+     * Measures every selected operation on one key set, for BSTree and TreeMap.
+     *
+     * @param distribution The key distribution.
+     * @param size The number of keys to insert.
+     */
+    public void run(Distribution distribution, int size) {
+        Random random = new Random(seed ^ size);
+        Integer[] keys = distribution.keys(size, random);
+        Integer[] queries = distribution.queries(keys, Math.min(size, MAX_QUERIES), random);
+        String name = distribution.name().toLowerCase(Locale.ROOT);
+
+        BSTree<Integer> tree = buildTree(keys);
+        TreeMap<Integer, Integer> map = buildMap(keys);
+        int distinct = tree.size();
+
+        for (String benchmark : benchmarks) {
+            System.err.println("Running " + benchmark + " on " + name + " keys, n=" + size);
+            switch (benchmark) {
+                case "add":
+                    harness.run(benchmark, "BSTree", name, size, keys.length, BSTree::new, (BSTree<Integer> t) -> {
+                        for (Integer key : keys) t.add(key);
+                        return t.size();
+                    });
+                    harness.run(benchmark, "TreeMap", name, size, keys.length, TreeMap::new, (TreeMap<Integer, Integer> m) -> {
+                        for (Integer key : keys) m.put(key, key);
+                        return m.size();
+                    });
+                    break;
+                case "search":
+                    harness.run(benchmark, "BSTree", name, size, queries.length, () -> tree, t -> {
+                        long found = 0;
+                        for (Integer key : queries) if (t.search(key) != null) found++;
+                        return found;
+                    });
+                    harness.run(benchmark, "TreeMap", name, size, queries.length, () -> map, m -> {
+                        long found = 0;
+                        for (Integer key : queries) if (m.get(key) != null) found++;
+                        return found;
+                    });
+                    break;
+                case "contains":
+                    harness.run(benchmark, "BSTree", name, size, queries.length, () -> tree, t -> {
+                        long found = 0;
+                        for (Integer key : queries) if (t.contains(key)) found++;
+                        return found;
+                    });
+                    harness.run(benchmark, "TreeMap", name, size, queries.length, () -> map, m -> {
+                        long found = 0;
+                        for (Integer key : queries) if (m.containsKey(key)) found++;
+                        return found;
+                    });
+                    break;
+                case "removeMin":
+                    harness.run(benchmark, "BSTree", name, size, distinct, () -> buildTree(keys), t -> {
+                        long sum = 0;
+                        while (!t.isEmpty()) sum += t.removeMin().getElement();
+                        return sum;
+                    });
+                    harness.run(benchmark, "TreeMap", name, size, distinct, () -> buildMap(keys), m -> {
+                        long sum = 0;
+                        while (!m.isEmpty()) sum += m.pollFirstEntry().getKey();
+                        return sum;
+                    });
+                    break;
+                case "removeMax":
+                    harness.run(benchmark, "BSTree", name, size, distinct, () -> buildTree(keys), t -> {
+                        long sum = 0;
+                        while (!t.isEmpty()) sum += t.removeMax().getElement();
+                        return sum;
+                    });
+                    harness.run(benchmark, "TreeMap", name, size, distinct, () -> buildMap(keys), m -> {
+                        long sum = 0;
+                        while (!m.isEmpty()) sum += m.pollLastEntry().getKey();
+                        return sum;
+                    });
+                    break;
+                case "inorderIterator":
+                case "preorderIterator":
+                case "postorderIterator":
+                    harness.run(benchmark, "BSTree", name, size, distinct, () -> tree, t -> sum(iterator(t, benchmark)));
+                    harness.run(benchmark, "TreeMap", name, size, distinct, () -> map, m -> {
+                        long sum = 0;  // TreeMap only iterates in order; its key iterator is the baseline for all three
+                        for (Integer key : m.keySet()) sum += key;
+                        return sum;
+                    });
+                    break;
+                case "forEachInorder":
+                    harness.run(benchmark, "BSTree", name, size, distinct, () -> tree, t -> {
+                        long[] sum = new long[1];
+                        t.forEachInorder(key -> sum[0] += key);
+                        return sum[0];
+                    });
+                    harness.run(benchmark, "TreeMap", name, size, distinct, () -> map, m -> {
+                        long[] sum = new long[1];
+                        m.forEach((key, value) -> sum[0] += key);
+                        return sum[0];
+                    });
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown benchmark: " + benchmark);
+            }
+        }
+    }
+
+    /**
+     * Gets one of the iterators of a tree.
+     *
+     * @param tree The tree.
+     * @param benchmark The name of the iterator benchmark.
+     * @return The iterator.
+     */
+    private static Iterator<Integer> iterator(BSTree<Integer> tree, String benchmark) {
+        switch (benchmark) {
+            case "preorderIterator":
+                return tree.preorderIterator();
+            case "postorderIterator":
+                return tree.postorderIterator();
+            default:
+                return tree.inorderIterator();
+        }
+    }
+
+    /**
+     * Adds up the elements returned by an iterator.
+     *
+     * @param iterator The iterator.
+     * @return The sum of the elements.
+     */
+    private static long sum(Iterator<Integer> iterator) {
+        long sum = 0;
+        while (iterator.hasNext()) sum += iterator.next();
+        return sum;
+    }
+
+    /**
+     * Builds a BSTree from keys in the given order.
+     *
+     * @param keys The keys.
+     * @return The tree.
+     */
+    private static BSTree<Integer> buildTree(Integer[] keys) {
+        BSTree<Integer> tree = new BSTree<>();
+        for (Integer key : keys) tree.add(key);
+        return tree;
+    }
+
+    /**
+     * Builds a TreeMap from keys in the given order.
+     *
+     * @param keys The keys.
+     * @return The map from every key to itself.
+     */
+    private static TreeMap<Integer, Integer> buildMap(Integer[] keys) {
+        TreeMap<Integer, Integer> map = new TreeMap<>();
+        for (Integer key : keys) map.put(key, key);
+        return map;
+    }
+
+    /**
+     * The orders in which keys are inserted and looked up.
+     */
+    public enum Distribution {
+        RANDOM {
+            @Override
+            Integer[] keys(int size, Random random) {
+                Integer[] keys = SORTED.keys(size, random);
+                Collections.shuffle(Arrays.asList(keys), random);
+                return keys;
+            }
+
+            @Override
+            Integer[] queries(Integer[] keys, int count, Random random) {
+                Integer[] queries = new Integer[count];
+                for (int i = 0; i < count; i++) queries[i] = keys[random.nextInt(keys.length)];
+                return queries;
+            }
+        },
+        SORTED {
+            @Override
+            Integer[] keys(int size, Random random) {
+                Integer[] keys = new Integer[size];
+                for (int i = 0; i < size; i++) keys[i] = i;
+                return keys;
+            }
+
+            @Override
+            Integer[] queries(Integer[] keys, int count, Random random) {
+                Integer[] queries = new Integer[count];
+                for (int i = 0; i < count; i++) queries[i] = keys[(int) ((long) i * keys.length / count)];
+                return queries;
+            }
+        },
+        ZIPF {
+            @Override
+            Integer[] keys(int size, Random random) {
+                return zipf(size, size, random);
+            }
+
+            @Override
+            Integer[] queries(Integer[] keys, int count, Random random) {
+                return zipf(keys.length, count, random);
+            }
+        };
+
+        /**
+         * Generates the keys to insert.
+         *
+         * @param size The number of keys.
+         * @param random The source of randomness.
+         * @return The keys in insertion order.
+         */
+        abstract Integer[] keys(int size, Random random);
+
+        /**
+         * Generates the keys to look up.
+         *
+         * @param keys The keys that were inserted.
+         * @param count The number of lookups.
+         * @param random The source of randomness.
+         * @return The keys in lookup order.
+         */
+        abstract Integer[] queries(Integer[] keys, int count, Random random);
+
+        /**
+         * Draws scrambled ranks from a Zipf distribution with exponent 1.
+         *
+         * @param ranks The number of ranks.
+         * @param count The number of draws.
+         * @param random The source of randomness.
+         * @return The drawn keys.
+         */
+        private static Integer[] zipf(int ranks, int count, Random random) {
+            double[] cumulative = new double[ranks];
+            double total = 0;
+            for (int i = 0; i < ranks; i++) {
+                total += 1.0 / (i + 1);
+                cumulative[i] = total;
+            }
+            Integer[] keys = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                if (rank < 0) rank = -rank - 1;
+                keys[i] = Math.min(rank, ranks - 1) * 0x9E3779B1;  // Bijective scramble of the rank
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Parses the options and runs the selected benchmarks.
+     *
+     * @param args The command-line arguments.
+     * @throws InterruptedException If interrupted while waiting for the benchmarks.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        List<Integer> sizes = Arrays.asList(1_000, 10_000, 100_000, 1_000_000);
+        List<Distribution> distributions = Arrays.asList(Distribution.values());
+        List<String> benchmarks = BENCHMARKS;
+        int warmup = 3;
+        int iterations = 5;
+        int maxSorted = 10_000;
+        long seed = 42;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = args[++i];
+                switch (args[i - 1]) {
+                    case "--sizes":
+                        sizes = new ArrayList<>();
+                        for (String size : value.split(",")) sizes.add((int) Double.parseDouble(size));
+                        break;
+                    case "--distributions":
+                        distributions = new ArrayList<>();
+                        for (String name : value.split(",")) distributions.add(Distribution.valueOf(name.toUpperCase(Locale.ROOT)));
+                        break;
+                    case "--benchmarks":
+                        benchmarks = Arrays.asList(value.split(","));
+                        if (!BENCHMARKS.containsAll(benchmarks)) throw new IllegalArgumentException(value);
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(value);
+                        break;
+                    case "--iterations":
+                        iterations = Integer.parseInt(value);
+                        break;
+                    case "--max-sorted":
+                        maxSorted = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[i - 1]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: java benchmarks.BSTreeBenchmark [--sizes 1000,10000,...] [--distributions random,sorted,zipf] "
+                + "[--benchmarks " + String.join(",", BENCHMARKS) + "] [--warmup N] [--iterations N] [--max-sorted N] [--seed N]");
+            System.exit(2);
+            return;
+        }
+
+        Harness harness = new Harness(warmup, iterations, System.out);
+        BSTreeBenchmark benchmark = new BSTreeBenchmark(harness, benchmarks, seed);
+        List<Integer> selectedSizes = sizes;
+        List<Distribution> selectedDistributions = distributions;
+        int sortedLimit = maxSorted;
+        Thread runner = new Thread(null, () -> {
+            harness.printHeader();
+            for (Distribution distribution : selectedDistributions) {
+                for (int size : selectedSizes) {
+                    if (distribution == Distribution.SORTED && size > sortedLimit) {
+                        System.err.println("Skipping sorted keys, n=" + size + " (above --max-sorted " + sortedLimit + ")");
+                        continue;
+                    }
+                    benchmark.run(distribution, size);
+                }
+            }
+        }, "benchmark", STACK_SIZE);
+        runner.start();
+        runner.join();
+    }
+}
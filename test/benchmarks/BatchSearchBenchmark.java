@@ -0,0 +1,164 @@
+package benchmarks;
+
+import WordTracker.WordInfo;
+import implementations.BSTree;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * BatchSearchBenchmark.java
+ *
+ * Measures looking up a sorted batch of keys with one BSTree.searchAll call
+ * against calling BSTree.search for every key of the batch in turn, for batch
+ * sizes from 10 to 10^6. Each iteration looks up about 10^6 keys in all, split
+ * into distinct random batches of the given size, so small batches are timed
+ * over many calls. Batches are sorted before timing, as searchAll requires;
+ * the individual searches get them in the same order.
+ *
+ * Two kinds of keys are used, on trees built by inserting in random order:
+ * - integers: the even numbers below twice the tree size; half of the lookups
+ *   are odd numbers, which miss.
+ * - words: WordInfo objects of random words of 3 to 12 letters; half of the
+ *   lookups are words that are not in the tree.
+ *
+ * Results are printed as CSV (see Harness), with the batch size in the
+ * distribution column and the tree size in the size column.
+ *
+ * Usage: java -cp <classes> benchmarks.BatchSearchBenchmark [--tree-size N]
+ *        [--batches 10,100,...] [--warmup N] [--iterations N] [--seed N]
+ */
+public class BatchSearchBenchmark {
+    private static final int QUERIES = 1_000_000;  // Lookups per iteration, at least one batch
+
+    /**
+     * Measures both ways of looking up a set of batches.
+     *
+     * @param <E> The type of keys.
+     * @param harness The harness to run and print the benchmarks with.
+     * @param structure The name of the kind of keys.
+     * @param tree The tree to search.
+     * @param batches The batches, each sorted.
+     * @param batchSize The number of keys in a batch.
+     */
+    private static <E extends Comparable<? super E>> void run(Harness harness, String structure, BSTree<E> tree,
+                                                              List<List<E>> batches, int batchSize) {
+        String distribution = "batch-" + batchSize;
+        long lookups = (long) batches.size() * batchSize;
+        harness.run("search", structure, distribution, tree.size(), lookups, () -> tree, t -> {
+            long found = 0;
+            for (List<E> batch : batches) {
+                for (E key : batch) if (t.search(key) != null) found++;
+            }
+            return found;
+        });
+        harness.run("searchAll", structure, distribution, tree.size(), lookups, () -> tree, t -> {
+            long found = 0;
+            for (List<E> batch : batches) {
+                for (Object node : t.searchAll(batch)) if (node != null) found++;
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Draws sorted batches of keys.
+     *
+     * @param <E> The type of keys.
+     * @param batchSize The number of keys in a batch.
+     * @param key Creates the key for a random number.
+     * @param random The source of randomness.
+     * @return About QUERIES keys in batches of the given size, each sorted.
+     */
+    private static <E extends Comparable<? super E>> List<List<E>> batches(int batchSize, IntFunction<E> key, Random random) {
+        List<List<E>> batches = new ArrayList<>();
+        for (int count = Math.max(1, QUERIES / batchSize); batches.size() < count; ) {
+            List<E> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) batch.add(key.apply(random.nextInt(Integer.MAX_VALUE)));
+            Collections.sort(batch);
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Generates distinct random words.
+     *
+     * @param count The number of words.
+     * @param random The source of randomness.
+     * @return The words in random order.
+     */
+    private static String[] words(int count, Random random) {
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        while (words.size() < count) {
+            word.setLength(0);
+            int length = 3 + random.nextInt(10);
+            for (int i = 0; i < length; i++) word.append((char) ('a' + random.nextInt(26)));
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Parses the options and runs the benchmarks.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main(String[] args) {
+        int treeSize = 1_000_000;
+        List<Integer> batchSizes = Arrays.asList(10, 100, 1_000, 10_000, 100_000, 1_000_000);
+        int warmup = 3;
+        int iterations = 5;
+        long seed = 42;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--tree-size":
+                        treeSize = (int) Double.parseDouble(args[++i]);
+                        break;
+                    case "--batches":
+                        batchSizes = new ArrayList<>();
+                        for (String size : args[++i].split(",")) batchSizes.add((int) Double.parseDouble(size));
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(args[++i]);
+                        break;
+                    case "--iterations":
+                        iterations = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: java benchmarks.BatchSearchBenchmark [--tree-size N] [--batches 10,100,...] [--warmup N] [--iterations N] [--seed N]");
+            System.exit(2);
+            return;
+        }
+
+        Random random = new Random(seed);
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < treeSize; i++) keys.add(2 * i);
+        Collections.shuffle(keys, random);
+        BSTree<Integer> integers = new BSTree<>();
+        for (Integer key : keys) integers.add(key);
+
+        String[] vocabulary = words(2 * treeSize, random);  // The first half goes into the tree
+        BSTree<WordInfo> words = new BSTree<>();
+        for (int i = 0; i < treeSize; i++) words.add(new WordInfo(vocabulary[i]));
+
+        Harness harness = new Harness(warmup, iterations, System.out);
+        harness.printHeader();
+        int range = 2 * treeSize;
+        for (int batchSize : batchSizes) {
+            System.err.println("Running batches of " + batchSize + " integers, n=" + treeSize);
+            run(harness, "Integer", integers, batches(batchSize, r -> r % range, random), batchSize);
+            System.err.println("Running batches of " + batchSize + " words, n=" + treeSize);
+            run(harness, "WordInfo", words, batches(batchSize, r -> new WordInfo(vocabulary[r % range]), random), batchSize);
+        }
+    }
+}
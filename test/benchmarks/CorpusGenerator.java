@@ -0,0 +1,210 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * CorpusGenerator.java
+ *
+ * Generates a synthetic corpus of text files for benchmarking. Words are drawn
+ * from a fixed vocabulary with Zipf-distributed frequencies, so that a few words
+ * are very common and most are rare, as in natural text. The output depends only
+ * on the parameters and the seed, so a corpus can be regenerated exactly.
+ *
+ * Vocabulary words consist of the letters a-z only, so every generated word is
+ * one token for WordTracker; the most frequent words are the shortest.
+ *
+ * Usage: java -cp <classes> benchmarks.CorpusGenerator <directory> [--vocabulary N]
+ *        [--skew S] [--words-per-line N] [--lines N] [--files N] [--seed N]
+ */
+public class CorpusGenerator {
+    private final String[] vocabulary;
+    private final double[] cumulative;  // Cumulative Zipf weights of the vocabulary ranks
+    private final int wordsPerLine;
+    private final int linesPerFile;
+    private final long seed;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param vocabularySize The number of distinct words.
+     * @param skew The Zipf exponent; 0 gives uniform frequencies, about 1 is typical of text.
+     * @param wordsPerLine The average number of words per line.
+     * @param linesPerFile The number of lines per file.
+     * @param seed The seed of the random generator.
+     */
+    public CorpusGenerator(int vocabularySize, double skew, int wordsPerLine, int linesPerFile, long seed) {
+        if (vocabularySize < 1 || wordsPerLine < 1 || linesPerFile < 1) {
+            throw new IllegalArgumentException("Vocabulary, line length and file length must be positive");
+        }
+        this.vocabulary = new String[vocabularySize];
+        this.cumulative = new double[vocabularySize];
+        double total = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            vocabulary[rank] = word(rank);
+            total += 1.0 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+        this.wordsPerLine = wordsPerLine;
+        this.linesPerFile = linesPerFile;
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the word of a vocabulary rank: the rank written in bijective base 26
+     * with the letters a-z, so every rank has a distinct word.
+     *
+     * @param rank The rank.
+     * @return The word.
+     */
+    static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        for (long n = rank + 1L; n > 0; n = (n - 1) / 26) {
+            word.append((char) ('a' + (n - 1) % 26));
+        }
+        return word.reverse().toString();
+    }
+
+    /**
+     * Writes the files of a corpus, named file-00000.txt and so on.
+     *
+     * @param directory The directory to write to; created if necessary.
+     * @param files The number of files.
+     * @return The total number of words written.
+     * @throws IOException If a file cannot be written.
+     */
+    public long generate(Path directory, int files) throws IOException {
+        Files.createDirectories(directory);
+        long words = 0;
+        for (int i = 0; i < files; i++) {
+            words += generateFile(directory.resolve(String.format("file-%05d.txt", i)), i);
+        }
+        return words;
+    }
+
+    /**
+     * Writes one file. Every file has its own random sequence, derived from the
+     * seed and the file number.
+     *
+     * @param file The file to write.
+     * @param fileNumber The number of the file in the corpus.
+     * @return The number of words written.
+     * @throws IOException If the file cannot be written.
+     */
+    private long generateFile(Path file, int fileNumber) throws IOException {
+        Random random = new Random(seed * 31 + fileNumber);
+        long words = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int line = 0; line < linesPerFile; line++) {
+                int count = 1 + random.nextInt(2 * wordsPerLine - 1);  // Averages wordsPerLine
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) writer.write(random.nextInt(10) == 0 ? ", " : " ");
+                    writer.write(vocabulary[nextRank(random)]);
+                }
+                writer.write('.');
+                writer.newLine();
+                words += count;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Draws a vocabulary rank from the Zipf distribution.
+     *
+     * @param random The source of randomness.
+     * @return The rank.
+     */
+    private int nextRank(Random random) {
+        double total = cumulative[cumulative.length - 1];
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+        if (rank < 0) rank = -rank - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+
+    /**
+     * Parses the options and writes a corpus.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If a file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args, 1);
+        if (options == null) {
+            System.err.println("Usage: java benchmarks.CorpusGenerator <directory> " + Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        long words = options.generator().generate(Paths.get(args[0]), options.files);
+        System.err.println("Wrote " + options.files + " files with " + words + " words to " + args[0]);
+    }
+
+    /**
+     * The corpus parameters shared by the generator and the benchmarks that use it.
+     */
+    static class Options {
+        static final String USAGE = "[--vocabulary N] [--skew S] [--words-per-line N] [--lines N] [--files N] [--seed N]";
+        int vocabulary = 50_000;
+        double skew = 1.0;
+        int wordsPerLine = 12;
+        int lines = 2_000;
+        int files = 50;
+        long seed = 42;
+
+        /**
+         * Parses corpus options, ignoring options it does not know.
+         *
+         * @param args The command-line arguments.
+         * @param start The index of the first option.
+         * @return The options, or null if a value is missing or invalid.
+         */
+        static Options parse(String[] args, int start) {
+            if (args.length < start) return null;
+            Options options = new Options();
+            try {
+                for (int i = start; i < args.length; i++) {
+                    switch (args[i]) {
+                        case "--vocabulary":
+                            options.vocabulary = Integer.parseInt(args[++i]);
+                            break;
+                        case "--skew":
+                            options.skew = Double.parseDouble(args[++i]);
+                            break;
+                        case "--words-per-line":
+                            options.wordsPerLine = Integer.parseInt(args[++i]);
+                            break;
+                        case "--lines":
+                            options.lines = Integer.parseInt(args[++i]);
+                            break;
+                        case "--files":
+                            options.files = Integer.parseInt(args[++i]);
+                            break;
+                        case "--seed":
+                            options.seed = Long.parseLong(args[++i]);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                return null;
+            }
+            return options;
+        }
+
+        /**
+         * Creates a generator with these options.
+         *
+         * @return The generator.
+         */
+        CorpusGenerator generator() {
+            return new CorpusGenerator(vocabulary, skew, wordsPerLine, lines, seed);
+        }
+    }
+}
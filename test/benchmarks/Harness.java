@@ -0,0 +1,97 @@
+package benchmarks;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Harness.java
+ *
+ * A small benchmark harness in the style of JMH that runs without any
+ * dependencies. Every benchmark runs a number of warmup iterations followed by
+ * measured iterations. Each iteration gets a fresh state from an untimed setup
+ * step, and the value returned by the timed body is consumed so that the JIT
+ * compiler cannot remove the work.
+ *
+ * Results are printed as CSV, one row per benchmark, with the average time per
+ * operation, its standard deviation over the measured iterations and the best
+ * iteration, so that runs can be compared to track regressions.
+ */
+public final class Harness {
+    public static final String CSV_HEADER =
+        "benchmark,structure,distribution,size,iterations,ops_per_iteration,ns_per_op,ns_per_op_stddev,ns_per_op_min";
+    private static volatile long sink;  // Consumes benchmark results
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final PrintStream out;
+
+    /**
+     * Constructs a harness that prints results to the given stream.
+     *
+     * @param warmupIterations The number of iterations run before measuring.
+     * @param measuredIterations The number of iterations measured.
+     * @param out The stream to print CSV rows to.
+     */
+    public Harness(int warmupIterations, int measuredIterations, PrintStream out) {
+        if (measuredIterations < 1) throw new IllegalArgumentException("At least one measured iteration is required");
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.out = out;
+    }
+
+    /**
+     * Prints the CSV header.
+     */
+    public void printHeader() {
+        out.println(CSV_HEADER);
+    }
+
+    /**
+     * Runs and prints a benchmark.
+     *
+     * @param <S> The type of the state an iteration works on.
+     * @param benchmark The name of the operation measured.
+     * @param structure The name of the data structure measured.
+     * @param distribution The name of the key distribution.
+     * @param size The number of elements in the data structure.
+     * @param opsPerIteration The number of operations one iteration performs.
+     * @param setup Creates the state of one iteration; not timed.
+     * @param body The timed work; its result is consumed.
+     * @return The average time per operation in nanoseconds.
+     */
+    public <S> double run(String benchmark, String structure, String distribution, int size,
+                          long opsPerIteration, Supplier<S> setup, ToLongFunction<S> body) {
+        System.gc();
+        for (int i = 0; i < warmupIterations; i++) {
+            sink += body.applyAsLong(setup.get());
+        }
+
+        double[] nsPerOp = new double[measuredIterations];
+        for (int i = 0; i < measuredIterations; i++) {
+            S state = setup.get();
+            long start = System.nanoTime();
+            long result = body.applyAsLong(state);
+            long elapsed = System.nanoTime() - start;
+            sink += result;
+            nsPerOp[i] = (double) elapsed / Math.max(1, opsPerIteration);
+        }
+
+        double mean = 0;
+        double min = Double.MAX_VALUE;
+        for (double value : nsPerOp) {
+            mean += value / nsPerOp.length;
+            min = Math.min(min, value);
+        }
+        double variance = 0;
+        for (double value : nsPerOp) {
+            variance += (value - mean) * (value - mean);
+        }
+        double stddev = nsPerOp.length > 1 ? Math.sqrt(variance / (nsPerOp.length - 1)) : 0;
+
+        out.println(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%.3f,%.3f,%.3f",
+            benchmark, structure, distribution, size, measuredIterations, opsPerIteration, mean, stddev, min));
+        out.flush();
+        return mean;
+    }
+}
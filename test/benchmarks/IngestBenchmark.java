@@ -0,0 +1,254 @@
+package benchmarks;
+
+import WordTracker.WordTracker;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * IngestBenchmark.java
+ *
+ * Measures WordTracker end to end on a corpus: ingesting every file into a new
+ * repository, generating a report, and loading the saved repository again. Each
+ * report mode gets its own run with a fresh repository in a temporary directory,
+ * and prints one CSV row with:
+ * - the ingest time (including saving) and the throughput in words per second,
+ * - the time to write the report to a file, and the size of the report,
+ * - the peak heap use over the run, as the sum of the peaks of the heap pools,
+ * - the size of the repository file, and the time of the last save and of a load.
+ *
+ * The corpus is generated with CorpusGenerator unless an existing directory is
+ * given with --corpus. By default the corpus is ingested as a directory (see
+ * DirectoryIngest); --per-file calls processFile on every file instead, which
+ * saves the repository after each file like separate command-line runs do.
+ * --memory bounds the ingest to a memory budget (see WordTracker.setMemoryBudget),
+ * which shows in the peak heap use.
+ * Warmup runs (one by default) of the first mode are not reported.
+ *
+ * Usage: java -cp <classes> benchmarks.IngestBenchmark [--corpus DIR]
+ *        [--modes -pf,-pl,-po,-pt] [--top K] [--per-file] [--compress] [--memory MB] [--warmup N]
+ *        [corpus options of CorpusGenerator]
+ */
+public class IngestBenchmark {
+    public static final String CSV_HEADER = "mode,files,words,ingest_s,words_per_s,report_ms,report_bytes,"
+        + "peak_heap_mb,repository_bytes,save_ms,load_ms";
+    private final List<Path> files;
+    private final Path corpus;
+    private final long words;
+    private final boolean perFile;
+    private final boolean compress;
+    private final long memoryBudget;
+    private final int top;
+
+    /**
+     * Constructs a benchmark over a corpus directory.
+     *
+     * @param corpus The directory holding the corpus.
+     * @param perFile True to process the files one by one instead of as a directory.
+     * @param compress True to save the repository compressed.
+     * @param memoryBudget The memory budget of the ingest in bytes, or 0 for none.
+     * @param top The K of the -pt report.
+     * @throws IOException If the corpus cannot be read.
+     */
+    public IngestBenchmark(Path corpus, boolean perFile, boolean compress, long memoryBudget, int top) throws IOException {
+        this.corpus = corpus;
+        try (Stream<Path> paths = Files.walk(corpus)) {
+            this.files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        long count = 0;
+        for (Path file : files) {
+            count += countWords(file);
+        }
+        this.words = count;
+        this.perFile = perFile;
+        this.compress = compress;
+        this.memoryBudget = memoryBudget;
+        this.top = top;
+    }
+
+    /**
+     * Counts the words of a file by the same rule as WordTracker: runs of the
+     * letters a-z and A-Z.
+     *
+     * @param file The file.
+     * @return The number of words.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long countWords(Path file) throws IOException {
+        long count = 0;
+        boolean inWord = false;
+        for (byte b : Files.readAllBytes(file)) {
+            boolean letter = (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+            if (letter && !inWord) count++;
+            inWord = letter;
+        }
+        return count;
+    }
+
+    /**
+     * Runs the benchmark for one report mode and returns its CSV row.
+     *
+     * @param mode The report type: -pf, -pl, -po or -pt.
+     * @return The CSV row.
+     * @throws IOException If the corpus or the temporary files cannot be accessed.
+     */
+    public String run(String mode) throws IOException {
+        Path directory = Files.createTempDirectory("wordtracker-benchmark");
+        try {
+            String repository = directory.resolve("repository.ser").toString();
+            System.gc();
+            resetPeakHeap();
+
+            long start = System.nanoTime();
+            WordTracker tracker = new WordTracker(repository);
+            tracker.setCompressed(compress);
+            tracker.setMemoryBudget(memoryBudget);
+            if (perFile) {
+                for (Path file : files) tracker.processFile(file.toString());
+            } else {
+                tracker.processDirectory(corpus.toString());
+            }
+            double ingestSeconds = (System.nanoTime() - start) / 1e9;
+
+            Path report = directory.resolve("report.txt");
+            start = System.nanoTime();
+            try (PrintStream output = new PrintStream(new BufferedOutputStream(Files.newOutputStream(report)))) {
+                if (mode.equals("-pt")) {
+                    tracker.writeTopReport(top, false, output);
+                } else {
+                    tracker.writeReport(mode, output);
+                }
+            }
+            double reportMillis = (System.nanoTime() - start) / 1e6;
+            long peakHeap = peakHeap();
+
+            double loadMillis = new WordTracker(repository).getLoadMillis();
+            return String.format(Locale.ROOT, "%s,%d,%d,%.3f,%.0f,%.1f,%d,%.1f,%d,%.1f,%.1f",
+                mode, files.size(), words, ingestSeconds, words / Math.max(ingestSeconds, 1e-9), reportMillis,
+                Files.size(report), peakHeap / 1e6, Files.size(Paths.get(repository)),
+                tracker.getSaveMillis(), loadMillis);
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resets the recorded peak usage of the heap memory pools.
+     */
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * Gets the peak heap use since the last reset, as the sum of the peaks of
+     * the heap memory pools.
+     *
+     * @return The peak heap use in bytes.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Parses the options, generates the corpus if needed and runs every mode.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If the corpus or the temporary files cannot be accessed.
+     */
+    public static void main(String[] args) throws IOException {
+        CorpusGenerator.Options corpusOptions = CorpusGenerator.Options.parse(args, 0);
+        Path corpus = null;
+        List<String> modes = Arrays.asList("-pf", "-pl", "-po", "-pt");
+        int top = 100;
+        boolean perFile = false;
+        boolean compress = false;
+        long memoryBudget = 0;
+        int warmup = 1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--corpus":
+                        corpus = Paths.get(args[++i]);
+                        break;
+                    case "--modes":
+                        modes = Arrays.asList(args[++i].split(","));
+                        for (String mode : modes) {
+                            if (!WordTracker.isReportType(mode) && !mode.equals("-pt")) throw new IllegalArgumentException(mode);
+                        }
+                        break;
+                    case "--top":
+                        top = Integer.parseInt(args[++i]);
+                        break;
+                    case "--per-file":
+                        perFile = true;
+                        break;
+                    case "--compress":
+                        compress = true;
+                        break;
+                    case "--memory":
+                        memoryBudget = Long.parseLong(args[++i]) << 20;
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            corpusOptions = null;
+        }
+        if (corpusOptions == null) {
+            System.err.println("Usage: java benchmarks.IngestBenchmark [--corpus DIR] [--modes -pf,-pl,-po,-pt] [--top K] "
+                + "[--per-file] [--compress] [--memory MB] [--warmup N] " + CorpusGenerator.Options.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Path generated = null;
+        if (corpus == null) {
+            generated = Files.createTempDirectory("wordtracker-corpus");
+            long words = corpusOptions.generator().generate(generated, corpusOptions.files);
+            System.err.println("Generated " + corpusOptions.files + " files with " + words + " words in " + generated);
+            corpus = generated;
+        }
+        try {
+            IngestBenchmark benchmark = new IngestBenchmark(corpus, perFile, compress, memoryBudget, top);
+            for (int i = 0; i < warmup; i++) {
+                System.err.println("Warming up with " + modes.get(0));
+                benchmark.run(modes.get(0));
+            }
+            System.out.println(CSV_HEADER);
+            for (String mode : modes) {
+                System.err.println("Running " + mode);
+                System.out.println(benchmark.run(mode));
+            }
+        } finally {
+            if (generated != null) {
+                try (Stream<Path> paths = Files.walk(generated)) {
+                    for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+    }
+}
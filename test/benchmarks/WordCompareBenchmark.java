@@ -0,0 +1,157 @@
+package benchmarks;
+
+import WordTracker.WordInfo;
+import implementations.BSTree;
+
+import java.util.*;
+
+/**
+ * WordCompareBenchmark.java
+ *
+ * Measures the latency of looking words up in a BSTree of WordInfo objects,
+ * which compare by a packed eight-character prefix before falling back to the
+ * words, against a tree of keys that compare the words with String.compareTo.
+ * Both trees hold the same words inserted in the same order, so they have the
+ * same shape and only the cost of a comparison differs.
+ *
+ * Two vocabularies are used:
+ * - random: words of 3 to 12 random letters, usually decided by the prefix.
+ * - prefixed: every word starts with "counter", so the prefixes mostly tie and
+ *   the comparison falls back to the strings.
+ *
+ * Results are printed as CSV (see Harness).
+ *
+ * Usage: java -cp <classes> benchmarks.WordCompareBenchmark [--sizes 1000,100000,...]
+ *        [--warmup N] [--iterations N] [--seed N]
+ */
+public class WordCompareBenchmark {
+    private static final int QUERIES = 1_000_000;  // Lookups per iteration
+
+    /**
+     * A word that compares with String.compareTo only, as WordInfo did before
+     * it cached a packed prefix.
+     */
+    private static final class StringKey implements Comparable<StringKey> {
+        private final String word;
+
+        /**
+         * Creates a key.
+         *
+         * @param word The word.
+         */
+        StringKey(String word) {
+            this.word = word;
+        }
+
+        @Override
+        public int compareTo(StringKey other) {
+            return word.compareTo(other.word);
+        }
+    }
+
+    /**
+     * Generates distinct random words.
+     *
+     * @param count The number of words.
+     * @param stem A stem every word starts with, or an empty string.
+     * @param random The source of randomness.
+     * @return The words in random order.
+     */
+    private static String[] words(int count, String stem, Random random) {
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        while (words.size() < count) {
+            word.setLength(0);
+            word.append(stem);
+            int length = 3 + random.nextInt(10);
+            for (int i = 0; i < length; i++) word.append((char) ('a' + random.nextInt(26)));
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Measures lookups on both kinds of trees for one vocabulary.
+     *
+     * @param harness The harness to run and print the benchmarks with.
+     * @param vocabulary The name of the vocabulary.
+     * @param words The words, in insertion order.
+     * @param random The source of randomness for the lookups.
+     */
+    private static void run(Harness harness, String vocabulary, String[] words, Random random) {
+        BSTree<WordInfo> packed = new BSTree<>();
+        BSTree<StringKey> plain = new BSTree<>();
+        for (String word : words) {
+            packed.add(new WordInfo(word));
+            plain.add(new StringKey(word));
+        }
+
+        int[] picks = new int[QUERIES];
+        for (int i = 0; i < picks.length; i++) picks[i] = random.nextInt(words.length);
+        WordInfo[] packedQueries = new WordInfo[picks.length];
+        StringKey[] plainQueries = new StringKey[picks.length];
+        for (int i = 0; i < picks.length; i++) {
+            String word = new String(words[picks[i]].toCharArray());  // Distinct objects, as lookups of parsed words are
+            packedQueries[i] = new WordInfo(word);
+            plainQueries[i] = new StringKey(word);
+        }
+
+        harness.run("search", "String.compareTo", vocabulary, words.length, QUERIES, () -> plain, tree -> {
+            long found = 0;
+            for (StringKey key : plainQueries) if (tree.search(key) != null) found++;
+            return found;
+        });
+        harness.run("search", "PackedPrefix", vocabulary, words.length, QUERIES, () -> packed, tree -> {
+            long found = 0;
+            for (WordInfo key : packedQueries) if (tree.search(key) != null) found++;
+            return found;
+        });
+    }
+
+    /**
+     * Parses the options and runs the benchmarks.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main(String[] args) {
+        List<Integer> sizes = Arrays.asList(1_000, 10_000, 100_000, 1_000_000);
+        int warmup = 3;
+        int iterations = 5;
+        long seed = 42;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--sizes":
+                        sizes = new ArrayList<>();
+                        for (String size : args[++i].split(",")) sizes.add((int) Double.parseDouble(size));
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(args[++i]);
+                        break;
+                    case "--iterations":
+                        iterations = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: java benchmarks.WordCompareBenchmark [--sizes 1000,100000,...] [--warmup N] [--iterations N] [--seed N]");
+            System.exit(2);
+            return;
+        }
+
+        Harness harness = new Harness(warmup, iterations, System.out);
+        harness.printHeader();
+        for (int size : sizes) {
+            Random random = new Random(seed ^ size);
+            System.err.println("Running random words, n=" + size);
+            run(harness, "random", words(size, "", random), random);
+            System.err.println("Running prefixed words, n=" + size);
+            run(harness, "prefixed", words(size, "counter", random), random);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import implementations.BSTree;
+
+/**
+ * Class Description:
+ * Tests building a balanced BSTree from sorted elements with
+ * {@link implementations.BSTree#fromSorted(List)}.
+ */
+public class BSTreeBuildTest {
+
+	/**
+	 * Test method for the height and contents of trees of every size up to 1000.
+	 */
+	@Test
+	public void testBalancedHeight() {
+		List<Integer> sorted = new ArrayList<>();
+		for (int size = 0; size <= 1000; size++) {
+			BSTree<Integer> tree = BSTree.fromSorted(sorted);
+			assertEquals("Failed to return correct size.", size, tree.size());
+			int optimal = 32 - Integer.numberOfLeadingZeros(size);  // ceil(log2(size + 1))
+			assertEquals("Tree of size " + size + " is not balanced.", optimal, tree.getHeight());
+			List<Integer> inorder = new ArrayList<>();
+			tree.forEachInorder(inorder::add);
+			assertEquals(sorted, inorder);
+			sorted.add(size * 3);
+		}
+	}
+
+	/**
+	 * Test method for a built tree behaving like one built by adding elements.
+	 */
+	@Test
+	public void testModifyBuiltTree() {
+		BSTree<Integer> tree = BSTree.fromSorted(Arrays.asList(10, 20, 30, 40, 50, 60, 70));
+		assertEquals(Integer.valueOf(40), tree.getRoot().getElement());
+		assertTrue(tree.contains(60));
+		assertFalse(tree.contains(65));
+		assertTrue(tree.add(65));
+		assertFalse(tree.add(30));
+		assertEquals(Integer.valueOf(10), tree.removeMin().getElement());
+		assertEquals(7, tree.size());
+	}
+
+	/**
+	 * Test method for rejecting elements that are out of order.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsorted() {
+		BSTree.fromSorted(Arrays.asList(1, 3, 2));
+	}
+
+	/**
+	 * Test method for rejecting duplicate elements, which a BSTree does not hold.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicates() {
+		BSTree.fromSorted(Arrays.asList(1, 2, 2));
+	}
+
+	/**
+	 * Test method for rejecting null elements.
+	 */
+	@Test(expected = NullPointerException.class)
+	public void testNullElement() {
+		BSTree.fromSorted(Collections.singletonList((Integer) null));
+	}
+}
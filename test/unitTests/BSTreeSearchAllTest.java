@@ -0,0 +1,108 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import implementations.BSTree;
+import implementations.BSTreeNode;
+
+/**
+ * Class Description:
+ * Tests looking up a sorted batch of elements in one walk with
+ * {@link implementations.BSTree#searchAll(List)}.
+ */
+public class BSTreeSearchAllTest {
+
+	/**
+	 * Test method for a batch of hits, misses and duplicates giving the same
+	 * nodes as searching for every element on its own.
+	 */
+	@Test
+	public void testSameAsSearch() {
+		Random random = new Random(7);
+		BSTree<Integer> tree = new BSTree<>();
+		for (int i = 0; i < 2000; i++) {
+			tree.add(random.nextInt(4000));
+		}
+		List<Integer> keys = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			keys.add(random.nextInt(4100) - 50);
+		}
+		Collections.sort(keys);
+
+		List<BSTreeNode<Integer>> found = tree.searchAll(keys);
+		assertEquals(keys.size(), found.size());
+		for (int i = 0; i < keys.size(); i++) {
+			assertSame("Wrong node for " + keys.get(i), tree.search(keys.get(i)), found.get(i));
+		}
+	}
+
+	/**
+	 * Test method for empty batches and empty trees.
+	 */
+	@Test
+	public void testEmpty() {
+		BSTree<Integer> tree = new BSTree<>();
+		assertTrue(tree.searchAll(new ArrayList<Integer>()).isEmpty());
+		assertEquals(Arrays.asList(null, null), tree.searchAll(Arrays.asList(1, 2)));
+		tree.add(1);
+		assertEquals(1, (int) tree.searchAll(Arrays.asList(1)).get(0).getElement());
+		assertNull(tree.searchAll(Arrays.asList(0)).get(0));
+	}
+
+	/**
+	 * Test method for a batch walking the top of a balanced tree once: it makes
+	 * fewer comparisons than searching for every element, and every element
+	 * still counts as an operation.
+	 */
+	@Test
+	public void testFewerComparisons() {
+		List<Integer> elements = new ArrayList<>();
+		for (int i = 0; i < 1 << 16; i++) {
+			elements.add(i * 2);
+		}
+		BSTree<Integer> tree = BSTree.fromSorted(elements);
+		List<Integer> keys = new ArrayList<>();
+		for (int i = 0; i < 1 << 14; i++) {
+			keys.add(i * 16 + 1);  // Misses, which walk down to a leaf
+		}
+
+		for (Integer key : keys) {
+			tree.search(key);
+		}
+		long single = tree.getComparisonCount();
+		tree.resetCounters();
+		tree.searchAll(keys);
+		assertEquals(keys.size(), tree.getOperationCount());
+		assertTrue("Batch made " + tree.getComparisonCount() + " comparisons, single searches " + single,
+			tree.getComparisonCount() < single / 2);
+	}
+
+	/**
+	 * Test method for batches that are not sorted or hold null.
+	 */
+	@Test
+	public void testInvalidBatch() {
+		BSTree<Integer> tree = new BSTree<>();
+		tree.add(1);
+		try {
+			tree.searchAll(Arrays.asList(2, 1));
+			fail("Failed to reject unsorted elements.");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			tree.searchAll(Arrays.asList(1, null));
+			fail("Failed to reject a null element.");
+		} catch (NullPointerException e) {
+			// Expected
+		}
+	}
+}
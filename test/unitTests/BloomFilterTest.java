@@ -0,0 +1,129 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.BSTree;
+import implementations.BloomFilter;
+
+/**
+ * Class Description:
+ * Tests the Bloom filter BloomFilter on its own and in front of BSTree searches.
+ */
+public class BloomFilterTest {
+	private BloomFilter<Integer> filter;
+
+	/**
+	 * Creates a filter for 10000 elements at 1% and adds the even numbers below 20000.
+	 */
+	@Before
+	public void setUp() {
+		filter = new BloomFilter<>(10000, 0.01);
+		for (int i = 0; i < 20000; i += 2) {
+			filter.put(i);
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BloomFilter#mightContain(Object)}
+	 * never missing an element that was added.
+	 */
+	@Test
+	public void testNoFalseNegatives() {
+		for (int i = 0; i < 20000; i += 2) {
+			assertTrue("Filter missed an added element.", filter.mightContain(i));
+		}
+		assertEquals(10000, filter.size());
+	}
+
+	/**
+	 * Test method for the observed false-positive rate being near the configured one.
+	 */
+	@Test
+	public void testFalsePositiveRate() {
+		int falsePositives = 0;
+		for (int i = 1; i < 200000; i += 2) {
+			if (filter.mightContain(i)) falsePositives++;
+		}
+		double rate = falsePositives / 100000.0;
+		assertTrue("False-positive rate too high: " + rate, rate < 0.02);
+		assertEquals(0.01, filter.expectedFpp(), 0.002);
+	}
+
+	/**
+	 * Test method for {@link implementations.BloomFilter#clear()}.
+	 */
+	@Test
+	public void testClear() {
+		filter.clear();
+		assertEquals(0, filter.size());
+		assertFalse(filter.mightContain(0));
+	}
+
+	/**
+	 * Test method for the constructor rejecting invalid arguments.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFpp() {
+		new BloomFilter<Integer>(100, 1.0);
+	}
+
+	/**
+	 * Test method for a filter that is serialized and read back.
+	 *
+	 * @throws Exception If serialization fails.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSerialization() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(filter);
+		}
+		BloomFilter<Integer> copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (BloomFilter<Integer>) in.readObject();
+		}
+		for (int i = 0; i < 20000; i++) {
+			assertEquals(filter.mightContain(i), copy.mightContain(i));
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#setFilter(double)}: searches
+	 * for missing elements return null, mostly without a tree walk, and the filter
+	 * grows with the tree.
+	 */
+	@Test
+	public void testTreeFilter() {
+		BSTree<Integer> tree = new BSTree<>();
+		tree.add(7);
+		tree.setFilter(0.01);
+		long capacity = tree.getFilter().getCapacity();
+		for (int i = 0; i < 5000; i += 2) {
+			tree.add((i * 7919) % 5000);
+		}
+		assertTrue("Filter did not grow.", tree.getFilter().getCapacity() > capacity);
+		for (int i = 0; i < 5000; i += 2) {
+			assertTrue("Failed to find element.", tree.contains((i * 7919) % 5000));
+		}
+		assertTrue(tree.contains(7));
+		for (int i = 5001; i < 10000; i += 2) {
+			assertNull("Found missing element.", tree.search(i));
+		}
+		assertTrue("Filter answered too few searches.", tree.getFilterRejections() > 2400);
+
+		tree.removeFilter();
+		assertNull(tree.getFilter());
+		assertNull(tree.search(5001));
+		tree.clear();
+		assertFalse(tree.contains(7));
+	}
+}
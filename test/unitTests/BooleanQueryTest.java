@@ -0,0 +1,179 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.BooleanQuery;
+import WordTracker.WordInfo;
+
+/**
+ * Class Description:
+ * Tests parsing and evaluating boolean queries with
+ * {@link WordTracker.BooleanQuery}: operator precedence, negation, unknown
+ * terms and invalid queries.
+ */
+public class BooleanQueryTest {
+	private Map<String, WordInfo> words;
+
+	/**
+	 * Sets up three words over two files:
+	 * kitty on lines 1, 2, 3 of a.txt and 5 of b.txt;
+	 * hello on lines 2, 4 of a.txt and 5, 6 of b.txt;
+	 * world on line 3 of a.txt and 6 of b.txt.
+	 */
+	@Before
+	public void setUp() {
+		words = new HashMap<>();
+		add("kitty", "a.txt", 1, 2, 3);
+		add("kitty", "b.txt", 5);
+		add("hello", "a.txt", 2, 4);
+		add("hello", "b.txt", 5, 6);
+		add("world", "a.txt", 3);
+		add("world", "b.txt", 6);
+	}
+
+	/**
+	 * Test method for a single term and for the case of terms.
+	 */
+	@Test
+	public void testTerm() {
+		assertEquals(result("a.txt", 1, 2, 3, "b.txt", 5), evaluate("kitty"));
+		assertEquals(result("a.txt", 1, 2, 3, "b.txt", 5), evaluate("KITTY"));
+		assertEquals(new TreeSet<>(Arrays.asList("kitty", "hello")), new BooleanQuery("Kitty AND hello").getTerms());
+	}
+
+	/**
+	 * Test method for AND, written out or implied by juxtaposition.
+	 */
+	@Test
+	public void testAnd() {
+		assertEquals(result("a.txt", 2, "b.txt", 5), evaluate("kitty AND hello"));
+		assertEquals(result("a.txt", 2, "b.txt", 5), evaluate("kitty hello"));
+		assertEquals(result("b.txt", 6), evaluate("hello AND world"));
+		assertEquals(result(), evaluate("kitty AND hello AND world"));
+	}
+
+	/**
+	 * Test method for AND binding tighter than OR, and for parentheses.
+	 */
+	@Test
+	public void testPrecedence() {
+		assertEquals(result("a.txt", 1, 2, 3, "b.txt", 5, 6), evaluate("kitty OR hello AND world"));
+		assertEquals(result("a.txt", 1, 2, 3, "b.txt", 5, 6), evaluate("hello AND world OR kitty"));
+		assertEquals(result("a.txt", 3, "b.txt", 6), evaluate("(kitty OR hello) AND world"));
+		assertEquals(result("a.txt", 3, "b.txt", 6), evaluate("world AND (hello OR kitty)"));
+	}
+
+	/**
+	 * Test method for NOT, which removes lines from a conjunction.
+	 */
+	@Test
+	public void testNot() {
+		assertEquals(result("a.txt", 1, 3), evaluate("kitty AND NOT hello"));
+		assertEquals(result("a.txt", 1), evaluate("kitty NOT hello NOT world"));
+		assertEquals(result("a.txt", 1), evaluate("kitty AND NOT (hello OR world)"));
+		assertEquals(result("a.txt", 1, 2, 3, "b.txt", 5), evaluate("NOT NOT kitty"));
+	}
+
+	/**
+	 * Test method for terms that do not occur in any file.
+	 */
+	@Test
+	public void testUnknownTerms() {
+		assertEquals(result(), evaluate("unknown"));
+		assertEquals(result(), evaluate("kitty AND unknown"));
+		assertEquals(result("a.txt", 1, 2, 3, "b.txt", 5), evaluate("kitty OR unknown"));
+		assertEquals(result("a.txt", 1, 2, 3, "b.txt", 5), evaluate("kitty AND NOT unknown"));
+	}
+
+	/**
+	 * Test method for rejecting invalid queries.
+	 */
+	@Test
+	public void testInvalid() {
+		for (String query : new String[] {"", "  ", "NOT kitty", "kitty OR NOT hello", "kitty AND", "AND kitty",
+				"(kitty", "kitty )", "()", "kitty OR"}) {
+			try {
+				new BooleanQuery(query);
+				fail("Failed to reject the query '" + query + "'.");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Test method for conjunctions of a rare and a frequent term, in either
+	 * order, against computing the lines directly.
+	 */
+	@Test
+	public void testRareAndFrequent() {
+		words.clear();
+		Random random = new Random(11);
+		Set<Integer> frequent = new TreeSet<>();
+		Set<Integer> rare = new TreeSet<>();
+		Set<Integer> excluded = new TreeSet<>();
+		for (int i = 0; i < 5000; i++) frequent.add(random.nextInt(10000));
+		for (int i = 0; i < 20; i++) rare.add(random.nextInt(10000));
+		for (int i = 0; i < 3000; i++) excluded.add(random.nextInt(10000));
+		for (int line : frequent) add("frequent", "a.txt", line);
+		for (int line : rare) add("rare", "a.txt", line);
+		for (int line : excluded) add("excluded", "a.txt", line);
+
+		List<Integer> expected = new ArrayList<>();
+		for (int line : rare) {
+			if (frequent.contains(line) && !excluded.contains(line)) expected.add(line);
+		}
+		Map<String, List<Integer>> result = expected.isEmpty() ? result() : Collections.singletonMap("a.txt", expected);
+		assertEquals(result, evaluate("rare AND frequent AND NOT excluded"));
+		assertEquals(result, evaluate("frequent AND NOT excluded AND rare"));
+	}
+
+	/**
+	 * Adds lines of a file to a word.
+	 *
+	 * @param word The word.
+	 * @param file The file.
+	 * @param lines The line numbers.
+	 */
+	private void add(String word, String file, int... lines) {
+		WordInfo info = words.computeIfAbsent(word, WordInfo::new);
+		for (int line : lines) {
+			info.addLocation(file, line);
+		}
+	}
+
+	/**
+	 * Evaluates a query over the words set up.
+	 *
+	 * @param query The query.
+	 * @return The matching lines by file.
+	 */
+	private Map<String, List<Integer>> evaluate(String query) {
+		return new BooleanQuery(query).evaluate(words::get);
+	}
+
+	/**
+	 * Builds an expected result from file names each followed by their lines.
+	 *
+	 * @param filesAndLines File names, each followed by its line numbers.
+	 * @return The lines by file.
+	 */
+	private static Map<String, List<Integer>> result(Object... filesAndLines) {
+		Map<String, List<Integer>> result = new LinkedHashMap<>();
+		List<Integer> lines = null;
+		for (Object item : filesAndLines) {
+			if (item instanceof String) {
+				lines = new ArrayList<>();
+				result.put((String) item, lines);
+			} else {
+				lines.add((Integer) item);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,345 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.CompactDictionary;
+
+/**
+ * Class Description:
+ * Tests the arena-backed word dictionary CompactDictionary against a TreeSet of
+ * Strings.
+ */
+public class CompactDictionaryTest {
+	private static final int ARENA_SIZE = 1 << 20;  // CompactDictionary.ARENA_SIZE
+	private CompactDictionary dictionary;
+	private TreeSet<String> expected;
+
+	/**
+	 * Adds 20000 random words of 1 to 12 letters, with duplicates, to both the
+	 * dictionary and a TreeSet.
+	 */
+	@Before
+	public void setUp() {
+		dictionary = new CompactDictionary();
+		expected = new TreeSet<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(12);
+			for (int c = 0; c < length; c++) {
+				word.append((char) ('a' + random.nextInt(6)));
+			}
+			dictionary.add(word);
+			expected.add(word.toString());
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.CompactDictionary#add(CharSequence)}
+	 * returning the same id for a word that is already present.
+	 */
+	@Test
+	public void testAddExisting() {
+		assertEquals(expected.size(), dictionary.size());
+		for (String word : expected) {
+			int id = dictionary.find(word);
+			assertEquals(id, dictionary.add(word));
+			assertEquals(word, dictionary.get(id));
+			assertEquals(word.length(), dictionary.length(id));
+		}
+		assertEquals(expected.size(), dictionary.size());
+	}
+
+	/**
+	 * Test method for {@link implementations.CompactDictionary#find(CharSequence)}
+	 * on missing words, including prefixes and extensions of present ones.
+	 */
+	@Test
+	public void testFindMissing() {
+		assertEquals(CompactDictionary.NOT_FOUND, dictionary.find("zzz"));
+		assertEquals(CompactDictionary.NOT_FOUND, dictionary.find(""));
+		assertEquals(CompactDictionary.NOT_FOUND, dictionary.find(expected.first() + "z"));
+		assertEquals(CompactDictionary.NOT_FOUND, new CompactDictionary().find("a"));
+	}
+
+	/**
+	 * Test method for {@link implementations.CompactDictionary#inorderIterator()}
+	 * and {@link implementations.CompactDictionary#compare(int, int)} giving the
+	 * order of String.compareTo.
+	 */
+	@Test
+	public void testOrder() {
+		List<String> words = new ArrayList<>();
+		PrimitiveIterator.OfInt ids = dictionary.inorderIterator();
+		int previous = CompactDictionary.NOT_FOUND;
+		while (ids.hasNext()) {
+			int id = ids.nextInt();
+			if (previous != CompactDictionary.NOT_FOUND) {
+				assertTrue("Words out of order.", dictionary.compare(previous, id) < 0);
+				assertTrue(dictionary.compare(id, previous) > 0);
+			}
+			assertEquals(0, dictionary.compare(id, id));
+			words.add(dictionary.get(id));
+			previous = id;
+		}
+		assertEquals(new ArrayList<>(expected), words);
+	}
+
+	/**
+	 * Test method for words with Latin-1 characters above ASCII, which must
+	 * compare as unsigned bytes.
+	 */
+	@Test
+	public void testLatin1() {
+		CompactDictionary latin1 = new CompactDictionary();
+		int cafe = latin1.add("caf\u00e9");
+		int cafes = latin1.add("cafes");
+		assertEquals("caf\u00e9", latin1.get(cafe));
+		assertTrue(latin1.compare(cafes, cafe) < 0);
+		assertEquals(cafe, latin1.find("caf\u00e9"));
+	}
+
+	/**
+	 * Test method for rejecting characters that are not Latin-1.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotLatin1() {
+		dictionary.add("\u20ac");
+	}
+
+	/**
+	 * Test method for an id that does not belong to a word.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidId() {
+		dictionary.get(dictionary.size());
+	}
+
+	/**
+	 * Test method for words filling more than one arena, and for a word longer
+	 * than an arena.
+	 */
+	@Test
+	public void testArenas() {
+		CompactDictionary large = new CompactDictionary();
+		StringBuilder longWord = new StringBuilder();
+		for (int i = 0; i < 3 << 20; i++) {
+			longWord.append('q');
+		}
+		for (int i = 0; i < 200000; i++) {
+			large.add("word" + i);
+		}
+		int id = large.add(longWord);
+		large.add("last");
+		assertTrue("Expected several arenas.", large.getArenaCount() >= 3);
+		assertEquals(longWord.toString(), large.get(id));
+		assertEquals("word123456", large.get(large.find("word123456")));
+		assertEquals("last", large.get(large.find("last")));
+	}
+
+	/**
+	 * Test method for a dictionary that is serialized and read back.
+	 *
+	 * @throws Exception If serialization fails.
+	 */
+	@Test
+	public void testSerialization() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(dictionary);
+		}
+		CompactDictionary copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (CompactDictionary) in.readObject();
+		}
+		assertEquals(dictionary.size(), copy.size());
+		for (String word : expected) {
+			assertEquals(dictionary.find(word), copy.find(word));
+		}
+		assertEquals(dictionary.size(), copy.add("newword"));
+	}
+
+	/**
+	 * Test method for words at the end of an arena: a word that exactly fills
+	 * the rest of an arena stays in it, and a word that would cross the end of
+	 * an arena starts a new one, with the words on both sides intact.
+	 */
+	@Test
+	public void testArenaBoundary() {
+		CompactDictionary filled = new CompactDictionary();
+		List<String> words = fillArena(filled, ARENA_SIZE - 13);
+		assertEquals(1, filled.getArenaCount());
+
+		int exact = filled.add("ten-chars!");
+		assertEquals(1, filled.getArenaCount());
+		assertEquals(ARENA_SIZE - 3, filled.getWordBytes());
+		int crossing = filled.add("crossing");
+		assertEquals(2, filled.getArenaCount());
+		assertEquals((long) ARENA_SIZE + 8, filled.getWordBytes());
+		int after = filled.add("after");
+
+		assertEquals("ten-chars!", filled.get(exact));
+		assertEquals("crossing", filled.get(crossing));
+		assertEquals("after", filled.get(after));
+		assertEquals(crossing, filled.find("crossing"));
+		String last = words.get(words.size() - 1);
+		assertEquals(last, filled.get(filled.find(last)));
+		assertTrue(filled.compare(crossing, exact) < 0);
+		assertTrue(filled.compare(filled.find(last), crossing) > 0);
+	}
+
+	/**
+	 * Test method for words of exactly and of more than the size of an arena,
+	 * which get an arena of their own, with the words after them going into a
+	 * new arena.
+	 */
+	@Test
+	public void testWordsLongerThanArena() {
+		CompactDictionary large = new CompactDictionary();
+		int small = large.add("small");
+		char[] exact = new char[ARENA_SIZE];
+		Arrays.fill(exact, 'e');
+		char[] longer = new char[ARENA_SIZE + 1];
+		Arrays.fill(longer, 'l');
+		int exactId = large.add(new String(exact));
+		int longerId = large.add(new String(longer));
+		int next = large.add("next");
+
+		assertEquals(4, large.getArenaCount());
+		assertEquals(ARENA_SIZE, large.length(exactId));
+		assertEquals(ARENA_SIZE + 1, large.length(longerId));
+		assertEquals(new String(exact), large.get(exactId));
+		assertEquals(new String(longer), large.get(longerId));
+		assertEquals(longerId, large.find(new String(longer)));
+		assertEquals(CompactDictionary.NOT_FOUND, large.find(new String(longer, 0, ARENA_SIZE)));
+		assertEquals("small", large.get(small));
+		assertEquals("next", large.get(next));
+		assertTrue(large.compare(exactId, longerId) < 0);
+	}
+
+	/**
+	 * Test method for rejecting words with characters beyond Latin-1, which
+	 * leaves the dictionary unchanged.
+	 */
+	@Test
+	public void testNotLatin1Unchanged() {
+		int size = dictionary.size();
+		long bytes = dictionary.getWordBytes();
+		for (String word : new String[] {"caf\u20ac", "\u0100", "ab\ud83d\ude00"}) {
+			try {
+				dictionary.add(word);
+				fail("Expected IllegalArgumentException for " + word);
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+			assertEquals(CompactDictionary.NOT_FOUND, dictionary.find(word));
+		}
+		assertEquals(size, dictionary.size());
+		assertEquals(bytes, dictionary.getWordBytes());
+		int id = dictionary.add("\u00ff");
+		assertEquals("\u00ff", dictionary.get(id));
+	}
+
+	/**
+	 * Test method for serializing a dictionary with several arenas, Latin-1
+	 * characters and a word longer than an arena.
+	 *
+	 * @throws Exception If serialization fails.
+	 */
+	@Test
+	public void testSerializationAcrossArenas() throws Exception {
+		CompactDictionary filled = new CompactDictionary();
+		List<String> words = fillArena(filled, ARENA_SIZE - 13);
+		words.add("crossing the end");
+		words.add("na\u00efve");
+		char[] longer = new char[ARENA_SIZE + 7];
+		Arrays.fill(longer, 'z');
+		words.add(new String(longer));
+		for (String word : words.subList(words.size() - 3, words.size())) {
+			filled.add(word);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(filled);
+		}
+		CompactDictionary copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (CompactDictionary) in.readObject();
+		}
+		assertEquals(filled.getArenaCount(), copy.getArenaCount());
+		assertEquals(filled.getWordBytes(), copy.getWordBytes());
+		for (String word : words) {
+			int id = copy.find(word);
+			assertEquals(filled.find(word), id);
+			assertEquals(word, copy.get(id));
+		}
+		int added = copy.add("added");
+		assertEquals("added", copy.get(added));
+		assertEquals(filled.getArenaCount() + 1, copy.getArenaCount());
+	}
+
+	/**
+	 * Test method for {@link implementations.CompactDictionary#addAll(List)}
+	 * keeping the tree balanced for a sorted batch, where adding the words one
+	 * at a time gives a list.
+	 */
+	@Test
+	public void testAddAllSorted() {
+		List<String> sorted = new ArrayList<>(expected);
+		CompactDictionary batch = new CompactDictionary();
+		int[] ids = batch.addAll(sorted);
+		assertEquals(sorted.size(), batch.size());
+		for (int i = 0; i < sorted.size(); i++) {
+			assertEquals(sorted.get(i), batch.get(ids[i]));
+		}
+		int optimal = 32 - Integer.numberOfLeadingZeros(sorted.size());  // ceil(log2(size + 1))
+		assertEquals(optimal, batch.getHeight());
+
+		CompactDictionary oneByOne = new CompactDictionary();
+		for (String word : sorted.subList(0, 1000)) {
+			oneByOne.add(word);
+		}
+		assertEquals(1000, oneByOne.getHeight());
+
+		int[] again = batch.addAll(Arrays.asList(sorted.get(0), "zzzz"));
+		assertEquals(ids[0], again[0]);
+		assertEquals(sorted.size(), again[1]);
+		assertEquals(sorted.size() + 1, batch.size());
+	}
+
+	/**
+	 * Adds distinct words of 13 characters, and a shorter word, until the words
+	 * take up the given number of bytes.
+	 *
+	 * @param target The dictionary to add to.
+	 * @param bytes The number of bytes, at least 13.
+	 * @return The words added, in the order they were added.
+	 */
+	private static List<String> fillArena(CompactDictionary target, int bytes) {
+		List<String> words = new ArrayList<>();
+		int count = bytes / 13;
+		int rest = bytes % 13;
+		for (int i = 0; i < count; i++) {
+			words.add(String.format("w%012d", i));
+		}
+		if (rest > 0) words.add("xxxxxxxxxxxx".substring(0, rest));
+		target.addAll(words);  // Sorted, so adding one at a time would build a list
+		assertEquals(bytes, target.getWordBytes());
+		return words;
+	}
+}
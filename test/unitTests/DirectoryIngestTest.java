@@ -0,0 +1,107 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.DirectoryIngest;
+import WordTracker.WordTracker;
+
+/**
+ * Class Description:
+ * Tests ingesting directories with the pipeline of
+ * {@link WordTracker.DirectoryIngest}, including directories with more files
+ * than its queues hold, and ingesting them again unchanged.
+ */
+public class DirectoryIngestTest {
+	private static final int FILES = 400;  // Several times the capacity of the queues
+	private Path directory;
+	private Path input;
+
+	/**
+	 * Creates a temporary directory with many small input files.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("ingest");
+		input = Files.createDirectory(directory.resolve("input"));
+		StringBuilder body = new StringBuilder();
+		for (int line = 0; line < 500; line++) {
+			body.append("the quick brown fox jumps over the lazy dog\n");  // Tokenizing takes longer than reading
+		}
+		for (int i = 0; i < FILES; i++) {
+			Files.write(input.resolve("file" + i + ".txt"),
+				("common " + name(i) + "\n" + body).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Deletes the temporary directory.
+	 *
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for a directory with more files than the queues hold, with a
+	 * single tokenizer, so that the reader fills the queue before it ends.
+	 *
+	 * @throws IOException If the directory cannot be processed.
+	 */
+	@Test(timeout = 60000)
+	public void testMoreFilesThanQueueCapacity() throws IOException {
+		WordTracker tracker = new WordTracker(directory.resolve("repository.ser").toString());
+		DirectoryIngest.Result result = new DirectoryIngest(tracker, 1).run(input);
+		assertEquals(FILES, result.getFilesFound());
+		assertEquals(FILES, result.getFilesIndexed());
+		assertEquals(FILES, tracker.getFileCount());
+		assertEquals(FILES, tracker.lookup("common").getFileLocations().size());
+		assertNotNull(tracker.lookup(name(FILES - 1)));
+		assertEquals(FILES, tracker.lookup("fox").getFileLocations().size());
+	}
+
+	/**
+	 * Makes a distinct word for each file, of letters only.
+	 *
+	 * @param i The number of the file.
+	 * @return The word.
+	 */
+	private static String name(int i) {
+		StringBuilder word = new StringBuilder("word");
+		for (int n = i; n > 0; n /= 26) word.append((char) ('a' + n % 26));
+		return word.toString();
+	}
+
+	/**
+	 * Test method for several tokenizers, and for ingesting the same files
+	 * again, which skips all of them.
+	 *
+	 * @throws IOException If the directory cannot be processed.
+	 */
+	@Test(timeout = 60000)
+	public void testSeveralTokenizersAndUnchangedFiles() throws IOException {
+		WordTracker tracker = new WordTracker(directory.resolve("repository.ser").toString());
+		assertEquals(FILES, new DirectoryIngest(tracker, 3).run(input).getFilesIndexed());
+		long postings = tracker.getTotalPostings();
+
+		DirectoryIngest.Result again = new DirectoryIngest(tracker, 3).run(input);
+		assertEquals(FILES, again.getFilesFound());
+		assertEquals(0, again.getFilesIndexed());
+		assertEquals(postings, tracker.getTotalPostings());
+	}
+}
@@ -0,0 +1,146 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.FileManifest;
+import WordTracker.WordTracker;
+
+/**
+ * Class Description:
+ * Tests that {@link WordTracker.FileManifest} only lets a WordTracker skip the
+ * files its repository actually holds: after the repository file is deleted
+ * or replaced, processing the same files again indexes them again.
+ */
+public class FileManifestTest {
+	private Path directory;
+	private Path repository;
+	private Path input;
+
+	/**
+	 * Creates a temporary directory with one input file.
+	 *
+	 * @throws IOException If the directory cannot be created.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("manifest");
+		repository = directory.resolve("repository.ser");
+		input = directory.resolve("input.txt");
+		Files.write(input, "hello kitty\nhello world\n".getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Deletes the temporary directory.
+	 *
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for processing an unchanged file again with the repository
+	 * in place, which skips it and keeps its postings.
+	 */
+	@Test
+	public void testUnchangedFileSkipped() {
+		process();
+		WordTracker tracker = new WordTracker(repository.toString());
+		tracker.processFile(input.toString());
+		assertEquals(4, tracker.getFilePostings(input.toString()));
+		assertNotNull(tracker.lookup("kitty"));
+	}
+
+	/**
+	 * Test method for processing an unchanged file after the repository file
+	 * has been deleted but its manifest kept.
+	 *
+	 * @throws IOException If the repository cannot be deleted.
+	 */
+	@Test
+	public void testMissingRepository() throws IOException {
+		process();
+		Files.delete(repository);
+		assertTrue(Files.exists(Paths.get(repository + ".manifest")));
+
+		WordTracker tracker = new WordTracker(repository.toString());
+		tracker.processFile(input.toString());
+		assertEquals(4, tracker.getFilePostings(input.toString()));
+		assertNotNull(tracker.lookup("kitty"));
+		assertTrue(Files.exists(repository));
+
+		WordTracker reloaded = new WordTracker(repository.toString());
+		assertEquals(4, reloaded.getFilePostings(input.toString()));
+	}
+
+	/**
+	 * Test method for processing an unchanged file after the repository file
+	 * has been replaced by one that does not hold it.
+	 *
+	 * @throws IOException If an input file cannot be written.
+	 */
+	@Test
+	public void testReplacedRepository() throws IOException {
+		process();
+		Path other = directory.resolve("other.ser");
+		Path otherInput = directory.resolve("other.txt");
+		Files.write(otherInput, "goodbye\n".getBytes(StandardCharsets.UTF_8));
+		new WordTracker(other.toString()).processFile(otherInput.toString());
+		Files.copy(other, repository, StandardCopyOption.REPLACE_EXISTING);
+
+		WordTracker tracker = new WordTracker(repository.toString());
+		tracker.processFile(input.toString());
+		assertEquals(4, tracker.getFilePostings(input.toString()));
+		assertNotNull(tracker.lookup("goodbye"));
+		assertNotNull(tracker.lookup("kitty"));
+	}
+
+	/**
+	 * Test method for checking manifest entries against posting counts, with
+	 * and without recorded counts.
+	 */
+	@Test
+	public void testRetainBackedBy() {
+		FileManifest manifest = new FileManifest();
+		manifest.put("a.txt", new FileManifest.Entry(10, 1, 1));
+		manifest.put("b.txt", new FileManifest.Entry(10, 1, 2));
+		manifest.put("empty.txt", new FileManifest.Entry(0, 1, 3));
+		Map<String, Long> saved = new HashMap<>();
+		saved.put("a.txt", 5L);
+		saved.put("b.txt", 7L);
+		manifest.recordPostings(saved);
+
+		Map<String, Long> loaded = new HashMap<>(saved);
+		loaded.put("b.txt", 6L);
+		assertEquals(1, manifest.retainBackedBy(loaded));
+		assertEquals(new HashSet<>(Arrays.asList("a.txt", "empty.txt")), manifest.getEntries().keySet());
+
+		FileManifest unrecorded = new FileManifest();
+		unrecorded.put("a.txt", new FileManifest.Entry(10, 1, 1));
+		unrecorded.put("c.txt", new FileManifest.Entry(10, 1, 4));
+		assertEquals(1, unrecorded.retainBackedBy(loaded));
+		assertEquals(Collections.singleton("a.txt"), unrecorded.getEntries().keySet());
+	}
+
+	/**
+	 * Indexes the input file into the repository with a fresh tracker.
+	 */
+	private void process() {
+		WordTracker tracker = new WordTracker(repository.toString());
+		tracker.processFile(input.toString());
+		assertEquals(4, tracker.getFilePostings(input.toString()));
+	}
+}
@@ -0,0 +1,316 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.WordInfo;
+import WordTracker.WordTracker;
+
+/**
+ * Class Description:
+ * Tests that reindexing a changed file and removing a file through the
+ * forward index of a WordTracker leave exactly the postings of the files that
+ * remain, with the word tree, the compact dictionary and a sharded repository,
+ * that a sharded repository only loads the shards holding words of the file,
+ * and that the lists of words per file of the compact dictionary survive a
+ * save and load.
+ */
+public class ForwardIndexTest {
+	private static final List<String> VOCABULARY = Arrays.asList(
+		"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "shared");
+	private Path directory;
+	private Path a;
+	private Path b;
+
+	/**
+	 * Creates a temporary directory with two input files that share words.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("forward");
+		a = directory.resolve("a.txt");
+		b = directory.resolve("b.txt");
+		write(a, "alpha beta shared\nbeta gamma\n");
+		write(b, "shared delta\nbeta\n");
+	}
+
+	/**
+	 * Deletes the temporary directory.
+	 *
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for reindexing a changed file with the word tree.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testReindexTree() throws IOException {
+		checkReindex(open("tree", false, false));
+	}
+
+	/**
+	 * Test method for reindexing a changed file with the compact dictionary.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testReindexCompact() throws IOException {
+		checkReindex(open("compact", false, true));
+	}
+
+	/**
+	 * Test method for reindexing a changed file with a sharded repository.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testReindexSharded() throws IOException {
+		checkReindex(open("sharded", true, false));
+	}
+
+	/**
+	 * Test method for removing a file with the word tree, before and after
+	 * the repository is saved and loaded.
+	 */
+	@Test
+	public void testRemoveTree() {
+		checkRemove("tree", false, false);
+	}
+
+	/**
+	 * Test method for removing a file with the compact dictionary, before and
+	 * after the repository is saved and loaded.
+	 */
+	@Test
+	public void testRemoveCompact() {
+		checkRemove("compact", false, true);
+	}
+
+	/**
+	 * Test method for removing a file with a sharded repository, before and
+	 * after the repository is saved and loaded.
+	 */
+	@Test
+	public void testRemoveSharded() {
+		checkRemove("sharded", true, false);
+	}
+
+	/**
+	 * Test method for the shards loaded when a changed file is reindexed in a
+	 * sharded repository that was just loaded: only the shards of its old
+	 * words (alpha, beta, gamma, shared) to retract them and of its new ones
+	 * (epsilon, zeta) to add them, not those of the other file (delta).
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testReindexLoadsOnlyShardsOfFile() throws IOException {
+		WordTracker tracker = open("sharded", true, false);
+		tracker.processFile(a.toString());
+		tracker.processFile(b.toString());
+
+		WordTracker loaded = new WordTracker(directory.resolve("sharded.ser").toString(), true);
+		assertEquals(0, loaded.getLoadedShards());
+		write(a, "epsilon alpha\n\nzeta shared zeta\n");
+		loaded.processFile(a.toString());
+		assertEquals(6, loaded.getLoadedShards());
+		checkPostings(loaded, a, b);
+
+		WordTracker reloaded = new WordTracker(directory.resolve("sharded.ser").toString(), true);
+		write(a, "alpha\n");
+		reloaded.processFile(a.toString());
+		assertEquals(4, reloaded.getLoadedShards());  // alpha, epsilon, shared, zeta
+		checkPostings(reloaded, a, b);
+	}
+
+	/**
+	 * Test method for the shards loaded when a file is removed from or listed
+	 * in a sharded repository that was just loaded, also for a repository
+	 * built by merging runs under a memory budget.
+	 */
+	@Test
+	public void testRemoveLoadsOnlyShardsOfFile() {
+		for (long budget : new long[] {0, 1}) {
+			String name = "sharded" + budget;
+			WordTracker tracker = open(name, true, false);
+			tracker.setMemoryBudget(budget);
+			tracker.processFile(a.toString());
+			tracker.processFile(b.toString());
+
+			WordTracker listed = new WordTracker(directory.resolve(name + ".ser").toString(), true);
+			assertEquals(4, listed.wordsOf(a.toString()).size());
+			assertEquals(4, listed.getLoadedShards());  // alpha, beta, gamma, shared
+
+			WordTracker loaded = new WordTracker(directory.resolve(name + ".ser").toString(), true);
+			assertTrue(loaded.removeFile(b.toString()));
+			assertEquals(3, loaded.getLoadedShards());  // beta, delta, shared
+			checkPostings(loaded, a);
+		}
+	}
+
+	/**
+	 * Test method for the lists of words per file of the compact dictionary,
+	 * which are not saved but rebuilt when the repository is loaded: listing,
+	 * reindexing and removing files after a load must use the rebuilt lists.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testCompactFileWordsAfterLoad() throws IOException {
+		WordTracker tracker = open("compact", false, true);
+		tracker.processFile(a.toString());
+		tracker.processFile(b.toString());
+		Map<String, List<Integer>> wordsOfA = tracker.wordsOf(a.toString());
+		Map<String, List<Integer>> wordsOfB = tracker.wordsOf(b.toString());
+
+		WordTracker loaded = new WordTracker(directory.resolve("compact.ser").toString());
+		assertTrue(loaded.isCompactDictionary());
+		assertEquals(wordsOfA, loaded.wordsOf(a.toString()));
+		assertEquals(wordsOfB, loaded.wordsOf(b.toString()));
+
+		write(a, "epsilon alpha\n\nzeta\n");
+		loaded.processFile(a.toString());
+		checkPostings(loaded, a, b);
+		assertEquals(new ArrayList<>(Arrays.asList("alpha", "epsilon", "zeta")),
+			new ArrayList<>(loaded.wordsOf(a.toString()).keySet()));
+
+		WordTracker reloaded = new WordTracker(directory.resolve("compact.ser").toString());
+		assertTrue(reloaded.removeFile(b.toString()));
+		checkPostings(reloaded, a);
+		assertTrue(reloaded.wordsOf(b.toString()).isEmpty());
+	}
+
+	/**
+	 * Indexes both files, changes the first and processes it again, and
+	 * checks the postings before and after the repository is loaded again.
+	 *
+	 * @param tracker The tracker, with an empty repository.
+	 * @throws IOException If a file cannot be written.
+	 */
+	private void checkReindex(WordTracker tracker) throws IOException {
+		tracker.processFile(a.toString());
+		tracker.processFile(b.toString());
+		checkPostings(tracker, a, b);
+		tracker.wordsOf(b.toString());  // Builds the forward index before the change
+
+		write(a, "epsilon alpha\n\nzeta shared zeta\n");
+		tracker.processFile(a.toString());
+		checkPostings(tracker, a, b);
+		assertNull(tracker.lookup("gamma"));
+		assertEquals(Collections.singleton(b.toString()), tracker.lookup("beta").getFileLocations().keySet());
+		Map<String, List<Integer>> expected = new LinkedHashMap<>();
+		expected.put("alpha", Arrays.asList(1));
+		expected.put("epsilon", Arrays.asList(1));
+		expected.put("shared", Arrays.asList(3));
+		expected.put("zeta", Arrays.asList(3));
+		assertEquals(expected, tracker.wordsOf(a.toString()));
+	}
+
+	/**
+	 * Indexes both files and removes the first, then indexes it again and
+	 * removes the second from a tracker that loads the saved repository.
+	 *
+	 * @param name The name of the repository file, without extension.
+	 * @param sharded True to use a sharded repository.
+	 * @param compact True to use the compact dictionary.
+	 */
+	private void checkRemove(String name, boolean sharded, boolean compact) {
+		WordTracker tracker = open(name, sharded, compact);
+		tracker.processFile(a.toString());
+		tracker.processFile(b.toString());
+		assertTrue(tracker.removeFile(a.toString()));
+		assertFalse(tracker.removeFile(a.toString()));
+		checkPostings(tracker, b);
+		assertNull(tracker.lookup("alpha"));
+		assertNull(tracker.lookup("gamma"));
+		assertTrue(tracker.wordsOf(a.toString()).isEmpty());
+		assertEquals(0, tracker.getFilePostings(a.toString()));
+
+		tracker.processFile(a.toString());  // Forgotten by the manifest, so indexed again
+		checkPostings(tracker, a, b);
+
+		WordTracker loaded = new WordTracker(directory.resolve(name + ".ser").toString(), sharded);
+		checkPostings(loaded, a, b);
+		assertTrue(loaded.removeFile(b.toString()));
+		checkPostings(loaded, a);
+		assertNull(loaded.lookup("delta"));
+
+		WordTracker reloaded = new WordTracker(directory.resolve(name + ".ser").toString(), sharded);
+		checkPostings(reloaded, a);
+	}
+
+	/**
+	 * Checks that a tracker holds exactly the postings of the given files, by
+	 * comparing it with a tracker that indexes only those files from scratch.
+	 *
+	 * @param tracker The tracker to check.
+	 * @param files The files it should hold.
+	 */
+	private void checkPostings(WordTracker tracker, Path... files) {
+		Path referenceFile = directory.resolve("reference" + System.nanoTime() + ".ser");
+		WordTracker reference = new WordTracker(referenceFile.toString());
+		for (Path file : files) {
+			reference.processFile(file.toString());
+		}
+		assertEquals(reference.getTotalPostings(), tracker.getTotalPostings());
+		assertEquals(files.length, tracker.getFileCount());
+		for (Path file : files) {
+			assertEquals(reference.getFilePostings(file.toString()), tracker.getFilePostings(file.toString()));
+			assertEquals(reference.wordsOf(file.toString()), tracker.wordsOf(file.toString()));
+		}
+		for (String word : VOCABULARY) {
+			WordInfo expected = reference.lookup(word);
+			WordInfo actual = tracker.lookup(word);
+			if (expected == null) {
+				assertNull("Word " + word + " should be gone.", actual);
+			} else {
+				assertNotNull("Word " + word + " should be found.", actual);
+				assertEquals(word, expected.getFileLocations(), actual.getFileLocations());
+			}
+		}
+	}
+
+	/**
+	 * Creates a tracker for a new repository in the temporary directory.
+	 *
+	 * @param name The name of the repository file, without extension.
+	 * @param sharded True to use a sharded repository.
+	 * @param compact True to use the compact dictionary.
+	 * @return The tracker.
+	 */
+	private WordTracker open(String name, boolean sharded, boolean compact) {
+		WordTracker tracker = new WordTracker(directory.resolve(name + ".ser").toString(), sharded);
+		if (compact) tracker.setCompactDictionary(true);
+		return tracker;
+	}
+
+	/**
+	 * Writes a file.
+	 *
+	 * @param file The file.
+	 * @param content The content.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private static void write(Path file, String content) throws IOException {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,183 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.FuzzyQuery;
+
+/**
+ * Class Description:
+ * Tests the Levenshtein automaton of {@link WordTracker.FuzzyQuery} against
+ * a brute-force edit distance for maximum distances 0 to 2, with candidates
+ * fed in ascending order, as the repository walks them, and in random order.
+ */
+public class FuzzyQueryTest {
+	private static final int MAX_DISTANCE = 2;
+	private List<String> candidates;
+
+	/**
+	 * Generates every word of up to three letters over a three-letter
+	 * alphabet, including the empty word, and random words of four to eight
+	 * letters, sorted and without duplicates.
+	 */
+	@Before
+	public void setUp() {
+		TreeSet<String> words = new TreeSet<>();
+		words.add("");
+		List<String> level = Collections.singletonList("");
+		for (int length = 1; length <= 3; length++) {
+			List<String> next = new ArrayList<>();
+			for (String prefix : level) {
+				for (char c = 'a'; c <= 'c'; c++) {
+					next.add(prefix + c);
+				}
+			}
+			words.addAll(next);
+			level = next;
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			words.add(randomWord(random, 4 + random.nextInt(5)));
+		}
+		candidates = new ArrayList<>(words);
+	}
+
+	/**
+	 * Test method for one-character query words against every candidate.
+	 */
+	@Test
+	public void testOneCharacterWords() {
+		for (String word : Arrays.asList("a", "b", "z")) {
+			for (int k = 0; k <= MAX_DISTANCE; k++) {
+				checkAgainstBruteForce(word, k, candidates);
+			}
+		}
+	}
+
+	/**
+	 * Test method for the empty candidate and one-character candidates, whose
+	 * distance is the length of the query word or one less.
+	 */
+	@Test
+	public void testShortCandidates() {
+		FuzzyQuery query = new FuzzyQuery("ab", 2);
+		assertEquals(2, query.distance(""));
+		assertEquals(1, query.distance("a"));
+		assertEquals(1, query.distance("b"));
+		assertEquals(2, query.distance("c"));
+		assertEquals(0, query.distance("ab"));
+		assertEquals(-1, new FuzzyQuery("abc", 2).distance(""));
+		assertEquals(0, new FuzzyQuery("a", 0).distance("a"));
+		assertEquals(-1, new FuzzyQuery("a", 0).distance(""));
+		assertEquals(1, new FuzzyQuery("a", 1).distance(""));
+	}
+
+	/**
+	 * Test method for query words of two to six characters against every
+	 * candidate in ascending order.
+	 */
+	@Test
+	public void testSortedCandidates() {
+		Random random = new Random(7);
+		for (int i = 0; i < 40; i++) {
+			String word = randomWord(random, 2 + random.nextInt(5));
+			for (int k = 0; k <= MAX_DISTANCE; k++) {
+				checkAgainstBruteForce(word, k, candidates);
+			}
+		}
+	}
+
+	/**
+	 * Test method for candidates in random order, where the rows of a shared
+	 * prefix are rarely reused, and for a candidate repeated right after
+	 * itself.
+	 */
+	@Test
+	public void testShuffledCandidates() {
+		List<String> shuffled = new ArrayList<>(candidates);
+		Collections.shuffle(shuffled, new Random(11));
+		shuffled.add(shuffled.get(shuffled.size() - 1));
+		for (String word : Arrays.asList("ab", "cab", "abcab", "bbbbbb")) {
+			for (int k = 0; k <= MAX_DISTANCE; k++) {
+				checkAgainstBruteForce(word, k, shuffled);
+			}
+		}
+	}
+
+	/**
+	 * Test method for rejecting an empty query word and a negative distance.
+	 */
+	@Test
+	public void testInvalidQuery() {
+		try {
+			new FuzzyQuery("", 1);
+			fail("Expected IllegalArgumentException for an empty word");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			new FuzzyQuery("a", -1);
+			fail("Expected IllegalArgumentException for a negative distance");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Feeds candidates to one query in the given order and checks every
+	 * distance it returns against the brute-force distance.
+	 *
+	 * @param word The query word.
+	 * @param maxDistance The maximum distance.
+	 * @param words The candidates.
+	 */
+	private static void checkAgainstBruteForce(String word, int maxDistance, List<String> words) {
+		FuzzyQuery query = new FuzzyQuery(word, maxDistance);
+		for (String candidate : words) {
+			int distance = levenshtein(word, candidate);
+			int expected = distance <= maxDistance ? distance : -1;
+			assertEquals("Distance from \"" + candidate + "\" to \"" + word + "\" within " + maxDistance,
+				expected, query.distance(candidate));
+		}
+	}
+
+	/**
+	 * Computes the edit distance of two words with the full dynamic
+	 * programming table.
+	 *
+	 * @param s The first word.
+	 * @param t The second word.
+	 * @return The number of insertions, deletions and substitutions that turn one word into the other.
+	 */
+	private static int levenshtein(String s, String t) {
+		int[][] d = new int[s.length() + 1][t.length() + 1];
+		for (int i = 0; i <= s.length(); i++) d[i][0] = i;
+		for (int j = 0; j <= t.length(); j++) d[0][j] = j;
+		for (int i = 1; i <= s.length(); i++) {
+			for (int j = 1; j <= t.length(); j++) {
+				int substitution = d[i - 1][j - 1] + (s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1);
+				d[i][j] = Math.min(substitution, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+			}
+		}
+		return d[s.length()][t.length()];
+	}
+
+	/**
+	 * Makes a random word over the letters a to c.
+	 *
+	 * @param random The source of randomness.
+	 * @param length The length of the word.
+	 * @return The word.
+	 */
+	private static String randomWord(Random random, int length) {
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			word.append((char) ('a' + random.nextInt(3)));
+		}
+		return word.toString();
+	}
+}
@@ -0,0 +1,163 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.IntBSTree;
+
+/**
+ * Class Description:
+ * Tests the int-keyed, array-based binary search tree IntBSTree against the
+ * behaviour of BSTree and java.util.TreeSet.
+ */
+public class IntBSTreeTest {
+	private IntBSTree tree;
+
+	/**
+	 * Creates a tree holding 44, 22, 66, 11, 33, 55, 77, which is perfectly balanced.
+	 */
+	@Before
+	public void setUp() {
+		tree = new IntBSTree(2);
+		for (int key : new int[] { 44, 22, 66, 11, 33, 55, 77 }) {
+			tree.add(key);
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.IntBSTree#add(int)} and
+	 * {@link implementations.IntBSTree#contains(int)}, including duplicates and
+	 * growing past the initial capacity.
+	 */
+	@Test
+	public void testAddContains() {
+		assertEquals("Failed to return correct size.", 7, tree.size());
+		assertFalse("Duplicate key was added.", tree.add(33));
+		assertEquals("Failed to return correct size.", 7, tree.size());
+		assertTrue("Failed to find key.", tree.contains(55));
+		assertFalse("Found missing key.", tree.contains(50));
+		assertEquals("Failed to return correct height.", 3, tree.getHeight());
+	}
+
+	/**
+	 * Test method for the three iterators on a known tree.
+	 */
+	@Test
+	public void testIterators() {
+		assertArrayEquals(new int[] { 11, 22, 33, 44, 55, 66, 77 }, drain(tree.inorderIterator()));
+		assertArrayEquals(new int[] { 44, 22, 11, 33, 66, 55, 77 }, drain(tree.preorderIterator()));
+		assertArrayEquals(new int[] { 11, 33, 22, 55, 77, 66, 44 }, drain(tree.postorderIterator()));
+		assertArrayEquals(new int[0], drain(new IntBSTree().postorderIterator()));
+	}
+
+	/**
+	 * Test method for {@link implementations.IntBSTree#remove(int)} of a leaf, a
+	 * node with one child and a node with two children.
+	 */
+	@Test
+	public void testRemove() {
+		assertTrue(tree.remove(44));   // Two children: replaced by 55
+		assertTrue(tree.remove(11));   // Leaf
+		assertTrue(tree.remove(66));   // One child after 55 moved up
+		assertFalse(tree.remove(44));
+		assertArrayEquals(new int[] { 22, 33, 55, 77 }, drain(tree.inorderIterator()));
+		assertArrayEquals(new int[] { 55, 22, 33, 77 }, drain(tree.preorderIterator()));
+		assertEquals(4, tree.size());
+	}
+
+	/**
+	 * Test method for {@link implementations.IntBSTree#removeMin()} and
+	 * {@link implementations.IntBSTree#removeMax()}.
+	 */
+	@Test
+	public void testRemoveMinMax() {
+		assertEquals(11, tree.removeMin());
+		assertEquals(77, tree.removeMax());
+		assertEquals(22, tree.removeMin());
+		assertEquals(66, tree.removeMax());
+		assertEquals(3, tree.size());
+		tree.clear();
+		assertTrue(tree.isEmpty());
+		try {
+			tree.removeMin();
+			fail("Removed from an empty tree.");
+		} catch (NoSuchElementException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Test method for random additions and removals, compared with a TreeSet,
+	 * which also exercises the reuse of freed slots.
+	 */
+	@Test
+	public void testAgainstTreeSet() {
+		Random random = new Random(304);
+		IntBSTree randomTree = new IntBSTree();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int i = 0; i < 20000; i++) {
+			int key = random.nextInt(2000) - 1000;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), randomTree.remove(key));
+			} else {
+				assertEquals(expected.add(key), randomTree.add(key));
+			}
+		}
+		assertEquals(expected.size(), randomTree.size());
+		int[] keys = drain(randomTree.inorderIterator());
+		int i = 0;
+		for (int key : expected) {
+			assertEquals(key, keys[i++]);
+		}
+	}
+
+	/**
+	 * Test method for iterating a sorted (degenerate) tree deeper than the call
+	 * stack would allow for a recursive traversal.
+	 */
+	@Test
+	public void testDegenerateTree() {
+		IntBSTree list = new IntBSTree();
+		for (int key = 0; key < 20000; key++) {
+			list.add(key);
+		}
+		assertEquals(20000, list.getHeight());
+		assertEquals(20000, drain(list.postorderIterator()).length);
+	}
+
+	/**
+	 * Test method for detecting a modification of the tree during iteration.
+	 */
+	@Test(expected = ConcurrentModificationException.class)
+	public void testConcurrentModification() {
+		PrimitiveIterator.OfInt iterator = tree.inorderIterator();
+		iterator.nextInt();
+		tree.add(99);
+		iterator.nextInt();
+	}
+
+	/**
+	 * Reads all keys from an iterator.
+	 *
+	 * @param iterator The iterator.
+	 * @return The keys in iteration order.
+	 */
+	private static int[] drain(PrimitiveIterator.OfInt iterator) {
+		int[] keys = new int[16];
+		int count = 0;
+		while (iterator.hasNext()) {
+			if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+			keys[count++] = iterator.nextInt();
+		}
+		return Arrays.copyOf(keys, count);
+	}
+}
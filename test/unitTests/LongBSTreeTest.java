@@ -0,0 +1,82 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import implementations.LongBSTree;
+
+/**
+ * Class Description:
+ * Tests the long-keyed, array-based binary search tree LongBSTree, with keys
+ * outside the range of int such as timestamps.
+ */
+public class LongBSTreeTest {
+
+	/**
+	 * Test method for adding, searching and iterating keys that do not fit in an int.
+	 */
+	@Test
+	public void testLargeKeys() {
+		LongBSTree tree = new LongBSTree();
+		long base = 1_700_000_000_000L;
+		assertTrue(tree.add(base + 2));
+		assertTrue(tree.add(base));
+		assertTrue(tree.add(Long.MIN_VALUE));
+		assertTrue(tree.add(Long.MAX_VALUE));
+		assertFalse(tree.add(base));
+		assertTrue(tree.contains(Long.MIN_VALUE));
+		assertFalse(tree.contains(base + 1));
+		assertArrayEquals(new long[] { Long.MIN_VALUE, base, base + 2, Long.MAX_VALUE }, drain(tree.inorderIterator()));
+		assertArrayEquals(new long[] { base + 2, base, Long.MIN_VALUE, Long.MAX_VALUE }, drain(tree.preorderIterator()));
+		assertArrayEquals(new long[] { Long.MIN_VALUE, base, Long.MAX_VALUE, base + 2 }, drain(tree.postorderIterator()));
+		assertEquals(Long.MAX_VALUE, tree.removeMax());
+		assertEquals(Long.MIN_VALUE, tree.removeMin());
+		assertEquals(2, tree.size());
+	}
+
+	/**
+	 * Test method for random additions and removals, compared with a TreeSet.
+	 */
+	@Test
+	public void testAgainstTreeSet() {
+		Random random = new Random(304);
+		LongBSTree tree = new LongBSTree();
+		TreeSet<Long> expected = new TreeSet<>();
+		for (int i = 0; i < 20000; i++) {
+			long key = (random.nextInt(2000) - 1000) * 4_000_000_000L;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), tree.remove(key));
+			} else {
+				assertEquals(expected.add(key), tree.add(key));
+			}
+		}
+		long[] keys = drain(tree.inorderIterator());
+		assertEquals(expected.size(), keys.length);
+		int i = 0;
+		for (long key : expected) {
+			assertEquals(key, keys[i++]);
+		}
+	}
+
+	/**
+	 * Reads all keys from an iterator.
+	 *
+	 * @param iterator The iterator.
+	 * @return The keys in iteration order.
+	 */
+	private static long[] drain(PrimitiveIterator.OfLong iterator) {
+		long[] keys = new long[16];
+		int count = 0;
+		while (iterator.hasNext()) {
+			if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+			keys[count++] = iterator.nextLong();
+		}
+		return Arrays.copyOf(keys, count);
+	}
+}
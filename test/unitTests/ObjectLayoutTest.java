@@ -0,0 +1,75 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import implementations.BSTree;
+import implementations.ObjectLayout;
+
+/**
+ * Class Description:
+ * Tests the object size arithmetic of ObjectLayout and the node estimate of
+ * BSTree built on it.
+ */
+public class ObjectLayoutTest {
+
+	/**
+	 * Test method for {@link implementations.ObjectLayout#align(long)}.
+	 */
+	@Test
+	public void testAlign() {
+		assertEquals(0, ObjectLayout.align(0));
+		assertEquals(ObjectLayout.ALIGNMENT, ObjectLayout.align(1));
+		assertEquals(ObjectLayout.ALIGNMENT, ObjectLayout.align(ObjectLayout.ALIGNMENT));
+		assertEquals(2 * ObjectLayout.ALIGNMENT, ObjectLayout.align(ObjectLayout.ALIGNMENT + 1));
+	}
+
+	/**
+	 * Test method for {@link implementations.ObjectLayout#objectBytes(int, int)}
+	 * and {@link implementations.ObjectLayout#arrayBytes(long, int)}: sizes are
+	 * aligned and cover the header and the fields or elements.
+	 */
+	@Test
+	public void testObjectAndArrayBytes() {
+		long empty = ObjectLayout.objectBytes(0, 0);
+		assertTrue(empty >= ObjectLayout.HEADER_BYTES);
+		assertEquals(0, empty % ObjectLayout.ALIGNMENT);
+		long node = ObjectLayout.objectBytes(3, 0);
+		assertTrue(node >= ObjectLayout.HEADER_BYTES + 3 * ObjectLayout.REFERENCE_BYTES);
+		assertEquals(0, node % ObjectLayout.ALIGNMENT);
+
+		assertEquals(ObjectLayout.align(ObjectLayout.ARRAY_HEADER_BYTES), ObjectLayout.arrayBytes(0, 4));
+		assertEquals(ObjectLayout.align(ObjectLayout.ARRAY_HEADER_BYTES + 1000 * 8), ObjectLayout.arrayBytes(1000, 8));
+		assertEquals(ObjectLayout.arrayBytes(10, ObjectLayout.REFERENCE_BYTES), ObjectLayout.referenceArrayBytes(10));
+	}
+
+	/**
+	 * Test method for {@link implementations.ObjectLayout#stringBytes(String)}:
+	 * a String that is not Latin-1 never takes less than a Latin-1 one.
+	 */
+	@Test
+	public void testStringBytes() {
+		assertEquals(ObjectLayout.stringBytes(5, true), ObjectLayout.stringBytes("hello"));
+		assertEquals(ObjectLayout.stringBytes(5, true), ObjectLayout.stringBytes("caf\u00e9s"));
+		assertEquals(ObjectLayout.stringBytes(5, false), ObjectLayout.stringBytes("hell\u20ac"));
+		assertTrue(ObjectLayout.stringBytes(100, false) >= ObjectLayout.stringBytes(100, true));
+		assertTrue(ObjectLayout.stringBytes("") > 0);
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#estimateNodeBytes()}: every
+	 * element adds one node, and a Bloom filter adds its bits.
+	 */
+	@Test
+	public void testTreeEstimate() {
+		BSTree<Integer> tree = new BSTree<>();
+		long empty = tree.estimateNodeBytes();
+		for (int i = 0; i < 100; i++) {
+			tree.add(i);
+		}
+		assertEquals(empty + 100 * ObjectLayout.objectBytes(3, 0), tree.estimateNodeBytes());
+		tree.setFilter(0.01);
+		assertTrue(tree.estimateNodeBytes() > empty + 100 * ObjectLayout.objectBytes(3, 0) + tree.getFilter().getBitCount() / 8);
+	}
+}
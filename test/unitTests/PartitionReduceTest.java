@@ -0,0 +1,189 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.WordInfo;
+import WordTracker.WordTracker;
+
+/**
+ * Class Description:
+ * Tests reducing partitions built in-process with
+ * {@link WordTracker.WordTracker#indexPartition(String, int, int)} into a
+ * repository with {@link WordTracker.WordTracker#reduce(List)}, where one file
+ * is indexed by both partitions: the repository must match one built by a
+ * single process, first for a new repository and then after files changed,
+ * whose earlier postings the manifests of the partitions retract.
+ */
+public class PartitionReduceTest {
+	private static final String[] VOCABULARY = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta",
+		"theta", "iota", "kappa", "lambda", "mu", "nu", "xi", "omicron", "pi", "rho", "sigma"};
+	private static final int FILES = 12;
+	private Path directory;
+	private Path corpus;
+	private Random random;
+	private int round;
+
+	/**
+	 * Creates a corpus of files that share their words.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("reduce");
+		corpus = Files.createDirectory(directory.resolve("corpus"));
+		random = new Random(42);
+		for (int f = 0; f < FILES; f++) {
+			rewrite(file(f), 5 + f);
+		}
+	}
+
+	/**
+	 * Deletes the temporary directory.
+	 *
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for reducing into a word tree.
+	 *
+	 * @throws IOException If the partitions cannot be written or reduced.
+	 */
+	@Test(timeout = 60000)
+	public void testReduceTree() throws IOException {
+		checkReduce(false);
+	}
+
+	/**
+	 * Test method for reducing into a sharded repository.
+	 *
+	 * @throws IOException If the partitions cannot be written or reduced.
+	 */
+	@Test(timeout = 60000)
+	public void testReduceSharded() throws IOException {
+		checkReduce(true);
+	}
+
+	/**
+	 * Reduces two partitions that both index the first file into a new
+	 * repository, then changes files, the first one again after the first
+	 * partition indexed it, and reduces two new partitions into the same
+	 * repository. After each reduce the repository must match a single
+	 * process that indexes the corpus as it is, also once it is loaded again,
+	 * and processing the corpus must find every file unchanged.
+	 *
+	 * @param sharded True to use a sharded repository.
+	 * @throws IOException If the partitions cannot be written or reduced.
+	 */
+	private void checkReduce(boolean sharded) throws IOException {
+		String name = "repository" + (sharded ? "" : ".ser");
+		WordTracker tracker = new WordTracker(directory.resolve(name).toString(), sharded);
+		tracker.reduce(Arrays.asList(partition(0, null), partition(1, file(0))));
+		checkMatchesSingleProcess(tracker);
+
+		rewrite(file(0), 9);
+		rewrite(file(5), 3);
+		Path first = partition(0, file(0));
+		rewrite(file(0), 14);  // Changed again after the first partition indexed it
+		Path second = partition(1, file(0));
+		tracker.reduce(Arrays.asList(first, second));
+		checkMatchesSingleProcess(tracker);
+
+		WordTracker loaded = new WordTracker(directory.resolve(name).toString(), sharded);
+		checkMatchesSingleProcess(loaded);
+		assertEquals("Every file should be unchanged.", 0, loaded.processDirectory(corpus.toString()).getFilesIndexed());
+	}
+
+	/**
+	 * Indexes one of two partitions of the corpus, as a child process of a
+	 * partitioned ingest does, into a new partition file.
+	 *
+	 * @param partition The index of the partition.
+	 * @param extra A file to index first, whichever partition it belongs to, or null.
+	 * @return The partition file, with its manifest next to it.
+	 * @throws IOException If the partition cannot be written.
+	 */
+	private Path partition(int partition, Path extra) throws IOException {
+		Path part = directory.resolve("part" + round++ + ".ser");
+		WordTracker tracker = new WordTracker(part.toString());
+		if (extra != null) tracker.processFile(extra.toString());
+		tracker.indexPartition(corpus.toString(), partition, 2);
+		return part;
+	}
+
+	/**
+	 * Checks that a tracker holds exactly the postings of the corpus, by
+	 * comparing it with a tracker that indexes the corpus from scratch.
+	 *
+	 * @param tracker The tracker to check.
+	 * @throws IOException If the corpus cannot be processed.
+	 */
+	private void checkMatchesSingleProcess(WordTracker tracker) throws IOException {
+		WordTracker reference = new WordTracker(directory.resolve("reference" + round++ + ".ser").toString());
+		reference.processDirectory(corpus.toString());
+		assertEquals(reference.getTotalPostings(), tracker.getTotalPostings());
+		assertEquals(FILES, tracker.getFileCount());
+		assertEquals(reference.getDistinctWords(), tracker.getDistinctWords());
+		for (int f = 0; f < FILES; f++) {
+			String filename = file(f).toString();
+			assertEquals(filename, reference.getFilePostings(filename), tracker.getFilePostings(filename));
+			assertEquals(filename, reference.wordsOf(filename), tracker.wordsOf(filename));
+		}
+		for (String word : VOCABULARY) {
+			WordInfo expected = reference.lookup(word);
+			WordInfo actual = tracker.lookup(word);
+			if (expected == null) {
+				assertNull("Word " + word + " should be gone.", actual);
+			} else {
+				assertNotNull("Word " + word + " should be found.", actual);
+				assertEquals(word, expected.getFileLocations(), actual.getFileLocations());
+				assertEquals(word, expected.getOccurrences(), actual.getOccurrences());
+			}
+		}
+	}
+
+	/**
+	 * Gets the path of a file of the corpus.
+	 *
+	 * @param f The number of the file.
+	 * @return The path.
+	 */
+	private Path file(int f) {
+		return corpus.resolve("file" + f + ".txt");
+	}
+
+	/**
+	 * Writes a file of random lines of two to five words.
+	 *
+	 * @param file The file.
+	 * @param lines The number of lines.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void rewrite(Path file, int lines) throws IOException {
+		List<String> content = new ArrayList<>();
+		for (int l = 0; l < lines; l++) {
+			StringBuilder line = new StringBuilder();
+			for (int w = 2 + random.nextInt(4); w > 0; w--) {
+				line.append(VOCABULARY[random.nextInt(VOCABULARY.length)]).append(' ');
+			}
+			content.add(line.toString());
+		}
+		Files.write(file, content, StandardCharsets.UTF_8);
+	}
+}
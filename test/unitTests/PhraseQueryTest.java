@@ -0,0 +1,196 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.WordTracker;
+
+/**
+ * Class Description:
+ * Tests {@link WordTracker.WordTracker#phraseQuery(String)} against a
+ * brute-force scan of the words of each file, for phrases that span a line
+ * break, phrases whose words only occur apart, and random phrases over random
+ * files with a small vocabulary.
+ */
+public class PhraseQueryTest {
+	private static final String[] VOCABULARY = {"red", "fox", "jumps", "over", "the", "dog"};
+	private Path directory;
+	private WordTracker tracker;
+	private Map<String, List<String>> contents;
+
+	/**
+	 * Creates a tracker that records positions, for a repository in a
+	 * temporary directory.
+	 *
+	 * @throws IOException If the directory cannot be created.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("phrase");
+		tracker = new WordTracker(directory.resolve("repository.ser").toString());
+		tracker.setPositional(true);
+		contents = new TreeMap<>();
+	}
+
+	/**
+	 * Deletes the temporary directory.
+	 *
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for a phrase whose words are on consecutive lines, which
+	 * matches on the line it starts on, also across empty lines and
+	 * punctuation.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testAcrossLineBreak() throws IOException {
+		String a = index("a.txt", "the quick brown", "fox jumps", "", "over. The", "", "lazy dog");
+		Map<String, List<Integer>> expected = new TreeMap<>();
+		expected.put(a, Arrays.asList(1));
+		assertEquals(expected, tracker.phraseQuery("brown fox"));
+		assertEquals(expected, tracker.phraseQuery("Quick, brown fox jumps"));
+		expected.put(a, Arrays.asList(2));
+		assertEquals(expected, tracker.phraseQuery("jumps over the lazy"));
+		checkAgainstBruteForce("the lazy dog", "brown fox jumps over the lazy dog", "dog the");
+	}
+
+	/**
+	 * Test method for phrases whose words all occur in a file, in order or on
+	 * one line, but never directly after each other, which do not match.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testOnlyNonAdjacent() throws IOException {
+		String b = index("b.txt", "red big fox", "dog fox red", "the dog red");
+		assertEquals(Collections.emptyMap(), tracker.phraseQuery("red fox"));
+		assertEquals(Collections.emptyMap(), tracker.phraseQuery("red red"));
+		assertEquals(Collections.emptyMap(), tracker.phraseQuery("the red"));
+		assertEquals(Collections.emptyMap(), tracker.phraseQuery("big red"));
+		assertEquals(Collections.emptyMap(), tracker.phraseQuery("missing fox"));
+		assertEquals(Collections.emptyMap(), tracker.phraseQuery("!!"));
+		assertEquals(Collections.singletonMap(b, Arrays.asList(1)), tracker.phraseQuery("fox dog"));
+		assertEquals(Collections.singletonMap(b, Arrays.asList(2, 3)), tracker.phraseQuery("dog"));
+		assertEquals(Collections.singletonMap(b, Arrays.asList(2)), tracker.phraseQuery("fox red"));
+		checkAgainstBruteForce("red fox", "red red", "the red", "big red", "fox dog", "fox red", "dog red");
+	}
+
+	/**
+	 * Test method for random phrases of one to four words over files of random
+	 * lines from a vocabulary of six words, where most words occur many times
+	 * per line.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test
+	public void testRandomPhrases() throws IOException {
+		Random random = new Random(42);
+		for (int f = 0; f < 4; f++) {
+			String[] lines = new String[30];
+			for (int l = 0; l < lines.length; l++) {
+				lines[l] = String.join(" ", randomWords(random, random.nextInt(6)));
+			}
+			index("file" + f + ".txt", lines);
+		}
+		List<String> phrases = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			phrases.add(String.join(" ", randomWords(random, 1 + random.nextInt(4))));
+		}
+		checkAgainstBruteForce(phrases.toArray(new String[0]));
+	}
+
+	/**
+	 * Writes and indexes a file.
+	 *
+	 * @param name The name of the file.
+	 * @param lines The lines of the file.
+	 * @return The path of the file, as it is recorded in the repository.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private String index(String name, String... lines) throws IOException {
+		Path file = directory.resolve(name);
+		Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+		tracker.processFile(file.toString());
+		contents.put(file.toString(), Arrays.asList(lines));
+		return file.toString();
+	}
+
+	/**
+	 * Checks the result of phrase queries against a brute-force scan of the
+	 * words of every indexed file.
+	 *
+	 * @param phrases The phrases.
+	 */
+	private void checkAgainstBruteForce(String... phrases) {
+		for (String phrase : phrases) {
+			List<String> words = new ArrayList<>();
+			for (String[] word : tokenize(Collections.singletonList(phrase))) {
+				words.add(word[0]);
+			}
+			Map<String, List<Integer>> expected = new TreeMap<>();
+			for (Map.Entry<String, List<String>> file : contents.entrySet()) {
+				List<String[]> tokens = tokenize(file.getValue());
+				for (int start = 0; start + words.size() <= tokens.size(); start++) {
+					boolean match = true;
+					for (int i = 0; i < words.size() && match; i++) {
+						match = tokens.get(start + i)[0].equals(words.get(i));
+					}
+					if (!match) continue;
+					Integer line = Integer.valueOf(tokens.get(start)[1]);
+					List<Integer> lines = expected.computeIfAbsent(file.getKey(), k -> new ArrayList<>());
+					if (lines.isEmpty() || !lines.get(lines.size() - 1).equals(line)) lines.add(line);
+				}
+			}
+			assertEquals("Phrase \"" + phrase + "\"", expected, tracker.phraseQuery(phrase));
+		}
+	}
+
+	/**
+	 * Splits lines into lower-case words of ASCII letters.
+	 *
+	 * @param lines The lines.
+	 * @return Each word with its line number, as {word, line}.
+	 */
+	private static List<String[]> tokenize(List<String> lines) {
+		List<String[]> tokens = new ArrayList<>();
+		for (int l = 0; l < lines.size(); l++) {
+			for (String word : lines.get(l).toLowerCase().split("[^a-z]+")) {
+				if (!word.isEmpty()) tokens.add(new String[] {word, String.valueOf(l + 1)});
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Picks random words from the vocabulary.
+	 *
+	 * @param random The source of randomness.
+	 * @param count The number of words.
+	 * @return The words.
+	 */
+	private static List<String> randomWords(Random random, int count) {
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			words.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+		}
+		return words;
+	}
+}
@@ -0,0 +1,190 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.Test;
+
+import WordTracker.PositionList;
+
+/**
+ * Class Description:
+ * Tests the variable-length delta encoding of {@link WordTracker.PositionList}:
+ * gaps on both sides of every byte boundary of the encoding, columns restarting
+ * on a new line, and a list that is serialized with its spare capacity trimmed
+ * and then grown again.
+ */
+public class PositionListTest {
+
+	/**
+	 * Test method for ordinal, line and column gaps just below and at each
+	 * length of the variable-length encoding, up to the largest int.
+	 */
+	@Test
+	public void testGapsAcrossByteBoundaries() {
+		int[] gaps = {1, 127, 128, 16383, 16384, 2097151, 2097152, 268435455, 268435456};
+		List<int[]> expected = new ArrayList<>();
+		PositionList list = new PositionList();
+		int ordinal = 0;
+		for (int gap : gaps) {
+			ordinal += gap;
+			add(list, expected, ordinal, 1, gap);  // A column gap of the same size on one line
+		}
+		add(list, expected, Integer.MAX_VALUE, 1, Integer.MAX_VALUE);
+		assertPositions(expected, list);
+
+		PositionList lines = new PositionList();
+		List<int[]> expectedLines = new ArrayList<>();
+		int line = 0;
+		for (int i = 0; i < gaps.length; i++) {
+			line += gaps[i];
+			add(lines, expectedLines, i, line, 1);
+		}
+		assertPositions(expectedLines, lines);
+	}
+
+	/**
+	 * Test method for the encoded size of single deltas, which takes one more
+	 * byte for every seven bits.
+	 */
+	@Test
+	public void testEncodedBytes() {
+		int[][] sizes = {{127, 1}, {128, 2}, {16383, 2}, {16384, 3}, {2097151, 3}, {2097152, 4},
+			{268435455, 4}, {268435456, 5}, {Integer.MAX_VALUE, 5}};
+		for (int[] size : sizes) {
+			PositionList list = new PositionList();
+			list.add(size[0], 0, 0);
+			assertEquals("Ordinal " + size[0], size[1] + 2, list.encodedBytes());
+		}
+	}
+
+	/**
+	 * Test method for columns on a new line, which are stored as absolute
+	 * values and may be smaller than the column before, and for repeated
+	 * occurrences on one line and empty lines in between.
+	 */
+	@Test
+	public void testLineAndColumnResets() {
+		PositionList list = new PositionList();
+		List<int[]> expected = new ArrayList<>();
+		add(list, expected, 0, 1, 1);
+		add(list, expected, 1, 1, 7);
+		add(list, expected, 2, 1, 200);
+		add(list, expected, 3, 2, 3);    // Column smaller than on the line before
+		add(list, expected, 4, 2, 3000);
+		add(list, expected, 5, 5, 1);    // Empty lines in between
+		add(list, expected, 9, 5, 1000); // Other words in between
+		add(list, expected, 10, 6, 999);
+		assertPositions(expected, list);
+	}
+
+	/**
+	 * Test method for rejecting positions that are not after the last one.
+	 */
+	@Test
+	public void testOutOfOrder() {
+		PositionList list = new PositionList();
+		list.add(5, 3, 1);
+		for (int[] position : new int[][] {{5, 3, 2}, {4, 3, 9}, {6, 2, 1}}) {
+			try {
+				list.add(position[0], position[1], position[2]);
+				fail("Expected IllegalArgumentException for " + Arrays.toString(position));
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+		assertEquals(1, list.size());
+	}
+
+	/**
+	 * Test method for serializing a list, which trims the spare capacity of its
+	 * byte array, and for adding positions to the list read back, which must
+	 * grow the trimmed array again.
+	 *
+	 * @throws Exception If the list cannot be serialized.
+	 */
+	@Test
+	public void testSerializationAfterTrimming() throws Exception {
+		Random random = new Random(42);
+		PositionList list = new PositionList();
+		List<int[]> expected = new ArrayList<>();
+		int ordinal = 0;
+		int line = 1;
+		int column = 1;
+		for (int i = 0; i < 1000; i++) {
+			ordinal += 1 + random.nextInt(i % 3 == 0 ? 20000 : 10);
+			if (random.nextInt(4) == 0) {
+				line += 1 + random.nextInt(200);
+				column = 1 + random.nextInt(50);
+			} else {
+				column += 1 + random.nextInt(300);
+			}
+			add(list, expected, ordinal, line, column);
+		}
+		int bytes = list.encodedBytes();
+
+		PositionList copy = roundTrip(list);
+		assertEquals(bytes, copy.encodedBytes());
+		assertPositions(expected, copy);
+		assertPositions(expected, list);  // The original is still usable after trimming
+
+		add(copy, expected, ordinal + 200, line, column + 1);
+		add(copy, expected, ordinal + 201, line + 1, 1);
+		assertPositions(expected, copy);
+		assertPositions(expected, roundTrip(copy));
+
+		PositionList empty = roundTrip(new PositionList());
+		assertEquals(0, empty.size());
+		empty.add(0, 1, 1);
+		assertArrayEquals(new int[] {0}, empty.ordinals());
+	}
+
+	/**
+	 * Adds a position to a list and to the expected positions.
+	 *
+	 * @param list The list.
+	 * @param expected The expected positions.
+	 * @param ordinal The ordinal of the position.
+	 * @param line The line of the position.
+	 * @param column The column of the position.
+	 */
+	private static void add(PositionList list, List<int[]> expected, int ordinal, int line, int column) {
+		list.add(ordinal, line, column);
+		expected.add(new int[] {ordinal, line, column});
+	}
+
+	/**
+	 * Checks the decoded positions and ordinals of a list.
+	 *
+	 * @param expected The expected positions, each {ordinal, line, column}.
+	 * @param list The list.
+	 */
+	private static void assertPositions(List<int[]> expected, PositionList list) {
+		assertEquals(expected.size(), list.size());
+		int[][] positions = list.positions();
+		int[] ordinals = list.ordinals();
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals("Position " + i, expected.get(i), positions[i]);
+			assertEquals("Ordinal " + i, expected.get(i)[0], ordinals[i]);
+		}
+	}
+
+	/**
+	 * Serializes a list and reads it back.
+	 *
+	 * @param list The list.
+	 * @return The list read back.
+	 * @throws Exception If the list cannot be serialized.
+	 */
+	private static PositionList roundTrip(PositionList list) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(list);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (PositionList) in.readObject();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import WordTracker.PostingList;
+
+/**
+ * Class Description:
+ * Tests the packing of postings and the set operations on sorted posting lists
+ * of {@link WordTracker.PostingList}.
+ */
+public class PostingListTest {
+
+	/**
+	 * Test method for packing a file ID and a line into a posting and back, and
+	 * for postings sorting by file and then by line.
+	 */
+	@Test
+	public void testPosting() {
+		long posting = PostingList.posting(7, 123);
+		assertEquals(7, PostingList.fileId(posting));
+		assertEquals(123, PostingList.line(posting));
+		assertTrue(PostingList.posting(1, Integer.MAX_VALUE) < PostingList.posting(2, 0));
+		assertTrue(PostingList.posting(2, 3) < PostingList.posting(2, 4));
+	}
+
+	/**
+	 * Test method for {@link WordTracker.PostingList#intersect(long[], long[])}.
+	 */
+	@Test
+	public void testIntersect() {
+		assertArrayEquals(new long[] {3, 9}, PostingList.intersect(new long[] {1, 3, 5, 9}, new long[] {2, 3, 9, 10}));
+		assertArrayEquals(new long[] {3, 9}, PostingList.intersect(new long[] {2, 3, 9, 10}, new long[] {1, 3, 5, 9}));
+		assertArrayEquals(new long[0], PostingList.intersect(new long[] {1, 2}, new long[] {3, 4}));
+		assertArrayEquals(new long[0], PostingList.intersect(PostingList.EMPTY, new long[] {1}));
+	}
+
+	/**
+	 * Test method for {@link WordTracker.PostingList#union(long[], long[])}.
+	 */
+	@Test
+	public void testUnion() {
+		assertArrayEquals(new long[] {1, 2, 3, 5, 9, 10}, PostingList.union(new long[] {1, 3, 5, 9}, new long[] {2, 3, 9, 10}));
+		assertArrayEquals(new long[] {4}, PostingList.union(PostingList.EMPTY, new long[] {4}));
+		assertArrayEquals(new long[0], PostingList.union(PostingList.EMPTY, PostingList.EMPTY));
+	}
+
+	/**
+	 * Test method for {@link WordTracker.PostingList#difference(long[], long[])}.
+	 */
+	@Test
+	public void testDifference() {
+		assertArrayEquals(new long[] {1, 5}, PostingList.difference(new long[] {1, 3, 5, 9}, new long[] {2, 3, 9, 10}));
+		assertArrayEquals(new long[] {1, 3}, PostingList.difference(new long[] {1, 3}, PostingList.EMPTY));
+		assertArrayEquals(new long[0], PostingList.difference(new long[] {1, 3}, new long[] {0, 1, 2, 3}));
+	}
+
+	/**
+	 * Test method for {@link WordTracker.PostingList#gallop(long[], int, long)}:
+	 * the first index not less than the target, from any start.
+	 */
+	@Test
+	public void testGallop() {
+		long[] list = new long[100];
+		for (int i = 0; i < list.length; i++) {
+			list[i] = 2 * i;
+		}
+		assertEquals(0, PostingList.gallop(list, 0, -1));
+		assertEquals(0, PostingList.gallop(list, 0, 0));
+		assertEquals(1, PostingList.gallop(list, 0, 1));
+		assertEquals(50, PostingList.gallop(list, 3, 100));
+		assertEquals(51, PostingList.gallop(list, 3, 101));
+		assertEquals(99, PostingList.gallop(list, 0, 198));
+		assertEquals(100, PostingList.gallop(list, 0, 199));
+		assertEquals(100, PostingList.gallop(list, 100, 0));
+		assertEquals(40, PostingList.gallop(list, 40, 0));  // Never moves back
+	}
+
+	/**
+	 * Test method for the set operations on random lists of very different
+	 * lengths, against TreeSet.
+	 */
+	@Test
+	public void testAgainstTreeSet() {
+		Random random = new Random(3);
+		for (int round = 0; round < 50; round++) {
+			TreeSet<Long> a = randomSet(random, 1 + random.nextInt(20), 1000);
+			TreeSet<Long> b = randomSet(random, random.nextInt(2000), 1000);
+
+			TreeSet<Long> both = new TreeSet<>(a);
+			both.retainAll(b);
+			TreeSet<Long> either = new TreeSet<>(a);
+			either.addAll(b);
+			TreeSet<Long> onlyA = new TreeSet<>(a);
+			onlyA.removeAll(b);
+			TreeSet<Long> onlyB = new TreeSet<>(b);
+			onlyB.removeAll(a);
+
+			assertArrayEquals(toArray(both), PostingList.intersect(toArray(a), toArray(b)));
+			assertArrayEquals(toArray(either), PostingList.union(toArray(a), toArray(b)));
+			assertArrayEquals(toArray(onlyA), PostingList.difference(toArray(a), toArray(b)));
+			assertArrayEquals(toArray(onlyB), PostingList.difference(toArray(b), toArray(a)));
+		}
+	}
+
+	/**
+	 * Draws a random set of postings.
+	 *
+	 * @param random The source of randomness.
+	 * @param count The number of draws.
+	 * @param lines The number of lines per file to draw from.
+	 * @return The postings drawn.
+	 */
+	private static TreeSet<Long> randomSet(Random random, int count, int lines) {
+		TreeSet<Long> set = new TreeSet<>();
+		for (int i = 0; i < count; i++) {
+			set.add(PostingList.posting(random.nextInt(3), random.nextInt(lines)));
+		}
+		return set;
+	}
+
+	/**
+	 * Converts a set of postings to a sorted array.
+	 *
+	 * @param set The postings.
+	 * @return The postings in ascending order.
+	 */
+	private static long[] toArray(TreeSet<Long> set) {
+		long[] array = new long[set.size()];
+		int i = 0;
+		for (long posting : set) {
+			array[i++] = posting;
+		}
+		return array;
+	}
+}
@@ -0,0 +1,259 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.RepositoryIO;
+import WordTracker.WordInfo;
+import implementations.BSTree;
+import utilities.Iterator;
+
+/**
+ * Class Description:
+ * Tests reading and writing repository files with
+ * {@link WordTracker.RepositoryIO} in the block-compressed WTZ1 format and as
+ * plain serialization: objects spanning several blocks, empty objects, plain
+ * files recognized by their first bytes, and truncated or corrupt compressed
+ * files, which must fail with an IOException.
+ */
+public class RepositoryIOTest {
+	private static final int MAGIC = 0x57545A31;  // "WTZ1"
+	private Path directory;
+
+	/**
+	 * Creates a temporary directory.
+	 *
+	 * @throws IOException If the directory cannot be created.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("repositoryio");
+	}
+
+	/**
+	 * Deletes the temporary directory.
+	 *
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for objects larger than one block, including blocks that do
+	 * not compress, and a word tree.
+	 *
+	 * @throws Exception If a file cannot be written or read.
+	 */
+	@Test(timeout = 60000)
+	public void testSeveralBlocks() throws Exception {
+		byte[] random = new byte[700 * 1024];
+		new Random(42).nextBytes(random);
+		Path file = directory.resolve("random.ser");
+		RepositoryIO.write(random, file, true);
+		assertEquals(MAGIC, header(file, 0));
+		assertTrue("Expected several blocks", header(file, 8) > 2);
+		assertArrayEquals(random, (byte[]) RepositoryIO.read(file));
+
+		BSTree<WordInfo> tree = tree(20000);
+		Path treeFile = directory.resolve("tree.ser");
+		RepositoryIO.write(tree, treeFile, true);
+		assertTrue("Expected several blocks", header(treeFile, 8) > 1);
+		assertEquals(describe(tree), describe(readTree(treeFile)));
+	}
+
+	/**
+	 * Test method for empty objects, whose serialized form fits in one block,
+	 * in both formats.
+	 *
+	 * @throws Exception If a file cannot be written or read.
+	 */
+	@Test
+	public void testEmptyObjects() throws Exception {
+		for (boolean compress : new boolean[] {true, false}) {
+			Path file = directory.resolve("empty" + compress + ".ser");
+			RepositoryIO.write(new BSTree<WordInfo>(), file, compress);
+			assertEquals(compress, header(file, 0) == MAGIC);
+			assertTrue(readTree(file).isEmpty());
+
+			RepositoryIO.write(new byte[0], file, compress);
+			assertArrayEquals(new byte[0], (byte[]) RepositoryIO.read(file));
+			RepositoryIO.write("", file, compress);
+			assertEquals("", RepositoryIO.read(file));
+		}
+	}
+
+	/**
+	 * Test method for plain serialized files, written without RepositoryIO as
+	 * by earlier versions, which are recognized by their first bytes.
+	 *
+	 * @throws Exception If a file cannot be written or read.
+	 */
+	@Test
+	public void testPlainSerializationFallback() throws Exception {
+		BSTree<WordInfo> tree = tree(500);
+		Path file = directory.resolve("plain.ser");
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file.toFile()))) {
+			out.writeObject(tree);
+		}
+		assertEquals(describe(tree), describe(readTree(file)));
+
+		RepositoryIO.write(tree, file);
+		assertFalse(header(file, 0) == MAGIC);
+		assertEquals(describe(tree), describe(readTree(file)));
+	}
+
+	/**
+	 * Test method for a compressed file cut off anywhere: in the magic number,
+	 * the header, the block table, a block or the checksum of the last block.
+	 *
+	 * @throws Exception If a file cannot be written.
+	 */
+	@Test(timeout = 60000)
+	public void testTruncated() throws Exception {
+		Path file = directory.resolve("truncated.ser");
+		RepositoryIO.write(tree(20000), file, true);
+		byte[] whole = Files.readAllBytes(file);
+		int blocks = header(file, 8);
+		int table = 12 + 4 * blocks;
+		int[] lengths = {0, 2, 4, 7, 12, 14, table - 1, table, table + 1, table + 100,
+			whole.length / 2, whole.length - 4, whole.length - 1};
+		for (int length : lengths) {
+			Files.write(file, Arrays.copyOf(whole, length));
+			assertFails("Truncated to " + length + " bytes", file);
+		}
+		Files.write(file, Arrays.copyOf(whole, whole.length + 10));
+		assertFails("Extended by 10 bytes", file);
+	}
+
+	/**
+	 * Test method for a compressed file with a changed byte: every byte of a
+	 * small file, and bytes spread over a file of several blocks.
+	 *
+	 * @throws Exception If a file cannot be written.
+	 */
+	@Test(timeout = 120000)
+	public void testCorrupted() throws Exception {
+		Path small = directory.resolve("small.ser");
+		RepositoryIO.write(tree(30), small, true);
+		byte[] smallBytes = Files.readAllBytes(small);
+		for (int i = 0; i < smallBytes.length; i++) {
+			checkCorrupted(small, smallBytes, i);
+		}
+
+		Path large = directory.resolve("large.ser");
+		RepositoryIO.write(tree(20000), large, true);
+		byte[] largeBytes = Files.readAllBytes(large);
+		for (int i = 0; i < 40; i++) {
+			checkCorrupted(large, largeBytes, i);
+		}
+		Random random = new Random(7);
+		for (int n = 0; n < 40; n++) {
+			checkCorrupted(large, largeBytes, random.nextInt(largeBytes.length));
+		}
+		checkCorrupted(large, largeBytes, largeBytes.length - 1);
+	}
+
+	/**
+	 * Writes a file with one byte changed and checks that reading it fails.
+	 *
+	 * @param file The file to write.
+	 * @param bytes The original content.
+	 * @param index The index of the byte to change.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private static void checkCorrupted(Path file, byte[] bytes, int index) throws IOException {
+		byte[] corrupted = bytes.clone();
+		corrupted[index] ^= 0x5A;
+		Files.write(file, corrupted);
+		assertFails("Byte " + index + " of " + bytes.length + " changed", file);
+	}
+
+	/**
+	 * Checks that reading a file fails with an IOException.
+	 *
+	 * @param message The message of the assertion.
+	 * @param file The file.
+	 */
+	private static void assertFails(String message, Path file) {
+		try {
+			Object object = RepositoryIO.read(file);
+			fail(message + ": read " + object.getClass().getSimpleName());
+		} catch (IOException e) {
+			// Expected
+		} catch (ClassNotFoundException e) {
+			fail(message + ": " + e);
+		}
+	}
+
+	/**
+	 * Reads an int from the start of a file.
+	 *
+	 * @param file The file.
+	 * @param offset The offset of the int.
+	 * @return The int.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private static int header(Path file, int offset) throws IOException {
+		return ByteBuffer.wrap(Files.readAllBytes(file), offset, 4).getInt();
+	}
+
+	/**
+	 * Builds a word tree of numbered words.
+	 *
+	 * @param words The number of words.
+	 * @return The tree.
+	 */
+	private static BSTree<WordInfo> tree(int words) {
+		List<WordInfo> infos = new ArrayList<>();
+		for (int i = 0; i < words; i++) {
+			WordInfo info = new WordInfo(String.format("word%06d", i));
+			info.addLocation("file" + (i % 7) + ".txt", 1 + i % 100);
+			info.addLocation("file" + (i % 5) + ".txt", 1 + i % 300);
+			infos.add(info);
+		}
+		return BSTree.fromSorted(infos);
+	}
+
+	/**
+	 * Reads a word tree.
+	 *
+	 * @param file The file.
+	 * @return The tree.
+	 * @throws Exception If the file cannot be read.
+	 */
+	@SuppressWarnings("unchecked")  // The files of these tests only hold word trees
+	private static BSTree<WordInfo> readTree(Path file) throws Exception {
+		return (BSTree<WordInfo>) RepositoryIO.read(file);
+	}
+
+	/**
+	 * Describes the words of a tree and their locations, to compare trees.
+	 *
+	 * @param tree The tree.
+	 * @return One line per word, in order.
+	 */
+	private static List<String> describe(BSTree<WordInfo> tree) {
+		List<String> lines = new ArrayList<>();
+		Iterator<WordInfo> it = tree.inorderIterator();
+		while (it.hasNext()) {
+			WordInfo info = it.next();
+			Map<String, Set<Integer>> locations = new TreeMap<>();
+			info.getFileLocations().forEach((file, fileLines) -> locations.put(file, new TreeSet<>(fileLines)));
+			lines.add(info.getWord() + " " + locations);
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,222 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.Metrics;
+import WordTracker.WordInfo;
+import WordTracker.WordTracker;
+
+/**
+ * Class Description:
+ * Tests writing sorted runs, reading them back and merging them, through the
+ * memory-bounded ingest and the partitions of a WordTracker: a repository
+ * built under a memory budget, from one run per file or from a single run
+ * written by indexPartition, must hold the same words, lines and positions as
+ * one built without a budget, including words that occur in many runs and
+ * files and a word too long for DataOutput.writeUTF.
+ */
+public class SortedRunTest {
+	private static final int FILES = 40;
+	private static final int VOCABULARY = 1500;
+	private static final String[] PHRASES = {"a b", "ba bb", "c d e", "aa ab ac"};
+	private Path directory;
+	private Path corpus;
+
+	/**
+	 * Creates a corpus of files whose lines are random words from a shared
+	 * vocabulary, so that most words occur in many files.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("sortedrun");
+		corpus = Files.createDirectory(directory.resolve("corpus"));
+		Random random = new Random(42);
+		for (int f = 0; f < FILES; f++) {
+			List<String> lines = new ArrayList<>();
+			for (int l = 0; l < 300; l++) {
+				StringBuilder line = new StringBuilder();
+				for (int w = 0; w < 8; w++) {
+					line.append(name(random.nextInt(VOCABULARY))).append(w % 3 == 2 ? ", " : " ");
+				}
+				lines.add(line.toString());
+			}
+			Files.write(corpus.resolve("file" + f + ".txt"), lines, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Deletes the temporary directory.
+	 *
+	 * @throws IOException If a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for a budget of one megabyte, as set by --memory 1, which
+	 * the corpus of 96000 postings exceeds several times, with a word tree
+	 * and with a sharded repository, before and after the repository is
+	 * loaded again.
+	 *
+	 * @throws IOException If the corpus cannot be processed.
+	 */
+	@Test(timeout = 120000)
+	public void testOneMegabyteMatchesUnbounded() throws IOException {
+		Map<String, String> expected = describe(ingest("expected", false, 0, false));
+		for (boolean sharded : new boolean[] {false, true}) {
+			WordTracker bounded = ingest("bounded" + sharded, sharded, 1L << 20, false);
+			assertTrue("Expected runs to be spilled", bounded.getMetrics().getNanos(Metrics.Phase.SPILL) > 0);
+			assertEquals(0, bounded.getRunCount());  // Merged by the save
+			assertEquals(expected, describe(bounded));
+			assertEquals(expected, describe(new WordTracker(directory.resolve("bounded" + sharded + ".ser").toString(), sharded)));
+		}
+	}
+
+	/**
+	 * Test method for a budget so small that every file is written to a run
+	 * of its own, so the save merges 40 runs that share most of their words,
+	 * with positions recorded.
+	 *
+	 * @throws IOException If the corpus cannot be processed.
+	 */
+	@Test(timeout = 120000)
+	public void testRunPerFile() throws IOException {
+		WordTracker unbounded = ingest("expected", false, 0, true);
+		WordTracker bounded = ingest("bounded", false, 1, true);
+		assertEquals(describe(unbounded), describe(bounded));
+		for (String phrase : PHRASES) {
+			assertEquals(phrase, unbounded.phraseQuery(phrase), bounded.phraseQuery(phrase));
+		}
+		WordTracker loaded = new WordTracker(directory.resolve("bounded.ser").toString());
+		assertEquals(describe(unbounded), describe(loaded));
+	}
+
+	/**
+	 * Test method for writing all words as one run with indexPartition, with
+	 * and without a budget, and reading it back with reduce into an empty
+	 * repository.
+	 *
+	 * @throws IOException If the corpus cannot be processed.
+	 */
+	@Test(timeout = 120000)
+	public void testPartitionRunRoundTrip() throws IOException {
+		Map<String, String> expected = describe(ingest("expected", false, 0, true));
+		for (long budget : new long[] {0, 1}) {
+			Path part = directory.resolve("part" + budget + ".ser");
+			WordTracker partition = new WordTracker(part.toString());
+			partition.setPositional(true);
+			partition.setMemoryBudget(budget);
+			assertEquals(FILES, partition.indexPartition(corpus.toString(), 0, 1).getFilesIndexed());
+
+			WordTracker reduced = new WordTracker(directory.resolve("reduced" + budget + ".ser").toString());
+			reduced.reduce(Collections.singletonList(part));
+			assertEquals(expected, describe(reduced));
+			assertEquals(FILES, reduced.getFileCount());
+		}
+	}
+
+	/**
+	 * Test method for a word of 70000 letters, longer than the 65535 bytes
+	 * DataOutput.writeUTF can write, in files that are written to separate
+	 * runs.
+	 *
+	 * @throws IOException If a file cannot be written.
+	 */
+	@Test(timeout = 120000)
+	public void testWordLongerThanWriteUtf() throws IOException {
+		char[] letters = new char[70000];
+		Arrays.fill(letters, 'q');
+		letters[letters.length - 1] = 'r';
+		String longWord = new String(letters);
+		Path input = Files.createDirectory(directory.resolve("long"));
+		Files.write(input.resolve("a.txt"), Arrays.asList("short " + longWord, "other"), StandardCharsets.UTF_8);
+		Files.write(input.resolve("b.txt"), Arrays.asList(longWord + " short"), StandardCharsets.UTF_8);
+
+		WordTracker tracker = new WordTracker(directory.resolve("long.ser").toString());
+		tracker.setMemoryBudget(1);
+		tracker.processDirectory(input.toString());
+		WordInfo info = tracker.lookup(longWord);
+		assertNotNull(info);
+		assertEquals(2, info.getFileLocations().size());
+		assertNotNull(tracker.lookup("short"));
+		assertNotNull(new WordTracker(directory.resolve("long.ser").toString()).lookup(longWord));
+	}
+
+	/**
+	 * Ingests the corpus into a new repository.
+	 *
+	 * @param name The name of the repository file, without extension.
+	 * @param sharded True to use a sharded repository.
+	 * @param budget The memory budget in bytes, or 0 for none.
+	 * @param positional True to record positions.
+	 * @return The tracker.
+	 * @throws IOException If the corpus cannot be processed.
+	 */
+	private WordTracker ingest(String name, boolean sharded, long budget, boolean positional) throws IOException {
+		WordTracker tracker = new WordTracker(directory.resolve(name + ".ser").toString(), sharded);
+		tracker.setPositional(positional);
+		tracker.setMemoryBudget(budget);
+		assertEquals(FILES, tracker.processDirectory(corpus.toString()).getFilesIndexed());
+		return tracker;
+	}
+
+	/**
+	 * Describes every word of a repository with its lines and positions per
+	 * file, in an order that does not depend on how the maps were built.
+	 *
+	 * @param tracker The tracker.
+	 * @return The description of each word, by word.
+	 */
+	private static Map<String, String> describe(WordTracker tracker) {
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+		try (PrintStream output = new PrintStream(report, true, "UTF-8")) {
+			tracker.writeReport("-pf", output);
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+		Map<String, String> words = new TreeMap<>();
+		for (String line : new String(report.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+			if (!line.startsWith("Word: ")) continue;
+			String word = line.substring("Word: ".length(), line.indexOf(','));
+			WordInfo info = tracker.lookup(word);
+			StringBuilder description = new StringBuilder();
+			new TreeMap<>(info.getFileLocations()).forEach((file, lines) ->
+				description.append(file).append(new TreeSet<>(lines)));
+			new TreeMap<>(info.getFilePositions()).forEach((file, positions) ->
+				description.append(file).append(Arrays.deepToString(positions.positions())));
+			words.put(word, description.toString());
+		}
+		assertEquals(tracker.getDistinctWords(), words.size());
+		return words;
+	}
+
+	/**
+	 * Makes a distinct word for a number, of letters only.
+	 *
+	 * @param i The number.
+	 * @return The word.
+	 */
+	private static String name(int i) {
+		StringBuilder word = new StringBuilder();
+		for (int n = i; ; n = n / 26 - 1) {
+			word.append((char) ('a' + n % 26));
+			if (n < 26) return word.toString();
+		}
+	}
+}
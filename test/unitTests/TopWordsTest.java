@@ -0,0 +1,158 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.TopWords;
+import WordTracker.WordInfo;
+import implementations.BSTree;
+import implementations.BSTreeNode;
+
+/**
+ * Class Description:
+ * Tests the top-K selection TopWords: the sequential and the parallel scan
+ * must both give the K most frequent words, with ties on the occurrence count
+ * broken alphabetically.
+ */
+public class TopWordsTest {
+	private static final int WORDS = 3000;
+	private BSTree<WordInfo> tree;
+	private List<WordInfo> all;
+
+	/**
+	 * Builds a tree of 3000 words inserted in random order, each occurring on
+	 * one to five lines, so that most words share their count with hundreds of
+	 * others.
+	 */
+	@Before
+	public void setUp() {
+		Random random = new Random(42);
+		all = new ArrayList<>();
+		for (int i = 0; i < WORDS; i++) {
+			WordInfo info = new WordInfo(String.format("w%05d", i));
+			int count = 1 + random.nextInt(5);
+			for (int line = 1; line <= count; line++) {
+				info.addLocation("file.txt", line);
+			}
+			all.add(info);
+		}
+		List<WordInfo> shuffled = new ArrayList<>(all);
+		Collections.shuffle(shuffled, random);
+		tree = new BSTree<>();
+		for (WordInfo info : shuffled) {
+			tree.add(info);
+		}
+	}
+
+	/**
+	 * Test method for {@link WordTracker.TopWords#select(Collection, int, boolean)}
+	 * giving the same words in the same order sequentially and in parallel,
+	 * matching a full sort, for K below, at and above the number of words.
+	 */
+	@Test
+	public void testSequentialMatchesParallel() {
+		for (int k : new int[] {1, 7, 100, 1000, WORDS, WORDS + 50}) {
+			List<String> expected = expected(all, k);
+			assertEquals("Sequential, k=" + k, expected, words(TopWords.select(roots(tree), k, false)));
+			assertEquals("Parallel, k=" + k, expected, words(TopWords.select(roots(tree), k, true)));
+		}
+	}
+
+	/**
+	 * Test method for ties being broken alphabetically: every word has the same
+	 * count, so the first K words in alphabetical order are selected, on every
+	 * run of the parallel scan.
+	 */
+	@Test
+	public void testTiesAreDeterministic() {
+		BSTree<WordInfo> equal = new BSTree<>();
+		List<WordInfo> words = new ArrayList<>();
+		for (int i = WORDS - 1; i >= 0; i -= 7) {
+			WordInfo info = new WordInfo(String.format("t%05d", (i * 31) % WORDS));
+			info.addLocation("file.txt", 1);
+			if (equal.add(info)) words.add(info);
+		}
+		List<String> expected = expected(words, 25);
+		for (int run = 0; run < 20; run++) {
+			assertEquals(expected, words(TopWords.select(roots(equal), 25, true)));
+			assertEquals(expected, words(TopWords.select(roots(equal), 25, false)));
+		}
+	}
+
+	/**
+	 * Test method for words spread over several trees, as in a sharded
+	 * repository, including an empty tree left out of the roots.
+	 */
+	@Test
+	public void testSeveralTrees() {
+		BSTree<WordInfo> first = new BSTree<>();
+		BSTree<WordInfo> second = new BSTree<>();
+		for (WordInfo info : all) {
+			(info.getWord().compareTo("w01500") < 0 ? first : second).add(info);
+		}
+		List<BSTreeNode<WordInfo>> roots = Arrays.asList(first.getRoot(), second.getRoot());
+		for (int k : new int[] {1, 200, WORDS + 1}) {
+			List<String> expected = expected(all, k);
+			assertEquals(expected, words(TopWords.select(roots, k, false)));
+			assertEquals(expected, words(TopWords.select(roots, k, true)));
+		}
+		assertTrue(TopWords.select(Collections.emptyList(), 5, true).isEmpty());
+	}
+
+	/**
+	 * Test method for K = 0, which is rejected by both scans.
+	 */
+	@Test
+	public void testZeroK() {
+		for (boolean parallel : new boolean[] {false, true}) {
+			try {
+				TopWords.select(roots(tree), 0, parallel);
+				fail("Expected IllegalArgumentException for k=0");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Selects the top K words by sorting all of them.
+	 *
+	 * @param words The words.
+	 * @param k The number of words to select.
+	 * @return The selected words, by descending count and then alphabetically.
+	 */
+	private static List<String> expected(List<WordInfo> words, int k) {
+		List<WordInfo> sorted = new ArrayList<>(words);
+		sorted.sort(Comparator.comparingInt((WordInfo info) -> -info.getOccurrences())
+			.thenComparing(WordInfo::getWord));
+		return words(sorted.subList(0, Math.min(k, sorted.size())));
+	}
+
+	/**
+	 * Gets the words of a list of WordInfo objects.
+	 *
+	 * @param infos The WordInfo objects.
+	 * @return Their words, in the same order.
+	 */
+	private static List<String> words(List<WordInfo> infos) {
+		List<String> words = new ArrayList<>();
+		for (WordInfo info : infos) {
+			words.add(info.getWord());
+		}
+		return words;
+	}
+
+	/**
+	 * Gets the root of a tree as a list of roots.
+	 *
+	 * @param tree The tree.
+	 * @return The root, or nothing if the tree is empty.
+	 */
+	private static List<BSTreeNode<WordInfo>> roots(BSTree<WordInfo> tree) {
+		return tree.isEmpty() ? Collections.emptyList() : Collections.singletonList(tree.getRoot());
+	}
+}
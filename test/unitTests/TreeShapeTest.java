@@ -0,0 +1,151 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import implementations.BSTree;
+import implementations.TreeShape;
+
+/**
+ * Class Description:
+ * Tests the shape statistics of {@link implementations.BSTree#getShape()}
+ * against depth histograms worked out by hand, for an empty tree, a single
+ * node, a degenerate chain, trees built from sorted elements and a tree built
+ * by adding elements, and for combining the shapes of several trees.
+ */
+public class TreeShapeTest {
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * Test method for an empty tree, which has no depths and counts as balanced.
+	 */
+	@Test
+	public void testEmpty() {
+		TreeShape shape = new BSTree<Integer>().getShape();
+		assertArrayEquals(new long[0], shape.getDepthHistogram());
+		assertEquals(0, shape.getSize());
+		assertEquals(0, shape.getMaxDepth());
+		assertEquals(0, shape.getOptimalHeight());
+		assertEquals(0.0, shape.getAverageDepth(), DELTA);
+		assertEquals(1.0, shape.getImbalanceRatio(), DELTA);
+	}
+
+	/**
+	 * Test method for a tree of one node at depth 1.
+	 */
+	@Test
+	public void testSingleNode() {
+		BSTree<Integer> tree = new BSTree<>();
+		tree.add(7);
+		TreeShape shape = tree.getShape();
+		assertArrayEquals(new long[] {1}, shape.getDepthHistogram());
+		assertEquals(1, shape.getSize());
+		assertEquals(1, shape.getMaxDepth());
+		assertEquals(1, shape.getOptimalHeight());
+		assertEquals(1.0, shape.getAverageDepth(), DELTA);
+		assertEquals(1.0, shape.getImbalanceRatio(), DELTA);
+	}
+
+	/**
+	 * Test method for 40 elements added in ascending order, which form a chain
+	 * with one node at each depth from 1 to 40, deeper than the 16 depths the
+	 * histogram starts with: the average depth is 41 / 2 and the optimal height
+	 * is ceil(log2(41)) = 6.
+	 */
+	@Test
+	public void testDegenerateChain() {
+		BSTree<Integer> tree = new BSTree<>();
+		for (int i = 1; i <= 40; i++) {
+			tree.add(i);
+		}
+		TreeShape shape = tree.getShape();
+		long[] expected = new long[40];
+		Arrays.fill(expected, 1);
+		assertArrayEquals(expected, shape.getDepthHistogram());
+		assertEquals(40, shape.getSize());
+		assertEquals(40, shape.getMaxDepth());
+		assertEquals(tree.getHeight(), shape.getMaxDepth());
+		assertEquals(6, shape.getOptimalHeight());
+		assertEquals(20.5, shape.getAverageDepth(), DELTA);
+		assertEquals(40.0 / 6, shape.getImbalanceRatio(), DELTA);
+	}
+
+	/**
+	 * Test method for trees built from sorted elements: 10 elements fill depths
+	 * 1 to 3 and put the last 3 at depth 4, and 15 elements form a complete
+	 * tree of height 4.
+	 */
+	@Test
+	public void testFromSorted() {
+		TreeShape ten = BSTree.fromSorted(range(10)).getShape();
+		assertArrayEquals(new long[] {1, 2, 4, 3}, ten.getDepthHistogram());
+		assertEquals(4, ten.getMaxDepth());
+		assertEquals(4, ten.getOptimalHeight());
+		assertEquals((1 + 2 * 2 + 4 * 3 + 3 * 4) / 10.0, ten.getAverageDepth(), DELTA);
+		assertEquals(1.0, ten.getImbalanceRatio(), DELTA);
+
+		TreeShape fifteen = BSTree.fromSorted(range(15)).getShape();
+		assertArrayEquals(new long[] {1, 2, 4, 8}, fifteen.getDepthHistogram());
+		assertEquals(4, fifteen.getMaxDepth());
+		assertEquals((1 + 2 * 2 + 4 * 3 + 8 * 4) / 15.0, fifteen.getAverageDepth(), DELTA);
+
+		TreeShape large = BSTree.fromSorted(range(1023)).getShape();
+		assertEquals(10, large.getMaxDepth());
+		assertEquals(512, large.getDepthHistogram()[9]);
+	}
+
+	/**
+	 * Test method for a tree built by adding 50, 30, 70, 20, 40, 60, 80, 10:
+	 * a complete tree of three levels with 10 below 20 at depth 4.
+	 */
+	@Test
+	public void testAddedElements() {
+		BSTree<Integer> tree = new BSTree<>();
+		for (int element : new int[] {50, 30, 70, 20, 40, 60, 80, 10}) {
+			tree.add(element);
+		}
+		TreeShape shape = tree.getShape();
+		assertArrayEquals(new long[] {1, 2, 4, 1}, shape.getDepthHistogram());
+		assertEquals(4, shape.getMaxDepth());
+		assertEquals(4, shape.getOptimalHeight());
+		assertEquals((1 + 2 * 2 + 4 * 3 + 4) / 8.0, shape.getAverageDepth(), DELTA);
+	}
+
+	/**
+	 * Test method for combining the shapes of an empty tree, a chain of 3 and
+	 * a tree of 10 built from sorted elements, whose histograms are added
+	 * depth by depth.
+	 */
+	@Test
+	public void testCombine() {
+		BSTree<Integer> chain = new BSTree<>();
+		for (int i = 3; i >= 1; i--) {
+			chain.add(i);
+		}
+		TreeShape combined = TreeShape.combine(Arrays.asList(
+			new BSTree<Integer>().getShape(), chain.getShape(), BSTree.fromSorted(range(10)).getShape()));
+		assertArrayEquals(new long[] {2, 3, 5, 3}, combined.getDepthHistogram());
+		assertEquals(13, combined.getSize());
+		assertEquals(4, combined.getMaxDepth());
+		assertEquals(4, combined.getOptimalHeight());
+	}
+
+	/**
+	 * Makes the list of integers from 0 up to a limit.
+	 *
+	 * @param size The number of integers.
+	 * @return The integers 0 to size - 1 in ascending order.
+	 */
+	private static List<Integer> range(int size) {
+		List<Integer> list = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+}
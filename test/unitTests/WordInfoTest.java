@@ -0,0 +1,171 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.Test;
+
+import WordTracker.WordInfo;
+
+/**
+ * Class Description:
+ * Tests that {@link WordTracker.WordInfo#compareTo(WordInfo)}, which compares
+ * the first eight characters packed into a long before it falls back to the
+ * words, orders words exactly like String.compareTo: short words, words that
+ * agree in their first eight characters or are prefixes of each other, words
+ * with characters that cannot be packed, and words read back from a stream.
+ */
+public class WordInfoTest {
+	private static final char[] ALPHABET = {'a', 'b', 'z', 'A', '~', '\u007f', '\u0001', '\u0000',
+		'\u00e9', '\u00ff', '\u0100', '\u4e2d'};
+
+	/**
+	 * Test method for words shorter than eight characters, including the
+	 * empty word.
+	 */
+	@Test
+	public void testShortWords() {
+		checkAllPairs(Arrays.asList("", "a", "b", "ab", "abc", "abd", "ba", "z", "zzzzzzz", "A", "Zebra", "~"));
+	}
+
+	/**
+	 * Test method for words that agree in their first eight characters and
+	 * differ after them, so the packed prefixes are equal.
+	 */
+	@Test
+	public void testEqualFirstEightCharacters() {
+		checkAllPairs(Arrays.asList("abcdefgh", "abcdefgha", "abcdefghb", "abcdefghz", "abcdefghaa",
+			"abcdefghab", "abcdefghzzzzzz", "abcdefgh\u00e9", "abcdefgh\u4e2d", "abcdefgi", "abcdefgg"));
+	}
+
+	/**
+	 * Test method for words that are prefixes of each other, within and beyond
+	 * the first eight characters.
+	 */
+	@Test
+	public void testPrefixes() {
+		List<String> words = new ArrayList<>();
+		String word = "internationalization";
+		for (int length = 0; length <= word.length(); length++) {
+			words.add(word.substring(0, length));
+		}
+		words.add("interns");
+		words.add("internb");
+		checkAllPairs(words);
+	}
+
+	/**
+	 * Test method for words with Latin-1 characters above ASCII and with
+	 * characters outside Latin-1, which are not packed and are compared as
+	 * strings, also against words that are packed, and for the characters at
+	 * the ends of ASCII.
+	 */
+	@Test
+	public void testCharactersThatCannotBePacked() {
+		checkAllPairs(Arrays.asList("caf\u00e9", "cafe", "cafes", "caf\u00e9s", "caf\u00ff", "caf\u007f",
+			"\u00e9t\u00e9", "ete", "\u00ff", "\u0100", "\u4e2d\u6587", "a\u4e2d", "a", "\u0000", "a\u0000",
+			"a\u0000b", "a\u0001", "\u007f\u007f\u007f\u007f\u007f\u007f\u007f\u007f\u007f",
+			"abcdefg\u00e9", "abcdefgz"));
+	}
+
+	/**
+	 * Test method for random words of up to twelve characters from an alphabet
+	 * that mixes packable and unpackable characters.
+	 */
+	@Test
+	public void testRandomWords() {
+		Random random = new Random(42);
+		Set<String> words = new HashSet<>();
+		while (words.size() < 400) {
+			int length = random.nextInt(13);
+			StringBuilder word = new StringBuilder();
+			for (int i = 0; i < length; i++) {
+				// Mostly packable characters, so many words share their first characters
+				char[] pool = random.nextInt(8) == 0 ? ALPHABET : new char[] {'a', 'b'};
+				word.append(pool[random.nextInt(pool.length)]);
+			}
+			words.add(word.toString());
+		}
+		checkAllPairs(new ArrayList<>(words));
+	}
+
+	/**
+	 * Test method for WordInfo objects read back from a stream, whose packed
+	 * prefix is not serialized but computed again, compared with each other
+	 * and with WordInfo objects created directly, and sorted in a tree set.
+	 *
+	 * @throws Exception If the objects cannot be serialized.
+	 */
+	@Test
+	public void testDeserialized() throws Exception {
+		List<String> words = Arrays.asList("", "apple", "applesauce", "applesauceb", "applesaucea", "b",
+			"caf\u00e9", "cafe", "\u4e2d", "zzzzzzzzzz", "abcdefgh", "abcdefgg");
+		List<WordInfo> created = new ArrayList<>();
+		for (String word : words) {
+			WordInfo info = new WordInfo(word);
+			info.addLocation("file.txt", 3);
+			created.add(info);
+		}
+		List<WordInfo> read = roundTrip(created);
+		for (int i = 0; i < words.size(); i++) {
+			assertEquals(words.get(i), read.get(i).getWord());
+			assertEquals(1, read.get(i).getOccurrences());
+			for (int j = 0; j < words.size(); j++) {
+				int expected = Integer.signum(words.get(i).compareTo(words.get(j)));
+				String pair = "\"" + words.get(i) + "\" and \"" + words.get(j) + "\"";
+				assertEquals(pair, expected, Integer.signum(read.get(i).compareTo(read.get(j))));
+				assertEquals(pair, expected, Integer.signum(read.get(i).compareTo(created.get(j))));
+				assertEquals(pair, expected, Integer.signum(created.get(i).compareTo(read.get(j))));
+			}
+		}
+
+		TreeSet<WordInfo> sorted = new TreeSet<>(read);
+		List<String> expected = new ArrayList<>(words);
+		Collections.sort(expected);
+		List<String> actual = new ArrayList<>();
+		for (WordInfo info : sorted) {
+			actual.add(info.getWord());
+		}
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Checks that comparing WordInfo objects for every pair of words gives the
+	 * same sign as comparing the words.
+	 *
+	 * @param words The words.
+	 */
+	private static void checkAllPairs(List<String> words) {
+		List<WordInfo> infos = new ArrayList<>();
+		for (String word : words) {
+			infos.add(new WordInfo(word));
+		}
+		for (int i = 0; i < words.size(); i++) {
+			for (int j = 0; j < words.size(); j++) {
+				assertEquals("\"" + words.get(i) + "\" and \"" + words.get(j) + "\"",
+					Integer.signum(words.get(i).compareTo(words.get(j))),
+					Integer.signum(infos.get(i).compareTo(infos.get(j))));
+			}
+		}
+	}
+
+	/**
+	 * Serializes a list of WordInfo objects and reads it back.
+	 *
+	 * @param infos The objects.
+	 * @return The objects read back.
+	 * @throws Exception If the objects cannot be serialized.
+	 */
+	@SuppressWarnings("unchecked")  // The stream holds the list written just before
+	private static List<WordInfo> roundTrip(List<WordInfo> infos) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(new ArrayList<>(infos));
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (List<WordInfo>) in.readObject();
+		}
+	}
+}
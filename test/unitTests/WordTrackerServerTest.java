@@ -0,0 +1,212 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import WordTracker.WordTracker;
+import WordTracker.WordTrackerServer;
+
+/**
+ * Class Description:
+ * Tests the line protocol of {@link WordTracker.WordTrackerServer} over a
+ * loopback socket on an ephemeral port: a lookup, malformed requests, and
+ * several clients at once.
+ */
+public class WordTrackerServerTest {
+	private Path directory;
+	private Path input;
+	private WordTracker tracker;
+	private WordTrackerServer server;
+	private Thread serverThread;
+	private int port;
+
+	/**
+	 * Creates an input file and starts a server for an empty repository in a
+	 * temporary directory.
+	 *
+	 * @throws IOException If the file cannot be written or the socket cannot be bound.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("server");
+		input = directory.resolve("input.txt");
+		Files.write(input, "hello kitty\nhello world\n".getBytes(StandardCharsets.UTF_8));
+		tracker = new WordTracker(directory.resolve("repository.ser").toString());
+		tracker.setBackgroundSave(true);
+		server = new WordTrackerServer(tracker, 0);
+		port = server.bind();
+		serverThread = new Thread(() -> {
+			try {
+				server.run();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		serverThread.setDaemon(true);
+		serverThread.start();
+	}
+
+	/**
+	 * Stops the server, waits for its saves and deletes the temporary directory.
+	 *
+	 * @throws Exception If the server does not stop or a file cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+		serverThread.join(10000);
+		assertFalse("Server did not stop.", serverThread.isAlive());
+		tracker.flushSaves();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Test method for ingesting a file and looking up a word, in any case, and
+	 * a word that does not occur.
+	 *
+	 * @throws IOException If the connection fails.
+	 */
+	@Test(timeout = 30000)
+	public void testLookup() throws IOException {
+		try (Client client = new Client()) {
+			assertEquals(Collections.singletonList("OK"), client.request("INGEST " + input));
+			assertEquals(Arrays.asList(
+				"Word: hello, Occurrences: 2",
+				"  File: " + input + ", Lines: [1, 2]",
+				"OK"), client.request("LOOKUP Hello"));
+			assertEquals(Collections.singletonList("OK"), client.request("lookup missing"));
+			assertEquals(Collections.singletonList("OK"), client.request("PING"));
+		}
+	}
+
+	/**
+	 * Test method for malformed requests, each answered with a single ERR line
+	 * while the connection stays usable.
+	 *
+	 * @throws IOException If the connection fails.
+	 */
+	@Test(timeout = 30000)
+	public void testMalformedRequests() throws IOException {
+		try (Client client = new Client()) {
+			for (String request : new String[] {"LOOKUP", "FROBNICATE now", "REPORT -pt", "REPORT -pt zero",
+					"REPORT -px", "FUZZY", "FUZZY word -1", "INGEST " + directory.resolve("absent.txt"),
+					"QUERY kitty AND", "REMOVE " + input}) {
+				List<String> response = client.request(request);
+				assertEquals(request, 1, response.size());
+				assertTrue(request + " gave " + response, response.get(0).startsWith("ERR "));
+			}
+			assertEquals(Collections.singletonList("OK"), client.request("PING"));
+			assertEquals(Collections.singletonList("OK"), client.request("QUIT"));
+			assertNull(client.input.readLine());  // Closed by the server
+		}
+	}
+
+	/**
+	 * Test method for several clients looking up words while another ingests
+	 * a file: every lookup gets a complete response.
+	 *
+	 * @throws Exception If a client fails.
+	 */
+	@Test(timeout = 60000)
+	public void testConcurrentClients() throws Exception {
+		try (Client client = new Client()) {
+			client.request("INGEST " + input);
+		}
+		Path second = directory.resolve("second.txt");
+		Files.write(second, "kitty again\n".getBytes(StandardCharsets.UTF_8));
+
+		List<String> world = Arrays.asList(
+			"Word: world, Occurrences: 1",
+			"  File: " + input + ", Lines: [2]",
+			"OK");
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int c = 0; c < 8; c++) {
+				final boolean ingests = c == 0;
+				futures.add(pool.submit(() -> {
+					try (Client client = new Client()) {
+						if (ingests) assertEquals(Collections.singletonList("OK"), client.request("INGEST " + second));
+						for (int i = 0; i < 50; i++) {
+							assertEquals(world, client.request("LOOKUP world"));
+							List<String> kitty = client.request("LOOKUP kitty");
+							assertEquals("OK", kitty.get(kitty.size() - 1));
+							assertTrue(kitty.get(0).startsWith("Word: kitty, Occurrences: "));
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		try (Client client = new Client()) {
+			assertEquals("Word: kitty, Occurrences: 2", client.request("LOOKUP kitty").get(0));
+		}
+	}
+
+	/**
+	 * A connection to the server that sends one request at a time.
+	 */
+	private class Client implements Closeable {
+		private final Socket socket;
+		private final BufferedReader input;
+		private final PrintWriter output;
+
+		/**
+		 * Connects to the server.
+		 *
+		 * @throws IOException If the connection fails.
+		 */
+		Client() throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			output = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+		}
+
+		/**
+		 * Sends a request and reads its response.
+		 *
+		 * @param request The request line.
+		 * @return The lines of the response, up to and including OK or an ERR line.
+		 * @throws IOException If the connection fails or closes before the response ends.
+		 */
+		List<String> request(String request) throws IOException {
+			output.println(request);
+			List<String> response = new ArrayList<>();
+			String line;
+			while ((line = input.readLine()) != null) {
+				response.add(line);
+				if (line.equals("OK") || line.startsWith("ERR ")) return response;
+			}
+			throw new EOFException("Connection closed after " + response);
+		}
+
+		/**
+		 * Closes the connection.
+		 *
+		 * @throws IOException If the socket cannot be closed.
+		 */
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+}